@@ -3,22 +3,47 @@ package com.mizuho.marketdata.pricingboard;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.mizuho.marketdata.pricingboard.external.InboundPricing;
+import com.mizuho.marketdata.pricingboard.external.BatchPricingRegistration;
+import com.mizuho.marketdata.pricingboard.external.InboundPricingDecoder;
+import com.mizuho.marketdata.pricingboard.external.MetricsResource;
+import com.mizuho.marketdata.pricingboard.external.OutboundCompositePricing;
 import com.mizuho.marketdata.pricingboard.external.OutboundPricing;
+import com.mizuho.marketdata.pricingboard.external.OutboundPricingBinaryCodec;
 import com.mizuho.marketdata.pricingboard.external.PricingResource;
+import com.mizuho.marketdata.pricingboard.external.PricingStreamHub;
 import com.mizuho.marketdata.pricingboard.external.exception.CatchAllExceptionMapper;
 import com.mizuho.marketdata.pricingboard.external.exception.InvalidPricingExceptionMapper;
+import com.mizuho.marketdata.pricingboard.infrastructure.BatchingJmsInboundEndpoint;
+import com.mizuho.marketdata.pricingboard.infrastructure.ColumnarPricingHistory;
+import com.mizuho.marketdata.pricingboard.infrastructure.ConflatingChannel;
+import com.mizuho.marketdata.pricingboard.infrastructure.DeduplicatingPricingSelector;
+import com.mizuho.marketdata.pricingboard.infrastructure.FsyncPolicy;
+import com.mizuho.marketdata.pricingboard.infrastructure.HistoryRecordingPricingRepository;
 import com.mizuho.marketdata.pricingboard.infrastructure.InMemoryPricingRepository;
+import com.mizuho.marketdata.pricingboard.infrastructure.JournalingPricingRepository;
+import com.mizuho.marketdata.pricingboard.infrastructure.OffHeapPricingRepository;
+import com.mizuho.marketdata.pricingboard.infrastructure.PartitionedExecutorChannel;
+import com.mizuho.marketdata.pricingboard.infrastructure.StageTimingAdvice;
+import com.mizuho.marketdata.pricingboard.infrastructure.SynchronizingMessageListenerContainer;
 import com.mizuho.marketdata.pricingboard.pricing.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.dsl.ConsumerEndpointSpec;
 import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.IntegrationFlowBuilder;
 import org.springframework.integration.dsl.MessageChannels;
+import org.springframework.integration.dsl.Pollers;
 import org.springframework.integration.handler.GenericHandler;
 import org.springframework.integration.handler.LoggingHandler;
 import org.springframework.integration.jms.dsl.Jms;
+import org.springframework.integration.transformer.GenericTransformer;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
@@ -28,10 +53,15 @@ import org.springframework.scheduling.annotation.Scheduled;
 
 import javax.jms.ConnectionFactory;
 import javax.ws.rs.ApplicationPath;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
-import static javax.jms.Session.SESSION_TRANSACTED;
+import static java.lang.String.format;
 import static org.springframework.integration.dsl.IntegrationFlows.from;
-import static org.springframework.integration.dsl.Transformers.fromJson;
 import static org.springframework.integration.dsl.Transformers.toJson;
 
 @Configuration
@@ -43,39 +73,242 @@ public class PricingBoardConfiguration extends ResourceConfig {
     public static final String VENDOR_Y_INBOUND_QUEUE = "VendorY-Inbound";
     public static final String VENDOR_X = "VendorX";
     public static final String VENDOR_Y = "VendorY";
+    public static final String COMPOSITE_VENDOR = "Composite";
+    private static final VendorId VENDOR_X_ID = VendorId.of(VENDOR_X);
+    private static final VendorId VENDOR_Y_ID = VendorId.of(VENDOR_Y);
 
     public static final String DLQ = "DeadLetters";
     public static final String OUTBOUND_TOPIC = "Outbound";
+    public static final String OUTBOUND_BINARY_TOPIC = "Outbound.Binary";
     public static final String VENDOR_HEADER = "vendor";
     public static final String INSTRUMENT_HEADER = "instrument";
+    public static final String FORMAT_HEADER = "format";
+    public static final String JSON_FORMAT = "json";
+    public static final String BINARY_FORMAT = "binary";
+
+    @Value("${pricingboard.pricing-id.generator:uuid}")
+    private String pricingIdGeneratorType;
+
+    @Value("${pricingboard.pricing-id.node:0}")
+    private int pricingIdNode;
+
+    @Value("${pricingboard.inbound.batch-size:1}")
+    private int inboundBatchSize;
+
+    @Value("${pricingboard.inbound.batch-timeout-ms:50}")
+    private long inboundBatchTimeout;
+
+    @Value("${pricingboard.ingest.partitions:0}")
+    private int ingestPartitions;
+
+    @Value("${pricingboard.ingest.queue-depth:1024}")
+    private int ingestQueueDepth;
+
+    @Value("${pricingboard.repository.type:in-memory}")
+    private String repositoryType;
+
+    @Value("${pricingboard.repository.max-entries:0}")
+    private long repositoryMaxEntries;
+
+    @Value("${pricingboard.repository.max-bytes:0}")
+    private long repositoryMaxBytes;
+
+    @Value("${pricingboard.repository.off-heap.max-vendors:64}")
+    private int offHeapMaxVendors;
+
+    @Value("${pricingboard.repository.off-heap.id-capacity:40}")
+    private int offHeapIdCapacity;
+
+    @Value("${pricingboard.repository.off-heap.ticker-capacity:24}")
+    private int offHeapTickerCapacity;
+
+    @Value("${pricingboard.eviction.ttl:P30D}")
+    private Duration evictionTimeToLive;
+
+    @Value("${pricingboard.journal.directory:}")
+    private String journalDirectory;
+
+    @Value("${pricingboard.journal.segment-size-mb:64}")
+    private int journalSegmentSizeMb;
+
+    @Value("${pricingboard.journal.fsync:PERIODIC}")
+    private FsyncPolicy journalFsyncPolicy;
+
+    @Value("${pricingboard.journal.fsync-interval-ms:1000}")
+    private long journalFsyncInterval;
+
+    @Value("${pricingboard.journal.snapshot-interval-ms:300000}")
+    private long journalSnapshotInterval;
+
+    @Value("${pricingboard.history.enabled:false}")
+    private boolean historyEnabled;
+
+    @Value("${pricingboard.history.block-size:1024}")
+    private int historyBlockSize;
+
+    @Value("${pricingboard.history.retention:P7D}")
+    private Duration historyRetention;
+
+    @Value("${pricingboard.bars.intervals:}")
+    private String[] barIntervals;
+
+    @Value("${pricingboard.bars.depth:60}")
+    private int barDepth;
+
+    @Value("${pricingboard.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    @Value("${pricingboard.dedup.capacity:1000000}")
+    private int dedupCapacity;
+
+    @Value("${pricingboard.dedup.false-positive-rate:0.0001}")
+    private double dedupFalsePositiveRate;
+
+    @Value("${pricingboard.registration.batch-size:500}")
+    private int registrationBatchSize;
+
+    @Value("${pricingboard.stream.buffer-size:256}")
+    private int streamBufferSize;
+
+    @Value("${pricingboard.stream.slow-consumer-policy:CONFLATE}")
+    private PricingStreamHub.Policy streamSlowConsumerPolicy;
+
+    @Value("${pricingboard.stream.threads:2}")
+    private int streamThreads;
+
+    @Value("${pricingboard.stream.write-timeout:PT5S}")
+    private Duration streamWriteTimeout;
+
+    @Value("${pricingboard.price.max-scale:18}")
+    private int priceMaxScale;
+
+    @Value("${pricingboard.price.precision-policy:REJECT}")
+    private PricePrecision.Policy pricePrecisionPolicy;
+
+    @Value("${pricingboard.outbound.conflation-interval-ms:0}")
+    private long outboundConflationInterval;
+
+    @Value("${pricingboard.outbound.composite.enabled:false}")
+    private boolean outboundCompositeEnabled;
 
     public PricingBoardConfiguration() {
         register(PricingResource.class);
+        register(MetricsResource.class);
         register(InvalidPricingExceptionMapper.class);
         register(CatchAllExceptionMapper.class);
     }
 
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+
     @Bean
     public PricingIdGenerator pricingIdGenerator() {
-        return new UUIDPricingIdGenerator();
+        switch (pricingIdGeneratorType) {
+            case "uuid":
+                return new UUIDPricingIdGenerator();
+            case "time-ordered":
+                return new TimeOrderedPricingIdGenerator(clock(), pricingIdNode);
+            default:
+                throw new IllegalArgumentException(format("Unknown pricingboard.pricing-id.generator %s", pricingIdGeneratorType));
+        }
     }
 
     @Bean
     public PricingEnricher pricingEnricher() {
-        return new PricingEnricher(pricingIdGenerator());
+        return new PricingEnricher(pricingIdGenerator(), pricePrecision());
+    }
+
+    @Bean
+    public PricePrecision pricePrecision() {
+        return new PricePrecision(priceMaxScale, pricePrecisionPolicy);
+    }
+
+    @Bean
+    public InboundPricingDecoder inboundPricingDecoder() {
+        return new InboundPricingDecoder(pricePrecision());
+    }
+
+    @Bean
+    public BatchPricingRegistration batchPricingRegistration() {
+        return new BatchPricingRegistration(inboundPricingDecoder(), pricingEnricher(), pricingManagementService(), registrationBatchSize);
+    }
+
+    @Bean
+    public PricingStreamHub pricingStreamHub() {
+        PricingStreamHub hub = new PricingStreamHub(streamBufferSize, streamSlowConsumerPolicy, streamThreads, streamWriteTimeout);
+        hub.bindTo(meterRegistry());
+        return hub;
+    }
+
+    @Bean
+    public PricingBarAggregator pricingBarAggregator() {
+        PricingBarAggregator aggregator = new PricingBarAggregator(Arrays.stream(barIntervals)
+                .map(String::trim)
+                .filter(i -> !i.isEmpty())
+                .map(Duration::parse)
+                .collect(Collectors.toList()), barDepth);
+        aggregator.bindTo(meterRegistry());
+        return aggregator;
+    }
+
+    @Bean
+    @ConditionalOnProperty("pricingboard.dedup.enabled")
+    public PricingDeduplicator pricingDeduplicator() {
+        PricingDeduplicator deduplicator = new PricingDeduplicator(dedupCapacity, dedupFalsePositiveRate);
+        deduplicator.bindTo(meterRegistry());
+        return deduplicator;
     }
 
     @Bean
-    public InMemoryPricingRepository pricingRepository() {
-        return new InMemoryPricingRepository();
+    public EvictablePricingRepository pricingRepository() {
+        EvictablePricingRepository repository = latestPricingRepository();
+        if (historyEnabled) {
+            repository = new HistoryRecordingPricingRepository(repository, pricingHistory(), clock(), historyRetention);
+        }
+        if (pricingBarAggregator().isEnabled()) {
+            repository.addEvictionListener(pricingBarAggregator()::evicted);
+        }
+        if (journalDirectory.isEmpty()) {
+            return repository;
+        }
+        return new JournalingPricingRepository(repository, Paths.get(journalDirectory), journalSegmentSizeMb * 1024 * 1024,
+                journalFsyncPolicy, journalFsyncInterval, journalSnapshotInterval);
+    }
+
+    @Bean
+    public ColumnarPricingHistory pricingHistory() {
+        ColumnarPricingHistory history = new ColumnarPricingHistory(historyBlockSize);
+        if (historyEnabled) {
+            history.bindTo(meterRegistry());
+        }
+        return history;
+    }
+
+    private EvictablePricingRepository latestPricingRepository() {
+        switch (repositoryType) {
+            case "in-memory":
+                InMemoryPricingRepository inMemory = new InMemoryPricingRepository(clock(), evictionTimeToLive,
+                        repositoryMaxEntries, repositoryMaxBytes);
+                inMemory.bindTo(meterRegistry());
+                return inMemory;
+            case "off-heap":
+                OffHeapPricingRepository offHeap = new OffHeapPricingRepository(
+                        offHeapMaxVendors, offHeapIdCapacity, offHeapTickerCapacity, clock(), evictionTimeToLive);
+                offHeap.bindTo(meterRegistry());
+                return offHeap;
+            default:
+                throw new IllegalArgumentException(format("Unknown pricingboard.repository.type %s", repositoryType));
+        }
     }
 
     @Bean
     public PricingManagementService pricingManagementService() {
-        return new PricingManagementService(pricingRepository());
+        return new PricingManagementService(pricingRepository(), historyEnabled ? pricingHistory() : null);
     }
 
-    @Scheduled(cron = "0 0 0 * * *")
+    @Scheduled(fixedDelayString = "${pricingboard.eviction.interval-ms:60000}")
     public void evictEligiblePricingsFromInMemoryRepository() {
         pricingRepository().evictEligible();
     }
@@ -87,39 +320,138 @@ public class PricingBoardConfiguration extends ResourceConfig {
 
     @Bean
     public IntegrationFlow vendorXFlow() {
-        return from(Jms.messageDrivenChannelAdapter(jmsConnectionFactory())
-                    .destination(VENDOR_X_INBOUND_QUEUE)
-                    .errorChannel(errors())
-                    .configureListenerContainer(c -> c.sessionAcknowledgeMode(SESSION_TRANSACTED)))
+        return fromVendorQueue(VENDOR_X_INBOUND_QUEUE)
                 .channel(VENDOR_X)
-                .transform(fromJson(InboundPricing.class))
-                .transform(InboundPricing.class, p -> p.copy().forVendor(VENDOR_X).build())
+                .transform(Object.class, decoding(VENDOR_X_ID), timed("decode"))
                 .channel(vendorAgnosticInput())
                 .get();
     }
 
     @Bean
     public IntegrationFlow vendorYFlow() {
-        return from(Jms.messageDrivenChannelAdapter(jmsConnectionFactory())
-                    .destination(VENDOR_Y_INBOUND_QUEUE)
-                    .errorChannel(errors())
-                    .configureListenerContainer(c -> c.sessionAcknowledgeMode(SESSION_TRANSACTED)))
+        return fromVendorQueue(VENDOR_Y_INBOUND_QUEUE)
                 .channel(VENDOR_Y)
-                .transform(fromJson(InboundPricing.class))
-                .transform(InboundPricing.class, p -> p.copy().forVendor(VENDOR_Y).build())
+                .transform(Object.class, decoding(VENDOR_Y_ID), timed("decode"))
                 .channel(vendorAgnosticInput())
                 .get();
     }
 
+    /**
+     * Decodes a vendor's Json, sent as text or bytes, into a pricing straight away, counting the pricings received from
+     * the vendor.
+     */
+    private GenericTransformer<Object, Pricing> decoding(VendorId vendorId) {
+        Counter received = Counter.builder("pricingboard.pipeline.pricings")
+                .tag("vendor", vendorId.toString())
+                .description("Pricings received from the vendor")
+                .register(meterRegistry());
+        return payload -> {
+            Pricing pricing = inboundPricingDecoder().decodePayload(payload, vendorId);
+            received.increment();
+            return pricing;
+        };
+    }
+
+    /**
+     * Times the endpoint's handling of every message under the given stage of the pipeline.
+     */
+    private <S extends ConsumerEndpointSpec<S, ?>> Consumer<S> timed(String stage) {
+        StageTimingAdvice advice = new StageTimingAdvice(stage, meterRegistry());
+        return e -> e.advice(advice);
+    }
+
+    private IntegrationFlowBuilder fromVendorQueue(String queue) {
+        if (inboundBatchSize > 1) {
+            BatchingJmsInboundEndpoint endpoint =
+                    new BatchingJmsInboundEndpoint(jmsConnectionFactory(), queue, inboundBatchSize, inboundBatchTimeout);
+            endpoint.setErrorChannel(errors());
+            return from(endpoint);
+        }
+        SynchronizingMessageListenerContainer container = new SynchronizingMessageListenerContainer();
+        container.setConnectionFactory(jmsConnectionFactory());
+        container.setDestinationName(queue);
+        container.setSessionTransacted(true);
+        return from(Jms.messageDrivenChannelAdapter(container)
+                    .errorChannel(errors()));
+    }
+
     @Bean
     public IntegrationFlow mainFlow() {
-        return from(vendorAgnosticInput())
-                .transform(InboundPricing.class, InboundPricing::toPricing)
-                .transform(Pricing.class, p -> pricingEnricher().enrich(p))
-                .wireTap(p -> p.handle(pricingRegistration()))
+        IntegrationFlowBuilder flow = deduplicateIfEnabled(from(vendorAgnosticInput()))
+                .channel(pricingIngest())
+                .transform(Pricing.class, p -> pricingEnricher().enrich(p), timed("enrich"))
+                .wireTap(p -> p.handle(pricingRegistration(), timed("register")));
+        if (outboundCompositeEnabled) {
+            flow = flow.wireTap(compositePricings());
+        }
+        flow = flow
+                .wireTap(p -> p.handle(pricingStreaming()))
+                .wireTap(p -> p.handle(pricingBars()))
                 .transform(Pricing.class, OutboundPricing::fromPricing)
                 .enrichHeaders(e -> e.<OutboundPricing>headerFunction(VENDOR_HEADER, m -> m.getPayload().vendorId()))
-                .enrichHeaders(e -> e.<OutboundPricing>headerFunction(INSTRUMENT_HEADER, m -> m.getPayload().instrumentId()))
+                .enrichHeaders(e -> e.<OutboundPricing>headerFunction(INSTRUMENT_HEADER, m -> m.getPayload().instrumentId()));
+        return conflateIfEnabled(flow)
+                .channel(publishedPricings())
+                .get();
+    }
+
+    private IntegrationFlowBuilder deduplicateIfEnabled(IntegrationFlowBuilder flow) {
+        if (!dedupEnabled) {
+            return flow;
+        }
+        return flow.filter(Pricing.class, new DeduplicatingPricingSelector(pricingDeduplicator()));
+    }
+
+    private IntegrationFlowBuilder conflateIfEnabled(IntegrationFlowBuilder flow) {
+        if (outboundConflationInterval < 1) {
+            return flow;
+        }
+        ConflatingChannel conflation = new ConflatingChannel("outbound-conflation",
+                m -> Arrays.asList(m.getHeaders().get(VENDOR_HEADER), m.getHeaders().get(INSTRUMENT_HEADER)));
+        conflation.bindTo(meterRegistry());
+        return flow
+                .channel(conflation)
+                .bridge(e -> e.poller(Pollers.fixedRate(outboundConflationInterval).maxMessagesPerPoll(-1)));
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "pricingboard.outbound.json.enabled", matchIfMissing = true)
+    public IntegrationFlow jsonOutboundFlow() {
+        return from(publishedPricings())
+                .enrichHeaders(e -> e.header(FORMAT_HEADER, JSON_FORMAT))
+                .transform(toJson(), timed("serialize-json"))
+                .handle(Jms.outboundAdapter(jmsConnectionFactory())
+                        .destination(OUTBOUND_TOPIC)
+                        .configureJmsTemplate(c -> c.sessionTransacted(true)), timed("send-json"))
+                .get();
+    }
+
+    @Bean
+    @ConditionalOnProperty("pricingboard.outbound.binary.enabled")
+    public IntegrationFlow binaryOutboundFlow() {
+        OutboundPricingBinaryCodec codec = new OutboundPricingBinaryCodec();
+        return from(publishedPricings())
+                .enrichHeaders(e -> e.header(FORMAT_HEADER, BINARY_FORMAT))
+                .transform(OutboundPricing.class, codec::encode, timed("serialize-binary"))
+                .handle(Jms.outboundAdapter(jmsConnectionFactory())
+                        .destination(OUTBOUND_BINARY_TOPIC)
+                        .configureJmsTemplate(c -> c.sessionTransacted(true)), timed("send-binary"))
+                .get();
+    }
+
+    /**
+     * Publishes the instrument's composite after every registered pricing as Json on the outbound topic, under the
+     * {@value #COMPOSITE_VENDOR} vendor header so subscribers can select it or leave it out.
+     */
+    @Bean
+    @ConditionalOnProperty("pricingboard.outbound.composite.enabled")
+    public IntegrationFlow compositeOutboundFlow() {
+        return from(compositePricings())
+                .handle(Pricing.class, (p, headers) -> pricingManagementService().compositeByInstrument(p.instrumentId())
+                        .map(OutboundCompositePricing::fromCompositePricing)
+                        .orElse(null))
+                .enrichHeaders(e -> e.header(VENDOR_HEADER, COMPOSITE_VENDOR).header(FORMAT_HEADER, JSON_FORMAT)
+                        .<OutboundCompositePricing>headerFunction(INSTRUMENT_HEADER, m -> m.getPayload().instrumentId()))
                 .transform(toJson())
                 .handle(Jms.outboundAdapter(jmsConnectionFactory())
                         .destination(OUTBOUND_TOPIC)
@@ -142,6 +474,28 @@ public class PricingBoardConfiguration extends ResourceConfig {
         return MessageChannels.direct("vendor-agnostic-input").get();
     }
 
+    @Bean
+    public MessageChannel pricingIngest() {
+        if (ingestPartitions < 1) {
+            return MessageChannels.direct("pricing-ingest").get();
+        }
+        PartitionedExecutorChannel channel = new PartitionedExecutorChannel(
+                "pricing-ingest", ingestPartitions, ingestQueueDepth, m -> ((Pricing) m.getPayload()).instrumentId());
+        channel.setErrorChannel(errors());
+        channel.bindTo(meterRegistry());
+        return channel;
+    }
+
+    @Bean
+    public MessageChannel publishedPricings() {
+        return MessageChannels.publishSubscribe("published-pricings").get();
+    }
+
+    @Bean
+    public MessageChannel compositePricings() {
+        return MessageChannels.direct("composite-pricings").get();
+    }
+
     @Bean
     public MessageChannel errors() {
         return MessageChannels.direct("errors").get();
@@ -155,6 +509,27 @@ public class PricingBoardConfiguration extends ResourceConfig {
         };
     }
 
+    @Bean
+    public GenericHandler<Pricing> pricingStreaming() {
+        return (p, headers) -> {
+            pricingStreamHub().publish(p);
+            return null;
+        };
+    }
+
+    @Bean
+    public GenericHandler<Pricing> pricingBars() {
+        return (p, headers) -> {
+            pricingBarAggregator().update(p);
+            return null;
+        };
+    }
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
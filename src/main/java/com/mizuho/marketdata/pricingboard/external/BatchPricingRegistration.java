@@ -0,0 +1,202 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingEnricher;
+import com.mizuho.marketdata.pricingboard.pricing.PricingManagementService;
+import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Registers a stream of inbound pricings given either as a Json array or as newline delimited Json objects. Pricings are
+ * decoded incrementally and registered {@code batchSize} at a time with a single
+ * {@link PricingManagementService#registerPricings} call, i.e. one repository store, journal write and log line per batch.
+ * One newline delimited result per pricing is written after every batch, so neither the request nor the response is
+ * ever held in memory as a whole.
+ */
+public class BatchPricingRegistration {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchPricingRegistration.class);
+    private static final String REGISTERED = "registered";
+    private static final String REJECTED = "rejected";
+    private static final String REGISTRATION_FAILED = "Pricing registration failed";
+
+    private final InboundPricingDecoder decoder;
+    private final PricingEnricher pricingEnricher;
+    private final PricingManagementService pricingManagementService;
+    private final int batchSize;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public BatchPricingRegistration(InboundPricingDecoder decoder, PricingEnricher pricingEnricher,
+                                    PricingManagementService pricingManagementService, int batchSize) {
+        this.decoder = requireNonNull(decoder, "decoder must not be null");
+        this.pricingEnricher = requireNonNull(pricingEnricher, "pricingEnricher must not be null");
+        this.pricingManagementService = requireNonNull(pricingManagementService, "pricingManagementService must not be null");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be a positive number");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads pricings until the end of the input or the first malformed Json or non-object value, which ends the
+     * registration with a rejected result as the parser can not find the start of the next pricing.
+     */
+    public void register(InputStream input, OutputStream output) throws IOException {
+        int count = 0;
+        int registered = 0;
+        try (JsonParser parser = jsonFactory.createParser(input);
+             JsonGenerator generator = jsonFactory.createGenerator(output)) {
+            generator.setRootValueSeparator(null);
+            List<Item> batch = newArrayListWithCapacity(batchSize);
+            boolean inArray = false;
+            boolean readable = true;
+            while (readable) {
+                Item item;
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == START_ARRAY && count == 0 && !inArray) {
+                        inArray = true;
+                        token = parser.nextToken();
+                    }
+                    if (token == null || inArray && token == END_ARRAY) {
+                        break;
+                    }
+                    item = token == START_OBJECT ? decode(parser, count) : Item.rejected(count, "pricing must be a Json object");
+                    readable = completed(parser, inArray);
+                } catch (IOException e) {
+                    item = Item.rejected(count, format("malformed Json: %s", e.getMessage()));
+                    readable = false;
+                }
+                batch.add(item);
+                count++;
+                if (batch.size() == batchSize) {
+                    registered += registerAndWrite(batch, generator);
+                    batch.clear();
+                }
+            }
+            registered += registerAndWrite(batch, generator);
+        }
+        LOG.info("Registered {} and rejected {} pricings of a batch registration", registered, count - registered);
+    }
+
+    /**
+     * Tells whether the parser stopped right after a complete top level pricing, i.e. decoding did not give up midway.
+     */
+    private static boolean completed(JsonParser parser, boolean inArray) {
+        JsonStreamContext context = parser.getParsingContext();
+        return parser.currentToken() == END_OBJECT && (inArray ? context.inArray() && context.getParent().inRoot() : context.inRoot());
+    }
+
+    private Item decode(JsonParser parser, int index) {
+        try {
+            return Item.decoded(index, decoder.decode(parser, null));
+        } catch (InvalidPricingException e) {
+            return Item.rejected(index, e);
+        }
+    }
+
+    private int registerAndWrite(List<Item> batch, JsonGenerator generator) throws IOException {
+        List<Item> enriched = newArrayListWithCapacity(batch.size());
+        List<Pricing> pricings = newArrayListWithCapacity(batch.size());
+        for (Item item : batch) {
+            if (item.pricing != null) {
+                try {
+                    item = Item.decoded(item.index, pricingEnricher.enrich(item.pricing));
+                    pricings.add(item.pricing);
+                } catch (InvalidPricingException e) {
+                    item = Item.rejected(item.index, e);
+                }
+            }
+            enriched.add(item);
+        }
+        List<List<String>> errors = pricings.isEmpty() ? emptyList() : pricingManagementService.registerPricings(pricings);
+        Iterator<List<String>> pricingErrors = errors.iterator();
+        int registered = 0;
+        for (Item item : enriched) {
+            if (item.pricing != null) {
+                List<String> reasons = pricingErrors.next();
+                if (reasons.isEmpty()) {
+                    item = Item.registered(item.index, item.pricing);
+                    registered++;
+                } else {
+                    item = Item.rejected(item.index, REGISTRATION_FAILED, reasons);
+                }
+            }
+            item.writeTo(generator);
+        }
+        generator.flush();
+        return registered;
+    }
+
+    private static final class Item {
+        private final int index;
+        private final Pricing pricing;
+        private final String status;
+        private final String message;
+        private final List<String> reasons;
+
+        private Item(int index, Pricing pricing, String status, String message, List<String> reasons) {
+            this.index = index;
+            this.pricing = pricing;
+            this.status = status;
+            this.message = message;
+            this.reasons = reasons;
+        }
+
+        static Item decoded(int index, Pricing pricing) {
+            return new Item(index, pricing, null, null, null);
+        }
+
+        static Item registered(int index, Pricing pricing) {
+            return new Item(index, pricing, REGISTERED, null, null);
+        }
+
+        static Item rejected(int index, InvalidPricingException e) {
+            return rejected(index, e.getMessage(), e.reasons());
+        }
+
+        static Item rejected(int index, String message, List<String> reasons) {
+            return new Item(index, null, REJECTED, message, reasons);
+        }
+
+        static Item rejected(int index, String reason) {
+            return rejected(index, "Pricing decoding failed", singletonList(reason));
+        }
+
+        void writeTo(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("index", index);
+            generator.writeStringField("status", status);
+            if (pricing != null) {
+                generator.writeStringField("id", pricing.id().value());
+            } else {
+                generator.writeStringField("message", message);
+                generator.writeArrayFieldStart("reasons");
+                for (String reason : reasons) {
+                    generator.writeString(reason);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+    }
+}
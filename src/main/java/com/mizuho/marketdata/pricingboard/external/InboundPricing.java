@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.base.Objects;
 import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.PricePrecision;
 import com.mizuho.marketdata.pricingboard.pricing.Pricing;
 import com.mizuho.marketdata.pricingboard.pricing.VendorId;
 
@@ -48,11 +49,18 @@ public final class InboundPricing {
     public LocalDateTime priceDateTime() { return priceDateTime; }
 
     public Pricing toPricing() {
+        return toPricing(PricePrecision.LOSSLESS);
+    }
+
+    /**
+     * Converts to a pricing whose price is limited by the given precision before it is fitted into a mantissa and scale.
+     */
+    public Pricing toPricing(PricePrecision pricePrecision) {
         return Pricing.Builder.aPricing()
-                .forInstrument(new InstrumentId(instrumentId))
-                .forVendor(new VendorId(vendorId))
+                .forInstrument(InstrumentId.of(instrumentId))
+                .forVendor(VendorId.of(vendorId))
                 .forTicker(ticker)
-                .withPrice(price)
+                .withPrice(pricePrecision.apply(price))
                 .withPriceDateTime(priceDateTime)
                 .build();
     }
@@ -0,0 +1,247 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.PricePrecision;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static com.fasterxml.jackson.core.JsonToken.*;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads the inbound pricing Json format straight into a {@link Pricing} using the streaming parser,
+ * bypassing data binding and the intermediate {@link InboundPricing}.
+ */
+public class InboundPricingDecoder {
+    private static final String DECODING_FAILED = "Pricing decoding failed";
+
+    private final JsonFactory jsonFactory;
+    private final PricePrecision pricePrecision;
+
+    public InboundPricingDecoder() {
+        this(PricePrecision.LOSSLESS);
+    }
+
+    public InboundPricingDecoder(PricePrecision pricePrecision) {
+        this(new JsonFactory(), pricePrecision);
+    }
+
+    /**
+     * @param pricePrecision applied to the decoded price before it is fitted into a mantissa and scale
+     */
+    public InboundPricingDecoder(JsonFactory jsonFactory, PricePrecision pricePrecision) {
+        this.jsonFactory = requireNonNull(jsonFactory, "jsonFactory must not be null");
+        this.pricePrecision = requireNonNull(pricePrecision, "pricePrecision must not be null");
+    }
+
+    public Pricing decode(String json, VendorId vendorId) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return decodeDocument(parser, vendorId);
+        } catch (IOException e) {
+            throw malformed(e);
+        }
+    }
+
+    /**
+     * Decodes Json held as bytes, detecting its Unicode encoding, as in the payload of a BytesMessage.
+     */
+    public Pricing decode(byte[] json, VendorId vendorId) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return decodeDocument(parser, vendorId);
+        } catch (IOException e) {
+            throw malformed(e);
+        }
+    }
+
+    /**
+     * Decodes a String or byte[] payload, the two forms a JMS text or bytes message is converted to.
+     */
+    public Pricing decodePayload(Object payload, VendorId vendorId) {
+        if (payload instanceof String) {
+            return decode((String) payload, vendorId);
+        }
+        if (payload instanceof byte[]) {
+            return decode((byte[]) payload, vendorId);
+        }
+        throw invalid(format("pricing must be Json text or bytes while %s was provided",
+                payload == null ? null : payload.getClass().getSimpleName()));
+    }
+
+    private Pricing decodeDocument(JsonParser parser, VendorId vendorId) throws IOException {
+        if (parser.nextToken() != START_OBJECT) {
+            throw invalid("pricing must be a Json object");
+        }
+        Pricing pricing = decode(parser, vendorId);
+        if (parser.nextToken() != null) {
+            throw invalid("unexpected content after pricing");
+        }
+        return pricing;
+    }
+
+    /**
+     * Decodes the object the parser is positioned at, leaving the parser on its closing token.
+     * A non-null {@code vendorId} takes precedence over the vendor found in the payload.
+     */
+    public Pricing decode(JsonParser parser, VendorId vendorId) {
+        String instrumentId = null;
+        String vendor = null;
+        String ticker = null;
+        BigDecimal price = null;
+        LocalDateTime priceDateTime = null;
+        List<String> errors = null;
+
+        try {
+            while (parser.nextToken() == FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == VALUE_NULL) {
+                    continue;
+                }
+                try {
+                    switch (field) {
+                        case "instrumentId":
+                            instrumentId = readText(parser, field);
+                            break;
+                        case "vendorId":
+                            vendor = readText(parser, field);
+                            break;
+                        case "ticker":
+                            ticker = readText(parser, field);
+                            break;
+                        case "price":
+                            price = readPrice(parser);
+                            break;
+                        case "priceDateTime":
+                            priceDateTime = readPriceDateTime(parser);
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                } catch (InvalidValueException e) {
+                    errors = errors == null ? newArrayList() : errors;
+                    errors.add(e.getMessage());
+                    parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != END_OBJECT) {
+                throw invalid("pricing must be a Json object");
+            }
+        } catch (IOException e) {
+            throw malformed(e);
+        }
+
+        errors = requirePresent(errors, instrumentId, "instrumentId must be provided");
+        errors = requirePresent(errors, vendorId != null ? vendorId : vendor, "vendorId must be provided");
+        errors = requirePresent(errors, ticker, "ticker must be provided");
+        errors = requirePresent(errors, price, "price must be provided");
+        errors = requirePresent(errors, priceDateTime, "priceDateTime must be provided");
+        if (errors != null) {
+            throw new InvalidPricingException(DECODING_FAILED, errors);
+        }
+
+        return Pricing.Builder.aPricing()
+                .forInstrument(InstrumentId.of(instrumentId))
+                .forVendor(vendorId != null ? vendorId : VendorId.of(vendor))
+                .forTicker(ticker)
+                .withPrice(pricePrecision.apply(price))
+                .withPriceDateTime(priceDateTime)
+                .build();
+    }
+
+    private static String readText(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken() != VALUE_STRING) {
+            throw new InvalidValueException(format("%s must be a string", field));
+        }
+        return parser.getText();
+    }
+
+    private static BigDecimal readPrice(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue();
+            case VALUE_STRING:
+                try {
+                    return new BigDecimal(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw new InvalidValueException(format("price must be a number while %s was provided", parser.getText()));
+                }
+            default:
+                throw new InvalidValueException("price must be a number");
+        }
+    }
+
+    private static LocalDateTime readPriceDateTime(JsonParser parser) throws IOException {
+        if (parser.currentToken() == VALUE_STRING) {
+            try {
+                return LocalDateTime.parse(parser.getText());
+            } catch (DateTimeParseException e) {
+                throw new InvalidValueException(format("priceDateTime must be an ISO date time while %s was provided", parser.getText()));
+            }
+        }
+        if (parser.currentToken() == START_ARRAY) {
+            int[] parts = new int[7];
+            int count = 0;
+            boolean wellFormed = true;
+            for (JsonToken token = parser.nextToken(); token != END_ARRAY; token = parser.nextToken()) {
+                if (token == null) {
+                    throw new JsonParseException(parser, "Unexpected end of input within priceDateTime");
+                }
+                if (token == VALUE_NUMBER_INT && count < parts.length) {
+                    parts[count++] = parser.getIntValue();
+                } else {
+                    wellFormed = false;
+                    parser.skipChildren();
+                }
+            }
+            if (!wellFormed || count < 5) {
+                throw new InvalidValueException("priceDateTime must be an array of 5 to 7 numbers");
+            }
+            try {
+                return LocalDateTime.of(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
+            } catch (RuntimeException e) {
+                throw new InvalidValueException(format("priceDateTime is not a valid date time: %s", e.getMessage()));
+            }
+        }
+        throw new InvalidValueException("priceDateTime must be an ISO date time");
+    }
+
+    private static List<String> requirePresent(List<String> errors, Object value, String message) {
+        if (value != null) {
+            return errors;
+        }
+        List<String> result = errors == null ? newArrayList() : errors;
+        result.add(message);
+        return result;
+    }
+
+    private static InvalidPricingException invalid(String reason) {
+        return new InvalidPricingException(DECODING_FAILED, singletonList(reason));
+    }
+
+    private static InvalidPricingException malformed(IOException e) {
+        return invalid(format("malformed Json: %s", e.getMessage()));
+    }
+
+    private static class InvalidValueException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private InvalidValueException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
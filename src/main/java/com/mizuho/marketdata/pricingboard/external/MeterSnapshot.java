@@ -0,0 +1,105 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Objects;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSupport;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Name, tags and current measurements of a meter. Timers and distribution summaries that publish percentiles add them
+ * as {@code p50}, {@code p99.9} and the like, timers in their base time unit.
+ */
+public final class MeterSnapshot {
+    private String name;
+    private Map<String, String> tags;
+    private Map<String, Double> measurements;
+
+    public static MeterSnapshot fromMeter(Meter meter) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (Tag tag : meter.getId().getTags()) {
+            tags.put(tag.getKey(), tag.getValue());
+        }
+        Map<String, Double> measurements = new LinkedHashMap<>();
+        for (Measurement measurement : meter.measure()) {
+            measurements.put(measurement.getStatistic().getTagValueRepresentation(), measurement.getValue());
+        }
+        if (meter instanceof HistogramSupport) {
+            for (ValueAtPercentile percentile : ((HistogramSupport) meter).takeSnapshot().percentileValues()) {
+                measurements.put(percentileKey(percentile.percentile()), meter instanceof Timer
+                        ? percentile.value(((Timer) meter).baseTimeUnit())
+                        : percentile.value());
+            }
+        }
+        return new MeterSnapshot(meter.getId().getName(), tags, measurements);
+    }
+
+    private static String percentileKey(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    public MeterSnapshot(@JsonProperty("name") String name,
+                         @JsonProperty("tags") Map<String, String> tags,
+                         @JsonProperty("measurements") Map<String, Double> measurements) {
+        this.name = name;
+        this.tags = tags;
+        this.measurements = measurements;
+    }
+
+    @JsonProperty("name")
+    public String name() {
+        return name;
+    }
+
+    @JsonProperty("tags")
+    public Map<String, String> tags() {
+        return tags;
+    }
+
+    @JsonProperty("measurements")
+    public Map<String, Double> measurements() {
+        return measurements;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("name", name)
+                .add("tags", tags)
+                .add("measurements", measurements)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(name, tags, measurements);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) {
+            return false;
+        }
+        if (other == this) {
+            return true;
+        }
+        if (this.getClass() != other.getClass()) {
+            return false;
+        }
+
+        final MeterSnapshot that = (MeterSnapshot) other;
+
+        return Objects.equal(this.name, that.name)
+                && Objects.equal(this.tags, that.tags)
+                && Objects.equal(this.measurements, that.measurements);
+    }
+}
@@ -0,0 +1,37 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.Response.ok;
+
+@Path("/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class MetricsResource {
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    public MetricsResource(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @GET
+    public Response getMetrics(@QueryParam("prefix") String prefix) {
+        return ok(
+                meterRegistry.getMeters().stream()
+                        .filter(m -> prefix == null || m.getId().getName().startsWith(prefix))
+                        .map(MeterSnapshot::fromMeter)
+                        .sorted(comparing(MeterSnapshot::name))
+                        .collect(toList())
+        ).build();
+    }
+}
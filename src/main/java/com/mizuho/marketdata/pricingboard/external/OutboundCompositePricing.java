@@ -0,0 +1,189 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Objects;
+import com.mizuho.marketdata.pricingboard.pricing.CompositePricing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Lowest, highest and median of the latest prices of an instrument across the vendors pricing it, with the vendor
+ * that priced it last.
+ */
+@JsonDeserialize(builder = OutboundCompositePricing.Builder.class)
+public final class OutboundCompositePricing {
+    private String instrumentId;
+    private int vendors;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal median;
+    private BigDecimal spread;
+    private String lastVendorId;
+    private LocalDateTime lastPriceDateTime;
+
+    public static OutboundCompositePricing fromCompositePricing(CompositePricing composite) {
+        return Builder.anOutboundCompositePricing()
+                .withInstrument(composite.instrumentId().toString())
+                .withVendors(composite.vendorCount())
+                .withMin(composite.min())
+                .withMax(composite.max())
+                .withMedian(composite.median())
+                .withSpread(composite.spread())
+                .withLastVendor(composite.lastVendorId() == null ? null : composite.lastVendorId().toString())
+                .withLastPriceDateTime(composite.lastPriceDateTime())
+                .build();
+    }
+
+    private OutboundCompositePricing(String instrumentId, int vendors, BigDecimal min, BigDecimal max, BigDecimal median,
+                                     BigDecimal spread, String lastVendorId, LocalDateTime lastPriceDateTime) {
+        this.instrumentId = instrumentId;
+        this.vendors = vendors;
+        this.min = min;
+        this.max = max;
+        this.median = median;
+        this.spread = spread;
+        this.lastVendorId = lastVendorId;
+        this.lastPriceDateTime = lastPriceDateTime;
+    }
+
+    @JsonProperty("instrumentId")
+    public String instrumentId() { return instrumentId; }
+
+    @JsonProperty("vendors")
+    public int vendors() { return vendors; }
+
+    @JsonProperty("min")
+    public BigDecimal min() { return min; }
+
+    @JsonProperty("max")
+    public BigDecimal max() { return max; }
+
+    @JsonProperty("median")
+    public BigDecimal median() { return median; }
+
+    @JsonProperty("spread")
+    public BigDecimal spread() { return spread; }
+
+    @JsonProperty("lastVendorId")
+    public String lastVendorId() { return lastVendorId; }
+
+    @JsonProperty("lastPriceDateTime")
+    public LocalDateTime lastPriceDateTime() { return lastPriceDateTime; }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("instrumentId", instrumentId)
+                .add("vendors", vendors)
+                .add("min", min)
+                .add("max", max)
+                .add("median", median)
+                .add("spread", spread)
+                .add("lastVendorId", lastVendorId)
+                .add("lastPriceDateTime", lastPriceDateTime)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(instrumentId, vendors, min, max, median, spread, lastVendorId, lastPriceDateTime);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) {
+            return false;
+        }
+        if (other == this) {
+            return true;
+        }
+        if (this.getClass() != other.getClass()) {
+            return false;
+        }
+
+        final OutboundCompositePricing that = (OutboundCompositePricing) other;
+
+        return Objects.equal(this.instrumentId, that.instrumentId)
+                && this.vendors == that.vendors
+                && Objects.equal(this.min, that.min)
+                && Objects.equal(this.max, that.max)
+                && Objects.equal(this.median, that.median)
+                && Objects.equal(this.spread, that.spread)
+                && Objects.equal(this.lastVendorId, that.lastVendorId)
+                && Objects.equal(this.lastPriceDateTime, that.lastPriceDateTime);
+    }
+
+    public static class Builder {
+        private String instrumentId;
+        private int vendors;
+        private BigDecimal min;
+        private BigDecimal max;
+        private BigDecimal median;
+        private BigDecimal spread;
+        private String lastVendorId;
+        private LocalDateTime lastPriceDateTime;
+
+        private Builder() {
+        }
+
+        public static Builder anOutboundCompositePricing() {
+            return new Builder();
+        }
+
+        @JsonProperty("instrumentId")
+        public Builder withInstrument(String instrumentId) {
+            this.instrumentId = instrumentId;
+            return this;
+        }
+
+        @JsonProperty("vendors")
+        public Builder withVendors(int vendors) {
+            this.vendors = vendors;
+            return this;
+        }
+
+        @JsonProperty("min")
+        public Builder withMin(BigDecimal min) {
+            this.min = min;
+            return this;
+        }
+
+        @JsonProperty("max")
+        public Builder withMax(BigDecimal max) {
+            this.max = max;
+            return this;
+        }
+
+        @JsonProperty("median")
+        public Builder withMedian(BigDecimal median) {
+            this.median = median;
+            return this;
+        }
+
+        @JsonProperty("spread")
+        public Builder withSpread(BigDecimal spread) {
+            this.spread = spread;
+            return this;
+        }
+
+        @JsonProperty("lastVendorId")
+        public Builder withLastVendor(String lastVendorId) {
+            this.lastVendorId = lastVendorId;
+            return this;
+        }
+
+        @JsonProperty("lastPriceDateTime")
+        public Builder withLastPriceDateTime(LocalDateTime lastPriceDateTime) {
+            this.lastPriceDateTime = lastPriceDateTime;
+            return this;
+        }
+
+        public OutboundCompositePricing build() {
+            return new OutboundCompositePricing(instrumentId, vendors, min, max, median, spread, lastVendorId, lastPriceDateTime);
+        }
+    }
+}
@@ -3,37 +3,41 @@ package com.mizuho.marketdata.pricingboard.external;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.common.base.Objects;
+import com.mizuho.marketdata.pricingboard.pricing.FixedPoint;
 import com.mizuho.marketdata.pricingboard.pricing.Pricing;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.lang.String.format;
 
 @JsonDeserialize(builder = OutboundPricing.Builder.class)
 public final class OutboundPricing {
     private String instrumentId;
     private String vendorId;
     private String ticker;
-    private BigDecimal price;
+    private long priceMantissa;
+    private int priceScale;
     private LocalDateTime priceDateTime;
 
     public static OutboundPricing fromPricing(Pricing pricing) {
-        return new OutboundPricing(
-                pricing.instrumentId().toString(), pricing.vendorId().toString(), pricing.ticker(), pricing.price(), pricing.priceDateTime());
+        return new OutboundPricing(pricing.instrumentId().toString(), pricing.vendorId().toString(), pricing.ticker(),
+                pricing.priceMantissa(), pricing.priceScale(), pricing.priceDateTime());
     }
 
-    private OutboundPricing(String instrumentId, String vendorId, String ticker, BigDecimal price, LocalDateTime priceDateTime) {
+    private OutboundPricing(String instrumentId, String vendorId, String ticker, long priceMantissa, int priceScale, LocalDateTime priceDateTime) {
         this.instrumentId = instrumentId;
         this.vendorId = vendorId;
         this.ticker = ticker;
-        this.price = price;
+        this.priceMantissa = priceMantissa;
+        this.priceScale = priceScale;
         this.priceDateTime = priceDateTime;
     }
 
     public OutboundPricing.Builder copy(){
         return Builder.anOutboundPricing().withInstrument(instrumentId).withVendor(vendorId).withTicker(ticker)
-                .withPrice(price).withPriceDateTime(priceDateTime);
+                .withPrice(priceMantissa, priceScale).withPriceDateTime(priceDateTime);
     }
 
     @JsonProperty("instrumentId")
@@ -49,9 +53,13 @@ public final class OutboundPricing {
 
     @JsonProperty("price")
     public BigDecimal price() {
-        return price;
+        return FixedPoint.toBigDecimal(priceMantissa, priceScale);
     }
 
+    public long priceMantissa() { return priceMantissa; }
+
+    public int priceScale() { return priceScale; }
+
     @JsonProperty("priceDateTime")
     public LocalDateTime priceDateTime() { return priceDateTime; }
 
@@ -61,14 +69,14 @@ public final class OutboundPricing {
                 .add("instrumentId", instrumentId)
                 .add("vendorId", vendorId)
                 .add("ticker", ticker)
-                .add("price", price)
+                .add("price", price())
                 .add("priceDateTime", priceDateTime)
                 .toString();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(instrumentId, vendorId, ticker, price, priceDateTime);
+        return Objects.hashCode(instrumentId, vendorId, ticker, FixedPoint.hashCode(priceMantissa, priceScale), priceDateTime);
     }
 
     @Override
@@ -88,7 +96,8 @@ public final class OutboundPricing {
         return Objects.equal(this.vendorId, that.vendorId)
                 && Objects.equal(this.instrumentId, that.instrumentId)
                 && Objects.equal(this.ticker, that.ticker)
-                && Objects.equal(this.price, that.price)
+                && this.priceMantissa == that.priceMantissa
+                && this.priceScale == that.priceScale
                 && Objects.equal(this.priceDateTime, that.priceDateTime);
     }
 
@@ -96,7 +105,8 @@ public final class OutboundPricing {
         private String instrumentId;
         private String vendorId;
         private String ticker;
-        private BigDecimal price;
+        private long priceMantissa;
+        private int priceScale = FixedPoint.ABSENT;
         private LocalDateTime priceDateTime;
 
         private Builder() {
@@ -123,8 +133,20 @@ public final class OutboundPricing {
             return this;
         }
 
+        @JsonProperty("price")
         public Builder withPrice(BigDecimal price) {
-            this.price = price;
+            BigDecimal fitted = price == null ? null : FixedPoint.fit(price);
+            if (price != null && fitted == null) {
+                throw new IllegalArgumentException(format("price %s does not fit into a 64 bit fixed-point number", price));
+            }
+            this.priceMantissa = fitted == null ? 0 : fitted.unscaledValue().longValue();
+            this.priceScale = fitted == null ? FixedPoint.ABSENT : fitted.scale();
+            return this;
+        }
+
+        public Builder withPrice(long mantissa, int scale) {
+            this.priceMantissa = mantissa;
+            this.priceScale = scale;
             return this;
         }
 
@@ -134,7 +156,7 @@ public final class OutboundPricing {
         }
 
         public OutboundPricing build() {
-            return new OutboundPricing(instrumentId, vendorId, ticker, price, priceDateTime);
+            return new OutboundPricing(instrumentId, vendorId, ticker, priceMantissa, priceScale, priceDateTime);
         }
     }
 }
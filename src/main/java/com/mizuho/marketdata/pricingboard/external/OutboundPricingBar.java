@@ -0,0 +1,208 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Objects;
+import com.mizuho.marketdata.pricingboard.pricing.PricingBar;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Open, high, low and close price of an instrument by a vendor over one interval, given as an Iso duration.
+ */
+@JsonDeserialize(builder = OutboundPricingBar.Builder.class)
+public final class OutboundPricingBar {
+    private String instrumentId;
+    private String vendorId;
+    private String interval;
+    private LocalDateTime start;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private int ticks;
+
+    public static OutboundPricingBar fromPricingBar(PricingBar bar) {
+        return Builder.anOutboundPricingBar()
+                .withInstrument(bar.instrumentId().toString())
+                .withVendor(bar.vendorId().toString())
+                .withInterval(bar.interval().toString())
+                .withStart(bar.start())
+                .withPrices(bar.open(), bar.high(), bar.low(), bar.close())
+                .withTicks(bar.ticks())
+                .build();
+    }
+
+    private OutboundPricingBar(String instrumentId, String vendorId, String interval, LocalDateTime start,
+                               BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, int ticks) {
+        this.instrumentId = instrumentId;
+        this.vendorId = vendorId;
+        this.interval = interval;
+        this.start = start;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.ticks = ticks;
+    }
+
+    @JsonProperty("instrumentId")
+    public String instrumentId() { return instrumentId; }
+
+    @JsonProperty("vendorId")
+    public String vendorId() { return vendorId; }
+
+    @JsonProperty("interval")
+    public String interval() { return interval; }
+
+    @JsonProperty("start")
+    public LocalDateTime start() { return start; }
+
+    @JsonProperty("open")
+    public BigDecimal open() { return open; }
+
+    @JsonProperty("high")
+    public BigDecimal high() { return high; }
+
+    @JsonProperty("low")
+    public BigDecimal low() { return low; }
+
+    @JsonProperty("close")
+    public BigDecimal close() { return close; }
+
+    @JsonProperty("ticks")
+    public int ticks() { return ticks; }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("instrumentId", instrumentId)
+                .add("vendorId", vendorId)
+                .add("interval", interval)
+                .add("start", start)
+                .add("open", open)
+                .add("high", high)
+                .add("low", low)
+                .add("close", close)
+                .add("ticks", ticks)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(instrumentId, vendorId, interval, start, open, high, low, close, ticks);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) {
+            return false;
+        }
+        if (other == this) {
+            return true;
+        }
+        if (this.getClass() != other.getClass()) {
+            return false;
+        }
+
+        final OutboundPricingBar that = (OutboundPricingBar) other;
+
+        return Objects.equal(this.instrumentId, that.instrumentId)
+                && Objects.equal(this.vendorId, that.vendorId)
+                && Objects.equal(this.interval, that.interval)
+                && Objects.equal(this.start, that.start)
+                && Objects.equal(this.open, that.open)
+                && Objects.equal(this.high, that.high)
+                && Objects.equal(this.low, that.low)
+                && Objects.equal(this.close, that.close)
+                && this.ticks == that.ticks;
+    }
+
+    public static class Builder {
+        private String instrumentId;
+        private String vendorId;
+        private String interval;
+        private LocalDateTime start;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private int ticks;
+
+        private Builder() {
+        }
+
+        public static Builder anOutboundPricingBar() {
+            return new Builder();
+        }
+
+        @JsonProperty("instrumentId")
+        public Builder withInstrument(String instrumentId) {
+            this.instrumentId = instrumentId;
+            return this;
+        }
+
+        @JsonProperty("vendorId")
+        public Builder withVendor(String vendorId) {
+            this.vendorId = vendorId;
+            return this;
+        }
+
+        @JsonProperty("interval")
+        public Builder withInterval(String interval) {
+            this.interval = interval;
+            return this;
+        }
+
+        @JsonProperty("start")
+        public Builder withStart(LocalDateTime start) {
+            this.start = start;
+            return this;
+        }
+
+        public Builder withPrices(BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close) {
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            return this;
+        }
+
+        @JsonProperty("open")
+        public Builder withOpen(BigDecimal open) {
+            this.open = open;
+            return this;
+        }
+
+        @JsonProperty("high")
+        public Builder withHigh(BigDecimal high) {
+            this.high = high;
+            return this;
+        }
+
+        @JsonProperty("low")
+        public Builder withLow(BigDecimal low) {
+            this.low = low;
+            return this;
+        }
+
+        @JsonProperty("close")
+        public Builder withClose(BigDecimal close) {
+            this.close = close;
+            return this;
+        }
+
+        @JsonProperty("ticks")
+        public Builder withTicks(int ticks) {
+            this.ticks = ticks;
+            return this;
+        }
+
+        public OutboundPricingBar build() {
+            return new OutboundPricingBar(instrumentId, vendorId, interval, start, open, high, low, close, ticks);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.mizuho.marketdata.pricingboard.pricing.FixedPoint;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fixed layout binary form of an {@link OutboundPricing}, big-endian:
+ * <pre>
+ * version:byte | instrumentId:short-len utf8 | vendorId:short-len utf8 | ticker:short-len utf8 |
+ * priceUnscaled:long | priceScale:int | epochSecondUtc:long | nanos:int
+ * </pre>
+ * Encoded instrument and vendor ids are cached so that repeated ids are not re-encoded on every message. Ids are sent as
+ * text rather than registry handles, since handles differ between runs and subscribers have no dictionary to map them.
+ */
+public class OutboundPricingBinaryCodec {
+    public static final byte VERSION = 1;
+
+    private static final int FIXED_LENGTH = 1 + 3 * 2 + 8 + 4 + 8 + 4;
+
+    private final LoadingCache<String, byte[]> encodedIds;
+
+    public OutboundPricingBinaryCodec() {
+        this(100_000);
+    }
+
+    public OutboundPricingBinaryCodec(long maxCachedIds) {
+        this.encodedIds = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedIds)
+                .build(CacheLoader.from(OutboundPricingBinaryCodec::utf8));
+    }
+
+    public byte[] encode(OutboundPricing pricing) {
+        requireNonNull(pricing, "pricing must not be null");
+        byte[] instrumentId = encodedIds.getUnchecked(requireNonNull(pricing.instrumentId(), "instrumentId must not be null"));
+        byte[] vendorId = encodedIds.getUnchecked(requireNonNull(pricing.vendorId(), "vendorId must not be null"));
+        byte[] ticker = utf8(requireNonNull(pricing.ticker(), "ticker must not be null"));
+        if (!FixedPoint.isPresent(pricing.priceScale())) {
+            throw new IllegalArgumentException("price must not be null");
+        }
+        LocalDateTime priceDateTime = requireNonNull(pricing.priceDateTime(), "priceDateTime must not be null");
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_LENGTH + instrumentId.length + vendorId.length + ticker.length);
+        buffer.put(VERSION);
+        putString(buffer, instrumentId);
+        putString(buffer, vendorId);
+        putString(buffer, ticker);
+        buffer.putLong(pricing.priceMantissa());
+        buffer.putInt(pricing.priceScale());
+        buffer.putLong(priceDateTime.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(priceDateTime.getNano());
+        return buffer.array();
+    }
+
+    public OutboundPricing decode(byte[] bytes) {
+        requireNonNull(bytes, "bytes must not be null");
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(format("unsupported pricing format version %d", version));
+            }
+            OutboundPricing.Builder builder = OutboundPricing.Builder.anOutboundPricing()
+                    .withInstrument(getString(buffer))
+                    .withVendor(getString(buffer))
+                    .withTicker(getString(buffer));
+            long mantissa = buffer.getLong();
+            builder.withPrice(mantissa, buffer.getInt());
+            long epochSecond = buffer.getLong();
+            builder.withPriceDateTime(LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(), ZoneOffset.UTC));
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException(format("%d unexpected trailing bytes", buffer.remaining()));
+            }
+            return builder.build();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated pricing", e);
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value.length > 0xFFFF) {
+            throw new IllegalArgumentException("value must not exceed 65535 encoded bytes");
+        }
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(UTF_8);
+    }
+}
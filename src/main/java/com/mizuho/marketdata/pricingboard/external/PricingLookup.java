@@ -0,0 +1,93 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Request for the latest pricings of many instruments at once, optionally only those of the given vendors.
+ */
+@JsonDeserialize(builder = PricingLookup.Builder.class)
+public final class PricingLookup {
+    private List<String> instrumentIds;
+    private List<String> vendorIds;
+
+    private PricingLookup(List<String> instrumentIds, List<String> vendorIds) {
+        this.instrumentIds = instrumentIds;
+        this.vendorIds = vendorIds;
+    }
+
+    @JsonProperty("instrumentIds")
+    public List<String> instrumentIds() {
+        return instrumentIds;
+    }
+
+    @JsonProperty("vendorIds")
+    public List<String> vendorIds() {
+        return vendorIds;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("instrumentIds", instrumentIds)
+                .add("vendorIds", vendorIds)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(instrumentIds, vendorIds);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) {
+            return false;
+        }
+        if (other == this) {
+            return true;
+        }
+        if (this.getClass() != other.getClass()) {
+            return false;
+        }
+
+        final PricingLookup that = (PricingLookup) other;
+
+        return Objects.equal(this.instrumentIds, that.instrumentIds)
+                && Objects.equal(this.vendorIds, that.vendorIds);
+    }
+
+    public static class Builder {
+        private List<String> instrumentIds = ImmutableList.of();
+        private List<String> vendorIds = ImmutableList.of();
+
+        private Builder() {
+        }
+
+        public static Builder aPricingLookup() {
+            return new Builder();
+        }
+
+        @JsonProperty("instrumentIds")
+        public Builder forInstruments(List<String> instrumentIds) {
+            this.instrumentIds = instrumentIds == null ? ImmutableList.of() : instrumentIds;
+            return this;
+        }
+
+        @JsonProperty("vendorIds")
+        public Builder forVendors(List<String> vendorIds) {
+            this.vendorIds = vendorIds == null ? ImmutableList.of() : vendorIds;
+            return this;
+        }
+
+        public PricingLookup build() {
+            return new PricingLookup(instrumentIds, vendorIds);
+        }
+    }
+}
@@ -1,31 +1,86 @@
 package com.mizuho.marketdata.pricingboard.external;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Splitter;
+import com.google.common.primitives.Ints;
 import com.mizuho.marketdata.pricingboard.external.exception.ErrorResult;
 import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingBarAggregator;
 import com.mizuho.marketdata.pricingboard.pricing.PricingEnricher;
 import com.mizuho.marketdata.pricingboard.pricing.PricingManagementService;
+import com.mizuho.marketdata.pricingboard.pricing.PricingView;
 import com.mizuho.marketdata.pricingboard.pricing.VendorId;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.ok;
 
 @Path("/board")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class PricingResource {
+    public static final String VERSION_HEADER = "X-Pricing-Version";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final int MAX_PAGE_SIZE = 10_000;
+    public static final int MAX_LOOKUP_SIZE = 10_000;
+    public static final int DEFAULT_TICKER_LIMIT = 100;
+    public static final int DEFAULT_HISTORY_LIMIT = 1000;
+    private static final Splitter ID_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final long EPOCH = System.currentTimeMillis();
+    private static final MediaType APPLICATION_NDJSON_TYPE = MediaType.valueOf(APPLICATION_NDJSON);
+    private static final List<Variant> VARIANTS = Variant.mediaTypes(APPLICATION_JSON_TYPE, APPLICATION_NDJSON_TYPE).build();
+
     private PricingManagementService pricingManagementService;
     private PricingEnricher pricingEnricher;
+    private BatchPricingRegistration batchPricingRegistration;
+    private PricingStreamHub pricingStreamHub;
+    private PricingBarAggregator pricingBarAggregator;
+    private ObjectWriter pricingWriter;
 
     @Autowired
-    public PricingResource(PricingManagementService pricingManagementService, PricingEnricher pricingEnricher) {
+    public PricingResource(PricingManagementService pricingManagementService, PricingEnricher pricingEnricher,
+                           BatchPricingRegistration batchPricingRegistration, PricingStreamHub pricingStreamHub,
+                           PricingBarAggregator pricingBarAggregator, ObjectMapper objectMapper) {
         this.pricingManagementService = pricingManagementService;
         this.pricingEnricher = pricingEnricher;
+        this.batchPricingRegistration = batchPricingRegistration;
+        this.pricingStreamHub = pricingStreamHub;
+        this.pricingBarAggregator = pricingBarAggregator;
+        this.pricingWriter = objectMapper.writerFor(OutboundPricing.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @POST
@@ -35,25 +90,340 @@ public class PricingResource {
             return Response.status(BAD_REQUEST).entity(new ErrorResult("Missing pricing details")).build();
         }
 
-        pricingManagementService.registerPricing(pricingEnricher.enrich(inboundPricing.toPricing()));
+        pricingManagementService.registerPricing(pricingEnricher.enrich(inboundPricing.toPricing(pricingEnricher.pricePrecision())));
 
         return ok().build();
     }
 
+    /**
+     * Registers a Json array or a newline delimited stream of pricings, answering with one newline delimited result per pricing.
+     */
+    @POST
+    @Path("/pricings")
+    @Consumes({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    @Produces(APPLICATION_NDJSON)
+    public Response registerPricings(InputStream pricings) {
+        return ok((StreamingOutput) output -> batchPricingRegistration.register(pricings, output)).build();
+    }
+
+    /**
+     * Streams the latest pricings of an instrument, or answers 304 when the {@code If-None-Match} tag still matches the
+     * instrument's version, in which case no pricing is read at all.
+     */
     @GET
     @Path("/pricing/instrument/{instrumentId}")
-    public Response getPricingForInstrumentId(@PathParam("instrumentId") String instrumentId) {
-        return ok(
-                pricingManagementService.allByInstument(new InstrumentId(instrumentId)).stream().map(OutboundPricing::fromPricing).collect(toList())
-        ).build();
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response getPricingForInstrumentId(@PathParam("instrumentId") String instrumentId, @Context Request request) {
+        InstrumentId id = new InstrumentId(instrumentId);
+        boolean ndjson = acceptsNdjson(request);
+        long version = pricingManagementService.instrumentVersion(id);
+        ResponseBuilder notModified = evaluatePreconditions(request, entityTag(version, ndjson, ""));
+        if (notModified != null) {
+            return notModified.header(VERSION_HEADER, version).build();
+        }
+        PricingView view = pricingManagementService.viewByInstrument(id);
+        return streamResponse(view, view.pricings(), ndjson, entityTag(view.version(), ndjson, "")).build();
     }
 
+    /**
+     * Streams the latest pricings of a vendor. With a {@code limit} only one page is returned in instrument handle order,
+     * and the {@value #NEXT_CURSOR_HEADER} header carries the cursor of the next page while there is one. Like for
+     * instruments, a current {@code If-None-Match} tag is answered with 304.
+     */
     @GET
     @Path("/pricing/vendor/{vendorId}")
-    public Response getPricingForVendorId(@PathParam("vendorId") String vendorId) {
-        return ok(
-                pricingManagementService.allByVendor(new VendorId(vendorId)).stream().map(OutboundPricing::fromPricing).collect(toList())
-        ).build();
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response getPricingForVendorId(@PathParam("vendorId") String vendorId, @QueryParam("limit") Integer limit,
+                                          @QueryParam("cursor") String cursor, @Context Request request) {
+        if (limit == null && cursor != null) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult("cursor requires a limit")).build();
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult(format("limit must be between 1 and %d", MAX_PAGE_SIZE))).build();
+        }
+        Integer after = cursor == null ? Integer.valueOf(-1) : Ints.tryParse(cursor);
+        if (after == null || after < -1) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult(format("cursor %s is not valid", cursor))).build();
+        }
+
+        VendorId id = new VendorId(vendorId);
+        boolean ndjson = acceptsNdjson(request);
+        String page = limit == null ? "" : format("-%d-%d", limit, after);
+        long version = pricingManagementService.vendorVersion(id);
+        ResponseBuilder notModified = evaluatePreconditions(request, entityTag(version, ndjson, page));
+        if (notModified != null) {
+            return notModified.header(VERSION_HEADER, version).build();
+        }
+        PricingView view = pricingManagementService.viewByVendor(id);
+        EntityTag tag = entityTag(view.version(), ndjson, page);
+        if (limit == null) {
+            return streamResponse(view, view.pricings(), ndjson, tag).build();
+        }
+        List<Pricing> pricings = view.pricingsAfter(after, limit + 1);
+        if (pricings.size() <= limit) {
+            return streamResponse(view, pricings, ndjson, tag).build();
+        }
+        pricings = pricings.subList(0, limit);
+        return streamResponse(view, pricings, ndjson, tag)
+                .header(NEXT_CURSOR_HEADER, pricings.get(limit - 1).instrumentId().handle())
+                .build();
+    }
+
+    /**
+     * Streams the latest pricings of many instruments in one response, optionally only those of the given vendors. Ids
+     * may be repeated query parameters or comma separated.
+     */
+    @GET
+    @Path("/pricing/instruments")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response getPricingForInstrumentIds(@QueryParam("instrumentId") List<String> instrumentIds,
+                                               @QueryParam("vendorId") List<String> vendorIds, @Context Request request) {
+        return lookupResponse(instrumentIds, vendorIds, request);
+    }
+
+    /**
+     * Same as {@link #getPricingForInstrumentIds} for id lists too long for a query string.
+     */
+    @POST
+    @Path("/pricing/instruments")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response lookupPricingForInstrumentIds(PricingLookup lookup, @Context Request request) {
+        if (lookup == null) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult("Missing pricing lookup details")).build();
+        }
+        return lookupResponse(lookup.instrumentIds(), lookup.vendorIds(), request);
+    }
+
+    /**
+     * Returns the min, max and median of the latest prices of an instrument across its vendors.
+     */
+    @GET
+    @Path("/pricing/composite/{instrumentId}")
+    public Response getCompositePricing(@PathParam("instrumentId") String instrumentId) {
+        return pricingManagementService.compositeByInstrument(new InstrumentId(instrumentId))
+                .map(c -> ok(OutboundCompositePricing.fromCompositePricing(c)).build())
+                .orElseGet(() -> Response.status(NOT_FOUND).entity(new ErrorResult(format("No pricing of instrument %s", instrumentId))).build());
+    }
+
+    /**
+     * Streams the latest pricings priced under exactly the ticker, at most {@code limit} of them.
+     */
+    @GET
+    @Path("/pricing/ticker/{ticker}")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response getPricingForTicker(@PathParam("ticker") String ticker, @QueryParam("limit") Integer limit,
+                                        @Context Request request) {
+        return tickerResponse(ticker, limit, request, pricingManagementService::byTicker);
+    }
+
+    /**
+     * Streams the latest pricings whose ticker starts with the prefix, in ticker order and at most {@code limit} of them.
+     */
+    @GET
+    @Path("/pricing/tickers")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response getPricingForTickerPrefix(@QueryParam("prefix") String prefix, @QueryParam("limit") Integer limit,
+                                              @Context Request request) {
+        return tickerResponse(prefix, limit, request, pricingManagementService::byTickerPrefix);
+    }
+
+    /**
+     * Streams the ticks of an instrument by a vendor priced from {@code from} inclusive to {@code to} exclusive, both
+     * optional Iso local date times, in time order and at most {@code limit} of them.
+     */
+    @GET
+    @Path("/pricing/history/{instrumentId}/{vendorId}")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response getPricingHistory(@PathParam("instrumentId") String instrumentId, @PathParam("vendorId") String vendorId,
+                                      @QueryParam("from") String from, @QueryParam("to") String to,
+                                      @QueryParam("limit") Integer limit, @Context Request request) {
+        if (!pricingManagementService.historyEnabled()) {
+            return historyDisabled();
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult(format("limit must be between 1 and %d", MAX_PAGE_SIZE))).build();
+        }
+        LocalDateTime start = from == null ? LocalDateTime.MIN : dateTime(from);
+        LocalDateTime end = to == null ? LocalDateTime.MAX : dateTime(to);
+        if (start == null || end == null) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult("from and to must be Iso local date times")).build();
+        }
+        List<Pricing> pricings = pricingManagementService.history(new InstrumentId(instrumentId), new VendorId(vendorId), start, end,
+                limit == null ? DEFAULT_HISTORY_LIMIT : limit);
+        boolean ndjson = acceptsNdjson(request);
+        return ok(new OutboundPricingStream(pricingWriter, pricings, ndjson), ndjson ? APPLICATION_NDJSON_TYPE : APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Returns the pricing of an instrument by a vendor that was the latest at the given Iso local date time.
+     */
+    @GET
+    @Path("/pricing/history/{instrumentId}/{vendorId}/as-of")
+    public Response getPricingAsOf(@PathParam("instrumentId") String instrumentId, @PathParam("vendorId") String vendorId,
+                                   @QueryParam("at") String at) {
+        if (!pricingManagementService.historyEnabled()) {
+            return historyDisabled();
+        }
+        LocalDateTime time = at == null ? null : dateTime(at);
+        if (time == null) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult("at must be an Iso local date time")).build();
+        }
+        return pricingManagementService.priceAsOf(new InstrumentId(instrumentId), new VendorId(vendorId), time)
+                .map(p -> ok(OutboundPricing.fromPricing(p)).build())
+                .orElseGet(() -> Response.status(NOT_FOUND).entity(new ErrorResult(format("No pricing as of %s", at))).build());
+    }
+
+    /**
+     * Returns the latest open/high/low/close bars of an instrument by a vendor, oldest first, for one of the configured
+     * intervals given as an Iso duration, by default the first one.
+     */
+    @GET
+    @Path("/pricing/bars/{instrumentId}/{vendorId}")
+    public Response getPricingBars(@PathParam("instrumentId") String instrumentId, @PathParam("vendorId") String vendorId,
+                                   @QueryParam("interval") String interval, @QueryParam("limit") Integer limit) {
+        if (!pricingBarAggregator.isEnabled()) {
+            return Response.status(NOT_FOUND).entity(new ErrorResult("Pricing bars are not enabled")).build();
+        }
+        Duration duration = interval == null ? pricingBarAggregator.intervals().get(0) : duration(interval);
+        if (duration == null || !pricingBarAggregator.intervals().contains(duration)) {
+            return Response.status(BAD_REQUEST)
+                    .entity(new ErrorResult(format("interval must be one of %s", pricingBarAggregator.intervals()))).build();
+        }
+        if (limit != null && (limit < 1 || limit > pricingBarAggregator.depth())) {
+            return Response.status(BAD_REQUEST)
+                    .entity(new ErrorResult(format("limit must be between 1 and %d", pricingBarAggregator.depth()))).build();
+        }
+        List<OutboundPricingBar> bars = pricingBarAggregator
+                .bars(new InstrumentId(instrumentId), new VendorId(vendorId), duration, limit == null ? pricingBarAggregator.depth() : limit)
+                .stream()
+                .map(OutboundPricingBar::fromPricingBar)
+                .collect(toList());
+        return ok(bars).build();
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of the pricings registered from now on, optionally only of one instrument and/or
+     * one vendor. The connection is held open without a thread and fed by {@link PricingStreamHub}.
+     */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamPricings(@QueryParam("instrument") String instrumentId, @QueryParam("vendor") String vendorId,
+                               @Context SseEventSink sink, @Context Sse sse) {
+        pricingStreamHub.subscribe(instrumentId == null ? null : new InstrumentId(instrumentId),
+                vendorId == null ? null : new VendorId(vendorId), sink, sse);
+    }
+
+    private Response lookupResponse(List<String> instrumentIds, List<String> vendorIds, Request request) {
+        Set<InstrumentId> instruments = ids(instrumentIds, InstrumentId::new);
+        if (instruments.isEmpty() || instruments.size() > MAX_LOOKUP_SIZE) {
+            return Response.status(BAD_REQUEST)
+                    .entity(new ErrorResult(format("between 1 and %d instrument ids must be provided", MAX_LOOKUP_SIZE))).build();
+        }
+        List<Pricing> pricings = pricingManagementService.latestByInstruments(new ArrayList<>(instruments), ids(vendorIds, VendorId::new));
+        boolean ndjson = acceptsNdjson(request);
+        return ok(new OutboundPricingStream(pricingWriter, pricings, ndjson), ndjson ? APPLICATION_NDJSON_TYPE : APPLICATION_JSON_TYPE).build();
+    }
+
+    private Response tickerResponse(String ticker, Integer limit, Request request, BiFunction<String, Integer, List<Pricing>> lookup) {
+        if (ticker == null || ticker.isEmpty()) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult("ticker must be provided")).build();
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return Response.status(BAD_REQUEST).entity(new ErrorResult(format("limit must be between 1 and %d", MAX_PAGE_SIZE))).build();
+        }
+        List<Pricing> pricings = lookup.apply(ticker, limit == null ? DEFAULT_TICKER_LIMIT : limit);
+        boolean ndjson = acceptsNdjson(request);
+        return ok(new OutboundPricingStream(pricingWriter, pricings, ndjson), ndjson ? APPLICATION_NDJSON_TYPE : APPLICATION_JSON_TYPE).build();
+    }
+
+    private static Response historyDisabled() {
+        return Response.status(NOT_FOUND).entity(new ErrorResult("Pricing history is not enabled")).build();
+    }
+
+    private static Duration duration(String value) {
+        try {
+            return Duration.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime dateTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static <T> Set<T> ids(List<String> values, Function<String, T> id) {
+        Set<T> ids = new LinkedHashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                for (String part : ID_SPLITTER.split(value)) {
+                    ids.add(id.apply(part));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static boolean acceptsNdjson(Request request) {
+        Variant variant = request == null ? null : request.selectVariant(VARIANTS);
+        return variant != null && APPLICATION_NDJSON_TYPE.equals(variant.getMediaType());
+    }
+
+    private static ResponseBuilder evaluatePreconditions(Request request, EntityTag tag) {
+        return request == null ? null : request.evaluatePreconditions(tag);
+    }
+
+    /**
+     * Tags a representation by the view's version, qualified by the startup epoch since versions restart with the
+     * service, and by the format and page since each of them is a different body for the same version.
+     */
+    private EntityTag entityTag(long version, boolean ndjson, String page) {
+        return new EntityTag(format("%x-%x%s%s", EPOCH, version, ndjson ? "-nd" : "", page));
+    }
+
+    private ResponseBuilder streamResponse(PricingView view, Collection<Pricing> pricings, boolean ndjson, EntityTag tag) {
+        return ok(new OutboundPricingStream(pricingWriter, pricings, ndjson), ndjson ? APPLICATION_NDJSON_TYPE : APPLICATION_JSON_TYPE)
+                .header(VERSION_HEADER, view.version())
+                .tag(tag);
+    }
+
+    /**
+     * Writes pricings one at a time as they are converted, either as a Json array or as newline delimited Json.
+     */
+    private static final class OutboundPricingStream implements StreamingOutput {
+        private final ObjectWriter writer;
+        private final Collection<Pricing> pricings;
+        private final boolean ndjson;
+
+        private OutboundPricingStream(ObjectWriter writer, Collection<Pricing> pricings, boolean ndjson) {
+            this.writer = writer;
+            this.pricings = pricings;
+            this.ndjson = ndjson;
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            try (JsonGenerator generator = writer.getFactory().createGenerator(output)) {
+                generator.setRootValueSeparator(null);
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                for (Pricing pricing : pricings) {
+                    writer.writeValue(generator, OutboundPricing.fromPricing(pricing));
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,398 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+
+/**
+ * Pushes registered pricings to Server-Sent Events subscribers, optionally filtered by instrument and/or vendor.
+ * Publishing only appends to a subscriber's bounded buffer; a small shared pool drains the buffers that have something
+ * pending, so connections cost no thread of their own and a slow subscriber never holds up the pipeline. When a buffer
+ * is full a pricing is either dropped or, for conflation, merged with a pending pricing of the same instrument and vendor.
+ * <p>
+ * Jersey writes an event on the sending thread, so a client that stops reading holds its drain thread until the write
+ * fails. A watchdog therefore closes a subscriber whose write takes longer than the write timeout and lends the pool an
+ * extra thread until that write returns, so stalled clients cost the others at most the write timeout.
+ */
+public class PricingStreamHub implements MeterBinder, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(PricingStreamHub.class);
+    public static final String PRICING_EVENT = "pricing";
+
+    public enum Policy {
+        DROP, CONFLATE
+    }
+
+    private final int bufferSize;
+    private final Policy policy;
+    private final Executor executor;
+    private final Map<InstrumentId, Set<Subscription>> byInstrument = new ConcurrentHashMap<>();
+    private final Map<VendorId, Set<Subscription>> byVendor = new ConcurrentHashMap<>();
+    private final Set<Subscription> unfiltered = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+    private final long writeTimeoutNanos;
+    private final ScheduledExecutorService watchdog;
+    private final int drainThreads;
+    private int lentThreads;
+
+    public PricingStreamHub(int bufferSize, Policy policy, int threads, Duration writeTimeout) {
+        this(bufferSize, policy, drainPool(threads), writeTimeout);
+    }
+
+    public PricingStreamHub(int bufferSize, Policy policy, Executor executor) {
+        this(bufferSize, policy, executor, Duration.ZERO);
+    }
+
+    /**
+     * A zero write timeout leaves stalled writes to the servlet container.
+     */
+    public PricingStreamHub(int bufferSize, Policy policy, Executor executor, Duration writeTimeout) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be a positive number");
+        }
+        if (writeTimeout.isNegative()) {
+            throw new IllegalArgumentException("writeTimeout must not be negative");
+        }
+        this.bufferSize = bufferSize;
+        this.policy = policy == null ? Policy.CONFLATE : policy;
+        this.executor = requireNonNull(executor, "executor must not be null");
+        this.drainThreads = executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getCorePoolSize() : 0;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.watchdog = writeTimeout.isZero() ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pricing-stream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (watchdog != null) {
+            long period = Math.max(1, writeTimeout.toMillis() / 2);
+            watchdog.scheduleWithFixedDelay(this::closeStalled, period, period, MILLISECONDS);
+        }
+    }
+
+    private static ExecutorService drainPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "pricing-stream-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers the sink for pricings of the instrument and vendor, where a missing id matches any.
+     */
+    public void subscribe(InstrumentId instrumentId, VendorId vendorId, SseEventSink sink, Sse sse) {
+        Subscription subscription = new Subscription(instrumentId, vendorId, sink, sse);
+        if (instrumentId != null) {
+            byInstrument.compute(instrumentId, (id, set) -> add(set, subscription));
+        } else if (vendorId != null) {
+            byVendor.compute(vendorId, (id, set) -> add(set, subscription));
+        } else {
+            unfiltered.add(subscription);
+        }
+        subscribers.incrementAndGet();
+        LOG.info("Subscribed pricing stream for instrumentId = {} and vendorId = {}", instrumentId, vendorId);
+    }
+
+    public void publish(Pricing pricing) {
+        for (Subscription subscription : unfiltered) {
+            subscription.offer(pricing);
+        }
+        Set<Subscription> instrumentSubscriptions = byInstrument.get(pricing.instrumentId());
+        if (instrumentSubscriptions != null) {
+            for (Subscription subscription : instrumentSubscriptions) {
+                if (subscription.vendorId == null || subscription.vendorId.equals(pricing.vendorId())) {
+                    subscription.offer(pricing);
+                }
+            }
+        }
+        Set<Subscription> vendorSubscriptions = byVendor.get(pricing.vendorId());
+        if (vendorSubscriptions != null) {
+            for (Subscription subscription : vendorSubscriptions) {
+                subscription.offer(pricing);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    public long sentCount() {
+        return sent.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long conflatedCount() {
+        return conflated.sum();
+    }
+
+    public long stalledCount() {
+        return stalled.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("pricingboard.stream.subscribers", this, PricingStreamHub::subscriberCount)
+                .description("Open pricing stream subscriptions")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.stream.sent", this, PricingStreamHub::sentCount)
+                .description("Pricing events sent to stream subscribers")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.stream.dropped", this, PricingStreamHub::droppedCount)
+                .description("Pricings dropped because a subscriber's buffer was full")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.stream.conflated", this, PricingStreamHub::conflatedCount)
+                .description("Pricings that replaced a pending pricing of a subscriber")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.stream.stalled", this, PricingStreamHub::stalledCount)
+                .description("Subscribers closed because a write took longer than the write timeout")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+        forEachSubscription(Subscription::close);
+    }
+
+    private void forEachSubscription(Consumer<Subscription> action) {
+        unfiltered.forEach(action);
+        byInstrument.values().forEach(set -> set.forEach(action));
+        byVendor.values().forEach(set -> set.forEach(action));
+    }
+
+    private void closeStalled() {
+        long now = System.nanoTime();
+        forEachSubscription(subscription -> {
+            if (subscription.stalled(now)) {
+                stalled.increment();
+                LOG.warn("Closing pricing stream for instrumentId = {} and vendorId = {} stalled in a write for over {} ms",
+                        subscription.instrumentId, subscription.vendorId, writeTimeoutNanos / 1_000_000);
+                lendThreads(1);
+                subscription.close();
+            }
+        });
+    }
+
+    /**
+     * Grows or shrinks the drain pool by the threads held by stalled writes, when it is the hub's own pool.
+     */
+    private synchronized void lendThreads(int delta) {
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            return;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        lentThreads += delta;
+        int size = drainThreads + Math.max(0, lentThreads);
+        if (size > pool.getCorePoolSize()) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        boolean removed;
+        if (subscription.instrumentId != null) {
+            removed = remove(byInstrument, subscription.instrumentId, subscription);
+        } else if (subscription.vendorId != null) {
+            removed = remove(byVendor, subscription.vendorId, subscription);
+        } else {
+            removed = unfiltered.remove(subscription);
+        }
+        if (removed) {
+            subscribers.decrementAndGet();
+            LOG.info("Unsubscribed pricing stream for instrumentId = {} and vendorId = {}", subscription.instrumentId, subscription.vendorId);
+        }
+    }
+
+    private static Set<Subscription> add(Set<Subscription> set, Subscription subscription) {
+        Set<Subscription> subscriptions = set == null ? ConcurrentHashMap.newKeySet() : set;
+        subscriptions.add(subscription);
+        return subscriptions;
+    }
+
+    private static <K> boolean remove(Map<K, Set<Subscription>> index, K key, Subscription subscription) {
+        boolean[] removed = new boolean[1];
+        index.computeIfPresent(key, (id, set) -> {
+            removed[0] = set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+        return removed[0];
+    }
+
+    private static final int IDLE = 0;
+    private static final int WRITING = 1;
+    private static final int STALLED = 2;
+
+    private final class Subscription {
+        private final InstrumentId instrumentId;
+        private final VendorId vendorId;
+        private final SseEventSink sink;
+        private final Sse sse;
+        private final Map<Object, Pricing> pending = new LinkedHashMap<>();
+        private final AtomicInteger write = new AtomicInteger(IDLE);
+        private volatile long writeStarted;
+        private long sequence;
+        private boolean scheduled;
+
+        private Subscription(InstrumentId instrumentId, VendorId vendorId, SseEventSink sink, Sse sse) {
+            this.instrumentId = instrumentId;
+            this.vendorId = vendorId;
+            this.sink = requireNonNull(sink, "sink must not be null");
+            this.sse = requireNonNull(sse, "sse must not be null");
+        }
+
+        void offer(Pricing pricing) {
+            if (sink.isClosed()) {
+                unsubscribe(this);
+                return;
+            }
+            synchronized (this) {
+                Object key = policy == Policy.CONFLATE
+                        ? ((long) pricing.instrumentId().handle() << 32) | pricing.vendorId().handle()
+                        : sequence++;
+                if (pending.containsKey(key)) {
+                    pending.put(key, pricing);
+                    conflated.increment();
+                    return;
+                }
+                if (pending.size() >= bufferSize) {
+                    dropped.increment();
+                    return;
+                }
+                pending.put(key, pricing);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        /**
+         * Sends what is pending right now and hands the pool back to other subscribers before sending anything newer.
+         */
+        private void drain() {
+            List<Pricing> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+            for (Pricing pricing : batch) {
+                if (!send(pricing)) {
+                    close();
+                    return;
+                }
+                sent.increment();
+            }
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        private boolean send(Pricing pricing) {
+            if (sink.isClosed()) {
+                return false;
+            }
+            writeStarted = System.nanoTime();
+            write.set(WRITING);
+            boolean sent;
+            try {
+                sent = !sink.send(event(pricing)).toCompletableFuture().isCompletedExceptionally();
+            } catch (RuntimeException e) {
+                LOG.debug("Failed to send pricing event", e);
+                sent = false;
+            }
+            if (!write.compareAndSet(WRITING, IDLE)) {
+                lendThreads(-1);
+                return false;
+            }
+            return sent;
+        }
+
+        /**
+         * Marks the write in progress as stalled if it started more than the write timeout before {@code now}, once.
+         */
+        private boolean stalled(long now) {
+            return write.get() == WRITING && now - writeStarted > writeTimeoutNanos && write.compareAndSet(WRITING, STALLED);
+        }
+
+        private OutboundSseEvent event(Pricing pricing) {
+            return sse.newEventBuilder()
+                    .name(PRICING_EVENT)
+                    .id(pricing.id().value())
+                    .mediaType(APPLICATION_JSON_TYPE)
+                    .data(OutboundPricing.class, OutboundPricing.fromPricing(pricing))
+                    .build();
+        }
+
+        private void close() {
+            unsubscribe(this);
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                LOG.debug("Failed to close pricing stream", e);
+            }
+        }
+    }
+}
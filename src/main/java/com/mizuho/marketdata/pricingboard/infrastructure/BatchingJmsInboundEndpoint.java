@@ -0,0 +1,208 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.integration.jms.DefaultJmsHeaderMapper;
+import org.springframework.integration.jms.JmsHeaderMapper;
+import org.springframework.jms.connection.JmsResourceHolder;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Consumes a queue in batches of up to {@code batchSize} messages or {@code batchTimeout} millis per local transaction.
+ * A failed batch is rolled back and replayed one message per transaction so only the offending message hits the error channel.
+ * A batch of a single message is processed that way straight away. Stopping waits for the consumer to finish its batch.
+ * Every batch runs with transaction synchronization active, so synchronizations registered while it is processed learn
+ * whether it committed or rolled back.
+ */
+public class BatchingJmsInboundEndpoint extends MessageProducerSupport {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingJmsInboundEndpoint.class);
+    private static final long RECOVERY_INTERVAL = 5000L;
+
+    private final ConnectionFactory connectionFactory;
+    private final String destinationName;
+    private final int batchSize;
+    private final long batchTimeout;
+    private final MessageConverter messageConverter = new SimpleMessageConverter();
+    private final JmsHeaderMapper headerMapper = new DefaultJmsHeaderMapper();
+
+    private volatile boolean active;
+    private volatile CountDownLatch consumerStopped = new CountDownLatch(0);
+    private Connection connection;
+    private Session session;
+    private MessageConsumer consumer;
+    private int messagesToReplay;
+
+    public BatchingJmsInboundEndpoint(ConnectionFactory connectionFactory, String destinationName, int batchSize, long batchTimeout) {
+        this.connectionFactory = requireNonNull(connectionFactory, "connectionFactory must not be null");
+        this.destinationName = requireNonNull(destinationName, "destinationName must not be null");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be a positive number");
+        }
+        if (batchTimeout < 1) {
+            throw new IllegalArgumentException("batchTimeout must be a positive number");
+        }
+        this.batchSize = batchSize;
+        this.batchTimeout = batchTimeout;
+    }
+
+    @Override
+    public String getComponentType() {
+        return "jms:batching-inbound-endpoint";
+    }
+
+    @Override
+    protected void doStart() {
+        active = true;
+        consumerStopped = new CountDownLatch(1);
+        new SimpleAsyncTaskExecutor(destinationName + "-batch-").execute(this::consume);
+    }
+
+    @Override
+    protected void doStop() {
+        active = false;
+        try {
+            consumerStopped.await(batchTimeout + RECOVERY_INTERVAL, MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        try {
+            consumeWhileActive();
+        } finally {
+            closeConsumer();
+            consumerStopped.countDown();
+        }
+    }
+
+    private void consumeWhileActive() {
+        while (active) {
+            try {
+                openConsumerIfNecessary();
+                List<javax.jms.Message> batch = receiveBatch(messagesToReplay > 0 ? 1 : batchSize);
+                if (active) {
+                    processBatch(batch);
+                }
+            } catch (JMSException | RuntimeException e) {
+                closeConsumer();
+                if (active) {
+                    LOG.error("Batch consumption from {} failed, reconnecting in {} ms", destinationName, RECOVERY_INTERVAL, e);
+                    pause();
+                }
+            }
+        }
+    }
+
+    private List<javax.jms.Message> receiveBatch(int limit) throws JMSException {
+        List<javax.jms.Message> batch = new ArrayList<>(limit);
+        javax.jms.Message message = consumer.receive(batchTimeout);
+        long deadline = System.currentTimeMillis() + batchTimeout;
+        while (message != null) {
+            batch.add(message);
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= limit || remaining <= 0) {
+                break;
+            }
+            message = consumer.receive(remaining);
+        }
+        return batch;
+    }
+
+    private void processBatch(List<javax.jms.Message> batch) throws JMSException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(connectionFactory, new JmsResourceHolder(connection, session));
+        LocalTransactionSynchronization.begin();
+        boolean committed = false;
+        try {
+            if (messagesToReplay > 0) {
+                messagesToReplay--;
+                processIndividually(batch.get(0));
+            } else if (batch.size() == 1) {
+                processIndividually(batch.get(0));
+            } else {
+                for (javax.jms.Message message : batch) {
+                    getOutputChannel().send(toMessage(message));
+                }
+            }
+            session.commit();
+            committed = true;
+        } catch (RuntimeException e) {
+            session.rollback();
+            if (batch.size() > 1) {
+                LOG.warn("Batch of {} messages from {} rolled back, replaying them one by one", batch.size(), destinationName, e);
+                messagesToReplay = batch.size();
+            } else {
+                throw e;
+            }
+        } finally {
+            LocalTransactionSynchronization.complete(committed);
+            TransactionSynchronizationManager.unbindResource(connectionFactory);
+        }
+    }
+
+    private void processIndividually(javax.jms.Message jmsMessage) throws JMSException {
+        Message<?> message = toMessage(jmsMessage);
+        try {
+            getOutputChannel().send(message);
+        } catch (RuntimeException e) {
+            if (!sendErrorMessageIfNecessary(message, e)) {
+                throw e;
+            }
+        }
+    }
+
+    private Message<?> toMessage(javax.jms.Message jmsMessage) throws JMSException {
+        return getMessageBuilderFactory()
+                .withPayload(messageConverter.fromMessage(jmsMessage))
+                .copyHeaders(headerMapper.toHeaders(jmsMessage))
+                .build();
+    }
+
+    private void openConsumerIfNecessary() throws JMSException {
+        if (consumer == null) {
+            connection = connectionFactory.createConnection();
+            session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            consumer = session.createConsumer(session.createQueue(destinationName));
+            connection.start();
+        }
+    }
+
+    private void closeConsumer() {
+        JmsUtils.closeMessageConsumer(consumer);
+        JmsUtils.closeSession(session);
+        JmsUtils.closeConnection(connection, true);
+        consumer = null;
+        session = null;
+        connection = null;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECOVERY_INTERVAL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            active = false;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps every tick per instrument and vendor series in blocks of up to {@code blockSize} ticks. A block holds its first
+ * tick as plain fields and every later tick as a few variable length bytes: the delta of the time delta in nanoseconds,
+ * which is zero for evenly spaced ticks, and the delta of the price mantissa. Scale and ticker changes are flagged in the
+ * time column and written only when they happen, tickers as an ordinal into a small per series dictionary.
+ * <p>
+ * Ticks are expected in time order per series; a tick not later than the last one is skipped, the same rule the latest
+ * pricing repositories apply, so a redelivered tick is recorded once. Writers append under the
+ * series' monitor, while readers only take it to grab the blocks, which are never changed below their written length,
+ * and decode them without locking.
+ */
+public class ColumnarPricingHistory implements PricingHistoryRepository, MeterBinder {
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnarPricingHistory.class);
+    private static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final int INITIAL_BLOCK_CAPACITY = 256;
+    /**
+     * Rough heap cost of a block besides its encoded ticks.
+     */
+    private static final int BLOCK_OVERHEAD = 80;
+    private static final int MAX_TICK_BYTES = 40;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long MAX_DELTA_OF_DELTA = 1L << 61;
+    private static final int SCALE_CHANGED = 1;
+    private static final int TICKER_CHANGED = 2;
+    private static final Block[] NO_BLOCKS = new Block[0];
+
+    private final int blockSize;
+    private final HandleMap<HandleMap<Series>> seriesByInstrument = new HandleMap<>();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder footprint = new LongAdder();
+
+    public ColumnarPricingHistory() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public ColumnarPricingHistory(int blockSize) {
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("blockSize must be at least 2");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public void append(Pricing pricing) {
+        long nanos = epochNanos(pricing.priceDateTime());
+        if (pricing.priceDateTime() == null || nanos == Long.MIN_VALUE || nanos == Long.MAX_VALUE) {
+            skipped.increment();
+            return;
+        }
+        HandleMap<Series> seriesByVendor = seriesByInstrument.computeIfAbsent(pricing.instrumentId().handle(), i -> new HandleMap<>());
+        Series series = seriesByVendor.computeIfAbsent(pricing.vendorId().handle(), v -> new Series(pricing.instrumentId(), pricing.vendorId()));
+        (series.append(nanos, pricing) ? appended : skipped).increment();
+    }
+
+    @Override
+    public Optional<Pricing> asOf(InstrumentId instrumentId, VendorId vendorId, LocalDateTime at) {
+        Series series = series(instrumentId, vendorId);
+        if (series == null) {
+            return Optional.empty();
+        }
+        Snapshot snapshot = series.snapshot();
+        long atNanos = epochNanos(at);
+        int low = 0;
+        int high = snapshot.blocks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (snapshot.blocks[middle].firstNanos <= atNanos) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            return Optional.empty();
+        }
+        Cursor cursor = new Cursor(snapshot.blocks[high]);
+        Cursor found = cursor.copy();
+        while (cursor.advance() && cursor.nanos <= atNanos) {
+            found = cursor.copy();
+        }
+        return Optional.of(series.toPricing(found, snapshot.tickers));
+    }
+
+    @Override
+    public List<Pricing> range(InstrumentId instrumentId, VendorId vendorId, LocalDateTime from, LocalDateTime to, int limit) {
+        Series series = series(instrumentId, vendorId);
+        if (series == null) {
+            return new ArrayList<>();
+        }
+        Snapshot snapshot = series.snapshot();
+        long fromNanos = epochNanos(from);
+        long toNanos = epochNanos(to);
+        List<Pricing> pricings = new ArrayList<>();
+        for (Block block : snapshot.blocks) {
+            if (block.lastNanos < fromNanos) {
+                continue;
+            }
+            Cursor cursor = new Cursor(block);
+            do {
+                if (cursor.nanos >= toNanos || pricings.size() == limit) {
+                    return pricings;
+                }
+                if (cursor.nanos >= fromNanos) {
+                    pricings.add(series.toPricing(cursor, snapshot.tickers));
+                }
+            } while (cursor.advance());
+        }
+        return pricings;
+    }
+
+    /**
+     * Drops whole blocks whose last tick is older than the cutoff, so ticks sharing a block with later ones stay.
+     */
+    @Override
+    public void evictBefore(LocalDateTime cutoff) {
+        long cutoffNanos = epochNanos(cutoff);
+        long evictedBefore = evicted.sum();
+        for (HandleMap<Series> seriesByVendor : seriesByInstrument.values()) {
+            for (Series series : seriesByVendor.values()) {
+                series.evictBefore(cutoffNanos);
+            }
+        }
+        LOG.debug("Evicted {} history ticks priced before {}", evicted.sum() - evictedBefore, cutoff);
+    }
+
+    public long appendedCount() {
+        return appended.sum();
+    }
+
+    public long skippedCount() {
+        return skipped.sum();
+    }
+
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    public long footprint() {
+        return footprint.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pricingboard.history.appended", this, ColumnarPricingHistory::appendedCount)
+                .description("Ticks appended to the pricing history")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.history.skipped", this, ColumnarPricingHistory::skippedCount)
+                .description("Ticks left out of the history for not being later than the last tick of their series")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.history.evicted", this, ColumnarPricingHistory::evictedCount)
+                .description("Ticks evicted from the history for outliving its retention")
+                .register(registry);
+        Gauge.builder("pricingboard.history.footprint", this, ColumnarPricingHistory::footprint)
+                .description("Estimated heap held by the history blocks")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private Series series(InstrumentId instrumentId, VendorId vendorId) {
+        HandleMap<Series> seriesByVendor = seriesByInstrument.get(instrumentId.knownHandle());
+        return seriesByVendor == null ? null : seriesByVendor.get(vendorId.knownHandle());
+    }
+
+    /**
+     * Nanoseconds since the epoch in UTC, saturated for date times beyond the range of a {@code long}.
+     */
+    static long epochNanos(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return Long.MIN_VALUE;
+        }
+        long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), dateTime.getNano());
+        } catch (ArithmeticException e) {
+            return epochSecond < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static LocalDateTime dateTime(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * A sealed block, or a view of the open block up to what was written when it was taken.
+     */
+    private static final class Block {
+        private final long firstNanos;
+        private final long firstMantissa;
+        private final int firstScale;
+        private final int firstTicker;
+        private final byte[] data;
+        private final int length;
+        private final int count;
+        private final long lastNanos;
+
+        private Block(long firstNanos, long firstMantissa, int firstScale, int firstTicker, byte[] data, int length,
+                      int count, long lastNanos) {
+            this.firstNanos = firstNanos;
+            this.firstMantissa = firstMantissa;
+            this.firstScale = firstScale;
+            this.firstTicker = firstTicker;
+            this.data = data;
+            this.length = length;
+            this.count = count;
+            this.lastNanos = lastNanos;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Block[] blocks;
+        private final String[] tickers;
+
+        private Snapshot(Block[] blocks, String[] tickers) {
+            this.blocks = blocks;
+            this.tickers = tickers;
+        }
+    }
+
+    /**
+     * Decodes the ticks of a block one at a time.
+     */
+    private static final class Cursor {
+        private final Block block;
+        private int position;
+        private int index;
+        private long nanos;
+        private long delta;
+        private long mantissa;
+        private int scale;
+        private int ticker;
+
+        private Cursor(Block block) {
+            this.block = block;
+            this.nanos = block.firstNanos;
+            this.mantissa = block.firstMantissa;
+            this.scale = block.firstScale;
+            this.ticker = block.firstTicker;
+        }
+
+        private Cursor copy() {
+            Cursor copy = new Cursor(block);
+            copy.position = position;
+            copy.index = index;
+            copy.nanos = nanos;
+            copy.delta = delta;
+            copy.mantissa = mantissa;
+            copy.scale = scale;
+            copy.ticker = ticker;
+            return copy;
+        }
+
+        private boolean advance() {
+            if (index + 1 >= block.count) {
+                return false;
+            }
+            long header = readVarLong();
+            delta += unZigZag(header >>> 2);
+            nanos += delta;
+            mantissa += unZigZag(readVarLong());
+            if ((header & SCALE_CHANGED) != 0) {
+                scale = (int) unZigZag(readVarLong());
+            }
+            if ((header & TICKER_CHANGED) != 0) {
+                ticker = (int) readVarLong();
+            }
+            index++;
+            return true;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = block.data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    private final class Series {
+        private final InstrumentId instrumentId;
+        private final VendorId vendorId;
+        private Block[] sealed = NO_BLOCKS;
+        private String[] tickers = new String[0];
+        private byte[] data;
+        private int length;
+        private int count;
+        private long firstNanos;
+        private long firstMantissa;
+        private int firstScale;
+        private int firstTicker;
+        private boolean started;
+        private long lastNanos;
+        private long lastDelta;
+        private long lastMantissa;
+        private int lastScale;
+        private int lastTicker;
+
+        private Series(InstrumentId instrumentId, VendorId vendorId) {
+            this.instrumentId = instrumentId;
+            this.vendorId = vendorId;
+        }
+
+        private synchronized boolean append(long nanos, Pricing pricing) {
+            if (started && nanos <= lastNanos) {
+                return false;
+            }
+            int ticker = tickerOrdinal(pricing.ticker());
+            long mantissa = pricing.priceMantissa();
+            int scale = pricing.priceScale();
+            if (count == 0) {
+                open(nanos, mantissa, scale, ticker);
+                return true;
+            }
+            long delta = nanos - lastNanos;
+            long deltaOfDelta = delta - lastDelta;
+            if (count == blockSize || deltaOfDelta < -MAX_DELTA_OF_DELTA || deltaOfDelta >= MAX_DELTA_OF_DELTA) {
+                seal();
+                open(nanos, mantissa, scale, ticker);
+                return true;
+            }
+            if (length + MAX_TICK_BYTES > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int flags = (scale != lastScale ? SCALE_CHANGED : 0) | (ticker != lastTicker ? TICKER_CHANGED : 0);
+            int start = length;
+            writeVarLong(zigZag(deltaOfDelta) << 2 | flags);
+            writeVarLong(zigZag(mantissa - lastMantissa));
+            if ((flags & SCALE_CHANGED) != 0) {
+                writeVarLong(zigZag(scale));
+            }
+            if ((flags & TICKER_CHANGED) != 0) {
+                writeVarLong(ticker);
+            }
+            footprint.add(length - start);
+            count++;
+            lastNanos = nanos;
+            lastDelta = delta;
+            lastMantissa = mantissa;
+            lastScale = scale;
+            lastTicker = ticker;
+            return true;
+        }
+
+        private void open(long nanos, long mantissa, int scale, int ticker) {
+            data = new byte[INITIAL_BLOCK_CAPACITY];
+            length = 0;
+            count = 1;
+            firstNanos = nanos;
+            firstMantissa = mantissa;
+            firstScale = scale;
+            firstTicker = ticker;
+            started = true;
+            lastNanos = nanos;
+            lastDelta = 0;
+            lastMantissa = mantissa;
+            lastScale = scale;
+            lastTicker = ticker;
+            footprint.add(BLOCK_OVERHEAD);
+        }
+
+        private void seal() {
+            Block[] grown = Arrays.copyOf(sealed, sealed.length + 1);
+            grown[sealed.length] = new Block(firstNanos, firstMantissa, firstScale, firstTicker, Arrays.copyOf(data, length),
+                    length, count, lastNanos);
+            sealed = grown;
+            data = null;
+            count = 0;
+        }
+
+        private synchronized Snapshot snapshot() {
+            if (count == 0) {
+                return new Snapshot(sealed, tickers);
+            }
+            Block[] blocks = Arrays.copyOf(sealed, sealed.length + 1);
+            blocks[sealed.length] = new Block(firstNanos, firstMantissa, firstScale, firstTicker, data, length, count, lastNanos);
+            return new Snapshot(blocks, tickers);
+        }
+
+        private synchronized void evictBefore(long cutoffNanos) {
+            int dropped = 0;
+            while (dropped < sealed.length && sealed[dropped].lastNanos < cutoffNanos) {
+                evicted.add(sealed[dropped].count);
+                footprint.add(-(BLOCK_OVERHEAD + sealed[dropped].length));
+                dropped++;
+            }
+            if (dropped > 0) {
+                sealed = Arrays.copyOfRange(sealed, dropped, sealed.length);
+            }
+            if (sealed.length == 0 && count > 0 && lastNanos < cutoffNanos) {
+                evicted.add(count);
+                footprint.add(-(BLOCK_OVERHEAD + length));
+                data = null;
+                count = 0;
+            }
+        }
+
+        private int tickerOrdinal(String ticker) {
+            for (int i = 0; i < tickers.length; i++) {
+                if (Objects.equals(tickers[i], ticker)) {
+                    return i;
+                }
+            }
+            String[] grown = Arrays.copyOf(tickers, tickers.length + 1);
+            grown[tickers.length] = ticker;
+            tickers = grown;
+            return tickers.length - 1;
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private Pricing toPricing(Cursor cursor, String[] tickers) {
+            return Pricing.Builder.aPricing()
+                    .forInstrument(instrumentId)
+                    .forVendor(vendorId)
+                    .forTicker(tickers[cursor.ticker])
+                    .withPrice(cursor.mantissa, cursor.scale)
+                    .withPriceDateTime(dateTime(cursor.nanos))
+                    .build();
+        }
+    }
+}
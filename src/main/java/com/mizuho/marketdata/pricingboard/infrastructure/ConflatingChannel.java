@@ -0,0 +1,94 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.integration.channel.AbstractPollableChannel;
+import org.springframework.messaging.Message;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pollable channel that keeps only the latest message per key. Keys are handed out in the order they first became
+ * pending, so a busy key can not starve the others. Receiving never blocks.
+ */
+public class ConflatingChannel extends AbstractPollableChannel implements MeterBinder {
+    private final Function<Message<?>, Object> conflationKey;
+    private final Map<Object, Message<?>> latest = new ConcurrentHashMap<>();
+    private final Queue<Object> pendingKeys = new ConcurrentLinkedQueue<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder published = new LongAdder();
+
+    public ConflatingChannel(String name, Function<Message<?>, Object> conflationKey) {
+        this.conflationKey = requireNonNull(conflationKey, "conflationKey must not be null");
+        setBeanName(name);
+    }
+
+    public long receivedCount() {
+        return received.sum();
+    }
+
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    public int pendingCount() {
+        return latest.size();
+    }
+
+    public double conflationRatio() {
+        long publishedCount = publishedCount();
+        return publishedCount == 0 ? 0 : (double) receivedCount() / publishedCount;
+    }
+
+    @Override
+    protected boolean doSend(Message<?> message, long timeout) {
+        Object key = conflationKey.apply(message);
+        received.increment();
+        if (latest.put(key, message) == null) {
+            pendingKeys.add(key);
+        }
+        return true;
+    }
+
+    @Override
+    protected Message<?> doReceive(long timeout) {
+        Object key;
+        while ((key = pendingKeys.poll()) != null) {
+            Message<?> message = latest.remove(key);
+            if (message != null) {
+                published.increment();
+                return message;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pricingboard.conflation.received", this, ConflatingChannel::receivedCount)
+                .tag("channel", getComponentName())
+                .description("Messages offered to the conflation stage")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.conflation.published", this, ConflatingChannel::publishedCount)
+                .tag("channel", getComponentName())
+                .description("Messages released by the conflation stage")
+                .register(registry);
+        Gauge.builder("pricingboard.conflation.pending", this, ConflatingChannel::pendingCount)
+                .tag("channel", getComponentName())
+                .description("Keys holding a message not yet released")
+                .register(registry);
+        Gauge.builder("pricingboard.conflation.ratio", this, ConflatingChannel::conflationRatio)
+                .tag("channel", getComponentName())
+                .description("Messages received per message released")
+                .register(registry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingDeduplicator;
+import org.springframework.integration.core.GenericSelector;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Passes the pricings a {@link PricingDeduplicator} has not seen recently. Within a synchronized transaction, as run by
+ * {@link BatchingJmsInboundEndpoint} and {@link SynchronizingMessageListenerContainer}, the keys of passed pricings are
+ * kept aside and only remembered once the transaction commits. A pricing rolled back with its batch or after a failed
+ * send is then passed again when it is replayed or redelivered, rather than dropped as a repeat, while a repeat within
+ * the transaction is still dropped. Outside a transaction the key is remembered straight away.
+ */
+public class DeduplicatingPricingSelector implements GenericSelector<Pricing> {
+    private final PricingDeduplicator deduplicator;
+
+    public DeduplicatingPricingSelector(PricingDeduplicator deduplicator) {
+        this.deduplicator = requireNonNull(deduplicator, "deduplicator must not be null");
+    }
+
+    @Override
+    public boolean accept(Pricing pricing) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return deduplicator.firstOccurrence(pricing);
+        }
+        long key = PricingDeduplicator.key(pricing);
+        Set<Long> pending = pendingKeys();
+        return deduplicator.counted(!pending.contains(key) && deduplicator.unseen(key) && pending.add(key));
+    }
+
+    /**
+     * Keys passed in the current transaction, remembered by the deduplicator once it commits and dropped once it completes.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Long> pendingKeys() {
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Set<Long> keys = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(this, keys);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(deduplicator::remember);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(DeduplicatingPricingSelector.this);
+            }
+        });
+        return keys;
+    }
+}
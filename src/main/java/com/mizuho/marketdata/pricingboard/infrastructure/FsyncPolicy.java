@@ -0,0 +1,5 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+public enum FsyncPolicy {
+    NONE, PERIODIC, EVERY_WRITE
+}
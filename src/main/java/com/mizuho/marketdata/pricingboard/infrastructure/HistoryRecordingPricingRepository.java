@@ -0,0 +1,97 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.google.common.util.concurrent.Striped;
+import com.mizuho.marketdata.pricingboard.pricing.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Appends the pricings stored in another repository to a {@link PricingHistoryRepository}, and evicts history older
+ * than its retention along with the delegate. A pricing is stored and appended under the lock stripe of its (instrument,
+ * vendor) slot, so the history receives the ticks of a slot in the order the delegate took them and records every tick
+ * the delegate accepts. The history still skips a tick older than the last one of its series, i.e. a late tick the
+ * delegate ignores, or one it accepts only because it has since evicted the later tick.
+ */
+public class HistoryRecordingPricingRepository implements EvictablePricingRepository {
+    private static final int LOCK_STRIPES = 1024;
+
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    private final EvictablePricingRepository delegate;
+    private final PricingHistoryRepository history;
+    private final Clock clock;
+    private final Duration retention;
+
+    public HistoryRecordingPricingRepository(EvictablePricingRepository delegate, PricingHistoryRepository history,
+                                             Clock clock, Duration retention) {
+        this.delegate = requireNonNull(delegate, "delegate must not be null");
+        this.history = requireNonNull(history, "history must not be null");
+        this.clock = requireNonNull(clock, "clock must not be null");
+        this.retention = requireNonNull(retention, "retention must not be null");
+    }
+
+    @Override
+    public void store(Pricing pricing) {
+        Lock lock = locks.getAt((pricing.instrumentId().handle() * 31 + pricing.vendorId().handle()) & (locks.size() - 1));
+        lock.lock();
+        try {
+            delegate.store(pricing);
+            history.append(pricing);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PricingView viewByInstrument(InstrumentId instrumentId) {
+        return delegate.viewByInstrument(instrumentId);
+    }
+
+    @Override
+    public PricingView viewByVendor(VendorId vendorId) {
+        return delegate.viewByVendor(vendorId);
+    }
+
+    @Override
+    public long instrumentVersion(InstrumentId instrumentId) {
+        return delegate.instrumentVersion(instrumentId);
+    }
+
+    @Override
+    public long vendorVersion(VendorId vendorId) {
+        return delegate.vendorVersion(vendorId);
+    }
+
+    @Override
+    public List<Pricing> byTicker(String ticker, int limit) {
+        return delegate.byTicker(ticker, limit);
+    }
+
+    @Override
+    public List<Pricing> byTickerPrefix(String prefix, int limit) {
+        return delegate.byTickerPrefix(prefix, limit);
+    }
+
+    @Override
+    public Optional<CompositePricing> compositeByInstrument(InstrumentId instrumentId) {
+        return delegate.compositeByInstrument(instrumentId);
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Pricing> listener) {
+        delegate.addEvictionListener(listener);
+    }
+
+    @Override
+    public void evictEligible() {
+        delegate.evictEligible();
+        history.evictBefore(LocalDateTime.now(clock).minus(retention));
+    }
+}
@@ -1,73 +1,482 @@
 package com.mizuho.marketdata.pricingboard.infrastructure;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.Striped;
 import com.mizuho.marketdata.pricingboard.pricing.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDate;
-import java.util.Collection;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
-import static java.lang.String.format;
-import static java.util.Collections.emptyMap;
+import static java.time.temporal.ChronoUnit.MINUTES;
 import static java.util.Collections.emptySet;
+import static java.util.Objects.requireNonNull;
 
-public class InMemoryPricingRepository implements PricingRepository {
+/**
+ * Keeps the latest pricing per instrument and vendor on heap, as one immutable versioned {@link PricingView} per instrument
+ * that writers replace by compare-and-set, so readers get a consistent snapshot of an instrument without locking.
+ * Vendor views are not stored but read from the instrument views, so writers of different instruments never contend on a
+ * vendor and both views always agree: a pricing seen in either is seen in any view read afterwards. A vendor's version is
+ * a striped counter advanced after each change, see {@link #viewByVendor}.
+ * Pricings also sit in one minute buckets of their price date time, so each eviction run only pops the buckets that fell
+ * out of the time to live as of the clock's current time. Evictions take no lock: a pricing is removed by compare-and-set
+ * on its instrument view only while it is still the slot's pricing, so an eviction racing with a writer of the slot either
+ * removes the pricing before the writer replaces it, or finds it replaced and leaves the slot alone.
+ * Optionally the repository is bounded by a number of entries or an estimated number of bytes, in which case the least
+ * recently stored (instrument, vendor) entries are dropped from all indices once the bound is reached.
+ * An instrument's view and composite are released once its last pricing is dropped, so instruments no longer priced
+ * hold no state here. Their interned ids and the few bytes of handle map slots they were given are kept for the life of
+ * the process though, so the bound caps the pricings held and not the number of distinct ids ever seen.
+ * A {@link TickerIndex} maps tickers to the (instrument, vendor) slots currently priced under them, and a
+ * {@link CompositePricingIndex} keeps the cross-vendor composite of every instrument.
+ */
+public class InMemoryPricingRepository implements EvictablePricingRepository, MeterBinder {
     private static final Logger LOG = LoggerFactory.getLogger(PricingManagementService.class);
-    private static final int PRICE_DATE_LIVE_PERIOD = 30;
-    private static final LocalDate PRICE_DATE_CUTOFF = LocalDate.now().minusDays(PRICE_DATE_LIVE_PERIOD);
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(30);
+    private static final int UNBOUNDED = 0;
+    private static final int LOCK_STRIPES = 1024;
+    /**
+     * Rough heap cost of a pricing without its strings: the pricing, id and date time objects plus its index entries.
+     * Instrument and vendor ids are interned and shared, so they are not accounted for.
+     */
+    private static final int PRICING_OVERHEAD = 256;
+    /**
+     * Marks a released instrument view, so a writer still holding its reference starts over with a fresh one.
+     */
+    private static final PricingView RETIRED = new PricingView(0, HandleTrie.empty());
 
-    private Map<InstrumentId, Map<VendorId, Pricing>> indexByInstrument = new ConcurrentHashMap<>();
-    private Map<VendorId, Map<InstrumentId, Pricing>> indexByVendor = new ConcurrentHashMap<>();
-    private Map<LocalDate, Set<Pricing>> indexByPriceDate = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final Duration timeToLive;
+    private final Cache<Long, Pricing> bound;
+    private final LongAdder resident = new LongAdder();
+    private final LongAdder footprint = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evictedForSize = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    private final Queue<Pricing> sizeEvictions = new ConcurrentLinkedQueue<>();
+    private final AtomicLong retiredVersion = new AtomicLong();
+    private final List<Consumer<Pricing>> evictionListeners = new CopyOnWriteArrayList<>();
 
+    private HandleMap<AtomicReference<PricingView>> indexByInstrument = new HandleMap<>();
+    private final HandleMap<LongAdder> vendorVersions = new HandleMap<>();
+    private NavigableMap<LocalDateTime, Set<Pricing>> indexByPriceDate = new ConcurrentSkipListMap<>();
+    private final TickerIndex indexByTicker = new TickerIndex();
+    private final CompositePricingIndex composites = new CompositePricingIndex();
+
+    public InMemoryPricingRepository() {
+        this(Clock.systemDefaultZone(), DEFAULT_TIME_TO_LIVE);
+    }
+
+    public InMemoryPricingRepository(Clock clock, Duration timeToLive) {
+        this(clock, timeToLive, UNBOUNDED, UNBOUNDED);
+    }
+
+    /**
+     * @param maximumEntries maximum number of (instrument, vendor) entries held, or 0 for no limit
+     * @param maximumBytes   maximum estimated footprint of the held pricings, or 0 for no limit
+     */
+    public InMemoryPricingRepository(Clock clock, Duration timeToLive, long maximumEntries, long maximumBytes) {
+        this.clock = requireNonNull(clock, "clock must not be null");
+        this.timeToLive = requireNonNull(timeToLive, "timeToLive must not be null");
+        if (maximumEntries < 0 || maximumBytes < 0) {
+            throw new IllegalArgumentException("maximumEntries and maximumBytes must not be negative");
+        }
+        if (maximumEntries > UNBOUNDED && maximumBytes > UNBOUNDED) {
+            throw new IllegalArgumentException("only one of maximumEntries and maximumBytes may be set");
+        }
+        CacheBuilder<Long, Pricing> builder = CacheBuilder.newBuilder()
+                .removalListener(this::onRemoval);
+        if (maximumEntries > UNBOUNDED) {
+            this.bound = builder.maximumSize(maximumEntries).build();
+        } else if (maximumBytes > UNBOUNDED) {
+            this.bound = builder.maximumWeight(maximumBytes).weigher((Long slot, Pricing p) -> estimatedFootprint(p)).build();
+        } else {
+            this.bound = null;
+        }
+    }
+
+    public long residentCount() {
+        return resident.sum();
+    }
+
+    public long footprint() {
+        return footprint.sum();
+    }
+
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    public long evictedForSizeCount() {
+        return evictedForSize.sum();
+    }
+
+    public long staleCount() {
+        return stale.sum();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    int retainedInstrumentCount() {
+        return indexByInstrument.values().size();
+    }
+
+    int retainedCompositeCount() {
+        return composites.size();
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Pricing> listener) {
+        evictionListeners.add(requireNonNull(listener, "listener must not be null"));
+    }
+
+    @Override
     public void evictEligible() {
-        LOG.info(format("Evicting pricing data older than %s days", PRICE_DATE_LIVE_PERIOD));
-        Set<LocalDate> dateBucketsToEvict = indexByPriceDate.keySet().stream()
-                .filter(i -> i.isBefore(PRICE_DATE_CUTOFF))
-                .collect(Collectors.toSet());
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(timeToLive).truncatedTo(MINUTES);
+        long expiredBefore = expired.sum();
+        for (Map.Entry<LocalDateTime, Set<Pricing>> first = indexByPriceDate.firstEntry();
+             first != null && first.getKey().isBefore(cutoff); first = indexByPriceDate.firstEntry()) {
+            Set<Pricing> bucket = indexByPriceDate.remove(first.getKey());
+            if (bucket != null) {
+                bucket.forEach(this::expirePricing);
+            }
+        }
+        LOG.debug("Evicted {} pricings priced before {}", expired.sum() - expiredBefore, cutoff);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pricingboard.repository.evicted", this, InMemoryPricingRepository::expiredCount)
+                .tag("cause", "expired")
+                .description("Pricings evicted for outliving their time to live")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.repository.evicted", this, InMemoryPricingRepository::evictedForSizeCount)
+                .tag("cause", "size")
+                .description("Pricings evicted to keep the repository within its bound")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.repository.lookups", this, InMemoryPricingRepository::hitCount)
+                .tag("result", "hit")
+                .description("Queries that found pricings")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.repository.lookups", this, InMemoryPricingRepository::missCount)
+                .tag("result", "miss")
+                .description("Queries that found no pricings")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.repository.stale", this, InMemoryPricingRepository::staleCount)
+                .description("Pricings ignored for not being newer than the stored one")
+                .register(registry);
+        Gauge.builder("pricingboard.repository.resident", this, InMemoryPricingRepository::residentCount)
+                .description("Latest pricings held per instrument and vendor")
+                .register(registry);
+        Gauge.builder("pricingboard.repository.footprint", this, InMemoryPricingRepository::footprint)
+                .description("Estimated heap held by the stored pricings")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Estimated heap footprint of a stored pricing, used as its weight when the repository is bounded by bytes.
+     */
+    static int estimatedFootprint(Pricing pricing) {
+        return PRICING_OVERHEAD + 2 * (length(pricing.id() == null ? null : pricing.id().value()) + length(pricing.ticker()));
+    }
 
-        dateBucketsToEvict.forEach(dateBucket -> indexByPriceDate.remove(dateBucket).forEach(this::evictPricing));
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
     }
 
-    private void evictPricing(Pricing pricing) {
-        Map<VendorId, Pricing> instrumentPricings = indexByInstrument.getOrDefault(pricing.instrumentId(), emptyMap());
-        if (pricing.equals(instrumentPricings.get(pricing.vendorId()))) {
-            instrumentPricings.remove(pricing.vendorId());
+    private void expirePricing(Pricing pricing) {
+        if (removeFromIndices(pricing)) {
+            expired.increment();
+            if (bound != null) {
+                bound.asMap().remove(slot(pricing), pricing);
+            }
+            notifyEvicted(pricing);
         }
-        Map<InstrumentId, Pricing> vendorPricings = indexByVendor.getOrDefault(pricing.vendorId(), emptyMap());
-        if (pricing.equals(vendorPricings.get(pricing.instrumentId()))) {
-            vendorPricings.remove(pricing.instrumentId());
+    }
+
+    /**
+     * Size evictions happen inside {@link #store} while the slot being stored is locked, so they are only queued here and
+     * applied once that lock is released, which keeps the writer's critical section to its own slot.
+     */
+    private void onRemoval(RemovalNotification<Long, Pricing> notification) {
+        if (notification.wasEvicted()) {
+            sizeEvictions.add(notification.getValue());
+        }
+    }
+
+    private void applySizeEvictions() {
+        Pricing pricing;
+        while ((pricing = sizeEvictions.poll()) != null) {
+            if (removeFromIndices(pricing)) {
+                indexByPriceDate.getOrDefault(bucketOf(pricing), emptySet()).remove(pricing);
+                evictedForSize.increment();
+                notifyEvicted(pricing);
+            }
         }
     }
 
+    private void notifyEvicted(Pricing pricing) {
+        for (Consumer<Pricing> listener : evictionListeners) {
+            listener.accept(pricing);
+        }
+    }
+
+    /**
+     * Removes the pricing without taking its slot's lock, if it is still the slot's pricing. Only one of this removal
+     * and a writer replacing the pricing wins the compare-and-set on the instrument view, and only the winner accounts
+     * for the pricing leaving. The ticker and composite follow on their own: the composite drops the vendor's price
+     * only if it is still this pricing's, and a ticker entry a writer of the slot re-added in between is restored from
+     * the slot's current pricing.
+     */
+    private boolean removeFromIndices(Pricing pricing) {
+        int instrument = pricing.instrumentId().handle();
+        int vendor = pricing.vendorId().handle();
+        AtomicReference<PricingView> instrumentView = indexByInstrument.get(instrument);
+        if (instrumentView == null) {
+            return false;
+        }
+        PricingView view;
+        PricingView remaining;
+        do {
+            view = instrumentView.get();
+            if (view.get(vendor) != pricing) {
+                return false;
+            }
+            remaining = view.without(vendor, pricing);
+        } while (!instrumentView.compareAndSet(view, remaining));
+        retireIfEmpty(instrument, instrumentView, remaining);
+        vendorVersions.get(vendor).increment();
+        long slot = TickerIndex.slot(instrument, vendor);
+        indexByTicker.remove(pricing.ticker(), slot);
+        AtomicReference<PricingView> current = indexByInstrument.get(instrument);
+        Pricing replacement = current == null ? null : current.get().get(vendor);
+        if (replacement != null) {
+            indexByTicker.update(null, replacement.ticker(), slot);
+        }
+        composites.remove(pricing);
+        resident.decrement();
+        footprint.add(-estimatedFootprint(pricing));
+        return true;
+    }
+
+    /**
+     * Releases the view of an instrument left without pricings. Its version is remembered first, so a view created
+     * afterwards for the same instrument never goes back to a version readers have already seen.
+     */
+    private void retireIfEmpty(int instrument, AtomicReference<PricingView> instrumentView, PricingView remaining) {
+        if (remaining.isEmpty()) {
+            retiredVersion.accumulateAndGet(remaining.version(), Math::max);
+            if (instrumentView.compareAndSet(remaining, RETIRED)) {
+                indexByInstrument.remove(instrument, instrumentView);
+            }
+        }
+    }
+
+    private AtomicReference<PricingView> newInstrumentView(int instrument) {
+        return new AtomicReference<>(new PricingView(retiredVersion.get(), HandleTrie.empty()));
+    }
+
+    /**
+     * Updates all indices of the pricing's (instrument, vendor) slot under that slot's lock stripe, and only if the pricing
+     * is newer than the one stored, so a tick arriving late never replaces a later one. Reads stay lock-free. The only
+     * shared state written is the instrument's view, whose other writers are the few vendors of that instrument.
+     * Evictions do not take the lock, so the pricing replaced is the one the compare-and-set on the view actually saw:
+     * should an eviction have removed the previous pricing first, this store counts as the slot's first.
+     * A view retired by an eviction can only have been empty of this slot, and the pricing then goes into a fresh view.
+     */
     @Override
     public void store(Pricing pricing) {
-        Pricing previouslyLatestByInstrument =
-                indexByInstrument.computeIfAbsent(pricing.instrumentId(), i -> new ConcurrentHashMap<>()).put(pricing.vendorId(), pricing);
+        int instrument = pricing.instrumentId().handle();
+        int vendor = pricing.vendorId().handle();
+        LongAdder vendorVersion = vendorVersions.computeIfAbsent(vendor, v -> new LongAdder());
+
+        Lock lock = lockFor(instrument, vendor);
+        lock.lock();
+        try {
+            AtomicReference<PricingView> instrumentView = indexByInstrument.computeIfAbsent(instrument, this::newInstrumentView);
+            Pricing previous;
+            while (true) {
+                PricingView view = instrumentView.get();
+                if (view == RETIRED) {
+                    indexByInstrument.remove(instrument, instrumentView);
+                    instrumentView = indexByInstrument.computeIfAbsent(instrument, this::newInstrumentView);
+                    continue;
+                }
+                previous = view.get(vendor);
+                if (previous != null && !pricing.priceDateTime().isAfter(previous.priceDateTime())) {
+                    stale.increment();
+                    return;
+                }
+                if (instrumentView.compareAndSet(view, view.with(vendor, pricing))) {
+                    break;
+                }
+            }
+            vendorVersion.increment();
+            indexByTicker.update(previous == null ? null : previous.ticker(), pricing.ticker(), TickerIndex.slot(instrument, vendor));
+            composites.update(pricing);
+            addToPriceDateBucket(pricing);
+            footprint.add(estimatedFootprint(pricing));
+            if (previous != null) {
+                indexByPriceDate.getOrDefault(bucketOf(previous), emptySet()).remove(previous);
+                footprint.add(-estimatedFootprint(previous));
+            } else {
+                resident.increment();
+            }
+            if (bound != null) {
+                bound.put(slot(pricing), pricing);
+            }
+        } finally {
+            lock.unlock();
+        }
+        applySizeEvictions();
+    }
 
-        Pricing previouslyLatestByVendor =
-                indexByVendor.computeIfAbsent(pricing.vendorId(), i -> new ConcurrentHashMap<>()).put(pricing.instrumentId(), pricing);
+    /**
+     * Adds the pricing to its bucket without locking. Should an eviction run pop the bucket in the meantime, the add is
+     * retried against a fresh bucket which the next run evicts.
+     */
+    private void addToPriceDateBucket(Pricing pricing) {
+        LocalDateTime bucket = bucketOf(pricing);
+        Set<Pricing> pricings;
+        do {
+            pricings = indexByPriceDate.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet());
+            pricings.add(pricing);
+        } while (indexByPriceDate.get(bucket) != pricings);
+    }
 
-        indexByPriceDate.computeIfAbsent(pricing.priceDateTime().toLocalDate(), d -> ConcurrentHashMap.newKeySet()).add(pricing);
+    private static LocalDateTime bucketOf(Pricing pricing) {
+        return pricing.priceDateTime().truncatedTo(MINUTES);
+    }
 
-        if (previouslyLatestByInstrument != null) {
-            indexByPriceDate.getOrDefault(previouslyLatestByInstrument.priceDateTime().toLocalDate(), emptySet()).remove(previouslyLatestByInstrument);
+    private Lock lockFor(int instrument, int vendor) {
+        return locks.getAt((instrument * 31 + vendor) & (locks.size() - 1));
+    }
+
+    private static Long slot(Pricing pricing) {
+        return TickerIndex.slot(pricing.instrumentId().handle(), pricing.vendorId().handle());
+    }
+
+    @Override
+    public PricingView viewByInstrument(InstrumentId instrumentId) {
+        return recordLookup(indexByInstrument.get(instrumentId.knownHandle()));
+    }
+
+    /**
+     * Reads the vendor's pricings from the instrument views, so the view is consistent per instrument only. Its version
+     * is read before the instrument views and advanced after every change, hence the view holds at least every change its
+     * version counts, and a change racing with the read shows up as a new version on the next read.
+     */
+    @Override
+    public PricingView viewByVendor(VendorId vendorId) {
+        int vendor = vendorId.knownHandle();
+        LongAdder version = vendor < 0 ? null : vendorVersions.get(vendor);
+        if (version == null) {
+            misses.increment();
+            return PricingView.empty();
         }
-        if (previouslyLatestByVendor != null) {
-            indexByPriceDate.getOrDefault(previouslyLatestByVendor.priceDateTime().toLocalDate(), emptySet()).remove(previouslyLatestByVendor);
+        long sum = version.sum();
+        HandleTrie.Builder<Pricing> pricings = HandleTrie.builder();
+        int instruments = InstrumentId.registry().size();
+        for (int instrument = 0; instrument < instruments; instrument++) {
+            AtomicReference<PricingView> view = indexByInstrument.get(instrument);
+            Pricing pricing = view == null ? null : view.get().get(vendor);
+            if (pricing != null) {
+                pricings.put(instrument, pricing);
+            }
+        }
+        PricingView view = new PricingView(sum, pricings.build());
+        (view.isEmpty() ? misses : hits).increment();
+        return view;
+    }
+
+    @Override
+    public long instrumentVersion(InstrumentId instrumentId) {
+        return version(indexByInstrument.get(instrumentId.knownHandle()));
+    }
+
+    @Override
+    public long vendorVersion(VendorId vendorId) {
+        int vendor = vendorId.knownHandle();
+        LongAdder version = vendor < 0 ? null : vendorVersions.get(vendor);
+        return version == null ? 0 : version.sum();
+    }
+
+    @Override
+    public List<Pricing> byTicker(String ticker, int limit) {
+        return resolve(indexByTicker.exact(ticker, limit), ticker::equals);
+    }
+
+    @Override
+    public List<Pricing> byTickerPrefix(String prefix, int limit) {
+        return resolve(indexByTicker.prefix(prefix, limit), t -> t.startsWith(prefix));
+    }
+
+    @Override
+    public Optional<CompositePricing> compositeByInstrument(InstrumentId instrumentId) {
+        Optional<CompositePricing> composite = composites.get(instrumentId);
+        (composite.isPresent() ? hits : misses).increment();
+        return composite;
+    }
+
+    /**
+     * Looks the slots up in the instrument views, skipping those emptied or repriced under another ticker since.
+     */
+    private List<Pricing> resolve(long[] slots, Predicate<String> ticker) {
+        List<Pricing> pricings = new ArrayList<>(slots.length);
+        for (long slot : slots) {
+            AtomicReference<PricingView> view = indexByInstrument.get(TickerIndex.instrument(slot));
+            Pricing pricing = view == null ? null : view.get().get(TickerIndex.vendor(slot));
+            if (pricing != null && pricing.ticker() != null && ticker.test(pricing.ticker())) {
+                pricings.add(pricing);
+            }
         }
+        (pricings.isEmpty() ? misses : hits).increment();
+        return pricings;
     }
 
-    public Collection<Pricing> allByInstrument(InstrumentId instrumentId) {
-        return indexByInstrument.getOrDefault(instrumentId, emptyMap()).values();
+    private static long version(AtomicReference<PricingView> index) {
+        return index == null ? 0 : index.get().version();
     }
 
-    public Collection<Pricing> allByVendor(VendorId vendorId) {
-        return indexByVendor.getOrDefault(vendorId, emptyMap()).values();
+    private PricingView recordLookup(AtomicReference<PricingView> index) {
+        PricingView view = index == null ? PricingView.empty() : index.get();
+        (view.isEmpty() ? misses : hits).increment();
+        return view;
     }
 
 }
@@ -0,0 +1,236 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Makes the pricings stored in another repository durable. Every store is appended to a {@link PricingJournal} before it
+ * reaches the delegate, and the delegate's content is periodically written to a compact snapshot after which older journal
+ * segments are dropped. On startup the latest snapshot is loaded and the journal written since is replayed.
+ * <p>
+ * Two {@code pricing-journal} threads run the periodic flushes and snapshots and prepare the journal's next segment, so a
+ * long snapshot does not hold up the preparation that keeps appending threads from creating segment files themselves.
+ */
+public class JournalingPricingRepository implements EvictablePricingRepository, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(JournalingPricingRepository.class);
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_BUFFER_SIZE = 64 * 1024;
+
+    private final EvictablePricingRepository delegate;
+    private final Path directory;
+    private final PricingJournal journal;
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread thread = new Thread(r, "pricing-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JournalingPricingRepository(EvictablePricingRepository delegate, Path directory, int segmentSize,
+                                       FsyncPolicy fsyncPolicy, long fsyncInterval, long snapshotInterval) {
+        this.delegate = requireNonNull(delegate, "delegate must not be null");
+        this.directory = requireNonNull(directory, "directory must not be null");
+        this.journal = new PricingJournal(directory, segmentSize, fsyncPolicy, scheduler);
+        try {
+            Files.createDirectories(directory);
+            journal.open(recover() + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Failed to recover pricings from %s", directory), e);
+        }
+        if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+            scheduler.scheduleWithFixedDelay(journal::force, fsyncInterval, fsyncInterval, MILLISECONDS);
+        }
+        if (snapshotInterval > 0) {
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval, snapshotInterval, MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void store(Pricing pricing) {
+        Lock lock = rotationLock.readLock();
+        lock.lock();
+        try {
+            journal.append(pricing);
+            delegate.store(pricing);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends all the pricings to the journal with a single write before any of them reaches the delegate.
+     */
+    @Override
+    public void storeAll(List<Pricing> pricings) {
+        Lock lock = rotationLock.readLock();
+        lock.lock();
+        try {
+            journal.appendAll(pricings);
+            delegate.storeAll(pricings);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PricingView viewByInstrument(InstrumentId instrumentId) {
+        return delegate.viewByInstrument(instrumentId);
+    }
+
+    @Override
+    public PricingView viewByVendor(VendorId vendorId) {
+        return delegate.viewByVendor(vendorId);
+    }
+
+    @Override
+    public long instrumentVersion(InstrumentId instrumentId) {
+        return delegate.instrumentVersion(instrumentId);
+    }
+
+    @Override
+    public long vendorVersion(VendorId vendorId) {
+        return delegate.vendorVersion(vendorId);
+    }
+
+    @Override
+    public List<Pricing> byTicker(String ticker, int limit) {
+        return delegate.byTicker(ticker, limit);
+    }
+
+    @Override
+    public List<Pricing> byTickerPrefix(String prefix, int limit) {
+        return delegate.byTickerPrefix(prefix, limit);
+    }
+
+    @Override
+    public Optional<CompositePricing> compositeByInstrument(InstrumentId instrumentId) {
+        return delegate.compositeByInstrument(instrumentId);
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Pricing> listener) {
+        delegate.addEvictionListener(listener);
+    }
+
+    @Override
+    public void evictEligible() {
+        delegate.evictEligible();
+    }
+
+    /**
+     * Writes the current content of the delegate to a snapshot and drops the journal segments it supersedes. Rotating the
+     * journal waits for stores in flight, so everything in the dropped segments has reached the delegate. Stores racing
+     * with the snapshot land in the new segment and are replayed on top of it in their original order. The new segment is
+     * prepared before stores are held up, so that holding them up only takes switching segments.
+     */
+    public void snapshot() throws IOException {
+        long sequence;
+        journal.prepareNext();
+        Lock lock = rotationLock.writeLock();
+        lock.lock();
+        try {
+            sequence = journal.rotate();
+        } finally {
+            lock.unlock();
+        }
+        Path snapshot = snapshotFile(sequence);
+        Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_SIZE);
+            for (VendorId vendorId : VendorId.registry().all()) {
+                for (Pricing pricing : delegate.allByVendor(vendorId)) {
+                    if (!PricingJournal.writeRecord(buffer, pricing)) {
+                        flush(channel, buffer);
+                        if (!PricingJournal.writeRecord(buffer, pricing)) {
+                            throw new IllegalStateException(format("pricing %s does not fit into a snapshot buffer", pricing.id()));
+                        }
+                    }
+                    count++;
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, ATOMIC_MOVE);
+        for (long older : snapshotSequences()) {
+            if (older < sequence) {
+                Files.deleteIfExists(snapshotFile(older));
+            }
+        }
+        PricingJournal.deleteSegmentsBefore(directory, sequence);
+        LOG.info("Wrote snapshot of {} pricings to {}", count, snapshot);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        journal.close();
+    }
+
+    private long recover() throws IOException {
+        List<Long> snapshots = snapshotSequences();
+        long snapshotSequence = snapshots.isEmpty() ? -1 : snapshots.get(snapshots.size() - 1);
+        if (snapshotSequence >= 0) {
+            int loaded = PricingJournal.readRecords(snapshotFile(snapshotSequence), delegate::store);
+            LOG.info("Loaded {} pricings from snapshot {}", loaded, snapshotSequence);
+        }
+        return Math.max(snapshotSequence, PricingJournal.replay(directory, snapshotSequence, delegate::store));
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to write pricing snapshot to {}", directory, e);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path snapshotFile(long sequence) {
+        return directory.resolve(format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    private List<Long> snapshotSequences() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith(SNAPSHOT_PREFIX) && n.endsWith(SNAPSHOT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SNAPSHOT_PREFIX.length(), n.length() - SNAPSHOT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_ROLLED_BACK;
+
+/**
+ * Runs transaction synchronization around a local JMS transaction that no transaction manager knows about, so
+ * {@link TransactionSynchronization}s registered while a message is processed learn whether its session committed.
+ */
+final class LocalTransactionSynchronization {
+
+    private LocalTransactionSynchronization() {
+    }
+
+    static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    /**
+     * Ends synchronization and tells the synchronizations registered since {@link #begin} about the outcome: after commit
+     * and after completion once committed, only after completion as rolled back otherwise.
+     */
+    static void complete(boolean committed) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (committed) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, committed ? STATUS_COMMITTED : STATUS_ROLLED_BACK);
+    }
+}
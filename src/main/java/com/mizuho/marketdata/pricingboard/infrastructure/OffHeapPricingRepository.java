@@ -0,0 +1,487 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the latest pricing per instrument and vendor in fixed size slots of direct memory addressed by the id handles,
+ * so stored pricings are invisible to the garbage collector. {@link Pricing} objects are only materialised by the queries.
+ * Slots are allocated in chunks of {@value #INSTRUMENTS_PER_CHUNK} instruments times {@code maxVendors} vendors, the
+ * first time an instrument of a chunk is stored. Chunks are never released, so direct memory grows with the number of
+ * instrument ids interned and is not bounded by anything here.
+ * Ticker lookups go through an on-heap {@link TickerIndex} of the occupied slots, and the cross-vendor composites of
+ * the instruments are kept on heap by a {@link CompositePricingIndex}.
+ */
+public class OffHeapPricingRepository implements EvictablePricingRepository, MeterBinder {
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapPricingRepository.class);
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofDays(30);
+    private static final int INSTRUMENTS_PER_CHUNK = 64;
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_STRING_CAPACITY = 254;
+
+    private static final byte EMPTY = 0;
+    private static final byte OCCUPIED = 1;
+    private static final int NULL_LENGTH = 0xFF;
+    private static final int NULL_NANO = -1;
+
+    private static final int STATE = 0;
+    private static final int PRICE_MANTISSA = 1;
+    private static final int PRICE_SCALE = 9;
+    private static final int EPOCH_SECOND = 13;
+    private static final int NANO = 21;
+    private static final int ID = 25;
+
+    private final int maxVendors;
+    private final Clock clock;
+    private final Duration timeToLive;
+    private final int idCapacity;
+    private final int tickerCapacity;
+    private final int tickerOffset;
+    private final int slotSize;
+    private final HandleMap<ByteBuffer> chunks = new HandleMap<>();
+    private final StampedLock[] locks = new StampedLock[LOCK_STRIPES];
+    private final HandleMap<AtomicLong> instrumentVersions = new HandleMap<>();
+    private final AtomicLongArray vendorVersions;
+    private final TickerIndex indexByTicker = new TickerIndex();
+    private final CompositePricingIndex composites = new CompositePricingIndex();
+    private final LongAdder resident = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final List<Consumer<Pricing>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    public OffHeapPricingRepository() {
+        this(64, 40, 24);
+    }
+
+    public OffHeapPricingRepository(int maxVendors, int idCapacity, int tickerCapacity) {
+        this(maxVendors, idCapacity, tickerCapacity, Clock.systemDefaultZone(), DEFAULT_TIME_TO_LIVE);
+    }
+
+    public OffHeapPricingRepository(int maxVendors, int idCapacity, int tickerCapacity, Clock clock, Duration timeToLive) {
+        if (maxVendors < 1) {
+            throw new IllegalArgumentException("maxVendors must be a positive number");
+        }
+        if (idCapacity < 1 || idCapacity > MAX_STRING_CAPACITY || tickerCapacity < 1 || tickerCapacity > MAX_STRING_CAPACITY) {
+            throw new IllegalArgumentException(format("idCapacity and tickerCapacity must be between 1 and %d", MAX_STRING_CAPACITY));
+        }
+        this.maxVendors = maxVendors;
+        this.vendorVersions = new AtomicLongArray(maxVendors);
+        this.clock = requireNonNull(clock, "clock must not be null");
+        this.timeToLive = requireNonNull(timeToLive, "timeToLive must not be null");
+        this.idCapacity = idCapacity;
+        this.tickerCapacity = tickerCapacity;
+        this.tickerOffset = ID + 1 + idCapacity;
+        this.slotSize = tickerOffset + 1 + tickerCapacity;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Writes the pricing into its slot unless the slot already holds a pricing with the same or a later price date time.
+     * A pricing whose id or ticker does not fit the slot is refused before anything is touched.
+     */
+    @Override
+    public void store(Pricing pricing) {
+        int instrument = pricing.instrumentId().handle();
+        int vendor = pricing.vendorId().handle();
+        if (vendor >= maxVendors) {
+            throw new IllegalStateException(format("vendor %s exceeds the capacity of %d vendors", pricing.vendorId(), maxVendors));
+        }
+        String id = pricing.id() == null ? null : pricing.id().value();
+        requireFits(id, idCapacity, "id");
+        requireFits(pricing.ticker(), tickerCapacity, "ticker");
+        ByteBuffer chunk = chunks.computeIfAbsent(instrument / INSTRUMENTS_PER_CHUNK,
+                c -> ByteBuffer.allocateDirect(INSTRUMENTS_PER_CHUNK * maxVendors * slotSize));
+        int slot = slotOffset(instrument, vendor);
+
+        LocalDateTime priceDateTime = pricing.priceDateTime();
+        long epochSecond = priceDateTime == null ? 0 : priceDateTime.toEpochSecond(ZoneOffset.UTC);
+        int nano = priceDateTime == null ? NULL_NANO : priceDateTime.getNano();
+
+        StampedLock lock = lockFor(instrument);
+        long stamp = lock.writeLock();
+        try {
+            boolean occupied = chunk.get(slot + STATE) == OCCUPIED;
+            if (occupied && !isNewer(chunk, slot, epochSecond, nano)) {
+                stale.increment();
+                return;
+            }
+            if (!occupied) {
+                indexByTicker.update(null, pricing.ticker(), TickerIndex.slot(instrument, vendor));
+            } else if (!holdsString(chunk, slot + tickerOffset, pricing.ticker())) {
+                indexByTicker.update(getString(chunk, slot + tickerOffset), pricing.ticker(), TickerIndex.slot(instrument, vendor));
+            }
+            putString(chunk, slot + ID, id);
+            putString(chunk, slot + tickerOffset, pricing.ticker());
+            chunk.putLong(slot + PRICE_MANTISSA, pricing.priceMantissa());
+            chunk.putInt(slot + PRICE_SCALE, pricing.priceScale());
+            chunk.putLong(slot + EPOCH_SECOND, epochSecond);
+            chunk.putInt(slot + NANO, nano);
+            if (!occupied) {
+                chunk.put(slot + STATE, OCCUPIED);
+                resident.increment();
+            }
+            composites.update(pricing);
+            advanceVersions(instrument, vendor);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public PricingView viewByInstrument(InstrumentId instrumentId) {
+        int instrument = instrumentId.knownHandle();
+        ByteBuffer chunk = chunks.get(instrument < 0 ? -1 : instrument / INSTRUMENTS_PER_CHUNK);
+        if (chunk == null) {
+            return PricingView.empty();
+        }
+        HandleTrie.Builder<Pricing> pricings = HandleTrie.builder();
+        StampedLock lock = lockFor(instrument);
+        long stamp = lock.readLock();
+        try {
+            for (int vendor = 0; vendor < maxVendors; vendor++) {
+                addIfOccupied(pricings, vendor, chunk, instrument, vendor);
+            }
+            AtomicLong version = instrumentVersions.get(instrument);
+            return new PricingView(version == null ? 0 : version.get(), pricings.build());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The slots of a vendor span all lock stripes, so the view is consistent per instrument only. Its version is read
+     * before the slots, hence a change racing with the read shows up as a new version on the next read.
+     */
+    @Override
+    public PricingView viewByVendor(VendorId vendorId) {
+        int vendor = vendorId.knownHandle();
+        if (vendor < 0 || vendor >= maxVendors) {
+            return PricingView.empty();
+        }
+        long version = vendorVersions.get(vendor);
+        HandleTrie.Builder<Pricing> pricings = HandleTrie.builder();
+        int instruments = InstrumentId.registry().size();
+        for (int instrument = 0; instrument < instruments; instrument++) {
+            ByteBuffer chunk = chunks.get(instrument / INSTRUMENTS_PER_CHUNK);
+            if (chunk == null) {
+                instrument += INSTRUMENTS_PER_CHUNK - 1 - instrument % INSTRUMENTS_PER_CHUNK;
+                continue;
+            }
+            StampedLock lock = lockFor(instrument);
+            long stamp = lock.readLock();
+            try {
+                addIfOccupied(pricings, instrument, chunk, instrument, vendor);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return new PricingView(version, pricings.build());
+    }
+
+    @Override
+    public List<Pricing> byTicker(String ticker, int limit) {
+        return resolve(indexByTicker.exact(ticker, limit), ticker::equals);
+    }
+
+    @Override
+    public List<Pricing> byTickerPrefix(String prefix, int limit) {
+        return resolve(indexByTicker.prefix(prefix, limit), t -> t.startsWith(prefix));
+    }
+
+    @Override
+    public Optional<CompositePricing> compositeByInstrument(InstrumentId instrumentId) {
+        return composites.get(instrumentId);
+    }
+
+    /**
+     * Reads the slots one at a time, skipping those emptied or repriced under another ticker since they were looked up.
+     */
+    private List<Pricing> resolve(long[] slots, Predicate<String> ticker) {
+        List<Pricing> pricings = new ArrayList<>(slots.length);
+        for (long key : slots) {
+            int instrument = TickerIndex.instrument(key);
+            ByteBuffer chunk = chunks.get(instrument / INSTRUMENTS_PER_CHUNK);
+            if (chunk == null) {
+                continue;
+            }
+            Pricing pricing;
+            StampedLock lock = lockFor(instrument);
+            long stamp = lock.readLock();
+            try {
+                pricing = readSlot(chunk, instrument, TickerIndex.vendor(key));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (pricing != null && pricing.ticker() != null && ticker.test(pricing.ticker())) {
+                pricings.add(pricing);
+            }
+        }
+        return pricings;
+    }
+
+    public long residentCount() {
+        return resident.sum();
+    }
+
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    public long staleCount() {
+        return stale.sum();
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<Pricing> listener) {
+        evictionListeners.add(requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * Scans the slots under optimistic reads and only write-locks the instruments that do hold an expired pricing,
+     * so writers of other instruments in the same lock stripe are not held up by the scan.
+     */
+    @Override
+    public void evictEligible() {
+        long cutoff = LocalDateTime.now(clock).minus(timeToLive).toEpochSecond(ZoneOffset.UTC);
+        long evictedBefore = evicted.sum();
+        int instruments = InstrumentId.registry().size();
+        for (int instrument = 0; instrument < instruments; instrument++) {
+            ByteBuffer chunk = chunks.get(instrument / INSTRUMENTS_PER_CHUNK);
+            if (chunk == null || !holdsExpired(chunk, instrument, cutoff)) {
+                continue;
+            }
+            List<Pricing> expired = new ArrayList<>();
+            StampedLock lock = lockFor(instrument);
+            long stamp = lock.writeLock();
+            try {
+                for (int vendor = 0; vendor < maxVendors; vendor++) {
+                    int slot = slotOffset(instrument, vendor);
+                    if (isExpired(chunk, slot, cutoff)) {
+                        if (!evictionListeners.isEmpty()) {
+                            expired.add(readSlot(chunk, instrument, vendor));
+                        }
+                        chunk.put(slot + STATE, EMPTY);
+                        indexByTicker.remove(getString(chunk, slot + tickerOffset), TickerIndex.slot(instrument, vendor));
+                        composites.remove(instrument, VendorId.registry().byHandle(vendor));
+                        advanceVersions(instrument, vendor);
+                        resident.decrement();
+                        evicted.increment();
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            for (Pricing pricing : expired) {
+                evictionListeners.forEach(listener -> listener.accept(pricing));
+            }
+        }
+        LOG.debug("Evicted {} pricings priced before epoch second {}", evicted.sum() - evictedBefore, cutoff);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pricingboard.repository.evicted", this, OffHeapPricingRepository::evictedCount)
+                .tag("cause", "expired")
+                .description("Pricings evicted for outliving their time to live")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.repository.stale", this, OffHeapPricingRepository::staleCount)
+                .description("Pricings ignored for not being newer than the stored one")
+                .register(registry);
+        Gauge.builder("pricingboard.repository.resident", this, OffHeapPricingRepository::residentCount)
+                .description("Latest pricings held per instrument and vendor")
+                .register(registry);
+    }
+
+    private boolean holdsExpired(ByteBuffer chunk, int instrument, long cutoff) {
+        StampedLock lock = lockFor(instrument);
+        long stamp = lock.tryOptimisticRead();
+        boolean expired = anyExpired(chunk, instrument, cutoff);
+        if (lock.validate(stamp)) {
+            return expired;
+        }
+        stamp = lock.readLock();
+        try {
+            return anyExpired(chunk, instrument, cutoff);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean anyExpired(ByteBuffer chunk, int instrument, long cutoff) {
+        for (int vendor = 0; vendor < maxVendors; vendor++) {
+            if (isExpired(chunk, slotOffset(instrument, vendor), cutoff)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A slot without a price date time is older than any pricing that has one.
+     */
+    private static boolean isNewer(ByteBuffer chunk, int slot, long epochSecond, int nano) {
+        if (nano == NULL_NANO) {
+            return false;
+        }
+        int storedNano = chunk.getInt(slot + NANO);
+        if (storedNano == NULL_NANO) {
+            return true;
+        }
+        long storedEpochSecond = chunk.getLong(slot + EPOCH_SECOND);
+        return epochSecond > storedEpochSecond || epochSecond == storedEpochSecond && nano > storedNano;
+    }
+
+    private static boolean isExpired(ByteBuffer chunk, int slot, long cutoff) {
+        return chunk.get(slot + STATE) == OCCUPIED && chunk.getInt(slot + NANO) != NULL_NANO
+                && chunk.getLong(slot + EPOCH_SECOND) < cutoff;
+    }
+
+    private void addIfOccupied(HandleTrie.Builder<Pricing> pricings, int key, ByteBuffer chunk, int instrument, int vendor) {
+        Pricing pricing = readSlot(chunk, instrument, vendor);
+        if (pricing != null) {
+            pricings.put(key, pricing);
+        }
+    }
+
+    private Pricing readSlot(ByteBuffer chunk, int instrument, int vendor) {
+        int slot = slotOffset(instrument, vendor);
+        if (chunk.get(slot + STATE) != OCCUPIED) {
+            return null;
+        }
+        String id = getString(chunk, slot + ID);
+        int nano = chunk.getInt(slot + NANO);
+        return Pricing.Builder.aPricing()
+                .withId(id == null ? null : new PricingId(id))
+                .forInstrument(InstrumentId.registry().byHandle(instrument))
+                .forVendor(VendorId.registry().byHandle(vendor))
+                .forTicker(getString(chunk, slot + tickerOffset))
+                .withPrice(chunk.getLong(slot + PRICE_MANTISSA), chunk.getInt(slot + PRICE_SCALE))
+                .withPriceDateTime(nano == NULL_NANO ? null : LocalDateTime.ofEpochSecond(chunk.getLong(slot + EPOCH_SECOND), nano, ZoneOffset.UTC))
+                .build();
+    }
+
+    @Override
+    public long instrumentVersion(InstrumentId instrumentId) {
+        AtomicLong version = instrumentVersions.get(instrumentId.knownHandle());
+        return version == null ? 0 : version.get();
+    }
+
+    @Override
+    public long vendorVersion(VendorId vendorId) {
+        int vendor = vendorId.knownHandle();
+        return vendor < 0 || vendor >= maxVendors ? 0 : vendorVersions.get(vendor);
+    }
+
+    private void advanceVersions(int instrument, int vendor) {
+        instrumentVersions.computeIfAbsent(instrument, i -> new AtomicLong()).incrementAndGet();
+        vendorVersions.incrementAndGet(vendor);
+    }
+
+    private int slotOffset(int instrument, int vendor) {
+        return ((instrument % INSTRUMENTS_PER_CHUNK) * maxVendors + vendor) * slotSize;
+    }
+
+    private StampedLock lockFor(int instrument) {
+        return locks[instrument % LOCK_STRIPES];
+    }
+
+    private static void requireFits(String value, int capacity, String field) {
+        if (value != null && (value.length() > capacity || !isAscii(value)) && value.getBytes(UTF_8).length > capacity) {
+            throw new IllegalArgumentException(format("%s %s exceeds the slot capacity of %d bytes", field, value, capacity));
+        }
+    }
+
+    /**
+     * Writes a value that {@link #requireFits fits} the capacity of the field at the offset.
+     */
+    private static void putString(ByteBuffer chunk, int offset, String value) {
+        if (value == null) {
+            chunk.put(offset, (byte) NULL_LENGTH);
+            return;
+        }
+        if (isAscii(value)) {
+            for (int i = 0; i < value.length(); i++) {
+                chunk.put(offset + 1 + i, (byte) value.charAt(i));
+            }
+            chunk.put(offset, (byte) value.length());
+            return;
+        }
+        byte[] encoded = value.getBytes(UTF_8);
+        for (int i = 0; i < encoded.length; i++) {
+            chunk.put(offset + 1 + i, encoded[i]);
+        }
+        chunk.put(offset, (byte) encoded.length);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the slot already holds the value, comparing Ascii values in place so a repricing under the same
+     * ticker costs no string decoding.
+     */
+    private static boolean holdsString(ByteBuffer chunk, int offset, String value) {
+        int length = Byte.toUnsignedInt(chunk.get(offset));
+        if (value == null || length == NULL_LENGTH) {
+            return value == null && length == NULL_LENGTH;
+        }
+        if (length != value.length()) {
+            return value.equals(getString(chunk, offset));
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                return value.equals(getString(chunk, offset));
+            }
+            if (chunk.get(offset + 1 + i) != (byte) c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getString(ByteBuffer chunk, int offset) {
+        int length = Byte.toUnsignedInt(chunk.get(offset));
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = chunk.get(offset + 1 + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+}
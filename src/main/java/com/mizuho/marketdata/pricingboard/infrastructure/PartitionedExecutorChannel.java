@@ -0,0 +1,264 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.channel.AbstractSubscribableChannel;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.dispatcher.MessageDispatcher;
+import org.springframework.integration.dispatcher.UnicastingDispatcher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Hands messages over to a fixed set of single-threaded partitions chosen by hashing a message key, so that messages
+ * sharing a key are processed in order while different keys are processed in parallel. Senders block when the
+ * target partition queue is full.
+ * <p>
+ * The partition threads run between {@link #start} and {@link #stop}. Sends are rejected outside of that, and stopping
+ * lets the partitions process what is already queued, waiting up to the drain timeout before giving up on the rest.
+ */
+public class PartitionedExecutorChannel extends AbstractSubscribableChannel implements SmartLifecycle, MeterBinder, DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionedExecutorChannel.class);
+    private static final long POLL_INTERVAL = 100L;
+    private static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Function<Message<?>, Object> partitionKey;
+    private final Partition[] partitions;
+    private final PartitionedDispatcher dispatcher = new PartitionedDispatcher();
+    private final MessagePublishingErrorHandler errorHandler = new MessagePublishingErrorHandler();
+    private volatile boolean accepting;
+    private Duration drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+
+    public PartitionedExecutorChannel(String name, int partitionCount, int queueDepth, Function<Message<?>, Object> partitionKey) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be a positive number");
+        }
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("queueDepth must be a positive number");
+        }
+        this.partitionKey = requireNonNull(partitionKey, "partitionKey must not be null");
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(queueDepth);
+        }
+        setBeanName(name);
+    }
+
+    public void setErrorChannel(MessageChannel errorChannel) {
+        errorHandler.setDefaultErrorChannel(errorChannel);
+    }
+
+    public void setDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = requireNonNull(drainTimeout, "drainTimeout must not be null");
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    public int lag(int partition) {
+        return partitions[partition].queue.size();
+    }
+
+    int partitionOf(Message<?> message) {
+        int hash = partitionKey.apply(message).hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    @Override
+    protected MessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int i = 0; i < partitions.length; i++) {
+            int partition = i;
+            Gauge.builder("pricingboard.ingest.partition.lag", this, c -> c.lag(partition))
+                    .tag("channel", getComponentName())
+                    .tag("partition", String.valueOf(partition))
+                    .description("Messages waiting in the partition queue")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+        accepting = true;
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i].start(getComponentName() + "-" + i);
+        }
+    }
+
+    /**
+     * Rejects further sends and waits up to the drain timeout for the partitions to process their queued messages.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!isRunning()) {
+            return;
+        }
+        accepting = false;
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        try {
+            for (Partition partition : partitions) {
+                partition.worker.join(Math.max(1, NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int remaining = 0;
+        for (Partition partition : partitions) {
+            remaining += partition.worker.isAlive() ? partition.queue.size() + 1 : 0;
+        }
+        if (remaining > 0) {
+            LOG.warn("Channel {} stopped after {} with up to {} messages not processed", getComponentName(), drainTimeout, remaining);
+        }
+        for (Partition partition : partitions) {
+            partition.worker = null;
+        }
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return partitions[0].worker != null;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    /**
+     * Starts after and stops before the endpoints consuming from the channel, which run in the lowest phase, and before
+     * and after the inbound adapters sending to it, which run in a higher one.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    private class PartitionedDispatcher implements MessageDispatcher {
+        private final UnicastingDispatcher delegate = new UnicastingDispatcher();
+
+        @Override
+        public boolean addHandler(MessageHandler handler) {
+            return delegate.addHandler(handler);
+        }
+
+        @Override
+        public boolean removeHandler(MessageHandler handler) {
+            return delegate.removeHandler(handler);
+        }
+
+        @Override
+        public int getHandlerCount() {
+            return delegate.getHandlerCount();
+        }
+
+        @Override
+        public boolean dispatch(Message<?> message) {
+            Partition partition = partitions[partitionOf(message)];
+            partition.senders.incrementAndGet();
+            try {
+                while (accepting) {
+                    if (partition.queue.offer(message, POLL_INTERVAL, MILLISECONDS)) {
+                        return true;
+                    }
+                }
+                throw new MessageDeliveryException(message, "Channel " + getComponentName() + " is not running");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MessageDeliveryException(message, "Interrupted while waiting for a partition slot", e);
+            } finally {
+                partition.senders.decrementAndGet();
+            }
+        }
+
+        private void dispatchInPartition(Message<?> message) {
+            delegate.dispatch(message);
+        }
+    }
+
+    private class Partition implements Runnable {
+        private final BlockingQueue<Message<?>> queue;
+        private final AtomicInteger senders = new AtomicInteger();
+        private volatile Thread worker;
+
+        private Partition(int queueDepth) {
+            this.queue = new ArrayBlockingQueue<>(queueDepth);
+        }
+
+        private void start(String name) {
+            worker = new Thread(this, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        /**
+         * Runs until the channel stops accepting and the queue is drained. A sender registers before it checks whether
+         * the channel accepts, so once no sender is registered after the channel stopped accepting, none can still enqueue.
+         * A worker given up on after the drain timeout leaves once its current message is processed.
+         */
+        @Override
+        public void run() {
+            while (worker == Thread.currentThread()) {
+                try {
+                    Message<?> message = queue.poll(POLL_INTERVAL, MILLISECONDS);
+                    if (message != null) {
+                        process(message);
+                    } else if (!accepting && senders.get() == 0 && queue.isEmpty()) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void process(Message<?> message) {
+            try {
+                dispatcher.dispatchInPartition(message);
+            } catch (MessagingException e) {
+                errorHandler.handleError(e);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to process message {}", message, e);
+                errorHandler.handleError(new MessagingException(message, e));
+            }
+        }
+    }
+}
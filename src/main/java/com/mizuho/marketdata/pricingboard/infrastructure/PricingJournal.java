@@ -0,0 +1,526 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only journal of stored pricings kept in memory-mapped segment files named {@code journal-<sequence>.log}.
+ * Every record is a length followed by the encoded pricing. The body is written before the length, so a record torn by a
+ * crash reads back as a zero length and ends the replay of its segment.
+ * <p>
+ * Appending threads do not lock: each reserves its bytes by advancing the segment position with a compare-and-set and
+ * encodes the pricing straight into the mapped buffer. The thread whose record no longer fits seals the segment and
+ * switches to the next one, which the executor has normally created and mapped in the background by then. The executor
+ * also forces a sealed segment once its last record is written if the fsync policy is {@link FsyncPolicy#PERIODIC}. Only
+ * {@link FsyncPolicy#EVERY_WRITE} has appending threads flush the segment themselves.
+ */
+public class PricingJournal implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(PricingJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int LENGTH_SIZE = 4;
+    private static final int FIXED_RECORD_SIZE = 4 * 4 + 8 + 4 + 8 + 4;
+    private static final int NULL_NANO = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final Executor executor;
+    private volatile Segment current;
+    private volatile FutureTask<Segment> next;
+    private volatile RuntimeException failure;
+
+    public PricingJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Executor executor) {
+        this.directory = requireNonNull(directory, "directory must not be null");
+        this.fsyncPolicy = requireNonNull(fsyncPolicy, "fsyncPolicy must not be null");
+        this.executor = requireNonNull(executor, "executor must not be null");
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize must be at least 1024 bytes");
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Creates the segment to append to on the calling thread and has the executor prepare the one following it.
+     */
+    public void open(long sequence) {
+        current = createSegment(sequence);
+        prepare(sequence + 1);
+    }
+
+    public void append(Pricing pricing) {
+        int length = recordLength(pricing);
+        while (true) {
+            Segment segment = openSegment();
+            int position = segment.reserve(length);
+            if (position >= 0) {
+                writeRecord(segment.buffer, position, length, pricing);
+                segment.written(position, length);
+                return;
+            }
+            rollOver(segment);
+        }
+    }
+
+    /**
+     * Appends the pricings in their order, as a single write into each segment they span, forced once per segment under
+     * {@link FsyncPolicy#EVERY_WRITE}. Nothing is appended if any of them does not fit into a segment.
+     */
+    public void appendAll(List<Pricing> pricings) {
+        int[] lengths = new int[pricings.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = recordLength(pricings.get(i));
+        }
+        int from = 0;
+        while (from < lengths.length) {
+            Segment segment = openSegment();
+            int position = segment.reserveRun(lengths, from);
+            if (position < 0) {
+                rollOver(segment);
+                continue;
+            }
+            int start = position;
+            int end = segment.runEnd(start, lengths, from);
+            for (; position < end; from++) {
+                writeRecord(segment.buffer, position, lengths[from], pricings.get(from));
+                position += lengths[from];
+            }
+            segment.written(start, end - start);
+        }
+    }
+
+    /**
+     * Seals the segment appended to and switches to the next one, whose sequence is returned. Every record appended before
+     * the call lives in an older segment. The next segment is normally prepared already, so this only creates a file on the
+     * calling thread if the executor has not got round to it.
+     */
+    public long rotate() {
+        while (true) {
+            Segment segment = openSegment();
+            if (segment.seal()) {
+                return advance().sequence;
+            }
+            awaitAdvance(segment);
+        }
+    }
+
+    /**
+     * Creates and maps the next segment on the calling thread unless the executor has already done so, so that a following
+     * {@link #rotate()} only has to switch segments.
+     */
+    public void prepareNext() {
+        FutureTask<Segment> task = next;
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    public void force() {
+        Segment segment = current;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        current = null;
+    }
+
+    private Segment openSegment() {
+        Segment segment = current;
+        if (segment == null) {
+            throw new IllegalStateException("journal must be opened before appending");
+        }
+        return segment;
+    }
+
+    private void rollOver(Segment segment) {
+        if (segment.seal()) {
+            advance();
+        } else {
+            awaitAdvance(segment);
+        }
+    }
+
+    private Segment advance() {
+        Segment segment;
+        try {
+            FutureTask<Segment> task = next;
+            task.run();
+            segment = task.get();
+        } catch (ExecutionException e) {
+            failure = e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IllegalStateException("Interrupted while switching journal segments", e);
+            throw failure;
+        }
+        current = segment;
+        prepare(segment.sequence + 1);
+        return segment;
+    }
+
+    private void awaitAdvance(Segment sealed) {
+        while (current == sealed) {
+            if (failure != null) {
+                throw new IllegalStateException("journal failed to switch segments", failure);
+            }
+            Thread.yield();
+        }
+    }
+
+    private void prepare(long sequence) {
+        FutureTask<Segment> task = new FutureTask<>(() -> createSegment(sequence));
+        next = task;
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Journal segment {} will be created when needed", sequence, e);
+        }
+    }
+
+    private Segment createSegment(long sequence) {
+        Path file = segmentFile(directory, sequence);
+        try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            return new Segment(sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException(format("Failed to create journal segment %s", file), e);
+        }
+    }
+
+    private int recordLength(Pricing pricing) {
+        int length = LENGTH_SIZE + bodyLength(pricing);
+        if (length > segmentSize) {
+            throw new IllegalArgumentException(format("pricing %s does not fit into a journal segment", pricing.id()));
+        }
+        return length;
+    }
+
+    /**
+     * Replays all segments with a sequence of at least {@code fromSequence} in order and returns the highest sequence found,
+     * or -1 when there is none.
+     */
+    public static long replay(Path directory, long fromSequence, Consumer<Pricing> consumer) throws IOException {
+        long highest = -1;
+        for (long sequence : segmentSequences(directory)) {
+            highest = Math.max(highest, sequence);
+            if (sequence >= fromSequence) {
+                int replayed = readRecords(segmentFile(directory, sequence), consumer);
+                LOG.info("Replayed {} pricings from journal segment {}", replayed, sequence);
+            }
+        }
+        return highest;
+    }
+
+    public static void deleteSegmentsBefore(Path directory, long sequence) throws IOException {
+        for (long existing : segmentSequences(directory)) {
+            if (existing < sequence) {
+                Files.deleteIfExists(segmentFile(directory, existing));
+            }
+        }
+    }
+
+    static int readRecords(Path file, Consumer<Pricing> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int count = 0;
+        while (buffer.remaining() >= LENGTH_SIZE) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            try {
+                consumer.accept(readPricing(record));
+            } catch (BufferUnderflowException | IllegalArgumentException | InvalidPricingException e) {
+                LOG.warn("Skipping the rest of {} after a corrupt record", file, e);
+                break;
+            }
+            buffer.position(buffer.position() + length);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the pricing as a record unless the buffer lacks room for it, in which case nothing is written and false is returned.
+     */
+    static boolean writeRecord(ByteBuffer buffer, Pricing pricing) {
+        int length = LENGTH_SIZE + bodyLength(pricing);
+        if (buffer.remaining() < length) {
+            return false;
+        }
+        writeRecord(buffer, buffer.position(), length, pricing);
+        buffer.position(buffer.position() + length);
+        return true;
+    }
+
+    /**
+     * Encodes the record at the given index without touching the buffer's position, so that threads can write disjoint
+     * records into the same buffer. The body is written first and the length last, so that a partially written record is
+     * never mistaken for a complete one.
+     */
+    private static void writeRecord(ByteBuffer buffer, int start, int length, Pricing pricing) {
+        int index = start + LENGTH_SIZE;
+        index = putString(buffer, index, pricing.id() == null ? null : pricing.id().value());
+        index = putString(buffer, index, pricing.instrumentId().value());
+        index = putString(buffer, index, pricing.vendorId().value());
+        index = putString(buffer, index, pricing.ticker());
+        buffer.putLong(index, pricing.priceMantissa());
+        buffer.putInt(index + 8, pricing.priceScale());
+        LocalDateTime priceDateTime = pricing.priceDateTime();
+        buffer.putLong(index + 12, priceDateTime == null ? 0 : priceDateTime.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(index + 20, priceDateTime == null ? NULL_NANO : priceDateTime.getNano());
+        buffer.putInt(start, length - LENGTH_SIZE);
+    }
+
+    private static int bodyLength(Pricing pricing) {
+        return FIXED_RECORD_SIZE + utf8Length(pricing.id() == null ? null : pricing.id().value())
+                + utf8Length(pricing.instrumentId().value()) + utf8Length(pricing.vendorId().value())
+                + utf8Length(pricing.ticker());
+    }
+
+    private static Pricing readPricing(ByteBuffer record) {
+        String id = getString(record);
+        String instrumentId = getString(record);
+        String vendorId = getString(record);
+        String ticker = getString(record);
+        long mantissa = record.getLong();
+        int scale = record.getInt();
+        long epochSecond = record.getLong();
+        int nano = record.getInt();
+        return Pricing.Builder.aPricing()
+                .withId(id == null ? null : new PricingId(id))
+                .forInstrument(InstrumentId.of(instrumentId))
+                .forVendor(VendorId.of(vendorId))
+                .forTicker(ticker)
+                .withPrice(mantissa, scale)
+                .withPriceDateTime(nano == NULL_NANO ? null : LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC))
+                .build();
+    }
+
+    /**
+     * Writes the value as its UTF-8 length followed by its UTF-8 bytes and returns the index after them. Unpaired surrogates
+     * are written as '?', as {@link String#getBytes} does.
+     */
+    private static int putString(ByteBuffer buffer, int index, String value) {
+        if (value == null) {
+            buffer.putInt(index, -1);
+            return index + 4;
+        }
+        buffer.putInt(index, utf8Length(value));
+        index += 4;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(index++, (byte) (0xC0 | c >> 6));
+                buffer.put(index++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put(index++, (byte) (0xF0 | codePoint >> 18));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(index++, (byte) '?');
+            } else {
+                buffer.put(index++, (byte) (0xE0 | c >> 12));
+                buffer.put(index++, (byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        return index;
+    }
+
+    private static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x800 && !Character.isSurrogate(c)) {
+                length += 2;
+            } else if (c >= 0x80 && !Character.isSurrogate(c)) {
+                length++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 2;
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, UTF_8);
+    }
+
+    private static Path segmentFile(Path directory, long sequence) {
+        return directory.resolve(format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> segmentSequences(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * A mapped segment file. Its position is the end of the bytes reserved so far, or {@code -1 - end} once the segment is
+     * sealed and takes no more records.
+     */
+    private final class Segment {
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger();
+        private final AtomicInteger written = new AtomicInteger();
+        private final AtomicInteger published = new AtomicInteger();
+        private final AtomicBoolean retired = new AtomicBoolean();
+
+        private Segment(long sequence, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reserves room for a record and returns where it starts, or -1 if the segment is sealed or too full for it.
+         */
+        private int reserve(int length) {
+            while (true) {
+                int start = position.get();
+                if (start < 0 || start + length > segmentSize) {
+                    return -1;
+                }
+                if (position.compareAndSet(start, start + length)) {
+                    return start;
+                }
+            }
+        }
+
+        /**
+         * Reserves room for as many records from {@code from} on as fit and returns where they start, or -1 if the segment
+         * is sealed or too full for even the first of them.
+         */
+        private int reserveRun(int[] lengths, int from) {
+            while (true) {
+                int start = position.get();
+                if (start < 0) {
+                    return -1;
+                }
+                int end = runEnd(start, lengths, from);
+                if (end == start) {
+                    return -1;
+                }
+                if (position.compareAndSet(start, end)) {
+                    return start;
+                }
+            }
+        }
+
+        private int runEnd(int start, int[] lengths, int from) {
+            int end = start;
+            for (int i = from; i < lengths.length && end + lengths[i] <= segmentSize; i++) {
+                end += lengths[i];
+            }
+            return end;
+        }
+
+        /**
+         * Marks the segment as taking no more records and returns whether this call sealed it.
+         */
+        private boolean seal() {
+            while (true) {
+                int end = position.get();
+                if (end < 0) {
+                    return false;
+                }
+                if (position.compareAndSet(end, -1 - end)) {
+                    if (written.get() == end) {
+                        retire();
+                    }
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Records that the reserved bytes are written. Under {@link FsyncPolicy#EVERY_WRITE} the segment is then forced once
+         * every record reserved before them is written too, so that a forced record is never behind a torn one.
+         */
+        private void written(int start, int length) {
+            if (fsyncPolicy == FsyncPolicy.EVERY_WRITE) {
+                while (published.get() != start) {
+                    Thread.yield();
+                }
+                published.set(start + length);
+                buffer.force();
+            }
+            int total = written.addAndGet(length);
+            int end = position.get();
+            if (end < 0 && total == -1 - end) {
+                retire();
+            }
+        }
+
+        private void retire() {
+            if (fsyncPolicy == FsyncPolicy.PERIODIC && retired.compareAndSet(false, true)) {
+                try {
+                    executor.execute(buffer::force);
+                } catch (RejectedExecutionException e) {
+                    buffer.force();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Runs every listener invocation with transaction synchronization active, so synchronizations registered downstream learn
+ * whether the message's transacted session committed or rolled back. Unlike an external transaction manager it leaves
+ * the container caching its consumer and session.
+ */
+public class SynchronizingMessageListenerContainer extends DefaultMessageListenerContainer {
+
+    @Override
+    protected void doExecuteListener(Session session, Message message) throws JMSException {
+        LocalTransactionSynchronization.begin();
+        boolean committed = false;
+        try {
+            super.doExecuteListener(session, message);
+            committed = true;
+        } finally {
+            LocalTransactionSynchronization.complete(committed);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable cross-vendor summary of the latest prices of one instrument. The vendors' prices are kept sorted as
+ * fixed-point mantissas and scales, so min, max and median are read off the ends and the middle, and replacing one
+ * vendor's price only shifts the entries between its old and new position.
+ */
+public final class CompositePricing {
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    private final InstrumentId instrumentId;
+    private final VendorId[] vendors;
+    private final long[] mantissas;
+    private final int[] scales;
+    private final LocalDateTime[] priceDateTimes;
+    private final int latest;
+
+    private CompositePricing(InstrumentId instrumentId, VendorId[] vendors, long[] mantissas, int[] scales,
+                             LocalDateTime[] priceDateTimes, int latest) {
+        this.instrumentId = instrumentId;
+        this.vendors = vendors;
+        this.mantissas = mantissas;
+        this.scales = scales;
+        this.priceDateTimes = priceDateTimes;
+        this.latest = latest;
+    }
+
+    public static CompositePricing empty(InstrumentId instrumentId) {
+        return new CompositePricing(requireNonNull(instrumentId, "instrumentId must not be null"),
+                new VendorId[0], new long[0], new int[0], new LocalDateTime[0], -1);
+    }
+
+    public InstrumentId instrumentId() {
+        return instrumentId;
+    }
+
+    public int vendorCount() {
+        return vendors.length;
+    }
+
+    public boolean isEmpty() {
+        return vendors.length == 0;
+    }
+
+    public BigDecimal min() {
+        return isEmpty() ? null : price(0);
+    }
+
+    public BigDecimal max() {
+        return isEmpty() ? null : price(vendors.length - 1);
+    }
+
+    /**
+     * Middle price, or the mean of the two middle prices for an even number of vendors.
+     */
+    public BigDecimal median() {
+        if (isEmpty()) {
+            return null;
+        }
+        int middle = vendors.length / 2;
+        return vendors.length % 2 == 1 ? price(middle) : price(middle - 1).add(price(middle)).divide(TWO);
+    }
+
+    public BigDecimal spread() {
+        return isEmpty() ? null : max().subtract(min());
+    }
+
+    /**
+     * Vendor of the latest price date time, the one updated last on a tie.
+     */
+    public VendorId lastVendorId() {
+        return latest < 0 ? null : vendors[latest];
+    }
+
+    public LocalDateTime lastPriceDateTime() {
+        return latest < 0 ? null : priceDateTimes[latest];
+    }
+
+    /**
+     * This composite with the vendor's price of the pricing replacing any price the vendor had.
+     */
+    public CompositePricing with(Pricing pricing) {
+        VendorId vendorId = pricing.vendorId();
+        long mantissa = pricing.priceMantissa();
+        int scale = pricing.priceScale();
+        int size = vendors.length;
+        int existing = indexOf(vendorId);
+        int length = existing < 0 ? size + 1 : size;
+        VendorId[] newVendors = new VendorId[length];
+        long[] newMantissas = new long[length];
+        int[] newScales = new int[length];
+        LocalDateTime[] newPriceDateTimes = new LocalDateTime[length];
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (i != existing && FixedPoint.compare(mantissas[i], scales[i], mantissa, scale) <= 0) {
+                target++;
+            }
+        }
+        for (int i = 0, j = 0; i < length; i++) {
+            if (i == target) {
+                newVendors[i] = vendorId;
+                newMantissas[i] = mantissa;
+                newScales[i] = scale;
+                newPriceDateTimes[i] = pricing.priceDateTime();
+                continue;
+            }
+            if (j == existing) {
+                j++;
+            }
+            newVendors[i] = vendors[j];
+            newMantissas[i] = mantissas[j];
+            newScales[i] = scales[j];
+            newPriceDateTimes[i] = priceDateTimes[j];
+            j++;
+        }
+        return new CompositePricing(instrumentId, newVendors, newMantissas, newScales, newPriceDateTimes,
+                latestOf(newVendors, newPriceDateTimes, vendorId));
+    }
+
+    /**
+     * This composite without the vendor's price if it is still the one of the pricing, same price and date time, or this
+     * composite if the vendor has been repriced since or has no price.
+     */
+    public CompositePricing without(Pricing pricing) {
+        int existing = indexOf(pricing.vendorId());
+        if (existing < 0 || !Objects.equals(priceDateTimes[existing], pricing.priceDateTime())
+                || FixedPoint.compare(mantissas[existing], scales[existing], pricing.priceMantissa(), pricing.priceScale()) != 0) {
+            return this;
+        }
+        return without(pricing.vendorId());
+    }
+
+    /**
+     * This composite without the vendor's price, or this composite if the vendor has none.
+     */
+    public CompositePricing without(VendorId vendorId) {
+        int existing = indexOf(vendorId);
+        if (existing < 0) {
+            return this;
+        }
+        int length = vendors.length - 1;
+        VendorId[] newVendors = new VendorId[length];
+        long[] newMantissas = new long[length];
+        int[] newScales = new int[length];
+        LocalDateTime[] newPriceDateTimes = new LocalDateTime[length];
+        for (int i = 0, j = 0; i < length; i++, j++) {
+            if (j == existing) {
+                j++;
+            }
+            newVendors[i] = vendors[j];
+            newMantissas[i] = mantissas[j];
+            newScales[i] = scales[j];
+            newPriceDateTimes[i] = priceDateTimes[j];
+        }
+        VendorId last = latest == existing ? null : vendors[latest];
+        return new CompositePricing(instrumentId, newVendors, newMantissas, newScales, newPriceDateTimes,
+                latestOf(newVendors, newPriceDateTimes, last));
+    }
+
+    private BigDecimal price(int index) {
+        return FixedPoint.toBigDecimal(mantissas[index], scales[index]);
+    }
+
+    private int indexOf(VendorId vendorId) {
+        for (int i = 0; i < vendors.length; i++) {
+            if (vendors[i].equals(vendorId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the latest price date time, preferring the given vendor so the vendor updated last wins a tie.
+     */
+    private static int latestOf(VendorId[] vendors, LocalDateTime[] priceDateTimes, VendorId preferred) {
+        int latest = -1;
+        for (int i = 0; i < vendors.length; i++) {
+            if (latest < 0 || isAfter(priceDateTimes[i], priceDateTimes[latest])
+                    || vendors[i].equals(preferred) && !isAfter(priceDateTimes[latest], priceDateTimes[i])) {
+                latest = i;
+            }
+        }
+        return latest;
+    }
+
+    private static boolean isAfter(LocalDateTime one, LocalDateTime other) {
+        return one != null && (other == null || one.isAfter(other));
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("instrumentId", instrumentId)
+                .add("vendors", Arrays.toString(vendors))
+                .add("min", min())
+                .add("median", median())
+                .add("max", max())
+                .add("lastVendorId", lastVendorId())
+                .toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * One {@link CompositePricing} per instrument, kept up to date by a repository as it stores and drops pricings.
+ * Composites are replaced by compare-and-set, so concurrent writers of different vendors of an instrument never lose
+ * each other's update and readers get the latest composite with a single lookup.
+ * <p>
+ * Callers must update a vendor's price of an instrument in the same order as their own storage does, typically under
+ * the lock they already hold for that slot. A caller dropping a pricing without that lock uses {@link #remove(Pricing)},
+ * which leaves the vendor's price alone if a writer has replaced it meanwhile.
+ * <p>
+ * Once its last vendor is removed, an instrument's composite is retired and released, so instruments no longer priced
+ * hold no composite. A writer finding the composite retired under it starts over with a fresh one.
+ */
+public final class CompositePricingIndex {
+    private static final CompositePricing RETIRED = CompositePricing.empty(new InstrumentId("retired"));
+
+    private final HandleMap<AtomicReference<CompositePricing>> compositesByInstrument = new HandleMap<>();
+
+    public void update(Pricing pricing) {
+        int instrument = pricing.instrumentId().handle();
+        while (true) {
+            AtomicReference<CompositePricing> reference = compositesByInstrument.computeIfAbsent(instrument,
+                    i -> new AtomicReference<>(CompositePricing.empty(pricing.instrumentId())));
+            if (reference.updateAndGet(composite -> composite == RETIRED ? RETIRED : composite.with(pricing)) != RETIRED) {
+                return;
+            }
+            compositesByInstrument.remove(instrument, reference);
+        }
+    }
+
+    public void remove(int instrument, VendorId vendorId) {
+        remove(instrument, composite -> composite.without(vendorId));
+    }
+
+    public void remove(Pricing pricing) {
+        remove(pricing.instrumentId().handle(), composite -> composite.without(pricing));
+    }
+
+    private void remove(int instrument, UnaryOperator<CompositePricing> removal) {
+        AtomicReference<CompositePricing> reference = compositesByInstrument.get(instrument);
+        if (reference == null) {
+            return;
+        }
+        CompositePricing remaining = reference.updateAndGet(composite -> composite == RETIRED ? RETIRED : removal.apply(composite));
+        if (remaining != RETIRED && remaining.isEmpty() && reference.compareAndSet(remaining, RETIRED)) {
+            compositesByInstrument.remove(instrument, reference);
+        }
+    }
+
+    /**
+     * Number of instruments currently holding a composite.
+     */
+    public int size() {
+        return compositesByInstrument.values().size();
+    }
+
+    /**
+     * Composite of the instrument, empty if no vendor prices it.
+     */
+    public Optional<CompositePricing> get(InstrumentId instrumentId) {
+        int instrument = instrumentId.knownHandle();
+        AtomicReference<CompositePricing> reference = instrument < 0 ? null : compositesByInstrument.get(instrument);
+        CompositePricing composite = reference == null ? null : reference.get();
+        return composite == null || composite.isEmpty() ? Optional.empty() : Optional.of(composite);
+    }
+}
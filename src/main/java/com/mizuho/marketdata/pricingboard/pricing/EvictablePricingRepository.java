@@ -0,0 +1,15 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.function.Consumer;
+
+public interface EvictablePricingRepository extends PricingRepository {
+
+    void evictEligible();
+
+    /**
+     * Registers a listener told on the evicting thread about every pricing dropped for its age or to keep the repository
+     * within its bound. Pricings replaced by a later one are not evictions.
+     */
+    void addEvictionListener(Consumer<Pricing> listener);
+
+}
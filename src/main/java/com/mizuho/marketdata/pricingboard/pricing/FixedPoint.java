@@ -0,0 +1,70 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * Helpers for prices held as a {@code long} mantissa and an {@code int} scale, i.e. {@code mantissa * 10^-scale}.
+ * Two scales are reserved to mark a price that is absent or does not fit a {@code long} mantissa.
+ */
+public final class FixedPoint {
+    public static final int ABSENT = Integer.MIN_VALUE;
+    public static final int UNREPRESENTABLE = Integer.MIN_VALUE + 1;
+
+    private static final int MAX_LONG_BITS = 63;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+
+    private FixedPoint() {
+    }
+
+    public static boolean isPresent(int scale) {
+        return scale > UNREPRESENTABLE;
+    }
+
+    /**
+     * Returns the given value, or an equal value with trailing zeros stripped, whose unscaled value fits into a {@code long};
+     * {@code null} if there is no such value.
+     */
+    public static BigDecimal fit(BigDecimal value) {
+        if (fits(value)) {
+            return value;
+        }
+        BigDecimal stripped = value.stripTrailingZeros();
+        return fits(stripped) ? stripped : null;
+    }
+
+    public static BigDecimal toBigDecimal(long mantissa, int scale) {
+        return isPresent(scale) ? BigDecimal.valueOf(mantissa, scale) : null;
+    }
+
+    /**
+     * Compares two present prices by value. Only when rescaling one of them to the other's scale would overflow does it
+     * fall back to {@link BigDecimal}.
+     */
+    public static int compare(long mantissa, int scale, long otherMantissa, int otherScale) {
+        if (scale == otherScale) {
+            return Long.compare(mantissa, otherMantissa);
+        }
+        if (scale > otherScale) {
+            return -compare(otherMantissa, otherScale, mantissa, scale);
+        }
+        long difference = (long) otherScale - scale;
+        if (difference < POWERS_OF_TEN.length) {
+            long factor = POWERS_OF_TEN[(int) difference];
+            if (mantissa > Long.MIN_VALUE / factor && mantissa < Long.MAX_VALUE / factor) {
+                return Long.compare(mantissa * factor, otherMantissa);
+            }
+        }
+        return BigDecimal.valueOf(mantissa, scale).compareTo(BigDecimal.valueOf(otherMantissa, otherScale));
+    }
+
+    public static int hashCode(long mantissa, int scale) {
+        return 31 * Long.hashCode(mantissa) + scale;
+    }
+
+    private static boolean fits(BigDecimal value) {
+        return value.unscaledValue().bitLength() <= MAX_LONG_BITS && isPresent(value.scale());
+    }
+}
@@ -0,0 +1,140 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Map keyed by dense non-negative int handles, stored in chunks that are allocated as handles get used. The first
+ * {@value #CHUNK_SIZE} handles are spread over chunks doubling from {@value #FIRST_CHUNK_SIZE} slots, so a map holding a
+ * few low handles, such as the vendors of one instrument, stays small; the handles above take full size chunks.
+ * Reads and writes are lock-free; only allocating a new chunk takes a lock. Chunks are never copied, so growing the map
+ * can not lose a concurrent write.
+ */
+public final class HandleMap<V> {
+    private static final int FIRST_CHUNK_BITS = 2;
+    private static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_BITS;
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int SMALL_CHUNKS = CHUNK_BITS - FIRST_CHUNK_BITS + 1;
+
+    private volatile AtomicReferenceArray<V>[] chunks = newChunks(0);
+
+    public V get(int handle) {
+        AtomicReferenceArray<V> chunk = existingChunk(handle);
+        return chunk == null ? null : chunk.get(slot(handle));
+    }
+
+    public V put(int handle, V value) {
+        return chunk(handle).getAndSet(slot(handle), value);
+    }
+
+    public V computeIfAbsent(int handle, IntFunction<V> mappingFunction) {
+        AtomicReferenceArray<V> chunk = chunk(handle);
+        int index = slot(handle);
+        V existing = chunk.get(index);
+        if (existing != null) {
+            return existing;
+        }
+        V created = mappingFunction.apply(handle);
+        return chunk.compareAndSet(index, null, created) ? created : chunk.get(index);
+    }
+
+    /**
+     * Removes the value stored under the handle only if it is the given instance.
+     */
+    public boolean remove(int handle, V expected) {
+        AtomicReferenceArray<V> chunk = existingChunk(handle);
+        return chunk != null && chunk.compareAndSet(slot(handle), expected, null);
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (AtomicReferenceArray<V> chunk : chunks) {
+            if (chunk != null) {
+                for (int i = 0; i < chunk.length(); i++) {
+                    V value = chunk.get(i);
+                    if (value != null) {
+                        values.add(value);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Number of slots allocated so far.
+     */
+    int capacity() {
+        int capacity = 0;
+        for (AtomicReferenceArray<V> chunk : chunks) {
+            capacity += chunk == null ? 0 : chunk.length();
+        }
+        return capacity;
+    }
+
+    private AtomicReferenceArray<V> existingChunk(int handle) {
+        if (handle < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V>[] current = chunks;
+        int chunkIndex = chunkIndex(handle);
+        return chunkIndex < current.length ? current[chunkIndex] : null;
+    }
+
+    private AtomicReferenceArray<V> chunk(int handle) {
+        if (handle < 0) {
+            throw new IllegalArgumentException("handle must not be negative");
+        }
+        AtomicReferenceArray<V> chunk = existingChunk(handle);
+        return chunk != null ? chunk : allocateChunk(chunkIndex(handle));
+    }
+
+    private synchronized AtomicReferenceArray<V> allocateChunk(int chunkIndex) {
+        AtomicReferenceArray<V>[] current = chunks;
+        if (chunkIndex < current.length && current[chunkIndex] != null) {
+            return current[chunkIndex];
+        }
+        AtomicReferenceArray<V>[] grown = Arrays.copyOf(current, Math.max(current.length, chunkIndex + 1));
+        grown[chunkIndex] = new AtomicReferenceArray<>(chunkSize(chunkIndex));
+        chunks = grown;
+        return grown[chunkIndex];
+    }
+
+    /**
+     * Handles below {@value #FIRST_CHUNK_SIZE} share the first chunk, the handles of each following power of two up to
+     * {@value #CHUNK_SIZE} share the next one and each further {@value #CHUNK_SIZE} handles get a chunk of their own.
+     */
+    private static int chunkIndex(int handle) {
+        if (handle >= CHUNK_SIZE) {
+            return SMALL_CHUNKS - 1 + (handle >>> CHUNK_BITS);
+        }
+        if (handle < FIRST_CHUNK_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(handle) - FIRST_CHUNK_BITS;
+    }
+
+    private static int slot(int handle) {
+        if (handle >= CHUNK_SIZE) {
+            return handle & CHUNK_MASK;
+        }
+        return handle < FIRST_CHUNK_SIZE ? handle : handle - Integer.highestOneBit(handle);
+    }
+
+    private static int chunkSize(int chunkIndex) {
+        if (chunkIndex >= SMALL_CHUNKS) {
+            return CHUNK_SIZE;
+        }
+        return chunkIndex == 0 ? FIRST_CHUNK_SIZE : FIRST_CHUNK_SIZE << (chunkIndex - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> AtomicReferenceArray<V>[] newChunks(int length) {
+        return (AtomicReferenceArray<V>[]) new AtomicReferenceArray<?>[length];
+    }
+}
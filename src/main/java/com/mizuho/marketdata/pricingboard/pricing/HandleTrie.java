@@ -0,0 +1,208 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable map keyed by non-negative int handles, held as a 32-way trie. Updates copy only the path to the changed
+ * handle and share everything else with the previous version, so a reference to a trie is a consistent snapshot that
+ * never changes underneath its reader.
+ */
+public final class HandleTrie<V> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final HandleTrie<?> EMPTY = new HandleTrie<>(null, 0, 0);
+
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+    private volatile List<V> values;
+
+    private HandleTrie(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> HandleTrie<V> empty() {
+        return (HandleTrie<V>) EMPTY;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int handle) {
+        if (handle < 0 || !fits(handle, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; node != null && level > 0; level -= BITS) {
+            node = (Object[]) node[(handle >>> level) & MASK];
+        }
+        return node == null ? null : (V) node[handle & MASK];
+    }
+
+    public HandleTrie<V> with(int handle, V value) {
+        requireNonNull(value, "value must not be null");
+        if (handle < 0) {
+            throw new IllegalArgumentException("handle must not be negative");
+        }
+        Object[] grownRoot = root;
+        int grownShift = shift;
+        while (!fits(handle, grownShift)) {
+            Object[] parent = new Object[WIDTH];
+            parent[0] = grownRoot;
+            grownRoot = parent;
+            grownShift += BITS;
+        }
+        return new HandleTrie<>(set(grownRoot, grownShift, handle, value), grownShift, get(handle) == null ? size + 1 : size);
+    }
+
+    public HandleTrie<V> without(int handle) {
+        if (get(handle) == null) {
+            return this;
+        }
+        return size == 1 ? empty() : new HandleTrie<>(set(root, shift, handle, null), shift, size - 1);
+    }
+
+    /**
+     * Values in handle order. The list is built on first use and shared by every later caller of this version.
+     */
+    public List<V> values() {
+        List<V> current = values;
+        if (current == null) {
+            List<V> collected = new ArrayList<>(size);
+            collect(root, shift, collected);
+            current = Collections.unmodifiableList(collected);
+            values = current;
+        }
+        return current;
+    }
+
+    /**
+     * Up to {@code limit} values stored under handles greater than {@code handle}, in handle order. Subtrees below the
+     * handle are skipped without being visited, so reading a page costs the page rather than everything before it.
+     */
+    public List<V> valuesAfter(int handle, int limit) {
+        List<V> collected = new ArrayList<>(Math.min(limit, size));
+        if (limit > 0 && handle < Integer.MAX_VALUE) {
+            collectFrom(root, shift, 0, Math.max(handle + 1, 0), limit, collected);
+        }
+        return Collections.unmodifiableList(collected);
+    }
+
+    private static boolean fits(int handle, int shift) {
+        return shift + BITS >= Integer.SIZE || handle >>> (shift + BITS) == 0;
+    }
+
+    private static Object[] set(Object[] node, int level, int handle, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = (handle >>> level) & MASK;
+        copy[index] = level == 0 ? value : set((Object[]) copy[index], level - BITS, handle, value);
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void collect(Object[] node, int level, List<V> values) {
+        if (node == null) {
+            return;
+        }
+        for (Object child : node) {
+            if (child == null) {
+                continue;
+            }
+            if (level == 0) {
+                values.add((V) child);
+            } else {
+                collect((Object[]) child, level - BITS, values);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> boolean collectFrom(Object[] node, int level, long base, long from, int limit, List<V> values) {
+        if (node == null) {
+            return values.size() < limit;
+        }
+        for (int index = 0; index < WIDTH; index++) {
+            long first = base + ((long) index << level);
+            long last = first + (1L << level) - 1;
+            if (last < from || node[index] == null) {
+                continue;
+            }
+            if (level == 0) {
+                values.add((V) node[index]);
+                if (values.size() == limit) {
+                    return false;
+                }
+            } else if (!collectFrom((Object[]) node[index], level - BITS, first, from, limit, values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills a trie in place, for building a whole snapshot at once without copying a path per handle.
+     */
+    public static final class Builder<V> {
+        private Object[] root;
+        private int shift;
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder<V> put(int handle, V value) {
+            requireNonNull(value, "value must not be null");
+            if (handle < 0) {
+                throw new IllegalArgumentException("handle must not be negative");
+            }
+            while (!fits(handle, shift)) {
+                Object[] parent = new Object[WIDTH];
+                parent[0] = root;
+                root = parent;
+                shift += BITS;
+            }
+            if (root == null) {
+                root = new Object[WIDTH];
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int index = (handle >>> level) & MASK;
+                if (node[index] == null) {
+                    node[index] = new Object[WIDTH];
+                }
+                node = (Object[]) node[index];
+            }
+            if (node[handle & MASK] == null) {
+                size++;
+            }
+            node[handle & MASK] = value;
+            return this;
+        }
+
+        public HandleTrie<V> build() {
+            HandleTrie<V> trie = size == 0 ? empty() : new HandleTrie<>(root, shift, size);
+            root = null;
+            shift = 0;
+            size = 0;
+            return trie;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static java.util.Collections.unmodifiableCollection;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Interns identifiers into one canonical instance per value, each carrying a dense int handle assigned in registration order.
+ */
+public final class IdRegistry<T> {
+    private final Map<String, T> byValue = new ConcurrentHashMap<>();
+    private final HandleMap<T> byHandle = new HandleMap<>();
+    private final AtomicInteger nextHandle = new AtomicInteger();
+    private final BiFunction<String, Integer, T> factory;
+
+    public IdRegistry(BiFunction<String, Integer, T> factory) {
+        this.factory = requireNonNull(factory, "factory must not be null");
+    }
+
+    public T intern(String value) {
+        requireNonNull(value, "value must not be null");
+        T existing = byValue.get(value);
+        return existing != null ? existing : byValue.computeIfAbsent(value, this::register);
+    }
+
+    /**
+     * Returns the canonical instance for the value or {@code null} when the value has never been interned.
+     */
+    public T find(String value) {
+        return value == null ? null : byValue.get(value);
+    }
+
+    public T byHandle(int handle) {
+        return byHandle.get(handle);
+    }
+
+    public int size() {
+        return nextHandle.get();
+    }
+
+    public Collection<T> all() {
+        return unmodifiableCollection(byValue.values());
+    }
+
+    private T register(String value) {
+        int handle = nextHandle.getAndIncrement();
+        T id = factory.apply(value, handle);
+        byHandle.put(handle, id);
+        return id;
+    }
+}
@@ -6,16 +6,56 @@ import java.util.Objects;
 import static com.google.common.collect.Lists.newArrayList;
 
 public class InstrumentId {
-    private String value;
+    private static final int UNREGISTERED = -1;
+    private static final IdRegistry<InstrumentId> REGISTRY = new IdRegistry<>(InstrumentId::new);
+
+    private final String value;
+    private final int handle;
+    private final int hash;
 
     public InstrumentId(String id){
+        this(id, UNREGISTERED);
+    }
+
+    private InstrumentId(String id, int handle) {
         this.value = id;
+        this.handle = handle;
+        this.hash = Objects.hashCode(id);
+    }
+
+    public static InstrumentId of(String id) {
+        return id == null ? new InstrumentId(null) : REGISTRY.intern(id);
+    }
+
+    public static IdRegistry<InstrumentId> registry() {
+        return REGISTRY;
     }
 
     public String value(){
         return value;
     }
 
+    /**
+     * Returns the dense handle of this id, interning it first if necessary.
+     */
+    public int handle() {
+        if (handle != UNREGISTERED || value == null) {
+            return handle;
+        }
+        return REGISTRY.intern(value).handle;
+    }
+
+    /**
+     * Returns the handle of this id if it has ever been interned, -1 otherwise.
+     */
+    public int knownHandle() {
+        if (handle != UNREGISTERED) {
+            return handle;
+        }
+        InstrumentId known = REGISTRY.find(value);
+        return known == null ? UNREGISTERED : known.handle;
+    }
+
     public boolean isEmpty(){
         return value ==null || value.isEmpty();
     }
@@ -29,12 +69,15 @@ public class InstrumentId {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         InstrumentId that = (InstrumentId) o;
-        return Objects.equals(value, that.value);
+        if (handle != UNREGISTERED && that.handle != UNREGISTERED) {
+            return handle == that.handle;
+        }
+        return hash == that.hash && Objects.equals(value, that.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return hash;
     }
 
     public List<String> validate() {
@@ -0,0 +1,66 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingException;
+
+import java.math.BigDecimal;
+
+import static java.lang.String.format;
+import static java.math.RoundingMode.HALF_EVEN;
+import static java.util.Collections.singletonList;
+
+/**
+ * Limits the number of decimal places a pricing's price may carry. Prices with more decimal places than allowed are either
+ * rejected or rounded half-even, unless dropping trailing zeros is enough to bring them within the limit.
+ */
+public final class PricePrecision {
+    public static final PricePrecision LOSSLESS = new PricePrecision(Integer.MAX_VALUE, Policy.REJECT);
+
+    public enum Policy {
+        REJECT, ROUND
+    }
+
+    private final int maxScale;
+    private final Policy policy;
+
+    public PricePrecision(int maxScale, Policy policy) {
+        if (maxScale < 0) {
+            throw new IllegalArgumentException("maxScale must not be negative");
+        }
+        this.maxScale = maxScale;
+        this.policy = policy == null ? Policy.REJECT : policy;
+    }
+
+    public int maxScale() {
+        return maxScale;
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    public Pricing apply(Pricing pricing) {
+        if (!FixedPoint.isPresent(pricing.priceScale()) || pricing.priceScale() <= maxScale) {
+            return pricing;
+        }
+        return pricing.copy().withPrice(apply(pricing.price())).build();
+    }
+
+    /**
+     * Limits a price before it is fitted into a fixed-point mantissa and scale, so that a price too precise to fit can
+     * still be rounded rather than being taken for an unrepresentable one.
+     */
+    public BigDecimal apply(BigDecimal price) {
+        if (price == null || price.scale() <= maxScale) {
+            return price;
+        }
+        BigDecimal stripped = price.stripTrailingZeros();
+        if (stripped.scale() <= maxScale) {
+            return stripped;
+        }
+        if (policy == Policy.REJECT) {
+            throw new InvalidPricingException("Pricing precision check failed", singletonList(
+                    format("price must not have more than %d decimal places while %s was provided", maxScale, price)));
+        }
+        return stripped.setScale(maxScale, HALF_EVEN);
+    }
+}
@@ -1,30 +1,31 @@
 package com.mizuho.marketdata.pricingboard.pricing;
 
-import com.google.common.base.Objects;
-
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
-import static java.math.BigDecimal.ZERO;
 
 public final class Pricing {
     private PricingId id;
     private InstrumentId instrumentId;
     private VendorId vendorId;
     private String ticker;
-    private BigDecimal price;
+    private long priceMantissa;
+    private int priceScale;
     private LocalDateTime priceDateTime;
 
-    private Pricing(PricingId id, InstrumentId instrumentId, VendorId vendorId, String ticker, BigDecimal price, LocalDateTime priceDateTime) {
+    private Pricing(PricingId id, InstrumentId instrumentId, VendorId vendorId, String ticker,
+                    long priceMantissa, int priceScale, LocalDateTime priceDateTime) {
         this.id = id;
         this.instrumentId = instrumentId;
         this.vendorId = vendorId;
         this.ticker = ticker;
-        this.price = price;
+        this.priceMantissa = priceMantissa;
+        this.priceScale = priceScale;
         this.priceDateTime  = priceDateTime;
     }
 
@@ -35,8 +36,10 @@ public final class Pricing {
     public VendorId vendorId() { return vendorId; }
     public String ticker() { return ticker; }
     public BigDecimal price() {
-        return price;
+        return FixedPoint.toBigDecimal(priceMantissa, priceScale);
     }
+    public long priceMantissa() { return priceMantissa; }
+    public int priceScale() { return priceScale; }
     public LocalDateTime priceDateTime() { return priceDateTime; }
 
     @Override
@@ -46,7 +49,7 @@ public final class Pricing {
                 .add("instrumentId", instrumentId)
                 .add("vendorId", vendorId)
                 .add("ticker", ticker)
-                .add("price", price)
+                .add("price", price())
                 .add("priceDateTime", priceDateTime)
                 .toString();
     }
@@ -103,21 +106,28 @@ public final class Pricing {
     }
 
     private void validatePrice(List<String> errors) {
-        if (price == null) {
+        if (priceScale == FixedPoint.ABSENT) {
             errors.add("price must be provided");
-        } else if (price.compareTo(ZERO) <= 0) {
-            errors.add(format("price must be a positive number while %s was provided", price));
+        } else if (priceScale == FixedPoint.UNREPRESENTABLE) {
+            errors.add("price must fit into a 64 bit fixed-point number");
+        } else if (priceMantissa <= 0) {
+            errors.add(format("price must be a positive number while %s was provided", price()));
         }
     }
 
     public Pricing.Builder copy() {
         return Builder.aPricing().withId(id).forInstrument(instrumentId).forVendor(vendorId)
-                .forTicker(ticker).withPrice(price).withPriceDateTime(priceDateTime);
+                .forTicker(ticker).withPrice(priceMantissa, priceScale).withPriceDateTime(priceDateTime);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(id, instrumentId, vendorId, ticker, price, priceDateTime);
+        int result = Objects.hashCode(id);
+        result = 31 * result + Objects.hashCode(instrumentId);
+        result = 31 * result + Objects.hashCode(vendorId);
+        result = 31 * result + Objects.hashCode(ticker);
+        result = 31 * result + FixedPoint.hashCode(priceMantissa, priceScale);
+        return 31 * result + Objects.hashCode(priceDateTime);
     }
 
     @Override
@@ -134,12 +144,13 @@ public final class Pricing {
 
         final Pricing that = (Pricing) other;
 
-        return Objects.equal(this.id, that.id)
-                && Objects.equal(this.instrumentId, that.instrumentId)
-                && Objects.equal(this.vendorId, that.vendorId)
-                && Objects.equal(this.ticker, that.ticker)
-                && Objects.equal(this.price, that.price)
-                && Objects.equal(this.priceDateTime, that.priceDateTime);
+        return this.priceMantissa == that.priceMantissa
+                && this.priceScale == that.priceScale
+                && Objects.equals(this.id, that.id)
+                && Objects.equals(this.instrumentId, that.instrumentId)
+                && Objects.equals(this.vendorId, that.vendorId)
+                && Objects.equals(this.ticker, that.ticker)
+                && Objects.equals(this.priceDateTime, that.priceDateTime);
     }
 
     public static class Builder {
@@ -147,7 +158,8 @@ public final class Pricing {
         private InstrumentId instrumentId;
         private VendorId vendorId;
         private String ticker;
-        private BigDecimal price;
+        private long priceMantissa;
+        private int priceScale = FixedPoint.ABSENT;
         private LocalDateTime priceDateTime;
 
         private Builder() {
@@ -178,7 +190,15 @@ public final class Pricing {
         }
 
         public Builder withPrice(BigDecimal price) {
-            this.price = price;
+            BigDecimal fitted = price == null ? null : FixedPoint.fit(price);
+            this.priceMantissa = fitted == null ? 0 : fitted.unscaledValue().longValue();
+            this.priceScale = fitted != null ? fitted.scale() : price == null ? FixedPoint.ABSENT : FixedPoint.UNREPRESENTABLE;
+            return this;
+        }
+
+        public Builder withPrice(long mantissa, int scale) {
+            this.priceMantissa = mantissa;
+            this.priceScale = scale;
             return this;
         }
         public Builder withPriceDateTime(LocalDateTime priceDateTime) {
@@ -187,7 +207,7 @@ public final class Pricing {
         }
 
         public Pricing build() {
-            return new Pricing(id, instrumentId, vendorId, ticker, price, priceDateTime);
+            return new Pricing(id, instrumentId, vendorId, ticker, priceMantissa, priceScale, priceDateTime);
         }
     }
 }
@@ -0,0 +1,91 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Open, high, low and close price of the ticks of an instrument by a vendor priced within one interval.
+ */
+public final class PricingBar {
+    private final InstrumentId instrumentId;
+    private final VendorId vendorId;
+    private final Duration interval;
+    private final LocalDateTime start;
+    private final BigDecimal open;
+    private final BigDecimal high;
+    private final BigDecimal low;
+    private final BigDecimal close;
+    private final int ticks;
+
+    public PricingBar(InstrumentId instrumentId, VendorId vendorId, Duration interval, LocalDateTime start,
+                      BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, int ticks) {
+        this.instrumentId = instrumentId;
+        this.vendorId = vendorId;
+        this.interval = interval;
+        this.start = start;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.ticks = ticks;
+    }
+
+    public InstrumentId instrumentId() { return instrumentId; }
+    public VendorId vendorId() { return vendorId; }
+    public Duration interval() { return interval; }
+    public LocalDateTime start() { return start; }
+    public BigDecimal open() { return open; }
+    public BigDecimal high() { return high; }
+    public BigDecimal low() { return low; }
+    public BigDecimal close() { return close; }
+    public int ticks() { return ticks; }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("instrumentId", instrumentId)
+                .add("vendorId", vendorId)
+                .add("interval", interval)
+                .add("start", start)
+                .add("open", open)
+                .add("high", high)
+                .add("low", low)
+                .add("close", close)
+                .add("ticks", ticks)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(instrumentId, vendorId, interval, start, open, high, low, close, ticks);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null) {
+            return false;
+        }
+        if (other == this) {
+            return true;
+        }
+        if (this.getClass() != other.getClass()) {
+            return false;
+        }
+
+        final PricingBar that = (PricingBar) other;
+
+        return Objects.equals(this.instrumentId, that.instrumentId)
+                && Objects.equals(this.vendorId, that.vendorId)
+                && Objects.equals(this.interval, that.interval)
+                && Objects.equals(this.start, that.start)
+                && Objects.equals(this.open, that.open)
+                && Objects.equals(this.high, that.high)
+                && Objects.equals(this.low, that.low)
+                && Objects.equals(this.close, that.close)
+                && this.ticks == that.ticks;
+    }
+}
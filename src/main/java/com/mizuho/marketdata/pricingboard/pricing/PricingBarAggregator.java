@@ -0,0 +1,266 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rolls ticks up into open/high/low/close bars per instrument, vendor and interval as they are registered. Each series
+ * keeps the last {@code depth} bars of every interval in a ring of primitive arrays allocated with the series, so an
+ * update is a handful of array writes under the series' monitor. Bars follow the price date time of the ticks, taken
+ * as UTC, so a late tick still lands in its own bar while that bar is within the ring.
+ * <p>
+ * A series takes about {@value #BYTES_PER_BAR} bytes per interval and kept bar, e.g. 9 KB for two intervals of 60 bars,
+ * so the heap held grows with the number of instrument and vendor pairs priced. A series is dropped once the repository
+ * evicts the pricing of its pair, see {@link #evicted}.
+ */
+public class PricingBarAggregator implements MeterBinder {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long MAX_EPOCH_SECOND = Long.MAX_VALUE / NANOS_PER_SECOND - 1;
+    private static final long MIN_EPOCH_SECOND = Long.MIN_VALUE / NANOS_PER_SECOND + 1;
+
+    private static final int BAR = 0;
+    private static final int OPEN = 1;
+    private static final int HIGH = 2;
+    private static final int LOW = 3;
+    private static final int CLOSE = 4;
+    private static final int FIRST_TIME = 5;
+    private static final int LAST_TIME = 6;
+    private static final int LONGS_PER_BAR = 7;
+    private static final int OPEN_SCALE = 0;
+    private static final int HIGH_SCALE = 1;
+    private static final int LOW_SCALE = 2;
+    private static final int CLOSE_SCALE = 3;
+    private static final int TICKS = 4;
+    private static final int INTS_PER_BAR = 5;
+    private static final int BYTES_PER_BAR = LONGS_PER_BAR * 8 + INTS_PER_BAR * 4;
+
+    private final List<Duration> intervals;
+    private final long[] intervalSeconds;
+    private final int depth;
+    private final HandleMap<HandleMap<Series>> seriesByInstrument = new HandleMap<>();
+    private final AtomicInteger series = new AtomicInteger();
+    private final LongAdder late = new LongAdder();
+
+    /**
+     * @param intervals bar intervals in whole seconds, none to disable aggregation
+     * @param depth     number of bars kept per series and interval
+     */
+    public PricingBarAggregator(List<Duration> intervals, int depth) {
+        this.intervals = ImmutableList.copyOf(requireNonNull(intervals, "intervals must not be null"));
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be a positive number");
+        }
+        this.depth = depth;
+        this.intervalSeconds = new long[this.intervals.size()];
+        for (int i = 0; i < intervalSeconds.length; i++) {
+            Duration interval = this.intervals.get(i);
+            if (interval.isNegative() || interval.isZero() || interval.getNano() != 0) {
+                throw new IllegalArgumentException(format("interval %s must be a positive whole number of seconds", interval));
+            }
+            intervalSeconds[i] = interval.getSeconds();
+        }
+    }
+
+    public List<Duration> intervals() {
+        return intervals;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public boolean isEnabled() {
+        return !intervals.isEmpty();
+    }
+
+    /**
+     * Adds the tick to the current bar of every interval. Ticks without a price or price date time are ignored.
+     */
+    public void update(Pricing pricing) {
+        LocalDateTime priceDateTime = pricing.priceDateTime();
+        if (!isEnabled() || priceDateTime == null || !FixedPoint.isPresent(pricing.priceScale())) {
+            return;
+        }
+        int vendor = pricing.vendorId().handle();
+        HandleMap<Series> seriesByVendor = seriesByInstrument.computeIfAbsent(pricing.instrumentId().handle(), i -> new HandleMap<>());
+        long epochSecond = priceDateTime.toEpochSecond(ZoneOffset.UTC);
+        long time = time(priceDateTime);
+        while (true) {
+            Series target = seriesByVendor.get(vendor);
+            if (target == null) {
+                Series created = new Series();
+                target = seriesByVendor.computeIfAbsent(vendor, v -> created);
+                if (target == created) {
+                    series.incrementAndGet();
+                }
+            }
+            synchronized (target) {
+                if (!target.dropped) {
+                    for (int i = 0; i < intervalSeconds.length; i++) {
+                        target.update(i, Math.floorDiv(epochSecond, intervalSeconds[i]), time, pricing.priceMantissa(), pricing.priceScale());
+                    }
+                    target.lastTime = Math.max(target.lastTime, time);
+                    return;
+                }
+            }
+            seriesByVendor.remove(vendor, target);
+        }
+    }
+
+    /**
+     * Drops the bars of the evicted pricing's instrument and vendor, unless a tick later than the evicted one has been
+     * added to them since.
+     */
+    public void evicted(Pricing pricing) {
+        LocalDateTime priceDateTime = pricing.priceDateTime();
+        int vendor = pricing.vendorId().handle();
+        HandleMap<Series> seriesByVendor = seriesByInstrument.get(pricing.instrumentId().handle());
+        Series target = seriesByVendor == null ? null : seriesByVendor.get(vendor);
+        if (target == null || priceDateTime == null) {
+            return;
+        }
+        synchronized (target) {
+            if (target.dropped || target.lastTime > time(priceDateTime)) {
+                return;
+            }
+            target.dropped = true;
+        }
+        series.decrementAndGet();
+        seriesByVendor.remove(vendor, target);
+    }
+
+    /**
+     * Up to {@code limit} of the latest bars of the instrument by the vendor for one of the configured intervals, oldest
+     * first. Intervals without ticks have no bar.
+     */
+    public List<PricingBar> bars(InstrumentId instrumentId, VendorId vendorId, Duration interval, int limit) {
+        int index = intervals.indexOf(interval);
+        if (index < 0) {
+            throw new IllegalArgumentException(format("interval %s is not one of %s", interval, intervals));
+        }
+        HandleMap<Series> seriesByVendor = seriesByInstrument.get(instrumentId.knownHandle());
+        Series target = seriesByVendor == null ? null : seriesByVendor.get(vendorId.knownHandle());
+        if (target == null) {
+            return Collections.emptyList();
+        }
+        List<PricingBar> bars = new ArrayList<>();
+        synchronized (target) {
+            long latest = target.latest[index];
+            long[] longs = target.longs[index];
+            int[] ints = target.ints[index];
+            for (long bar = latest; bar > latest - depth && bars.size() < limit; bar--) {
+                int slot = (int) Math.floorMod(bar, (long) depth);
+                int l = slot * LONGS_PER_BAR;
+                int n = slot * INTS_PER_BAR;
+                if (ints[n + TICKS] > 0 && longs[l + BAR] == bar) {
+                    bars.add(new PricingBar(instrumentId, vendorId, interval,
+                            LocalDateTime.ofEpochSecond(bar * intervalSeconds[index], 0, ZoneOffset.UTC),
+                            FixedPoint.toBigDecimal(longs[l + OPEN], ints[n + OPEN_SCALE]),
+                            FixedPoint.toBigDecimal(longs[l + HIGH], ints[n + HIGH_SCALE]),
+                            FixedPoint.toBigDecimal(longs[l + LOW], ints[n + LOW_SCALE]),
+                            FixedPoint.toBigDecimal(longs[l + CLOSE], ints[n + CLOSE_SCALE]),
+                            ints[n + TICKS]));
+                }
+            }
+        }
+        Collections.reverse(bars);
+        return bars;
+    }
+
+    private static long time(LocalDateTime priceDateTime) {
+        long epochSecond = priceDateTime.toEpochSecond(ZoneOffset.UTC);
+        return epochSecond > MAX_EPOCH_SECOND ? Long.MAX_VALUE
+                : epochSecond < MIN_EPOCH_SECOND ? Long.MIN_VALUE
+                : epochSecond * NANOS_PER_SECOND + priceDateTime.getNano();
+    }
+
+    public int seriesCount() {
+        return series.get();
+    }
+
+    public long lateCount() {
+        return late.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("pricingboard.bars.series", this, PricingBarAggregator::seriesCount)
+                .description("Instrument and vendor pairs with pricing bars")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.bars.late", this, PricingBarAggregator::lateCount)
+                .description("Ticks too old for the bars still kept")
+                .register(registry);
+    }
+
+    /**
+     * Bars of one instrument and vendor. Per interval, {@code longs} holds the bar number, the open, high, low and close
+     * mantissas and the times of the first and last tick of each ring slot, and {@code ints} the four scales and the
+     * number of ticks. A dropped series takes no more ticks, so a writer still holding it starts over with a new one.
+     */
+    private final class Series {
+        private final long[][] longs = new long[intervalSeconds.length][depth * LONGS_PER_BAR];
+        private final int[][] ints = new int[intervalSeconds.length][depth * INTS_PER_BAR];
+        private final long[] latest = new long[intervalSeconds.length];
+        private long lastTime = Long.MIN_VALUE;
+        private boolean dropped;
+
+        private Series() {
+            Arrays.fill(latest, Long.MIN_VALUE);
+        }
+
+        private void update(int index, long bar, long time, long mantissa, int scale) {
+            if (latest[index] != Long.MIN_VALUE && bar <= latest[index] - depth) {
+                late.increment();
+                return;
+            }
+            long[] longs = this.longs[index];
+            int[] ints = this.ints[index];
+            int l = (int) Math.floorMod(bar, (long) depth) * LONGS_PER_BAR;
+            int n = (int) Math.floorMod(bar, (long) depth) * INTS_PER_BAR;
+            if (ints[n + TICKS] == 0 || longs[l + BAR] < bar) {
+                longs[l + BAR] = bar;
+                longs[l + OPEN] = longs[l + HIGH] = longs[l + LOW] = longs[l + CLOSE] = mantissa;
+                ints[n + OPEN_SCALE] = ints[n + HIGH_SCALE] = ints[n + LOW_SCALE] = ints[n + CLOSE_SCALE] = scale;
+                longs[l + FIRST_TIME] = longs[l + LAST_TIME] = time;
+                ints[n + TICKS] = 1;
+                latest[index] = Math.max(latest[index], bar);
+                return;
+            }
+            if (time < longs[l + FIRST_TIME]) {
+                longs[l + OPEN] = mantissa;
+                ints[n + OPEN_SCALE] = scale;
+                longs[l + FIRST_TIME] = time;
+            }
+            if (time >= longs[l + LAST_TIME]) {
+                longs[l + CLOSE] = mantissa;
+                ints[n + CLOSE_SCALE] = scale;
+                longs[l + LAST_TIME] = time;
+            }
+            if (FixedPoint.compare(mantissa, scale, longs[l + HIGH], ints[n + HIGH_SCALE]) > 0) {
+                longs[l + HIGH] = mantissa;
+                ints[n + HIGH_SCALE] = scale;
+            }
+            if (FixedPoint.compare(mantissa, scale, longs[l + LOW], ints[n + LOW_SCALE]) < 0) {
+                longs[l + LOW] = mantissa;
+                ints[n + LOW_SCALE] = scale;
+            }
+            ints[n + TICKS]++;
+        }
+    }
+}
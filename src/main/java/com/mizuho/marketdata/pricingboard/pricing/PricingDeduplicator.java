@@ -0,0 +1,199 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Recognises pricings seen recently by their vendor, instrument, price date time and price, so ticks redelivered by the
+ * broker or resent by a vendor can be dropped before they are enriched, stored and published again.
+ * <p>
+ * Keys are remembered in two generations of a bloom filter sized for {@code capacity} keys each. Once the current
+ * generation is full it becomes the previous one and the oldest is cleared for reuse, so the memory is fixed and a key
+ * is remembered for at least the next {@code capacity} distinct keys. A bloom filter may take a new key for a repeat at
+ * about the configured rate, which is estimated from the bits set and exposed along with the counts of dropped pricings.
+ */
+public class PricingDeduplicator implements MeterBinder {
+    private static final double LN_2 = Math.log(2);
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+    private final int capacity;
+    private final long bits;
+    private final int hashes;
+    private long[] current;
+    private long[] previous;
+    private int currentKeys;
+    private long currentBitsSet;
+    private long previousBitsSet;
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity          number of keys remembered per generation
+     * @param falsePositiveRate rate of new keys taken for repeats the filters are sized for when full
+     */
+    public PricingDeduplicator(int capacity, double falsePositiveRate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be a positive number");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException(format("falsePositiveRate %s must be between 0 and 1", falsePositiveRate));
+        }
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+        this.bits = Math.min(MAX_BITS, (optimalBits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * LN_2));
+        this.capacity = capacity;
+        this.current = new long[(int) (bits / Long.SIZE)];
+        this.previous = new long[(int) (bits / Long.SIZE)];
+    }
+
+    /**
+     * Remembers the pricing's key and tells whether it is the first time the key is seen, as far as the filters tell.
+     */
+    public boolean firstOccurrence(Pricing pricing) {
+        long hash = hash(pricing);
+        long step = step(hash);
+        boolean first;
+        synchronized (this) {
+            first = !contains(previous, hash, step) && add(hash, step);
+        }
+        (first ? passed : dropped).increment();
+        return first;
+    }
+
+    /**
+     * Key the pricing is recognised by.
+     */
+    public static long key(Pricing pricing) {
+        return hash(pricing);
+    }
+
+    /**
+     * Tells whether the key is new as far as the filters tell, without remembering or counting it. Meant for callers that
+     * may only {@link #remember} the key once the pricing has been taken care of, and report their decision through
+     * {@link #counted}.
+     */
+    public boolean unseen(long key) {
+        long step = step(key);
+        synchronized (this) {
+            return !contains(previous, key, step) && !contains(current, key, step);
+        }
+    }
+
+    public void remember(long key) {
+        long step = step(key);
+        synchronized (this) {
+            add(key, step);
+        }
+    }
+
+    /**
+     * Counts a pricing passed or dropped by a caller deciding through {@link #unseen}, and returns whether it passed.
+     */
+    public boolean counted(boolean passed) {
+        (passed ? this.passed : dropped).increment();
+        return passed;
+    }
+
+    public long passedCount() {
+        return passed.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Estimated chance that a key never seen is taken for a repeat by either generation as they are filled now.
+     */
+    public synchronized double falsePositiveRate() {
+        double currentRate = Math.pow((double) currentBitsSet / bits, hashes);
+        double previousRate = Math.pow((double) previousBitsSet / bits, hashes);
+        return 1 - (1 - currentRate) * (1 - previousRate);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("pricingboard.dedup.pricings", this, PricingDeduplicator::passedCount)
+                .tag("result", "passed")
+                .description("Pricings seen for the first time")
+                .register(registry);
+        FunctionCounter.builder("pricingboard.dedup.pricings", this, PricingDeduplicator::droppedCount)
+                .tag("result", "dropped")
+                .description("Pricings dropped as repeats of recently seen ones")
+                .register(registry);
+        Gauge.builder("pricingboard.dedup.false-positive-rate", this, PricingDeduplicator::falsePositiveRate)
+                .description("Estimated share of new pricings dropped as repeats")
+                .register(registry);
+    }
+
+    /**
+     * Sets the key's bits in the current generation, returning whether any of them was clear. Only keys that were not
+     * there count towards the generation's capacity.
+     */
+    private boolean add(long hash, long step) {
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((current[word] & mask) == 0) {
+                current[word] |= mask;
+                currentBitsSet++;
+                added = true;
+            }
+        }
+        if (added && ++currentKeys >= capacity) {
+            long[] cleared = previous;
+            Arrays.fill(cleared, 0);
+            previous = current;
+            previousBitsSet = currentBitsSet;
+            current = cleared;
+            currentBitsSet = 0;
+            currentKeys = 0;
+        }
+        return added;
+    }
+
+    private boolean contains(long[] filter, long hash, long step) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            if ((filter[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(Pricing pricing) {
+        LocalDateTime priceDateTime = pricing.priceDateTime();
+        long hash = mix(TickerIndex.slot(pricing.instrumentId().handle(), pricing.vendorId().handle()));
+        hash = mix(hash ^ (priceDateTime == null ? 0 : priceDateTime.toEpochSecond(ZoneOffset.UTC)));
+        hash = mix(hash ^ (priceDateTime == null ? -1 : priceDateTime.getNano()));
+        hash = mix(hash ^ pricing.priceMantissa());
+        return mix(hash ^ pricing.priceScale());
+    }
+
+    private static long step(long hash) {
+        return mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    /**
+     * Finaliser of MurmurHash3, which spreads every input bit over the whole output.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        return value ^ value >>> 33;
+    }
+}
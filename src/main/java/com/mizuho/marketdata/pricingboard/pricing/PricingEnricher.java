@@ -4,12 +4,22 @@ import static java.util.Objects.requireNonNull;
 
 public class PricingEnricher {
     private PricingIdGenerator pricingIdGenerator;
+    private PricePrecision pricePrecision;
 
     public PricingEnricher(PricingIdGenerator pricingIdGenerator) {
+        this(pricingIdGenerator, PricePrecision.LOSSLESS);
+    }
+
+    public PricingEnricher(PricingIdGenerator pricingIdGenerator, PricePrecision pricePrecision) {
         this.pricingIdGenerator = requireNonNull(pricingIdGenerator, "pricingIdGenerator must not be null");
+        this.pricePrecision = requireNonNull(pricePrecision, "pricePrecision must not be null");
+    }
+
+    public PricePrecision pricePrecision() {
+        return pricePrecision;
     }
 
     public Pricing enrich(Pricing pricing) {
-        return pricing.copy().withId(pricingIdGenerator.generateId()).build();
+        return pricePrecision.apply(pricing).copy().withId(pricingIdGenerator.generateId()).build();
     }
 }
@@ -0,0 +1,31 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps every tick of each instrument and vendor rather than only the latest one. Ticks keep their ticker, price and
+ * price date time, but not their pricing id.
+ */
+public interface PricingHistoryRepository {
+
+    void append(Pricing pricing);
+
+    /**
+     * The last tick of the instrument and vendor priced at or before the given time.
+     */
+    Optional<Pricing> asOf(InstrumentId instrumentId, VendorId vendorId, LocalDateTime at);
+
+    /**
+     * Ticks of the instrument and vendor priced from {@code from} inclusive to {@code to} exclusive, in time order and
+     * at most {@code limit} of them.
+     */
+    List<Pricing> range(InstrumentId instrumentId, VendorId vendorId, LocalDateTime from, LocalDateTime to, int limit);
+
+    /**
+     * Drops ticks priced before the cutoff. Implementations may keep some of them where they share storage with later ticks.
+     */
+    void evictBefore(LocalDateTime cutoff);
+
+}
@@ -5,23 +5,57 @@ import java.util.Objects;
 
 import static com.google.common.collect.Lists.newArrayList;
 
+/**
+ * Id of a registered pricing. Ids made by a generator from two longs keep them and only render the text, laid out like a
+ * Uuid, when it is first asked for, while equality and hashing work on the longs. Text in that layout, such as a
+ * random Uuid, is parsed into the same form, so an id read back from storage still equals the one generated.
+ */
 public class PricingId {
+    private static final int TEXT_LENGTH = 36;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     private String value;
+    private final long high;
+    private final long low;
+    private final boolean compact;
 
     public PricingId(String id){
         this.value = id;
+        long[] bits = parse(id);
+        this.compact = bits != null;
+        this.high = compact ? bits[0] : 0;
+        this.low = compact ? bits[1] : 0;
+    }
+
+    private PricingId(long high, long low) {
+        this.high = high;
+        this.low = low;
+        this.compact = true;
+    }
+
+    public static PricingId of(long high, long low) {
+        return new PricingId(high, low);
     }
 
+    /**
+     * Text of the id, rendered on first use for ids made from longs. Racing threads render equal strings, so the field
+     * needs no synchronisation.
+     */
     public String value(){
-        return value;
+        String rendered = value;
+        if (rendered == null && compact) {
+            rendered = render(high, low);
+            value = rendered;
+        }
+        return rendered;
     }
 
     public boolean isEmpty(){
-        return value == null || value.isEmpty();
+        return !compact && (value == null || value.isEmpty());
     }
 
     public String toString(){
-        return value;
+        return value();
     }
 
     @Override
@@ -29,12 +63,15 @@ public class PricingId {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PricingId pricingId = (PricingId) o;
+        if (compact || pricingId.compact) {
+            return compact == pricingId.compact && high == pricingId.high && low == pricingId.low;
+        }
         return Objects.equals(value, pricingId.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return compact ? Long.hashCode(high * 31 + low) : Objects.hashCode(value);
     }
 
     public List<String> validate(){
@@ -44,10 +81,51 @@ public class PricingId {
     }
 
     private void validateValue(List<String> errors){
+        if (compact) {
+            return;
+        }
         if (value == null){
             errors.add("pricingId must be provided");
         } else if(value.isEmpty()) {
             errors.add("pricingId must not be blank");
         }
     }
+
+    private static String render(long high, long low) {
+        char[] text = new char[TEXT_LENGTH];
+        int position = 0;
+        for (int i = 0; i < 32; i++) {
+            if (i == 8 || i == 12 || i == 16 || i == 20) {
+                text[position++] = '-';
+            }
+            long bits = i < 16 ? high : low;
+            text[position++] = HEX_DIGITS[(int) (bits >>> (60 - (i % 16) * 4)) & 0xF];
+        }
+        return new String(text);
+    }
+
+    /**
+     * High and low bits of text in the layout {@link #render} produces, or null for any other text.
+     */
+    private static long[] parse(String text) {
+        if (text == null || text.length() != TEXT_LENGTH) {
+            return null;
+        }
+        long[] bits = new long[2];
+        int position = 0;
+        for (int i = 0; i < 32; i++) {
+            if (i == 8 || i == 12 || i == 16 || i == 20) {
+                if (text.charAt(position++) != '-') {
+                    return null;
+                }
+            }
+            char c = text.charAt(position++);
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                return null;
+            }
+            bits[i / 16] = bits[i / 16] << 4 | digit;
+        }
+        return bits;
+    }
 }
@@ -4,19 +4,38 @@ import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingExcept
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
 public class PricingManagementService {
     private static final Logger LOG = LoggerFactory.getLogger(PricingManagementService.class);
+    private static final int PARALLEL_LOOKUP_THRESHOLD = 256;
 
     private PricingRepository pricingRepository;
+    private PricingHistoryRepository pricingHistoryRepository;
 
     public PricingManagementService(PricingRepository pricingRepository) {
+        this(pricingRepository, null);
+    }
+
+    /**
+     * @param pricingHistoryRepository history of all ticks, or null when only the latest pricings are kept
+     */
+    public PricingManagementService(PricingRepository pricingRepository, PricingHistoryRepository pricingHistoryRepository) {
         this.pricingRepository = requireNonNull(pricingRepository, "pricingRepository must not be null");
-   }
+        this.pricingHistoryRepository = pricingHistoryRepository;
+    }
 
     public void registerPricing(Pricing targetPricing) {
         LOG.info("Registering new pricing with details: {}", targetPricing);
@@ -31,6 +50,29 @@ public class PricingManagementService {
         LOG.info("Registered pricing with id {}", targetPricing.id());
     }
 
+    /**
+     * Registers the valid ones of the pricings with a single {@link PricingRepository#storeAll store} and a single log
+     * line, rather than one store and two log lines per pricing.
+     *
+     * @return validation errors of each pricing in their order, empty for the pricings registered
+     */
+    public List<List<String>> registerPricings(List<Pricing> targetPricings) {
+        List<List<String>> errors = new ArrayList<>(targetPricings.size());
+        List<Pricing> valid = new ArrayList<>(targetPricings.size());
+        for (Pricing targetPricing : targetPricings) {
+            List<String> pricingErrors = targetPricing.validate();
+            errors.add(pricingErrors);
+            if (pricingErrors.isEmpty()) {
+                valid.add(targetPricing);
+            }
+        }
+
+        pricingRepository.storeAll(valid);
+
+        LOG.info("Registered {} and rejected {} pricings of a batch", valid.size(), targetPricings.size() - valid.size());
+        return errors;
+    }
+
     public Collection<Pricing> allByInstument(InstrumentId instrumentId) {
         LOG.info("Received pricing data request from client for instrumentId = " + instrumentId);
 
@@ -43,4 +85,97 @@ public class PricingManagementService {
         return pricingRepository.allByVendor(vendorId);
     }
 
+    public PricingView viewByInstrument(InstrumentId instrumentId) {
+        LOG.info("Received pricing view request from client for instrumentId = " + instrumentId);
+
+        return pricingRepository.viewByInstrument(instrumentId);
+    }
+
+    public PricingView viewByVendor(VendorId vendorId) {
+        LOG.info("Received pricing view request from client for vendorId = " + vendorId);
+
+        return pricingRepository.viewByVendor(vendorId);
+    }
+
+    /**
+     * Latest pricings of all the instruments, in their order, optionally only those of the given vendors. Large lookups
+     * are spread over the common fork-join pool when it has more than one thread, and a vendor filter picks pricings out
+     * of each view by handle rather than by scanning it.
+     */
+    public List<Pricing> latestByInstruments(List<InstrumentId> instrumentIds, Collection<VendorId> vendorIds) {
+        LOG.info("Received pricing data request from client for {} instruments and vendorIds = {}", instrumentIds.size(), vendorIds);
+
+        int[] vendorHandles = vendorIds.stream().mapToInt(VendorId::knownHandle).filter(h -> h >= 0).toArray();
+        Function<PricingView, Stream<Pricing>> selection = vendorIds.isEmpty()
+                ? view -> view.pricings().stream()
+                : view -> Arrays.stream(vendorHandles).mapToObj(view::get).filter(Objects::nonNull);
+        Stream<InstrumentId> instruments = instrumentIds.size() >= PARALLEL_LOOKUP_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1
+                ? instrumentIds.parallelStream()
+                : instrumentIds.stream();
+        return instruments
+                .map(pricingRepository::viewByInstrument)
+                .flatMap(selection)
+                .collect(toList());
+    }
+
+    /**
+     * Latest pricings priced under exactly the ticker, at most {@code limit} of them.
+     */
+    public List<Pricing> byTicker(String ticker, int limit) {
+        LOG.info("Received pricing data request from client for ticker = {}", ticker);
+
+        return pricingRepository.byTicker(ticker, limit);
+    }
+
+    /**
+     * Latest pricings whose ticker starts with the prefix, in ticker order and at most {@code limit} of them.
+     */
+    public List<Pricing> byTickerPrefix(String prefix, int limit) {
+        LOG.info("Received pricing data request from client for ticker prefix = {}", prefix);
+
+        return pricingRepository.byTickerPrefix(prefix, limit);
+    }
+
+    /**
+     * Cross-vendor composite of the instrument's latest prices. It is read with a single lookup, so it is not logged
+     * as it is also read for every pricing when composites are published.
+     */
+    public Optional<CompositePricing> compositeByInstrument(InstrumentId instrumentId) {
+        return pricingRepository.compositeByInstrument(instrumentId);
+    }
+
+    public boolean historyEnabled() {
+        return pricingHistoryRepository != null;
+    }
+
+    /**
+     * The pricing of the instrument by the vendor that was the latest at the given time.
+     */
+    public Optional<Pricing> priceAsOf(InstrumentId instrumentId, VendorId vendorId, LocalDateTime at) {
+        LOG.info("Received pricing history request from client for instrumentId = {}, vendorId = {} as of {}", instrumentId, vendorId, at);
+
+        return history().asOf(instrumentId, vendorId, at);
+    }
+
+    public List<Pricing> history(InstrumentId instrumentId, VendorId vendorId, LocalDateTime from, LocalDateTime to, int limit) {
+        LOG.info("Received pricing history request from client for instrumentId = {}, vendorId = {} from {} to {}", instrumentId, vendorId, from, to);
+
+        return history().range(instrumentId, vendorId, from, to, limit);
+    }
+
+    private PricingHistoryRepository history() {
+        if (pricingHistoryRepository == null) {
+            throw new IllegalStateException("pricing history is not enabled");
+        }
+        return pricingHistoryRepository;
+    }
+
+    public long instrumentVersion(InstrumentId instrumentId) {
+        return pricingRepository.instrumentVersion(instrumentId);
+    }
+
+    public long vendorVersion(VendorId vendorId) {
+        return pricingRepository.vendorVersion(vendorId);
+    }
+
 }
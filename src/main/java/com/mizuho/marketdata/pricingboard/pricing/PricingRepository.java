@@ -1,13 +1,66 @@
 package com.mizuho.marketdata.pricingboard.pricing;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface PricingRepository {
 
     void store(Pricing pricing);
 
-    Collection<Pricing> allByInstrument(InstrumentId instrumentId);
+    /**
+     * Stores the pricings in their order, which repositories may do at a lower cost per pricing than {@link #store}.
+     */
+    default void storeAll(List<Pricing> pricings) {
+        pricings.forEach(this::store);
+    }
 
-    Collection<Pricing> allByVendor(VendorId vendorId);
+    /**
+     * Consistent snapshot of the latest pricings of the instrument, one per vendor.
+     */
+    PricingView viewByInstrument(InstrumentId instrumentId);
+
+    /**
+     * Snapshot of the latest pricings by the vendor, one per instrument, consistent per instrument: it holds at least every
+     * change its version counts and never an older pricing than a view read before it.
+     */
+    PricingView viewByVendor(VendorId vendorId);
+
+    /**
+     * Version of the instrument's view, which is cheaper to read than the view itself.
+     */
+    default long instrumentVersion(InstrumentId instrumentId) {
+        return viewByInstrument(instrumentId).version();
+    }
+
+    /**
+     * Version of the vendor's view, which is cheaper to read than the view itself.
+     */
+    default long vendorVersion(VendorId vendorId) {
+        return viewByVendor(vendorId).version();
+    }
+
+    /**
+     * Latest pricings priced under exactly the ticker, at most {@code limit} of them.
+     */
+    List<Pricing> byTicker(String ticker, int limit);
+
+    /**
+     * Latest pricings whose ticker starts with the prefix, in ticker order and at most {@code limit} of them.
+     */
+    List<Pricing> byTickerPrefix(String prefix, int limit);
+
+    /**
+     * Cross-vendor composite of the latest prices of the instrument, maintained as pricings are stored and evicted.
+     */
+    Optional<CompositePricing> compositeByInstrument(InstrumentId instrumentId);
+
+    default Collection<Pricing> allByInstrument(InstrumentId instrumentId) {
+        return viewByInstrument(instrumentId).pricings();
+    }
+
+    default Collection<Pricing> allByVendor(VendorId vendorId) {
+        return viewByVendor(vendorId).pricings();
+    }
 
 }
@@ -0,0 +1,75 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.Collection;
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable snapshot of the latest pricings of one instrument or one vendor, keyed by the handle of the other id.
+ * The version grows with every change of the snapshot's instrument or vendor. An instrument view is published together with
+ * its version, so equal versions mean equal content; a vendor view may already hold a change its version does not count yet.
+ */
+public final class PricingView {
+    private static final PricingView EMPTY = new PricingView(0, HandleTrie.empty());
+
+    private final long version;
+    private final HandleTrie<Pricing> pricings;
+
+    public PricingView(long version, HandleTrie<Pricing> pricings) {
+        this.version = version;
+        this.pricings = requireNonNull(pricings, "pricings must not be null");
+    }
+
+    public static PricingView empty() {
+        return EMPTY;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Collection<Pricing> pricings() {
+        return pricings.values();
+    }
+
+    /**
+     * Up to {@code limit} pricings keyed by handles greater than {@code handle}, for paging through a large view in a
+     * stable order. Ids registered later get greater handles, so new pricings never shift pages that were already read.
+     */
+    public List<Pricing> pricingsAfter(int handle, int limit) {
+        return pricings.valuesAfter(handle, limit);
+    }
+
+    public Pricing get(int handle) {
+        return pricings.get(handle);
+    }
+
+    public int size() {
+        return pricings.size();
+    }
+
+    public boolean isEmpty() {
+        return pricings.isEmpty();
+    }
+
+    public PricingView with(int handle, Pricing pricing) {
+        return new PricingView(version + 1, pricings.with(handle, pricing));
+    }
+
+    /**
+     * Drops the pricing stored under the handle if it is the given instance, otherwise returns this view unchanged.
+     */
+    public PricingView without(int handle, Pricing expected) {
+        return expected != null && pricings.get(handle) == expected ? new PricingView(version + 1, pricings.without(handle)) : this;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("version", version)
+                .add("pricings", pricings.values())
+                .toString();
+    }
+}
@@ -0,0 +1,114 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary index from tickers to the instrument and vendor slots currently priced under them. Tickers are kept sorted,
+ * so an exact match is a single lookup and a prefix match walks only the tickers sharing the prefix. Each ticker holds an
+ * immutable sorted array of slot keys that is replaced as a whole on change, so readers never see a partial update.
+ * <p>
+ * The index does not hold pricings: callers resolve the slots against their own storage and should check the ticker of
+ * what they find, as a slot may have been repriced under another ticker in the meantime.
+ */
+public final class TickerIndex {
+    private static final long[] NONE = new long[0];
+
+    private final NavigableMap<String, long[]> slotsByTicker = new ConcurrentSkipListMap<>();
+
+    public static long slot(int instrument, int vendor) {
+        return (long) instrument << 32 | vendor & 0xFFFFFFFFL;
+    }
+
+    public static int instrument(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    public static int vendor(long slot) {
+        return (int) slot;
+    }
+
+    /**
+     * Moves the slot from the previous ticker to the current one. Either may be null, for a slot that was empty before
+     * or is empty now.
+     */
+    public void update(String previousTicker, String ticker, long slot) {
+        if (previousTicker != null && previousTicker.equals(ticker)) {
+            return;
+        }
+        if (previousTicker != null) {
+            slotsByTicker.computeIfPresent(previousTicker, (t, slots) -> without(slots, slot));
+        }
+        if (ticker != null) {
+            slotsByTicker.merge(ticker, new long[]{slot}, (slots, added) -> with(slots, slot));
+        }
+    }
+
+    public void remove(String ticker, long slot) {
+        update(ticker, null, slot);
+    }
+
+    /**
+     * Up to {@code limit} slots priced under exactly the ticker.
+     */
+    public long[] exact(String ticker, int limit) {
+        long[] slots = slotsByTicker.getOrDefault(ticker, NONE);
+        return slots.length <= limit ? slots : Arrays.copyOf(slots, limit);
+    }
+
+    /**
+     * Up to {@code limit} slots priced under tickers starting with the prefix, in ticker order.
+     */
+    public long[] prefix(String prefix, int limit) {
+        long[] found = new long[Math.min(limit, 64)];
+        int count = 0;
+        for (Map.Entry<String, long[]> entry : slotsByTicker.tailMap(prefix, true).entrySet()) {
+            if (count == limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            for (long slot : entry.getValue()) {
+                if (count == limit) {
+                    break;
+                }
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, Math.min(limit, found.length * 2));
+                }
+                found[count++] = slot;
+            }
+        }
+        return count == found.length ? found : Arrays.copyOf(found, count);
+    }
+
+    public int tickerCount() {
+        return slotsByTicker.size();
+    }
+
+    private static long[] with(long[] slots, long slot) {
+        int index = Arrays.binarySearch(slots, slot);
+        if (index >= 0) {
+            return slots;
+        }
+        int insertion = -index - 1;
+        long[] grown = new long[slots.length + 1];
+        System.arraycopy(slots, 0, grown, 0, insertion);
+        grown[insertion] = slot;
+        System.arraycopy(slots, insertion, grown, insertion + 1, slots.length - insertion);
+        return grown;
+    }
+
+    private static long[] without(long[] slots, long slot) {
+        int index = Arrays.binarySearch(slots, slot);
+        if (index < 0) {
+            return slots;
+        }
+        if (slots.length == 1) {
+            return null;
+        }
+        long[] shrunk = new long[slots.length - 1];
+        System.arraycopy(slots, 0, shrunk, 0, index);
+        System.arraycopy(slots, index + 1, shrunk, index, slots.length - index - 1);
+        return shrunk;
+    }
+}
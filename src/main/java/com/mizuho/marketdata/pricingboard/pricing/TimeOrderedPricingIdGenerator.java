@@ -0,0 +1,81 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.lang.ref.WeakReference;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Generates 128 bit ids without locking or shared random state. The high long holds the clock's epoch milliseconds
+ * in its top 48 bits and the node in the low 16, the low long a slot of the generating thread in its top 16 bits and
+ * the slot's sequence in the low 48. Ids therefore sort by time across threads and nodes, and by generation order
+ * within a thread.
+ * <p>
+ * A thread claims a slot on its first id and holds it while it lives. Once it has died its slot goes to the next thread
+ * that needs one, which carries on with the slot's sequence rather than starting over, so ids are unique as long as
+ * nodes are, no more than 65536 threads of a node generate ids at the same time, and no slot generates 2^48 ids.
+ */
+public class TimeOrderedPricingIdGenerator implements PricingIdGenerator {
+    private static final int MAX_NODE = 0xFFFF;
+    private static final int MAX_SLOTS = 1 << 16;
+    private static final long SEQUENCE_MASK = (1L << 48) - 1;
+
+    private final Clock clock;
+    private final long node;
+    private final AtomicReferenceArray<WeakReference<Thread>> owners;
+    private final long[][] sequences;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final ThreadLocal<long[]> sequence = ThreadLocal.withInitial(this::claimSlot);
+
+    public TimeOrderedPricingIdGenerator(int node) {
+        this(Clock.systemUTC(), node);
+    }
+
+    public TimeOrderedPricingIdGenerator(Clock clock, int node) {
+        this(clock, node, MAX_SLOTS);
+    }
+
+    TimeOrderedPricingIdGenerator(Clock clock, int node, int slots) {
+        this.clock = requireNonNull(clock, "clock must not be null");
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException(format("node must be between 0 and %d", MAX_NODE));
+        }
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException(format("slots must be between 1 and %d", MAX_SLOTS));
+        }
+        this.node = node;
+        this.owners = new AtomicReferenceArray<>(slots);
+        this.sequences = new long[slots][];
+    }
+
+    @Override
+    public PricingId generateId() {
+        long[] state = sequence.get();
+        long next = state[0];
+        state[0] = next & ~SEQUENCE_MASK | (next + 1) & SEQUENCE_MASK;
+        return PricingId.of(clock.millis() << 16 | node, next);
+    }
+
+    /**
+     * Claims the next slot whose owner has died, taking over its sequence. Seeing the owner dead orders its last
+     * sequence update before this thread's first.
+     */
+    private long[] claimSlot() {
+        WeakReference<Thread> claim = new WeakReference<>(Thread.currentThread());
+        for (int attempt = 0; attempt < sequences.length; attempt++) {
+            int slot = Math.floorMod(nextSlot.getAndIncrement(), sequences.length);
+            WeakReference<Thread> owner = owners.get(slot);
+            Thread thread = owner == null ? null : owner.get();
+            if ((thread == null || !thread.isAlive()) && owners.compareAndSet(slot, owner, claim)) {
+                if (sequences[slot] == null) {
+                    sequences[slot] = new long[]{(long) slot << 48};
+                }
+                return sequences[slot];
+            }
+        }
+        throw new IllegalStateException(format("more than %d threads generate ids at the same time", sequences.length));
+    }
+}
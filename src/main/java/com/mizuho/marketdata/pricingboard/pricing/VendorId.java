@@ -6,16 +6,56 @@ import java.util.Objects;
 import static com.google.common.collect.Lists.newArrayList;
 
 public class VendorId {
-    private String value;
+    private static final int UNREGISTERED = -1;
+    private static final IdRegistry<VendorId> REGISTRY = new IdRegistry<>(VendorId::new);
+
+    private final String value;
+    private final int handle;
+    private final int hash;
 
     public VendorId(String id){
+        this(id, UNREGISTERED);
+    }
+
+    private VendorId(String id, int handle) {
         this.value = id;
+        this.handle = handle;
+        this.hash = Objects.hashCode(id);
+    }
+
+    public static VendorId of(String id) {
+        return id == null ? new VendorId(null) : REGISTRY.intern(id);
+    }
+
+    public static IdRegistry<VendorId> registry() {
+        return REGISTRY;
     }
 
     public String value(){
         return value;
     }
 
+    /**
+     * Returns the dense handle of this id, interning it first if necessary.
+     */
+    public int handle() {
+        if (handle != UNREGISTERED || value == null) {
+            return handle;
+        }
+        return REGISTRY.intern(value).handle;
+    }
+
+    /**
+     * Returns the handle of this id if it has ever been interned, -1 otherwise.
+     */
+    public int knownHandle() {
+        if (handle != UNREGISTERED) {
+            return handle;
+        }
+        VendorId known = REGISTRY.find(value);
+        return known == null ? UNREGISTERED : known.handle;
+    }
+
     public boolean isEmpty(){
         return value == null || value.isEmpty();
     }
@@ -29,12 +69,15 @@ public class VendorId {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         VendorId vendorId = (VendorId) o;
-        return Objects.equals(value, vendorId.value);
+        if (handle != UNREGISTERED && vendorId.handle != UNREGISTERED) {
+            return handle == vendorId.handle;
+        }
+        return hash == vendorId.hash && Objects.equals(value, vendorId.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return hash;
     }
 
     public List<String> validate(){
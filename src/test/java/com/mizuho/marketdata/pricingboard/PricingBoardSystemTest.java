@@ -3,7 +3,14 @@ package com.mizuho.marketdata.pricingboard;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.reflect.TypeToken;
 import com.mizuho.marketdata.pricingboard.external.InboundPricing;
+import com.mizuho.marketdata.pricingboard.external.MeterSnapshot;
+import com.mizuho.marketdata.pricingboard.external.OutboundCompositePricing;
 import com.mizuho.marketdata.pricingboard.external.OutboundPricing;
+import com.mizuho.marketdata.pricingboard.external.OutboundPricingBar;
+import com.mizuho.marketdata.pricingboard.external.OutboundPricingBinaryCodec;
+import com.mizuho.marketdata.pricingboard.external.PricingStreamHub;
+import com.mizuho.marketdata.pricingboard.pricing.PricingDeduplicator;
+import io.restassured.response.Response;
 import org.apache.activemq.command.ActiveMQTextMessage;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,31 +21,61 @@ import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import javax.jms.BytesMessage;
 import javax.jms.Message;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.mizuho.marketdata.pricingboard.PricingBoardConfiguration.*;
+import static com.google.common.collect.Lists.newArrayList;
 import static com.mizuho.marketdata.pricingboard.external.InboundPricing.Builder.anInboundPricing;
+import static com.mizuho.marketdata.pricingboard.external.PricingLookup.Builder.aPricingLookup;
+import static com.mizuho.marketdata.pricingboard.external.PricingResource.APPLICATION_NDJSON;
+import static com.mizuho.marketdata.pricingboard.external.PricingResource.NEXT_CURSOR_HEADER;
+import static com.mizuho.marketdata.pricingboard.external.PricingResource.VERSION_HEADER;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.with;
 import static io.restassured.http.ContentType.JSON;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
 import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
+import static org.awaitility.Awaitility.await;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "pricingboard.outbound.binary.enabled=true", "pricingboard.history.enabled=true", "pricingboard.outbound.composite.enabled=true",
+        "pricingboard.dedup.enabled=true", "pricingboard.bars.intervals=PT1M,PT5M"})
 public class PricingBoardSystemTest {
     private static final String BASE_PATH = "/marketplace/board/pricing";
     private static final Type PRICING_LIST = new TypeToken<List<OutboundPricing>>(){}.getType();
+    private static final Type PRICING_BAR_LIST = new TypeToken<List<OutboundPricingBar>>(){}.getType();
+    private static final Type METER_LIST = new TypeToken<List<MeterSnapshot>>(){}.getType();
     private static final BigDecimal TWENTY = new BigDecimal(20);
     private static final BigDecimal TEN = new BigDecimal(10);
     private static final BigDecimal ELEVEN = new BigDecimal(11);
@@ -55,6 +92,12 @@ public class PricingBoardSystemTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PricingStreamHub pricingStreamHub;
+
+    @Autowired
+    private PricingDeduplicator pricingDeduplicator;
+
     @Before
     public void registerTestPricings() {
         if (!initialized) {
@@ -126,6 +169,175 @@ public class PricingBoardSystemTest {
                 containsInAnyOrder(NOW, YESTERDAY));
     }
 
+    @Test
+    public void should_register_newline_delimited_pricings_in_one_request() {
+        String instrumentId = randomUUID().toString();
+        String pricings = format("{\"instrumentId\":\"%s\",\"vendorId\":\"V7\",\"ticker\":\"GGG.G\",\"price\":10,\"priceDateTime\":\"%s\"}%n"
+                        + "{\"instrumentId\":\"%s\",\"vendorId\":\"V8\",\"ticker\":\"GGG.G\",\"price\":11,\"priceDateTime\":\"%s\"}%n",
+                instrumentId, NOW, instrumentId, NOW);
+
+        String results = given().port(serverPortNumber).and().basePath("/marketplace/board/pricings")
+                .body(pricings.getBytes(UTF_8)).contentType(APPLICATION_NDJSON)
+                .when().post()
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().asString();
+
+        assertThat(results.split("\n").length, is(2));
+        List<OutboundPricing> instrumentPricings = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .get("/instrument/" + instrumentId)
+                .then().extract().response().as(PRICING_LIST);
+        assertThat(instrumentPricings.stream().map(OutboundPricing::vendorId).collect(toList()), containsInAnyOrder("V7", "V8"));
+    }
+
+    @Test
+    public void should_page_through_vendor_pricings_with_cursor() {
+        String vendorId = randomUUID().toString();
+        for (int i = 0; i < 5; i++) {
+            registerNewPricing(anInboundPricing()
+                    .forInstrument(randomUUID().toString()).forVendor(vendorId).forTicker("HHH.H").withPrice(TEN).withPriceDateTime(NOW).build());
+        }
+
+        List<String> instruments = new ArrayList<>();
+        String cursor = null;
+        do {
+            Response page = with().port(serverPortNumber).and().basePath(BASE_PATH).queryParam("limit", 2)
+                    .queryParams(cursor == null ? emptyMap() : singletonMap("cursor", cursor))
+                    .get("/vendor/" + vendorId);
+            List<OutboundPricing> pricings = page.as(PRICING_LIST);
+            assertThat(pricings.size() <= 2, is(true));
+            pricings.forEach(p -> instruments.add(p.instrumentId()));
+            cursor = page.header(NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertThat(instruments.size(), is(5));
+        assertThat(new HashSet<>(instruments).size(), is(5));
+    }
+
+    @Test
+    public void should_stream_newline_delimited_pricings_for_vendor() {
+        String vendorId = randomUUID().toString();
+        registerNewPricing(anInboundPricing()
+                .forInstrument(randomUUID().toString()).forVendor(vendorId).forTicker("JJJ.J").withPrice(TEN).withPriceDateTime(NOW).build());
+        registerNewPricing(anInboundPricing()
+                .forInstrument(randomUUID().toString()).forVendor(vendorId).forTicker("JJJ.J").withPrice(TWENTY).withPriceDateTime(NOW).build());
+
+        String pricings = given().port(serverPortNumber).and().basePath(BASE_PATH).accept(APPLICATION_NDJSON)
+                .when().get("/vendor/" + vendorId)
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().contentType(APPLICATION_NDJSON)
+                .extract().asString();
+
+        assertThat(pricings.split("\n").length, is(2));
+    }
+
+    @Test
+    public void should_answer_not_modified_until_instrument_changes() {
+        String instrumentId = randomUUID().toString();
+        registerNewPricing(anInboundPricing()
+                .forInstrument(instrumentId).forVendor("V9").forTicker("KKK.K").withPrice(TEN).withPriceDateTime(NOW).build());
+        String etag = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .get("/instrument/" + instrumentId).header("ETag");
+
+        given().port(serverPortNumber).and().basePath(BASE_PATH).header("If-None-Match", etag)
+                .when().get("/instrument/" + instrumentId)
+                .then().assertThat().statusCode(is(NOT_MODIFIED.getStatusCode()));
+
+        registerNewPricing(anInboundPricing()
+                .forInstrument(instrumentId).forVendor("V9").forTicker("KKK.K").withPrice(TWENTY).withPriceDateTime(NOW.plusSeconds(1)).build());
+
+        given().port(serverPortNumber).and().basePath(BASE_PATH).header("If-None-Match", etag)
+                .when().get("/instrument/" + instrumentId)
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().header("ETag", not(etag));
+    }
+
+    @Test
+    public void should_look_up_many_instruments_in_one_request() {
+        List<String> instruments = newArrayList(randomUUID().toString(), randomUUID().toString(), randomUUID().toString());
+        for (String instrument : instruments) {
+            registerNewPricing(anInboundPricing()
+                    .forInstrument(instrument).forVendor("V7").forTicker("MMM.M").withPrice(TEN).withPriceDateTime(NOW).build());
+            registerNewPricing(anInboundPricing()
+                    .forInstrument(instrument).forVendor("V8").forTicker("MMM.M").withPrice(TWENTY).withPriceDateTime(NOW).build());
+        }
+
+        List<OutboundPricing> all = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .queryParam("instrumentId", String.join(",", instruments))
+                .get("/instruments")
+                .then().extract().response().as(PRICING_LIST);
+        List<OutboundPricing> ofVendor = given().port(serverPortNumber).and().basePath(BASE_PATH)
+                .body(aPricingLookup().forInstruments(instruments).forVendors(newArrayList("V8")).build()).contentType(JSON)
+                .when().post("/instruments")
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(PRICING_LIST);
+
+        assertThat(all, hasSize(6));
+        assertThat(ofVendor.stream().map(OutboundPricing::instrumentId).collect(toList()), is(instruments));
+        assertThat(ofVendor.stream().map(OutboundPricing::price).collect(toList()), everyItem(is(TWENTY)));
+    }
+
+    @Test
+    public void should_look_up_pricings_by_ticker_and_ticker_prefix() {
+        String ticker = "T" + randomUUID().toString().substring(0, 8).toUpperCase();
+        for (int i = 0; i < 3; i++) {
+            registerNewPricing(anInboundPricing()
+                    .forInstrument(randomUUID().toString()).forVendor("V6").forTicker(ticker + ".L").withPrice(TEN).withPriceDateTime(NOW).build());
+        }
+        registerNewPricing(anInboundPricing()
+                .forInstrument(randomUUID().toString()).forVendor("V6").forTicker(ticker + ".N").withPrice(TWENTY).withPriceDateTime(NOW).build());
+
+        List<OutboundPricing> exact = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .get("/ticker/" + ticker + ".L")
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(PRICING_LIST);
+        List<OutboundPricing> prefixed = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .queryParam("prefix", ticker).queryParam("limit", 10)
+                .get("/tickers")
+                .then().extract().response().as(PRICING_LIST);
+        List<OutboundPricing> limited = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .queryParam("prefix", ticker).queryParam("limit", 2)
+                .get("/tickers")
+                .then().extract().response().as(PRICING_LIST);
+
+        assertThat(exact, hasSize(3));
+        assertThat(prefixed.stream().map(OutboundPricing::ticker).collect(toList()),
+                contains(ticker + ".L", ticker + ".L", ticker + ".L", ticker + ".N"));
+        assertThat(limited, hasSize(2));
+    }
+
+    @Test
+    public void should_answer_history_and_as_of_queries() {
+        String instrumentId = randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            registerNewPricing(anInboundPricing()
+                    .forInstrument(instrumentId).forVendor("V5").forTicker("NNN.N").withPrice(new BigDecimal(10 + i)).withPriceDateTime(YESTERDAY.plusHours(i)).build());
+        }
+
+        List<OutboundPricing> history = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .queryParam("from", YESTERDAY.plusMinutes(30).toString())
+                .get("/history/" + instrumentId + "/V5")
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(PRICING_LIST);
+        OutboundPricing asOf = with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .queryParam("at", YESTERDAY.plusMinutes(90).toString())
+                .get("/history/" + instrumentId + "/V5/as-of")
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(OutboundPricing.class);
+
+        assertThat(history.stream().map(OutboundPricing::price).collect(toList()), contains(ELEVEN, new BigDecimal(12)));
+        assertThat(asOf.price(), is(ELEVEN));
+        given().port(serverPortNumber).and().basePath(BASE_PATH).queryParam("at", YESTERDAY.minusDays(1).toString())
+                .when().get("/history/" + instrumentId + "/V5/as-of")
+                .then().assertThat().statusCode(is(NOT_FOUND.getStatusCode()));
+    }
+
+    @Test
+    public void should_advance_version_header_when_instrument_changes() {
+        String instrumentId = randomUUID().toString();
+        long before = Long.parseLong(with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .get("/instrument/" + instrumentId).header(VERSION_HEADER));
+
+        registerNewPricing(anInboundPricing()
+                .forInstrument(instrumentId).forVendor("V9").forTicker("FFF.F").withPrice(TEN).withPriceDateTime(NOW).build());
+
+        long after = Long.parseLong(with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .get("/instrument/" + instrumentId).header(VERSION_HEADER));
+        assertThat(after > before, is(true));
+    }
+
     @Test(timeout = 10000L)
     public void should_retrieve_pricing_registered_over_jms() throws Exception {
         String instrument  = randomUUID().toString();
@@ -158,6 +370,151 @@ public class PricingBoardSystemTest {
         assertThat(vendorPricingTimelines.stream().map(OutboundPricing::priceDateTime).collect(toList()), containsInAnyOrder(NOW, NOW));
     }
 
+    @Test(timeout = 10000L)
+    public void should_push_pricing_registered_over_jms_to_stream_subscriber() throws Exception {
+        String instrument = randomUUID().toString();
+        int subscribers = pricingStreamHub.subscriberCount();
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                format("http://localhost:%d/marketplace/board/stream?instrument=%s", serverPortNumber, instrument)).openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        CompletableFuture<String> firstEvent = CompletableFuture.supplyAsync(() -> readFirstEventData(connection));
+        await().atMost(5, SECONDS).until(() -> pricingStreamHub.subscriberCount() > subscribers);
+
+        jmsTemplate.convertAndSend(VENDOR_X_INBOUND_QUEUE, anInboundPricing()
+                .forInstrument(instrument).forTicker("LLL.L").withPrice(ELEVEN).withPriceDateTime(NOW).build());
+
+        OutboundPricing outboundPricing = objectMapper.readValue(firstEvent.get(5, SECONDS), OutboundPricing.class);
+        connection.disconnect();
+        assertThat(outboundPricing.instrumentId(), is(instrument));
+        assertThat(outboundPricing.vendorId(), is(VENDOR_X));
+        assertThat(outboundPricing.price(), is(ELEVEN));
+    }
+
+    @Test
+    public void should_aggregate_pricings_registered_over_jms_into_bars() {
+        String instrument = randomUUID().toString();
+        LocalDateTime barStart = NOW.truncatedTo(MINUTES);
+        for (int i = 0; i < 3; i++) {
+            jmsTemplate.convertAndSend(VENDOR_X_INBOUND_QUEUE, anInboundPricing()
+                    .forInstrument(instrument).forTicker("OOO.O").withPrice(new BigDecimal(10 + i % 2 * 5 - i)).withPriceDateTime(barStart.plusSeconds(i * 10)).build());
+        }
+
+        await().atMost(5, SECONDS).until(() -> bars(instrument).stream().mapToInt(OutboundPricingBar::ticks).sum() == 3);
+        OutboundPricingBar bar = bars(instrument).get(0);
+
+        assertThat(bar.start(), is(barStart));
+        assertThat(bar.open(), is(TEN));
+        assertThat(bar.high(), is(new BigDecimal(14)));
+        assertThat(bar.low(), is(new BigDecimal(8)));
+        assertThat(bar.close(), is(new BigDecimal(8)));
+    }
+
+    @Test(timeout = 10000L)
+    public void should_publish_composite_of_instrument_when_enabled() throws Exception {
+        String instrument = randomUUID().toString();
+        jmsTemplate.convertAndSend(VENDOR_X_INBOUND_QUEUE, anInboundPricing()
+                .forInstrument(instrument).forTicker("PPP.P").withPrice(TEN).withPriceDateTime(NOW).build());
+        jmsTemplate.convertAndSend(VENDOR_Y_INBOUND_QUEUE, anInboundPricing()
+                .forInstrument(instrument).forTicker("PPP.P").withPrice(TWENTY).withPriceDateTime(NOW).build());
+
+        OutboundCompositePricing published;
+        do {
+            published = objectMapper.readValue(((ActiveMQTextMessage) jmsTemplate.receiveSelected(OUTBOUND_TOPIC,
+                    format("%s='%s' AND %s='%s'", VENDOR_HEADER, COMPOSITE_VENDOR, INSTRUMENT_HEADER, instrument))).getText(),
+                    OutboundCompositePricing.class);
+        } while (published.vendors() < 2);
+
+        assertThat(published.min(), is(TEN));
+        assertThat(published.max(), is(TWENTY));
+        assertThat(published.median(), is(new BigDecimal(15)));
+        assertThat(with().port(serverPortNumber).and().basePath(BASE_PATH).get("/composite/" + instrument)
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(OutboundCompositePricing.class),
+                is(published));
+    }
+
+    @Test
+    public void should_drop_pricing_resent_over_jms() {
+        String instrument = randomUUID().toString();
+        InboundPricing inboundPricing = anInboundPricing()
+                .forInstrument(instrument).forTicker("QQQ.Q").withPrice(ELEVEN).withPriceDateTime(NOW).build();
+        long dropped = pricingDeduplicator.droppedCount();
+
+        jmsTemplate.convertAndSend(VENDOR_X_INBOUND_QUEUE, inboundPricing);
+        jmsTemplate.convertAndSend(VENDOR_X_INBOUND_QUEUE, inboundPricing);
+        jmsTemplate.convertAndSend(VENDOR_X_INBOUND_QUEUE, inboundPricing.copy().withPrice(TEN).withPriceDateTime(NOW.plusSeconds(1)).build());
+
+        await().atMost(5, SECONDS).until(() -> with().port(serverPortNumber).and().basePath(BASE_PATH)
+                .get("/instrument/" + instrument).<List<OutboundPricing>>as(PRICING_LIST).stream()
+                .map(OutboundPricing::price).collect(toList()).equals(newArrayList(TEN)));
+        assertThat(pricingDeduplicator.droppedCount(), is(dropped + 1));
+    }
+
+    @Test(timeout = 10000L)
+    public void should_publish_binary_pricing_when_enabled() throws Exception {
+        String instrument  = randomUUID().toString();
+        jmsTemplate.convertAndSend(VENDOR_Y_INBOUND_QUEUE, anInboundPricing()
+                .forInstrument(instrument).forTicker("CCC.C").withPrice(ELEVEN).withPriceDateTime(NOW).build());
+
+        Message message = jmsTemplate.receiveSelected(
+                OUTBOUND_BINARY_TOPIC, format("%s='%s' AND %s='%s'", VENDOR_HEADER, VENDOR_Y, INSTRUMENT_HEADER, instrument));
+        byte[] body = new byte[(int) ((BytesMessage) message).getBodyLength()];
+        ((BytesMessage) message).readBytes(body);
+        OutboundPricing outboundPricing = new OutboundPricingBinaryCodec().decode(body);
+
+        assertThat(message.getStringProperty(FORMAT_HEADER), is(BINARY_FORMAT));
+        assertThat(outboundPricing.vendorId(), is(VENDOR_Y));
+        assertThat(outboundPricing.instrumentId(), is(instrument));
+        assertThat(outboundPricing.price(), is(ELEVEN));
+        assertThat(outboundPricing.priceDateTime(), is(NOW));
+    }
+
+    @Test(timeout = 10000L)
+    public void should_report_pipeline_latency_per_stage_and_pricings_per_vendor() {
+        String instrument = randomUUID().toString();
+        jmsTemplate.convertAndSend(VENDOR_Y_INBOUND_QUEUE, anInboundPricing()
+                .forInstrument(instrument).forTicker("MMM.M").withPrice(TEN).withPriceDateTime(NOW).build());
+        jmsTemplate.receiveSelected(OUTBOUND_TOPIC, format("%s='%s' AND %s='%s'", VENDOR_HEADER, VENDOR_Y, INSTRUMENT_HEADER, instrument));
+
+        await().atMost(5, SECONDS).until(() -> pipelineMeters().stream()
+                .filter(m -> m.name().equals("pricingboard.pipeline.latency"))
+                .map(m -> m.tags().get("stage")).collect(toList())
+                .containsAll(newArrayList("decode", "enrich", "register", "serialize-json", "send-json")));
+        List<MeterSnapshot> meters = pipelineMeters();
+
+        assertThat(meters.stream()
+                .filter(m -> m.name().equals("pricingboard.pipeline.latency") && m.tags().get("stage").equals("decode"))
+                .allMatch(m -> m.measurements().containsKey("p99.9")), is(true));
+        assertThat(meters.stream()
+                .filter(m -> m.name().equals("pricingboard.pipeline.pricings"))
+                .map(m -> m.tags().get("vendor")).collect(toList()), containsInAnyOrder(VENDOR_X, VENDOR_Y));
+    }
+
+    private List<MeterSnapshot> pipelineMeters() {
+        return with().port(serverPortNumber).and().basePath("/marketplace").queryParam("prefix", "pricingboard.pipeline.")
+                .get("/metrics")
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(METER_LIST);
+    }
+
+    private List<OutboundPricingBar> bars(String instrument) {
+        return with().port(serverPortNumber).and().basePath(BASE_PATH).queryParam("interval", "PT1M")
+                .get("/bars/" + instrument + "/" + VENDOR_X)
+                .then().assertThat().statusCode(is(OK.getStatusCode())).and().extract().response().as(PRICING_BAR_LIST);
+    }
+
+    private static String readFirstEventData(HttpURLConnection connection) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("data:")) {
+                    return line.substring("data:".length());
+                }
+            }
+            throw new IllegalStateException("pricing stream ended without an event");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private OutboundPricing toOutboundPricing(Message message) throws Exception {
         String messageBody = ((ActiveMQTextMessage) message).getText();
         return objectMapper.readValue(messageBody, OutboundPricing.class);
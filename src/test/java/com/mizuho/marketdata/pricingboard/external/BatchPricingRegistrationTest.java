@@ -0,0 +1,139 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingEnricher;
+import com.mizuho.marketdata.pricingboard.pricing.PricingId;
+import com.mizuho.marketdata.pricingboard.pricing.PricingIdGenerator;
+import com.mizuho.marketdata.pricingboard.pricing.PricingManagementService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchPricingRegistrationTest {
+    private static final String FIRST = "{\"instrumentId\":\"B1\",\"vendorId\":\"BV\",\"ticker\":\"AAA.A\",\"price\":10,\"priceDateTime\":\"2019-01-24T10:15:30\"}";
+    private static final String SECOND = "{\"instrumentId\":\"B2\",\"vendorId\":\"BV\",\"ticker\":\"BBB.B\",\"price\":\"11.5\",\"priceDateTime\":\"2019-01-24T10:15:31\"}";
+    private static final String INVALID = "{\"instrumentId\":\"B3\",\"vendorId\":\"BV\",\"price\":12,\"priceDateTime\":\"2019-01-24T10:15:32\"}";
+
+    @Mock
+    private PricingIdGenerator pricingIdGenerator;
+    @Mock
+    private PricingManagementService pricingManagementService;
+    @Captor
+    private ArgumentCaptor<List<Pricing>> registered;
+
+    private BatchPricingRegistration registration;
+
+    @Before
+    public void setup_registration() {
+        when(pricingIdGenerator.generateId()).thenReturn(new PricingId("batch-id"));
+        registration = new BatchPricingRegistration(new InboundPricingDecoder(), new PricingEnricher(pricingIdGenerator),
+                pricingManagementService, 2);
+    }
+
+    @Test
+    public void should_register_json_array() throws IOException {
+        acceptAll();
+
+        List<String> results = register("[" + FIRST + ",\n" + SECOND + "]");
+
+        assertThat(results, contains(
+                "{\"index\":0,\"status\":\"registered\",\"id\":\"batch-id\"}",
+                "{\"index\":1,\"status\":\"registered\",\"id\":\"batch-id\"}"));
+        verify(pricingManagementService).registerPricings(argThat(pricings -> pricings.size() == 2));
+    }
+
+    @Test
+    public void should_register_ndjson_and_reject_invalid_items_individually() throws IOException {
+        acceptAll();
+
+        List<String> results = register(FIRST + "\n" + INVALID + "\n" + SECOND + "\n");
+
+        assertThat(results.get(0), is("{\"index\":0,\"status\":\"registered\",\"id\":\"batch-id\"}"));
+        assertThat(results.get(1), is("{\"index\":1,\"status\":\"rejected\",\"message\":\"Pricing decoding failed\","
+                + "\"reasons\":[\"ticker must be provided\"]}"));
+        assertThat(results.get(2), is("{\"index\":2,\"status\":\"registered\",\"id\":\"batch-id\"}"));
+        verify(pricingManagementService).registerPricings(argThat(p -> instrumentsOf(p).equals(singletonList("B1"))));
+        verify(pricingManagementService).registerPricings(argThat(p -> instrumentsOf(p).equals(singletonList("B2"))));
+    }
+
+    @Test
+    public void should_report_pricing_rejected_on_registration() throws IOException {
+        when(pricingManagementService.registerPricings(anyList()))
+                .thenReturn(singletonList(singletonList("price must be a positive number")));
+
+        List<String> results = register(FIRST);
+
+        assertThat(results, contains("{\"index\":0,\"status\":\"rejected\",\"message\":\"Pricing registration failed\","
+                + "\"reasons\":[\"price must be a positive number\"]}"));
+    }
+
+    @Test
+    public void should_stop_at_malformed_json_after_registering_preceding_items() throws IOException {
+        acceptAll();
+
+        List<String> results = register(FIRST + "\n" + SECOND + "\n{\"instrumentId\":\"B4\",}\n" + FIRST);
+
+        assertThat(results.size(), is(3));
+        assertThat(results.get(2), containsString("\"index\":2,\"status\":\"rejected\""));
+        assertThat(results.get(2), containsString("malformed Json"));
+        verify(pricingManagementService).registerPricings(argThat(pricings -> pricings.size() == 2));
+    }
+
+    @Test
+    public void should_register_in_batches_while_reading() throws IOException {
+        acceptAll();
+
+        List<String> results = register(FIRST + SECOND + FIRST + SECOND + FIRST);
+
+        assertThat(results.size(), is(5));
+        verify(pricingManagementService, times(3)).registerPricings(registered.capture());
+        assertThat(instrumentsOf(registered.getAllValues().get(0)), contains("B1", "B2"));
+        assertThat(instrumentsOf(registered.getAllValues().get(2)), contains("B1"));
+        verify(pricingManagementService, never()).registerPricing(any(Pricing.class));
+    }
+
+    private void acceptAll() {
+        when(pricingManagementService.registerPricings(anyList()))
+                .thenAnswer(invocation -> nCopies(invocation.<List<?>>getArgument(0).size(), emptyList()));
+    }
+
+    private static List<String> instrumentsOf(List<Pricing> pricings) {
+        return pricings.stream().map(p -> p.instrumentId().value()).collect(toList());
+    }
+
+    private List<String> register(String body) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        registration.register(new ByteArrayInputStream(body.getBytes(UTF_8)), output);
+        String results = new String(output.toByteArray(), UTF_8);
+        assertThat(results.endsWith("\n"), is(true));
+        return Arrays.asList(results.split("\n"));
+    }
+}
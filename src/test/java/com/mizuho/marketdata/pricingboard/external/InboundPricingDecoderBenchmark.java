@@ -0,0 +1,47 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import org.springframework.integration.json.JsonToObjectTransformer;
+import org.springframework.messaging.support.GenericMessage;
+
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Compares the streaming {@link InboundPricingDecoder} with the data binding transformer it replaced in the vendor flows.
+ * Run manually, e.g. from the IDE, it is not part of the test suite.
+ */
+public class InboundPricingDecoderBenchmark {
+    private static final int WARMUP_ITERATIONS = 500_000;
+    private static final int MEASURED_ITERATIONS = 2_000_000;
+    private static final String VENDOR = "VendorX";
+    private static final String JSON =
+            "{\"instrumentId\":\"I1\",\"vendorId\":null,\"ticker\":\"AAA.A\",\"price\":10.25,\"priceDateTime\":\"2019-01-23T10:15:30.123\"}";
+
+    public static void main(String[] args) {
+        JsonToObjectTransformer transformer = new JsonToObjectTransformer(InboundPricing.class);
+        GenericMessage<String> message = new GenericMessage<>(JSON);
+        InboundPricingDecoder decoder = new InboundPricingDecoder();
+        VendorId vendorId = new VendorId(VENDOR);
+
+        run("data binding transformer", () -> ((InboundPricing) transformer.transform(message).getPayload())
+                .copy().forVendor(VENDOR).build().toPricing());
+        run("streaming decoder", () -> decoder.decode(JSON, vendorId));
+    }
+
+    private static void run(String name, Supplier<Pricing> decoding) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += decoding.get().ticker().length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += decoding.get().ticker().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(format("%-25s %8.1f ns/op %12.0f ops/s (checksum %d)",
+                name, (double) elapsed / MEASURED_ITERATIONS, MEASURED_ITERATIONS * 1e9 / elapsed, checksum));
+    }
+}
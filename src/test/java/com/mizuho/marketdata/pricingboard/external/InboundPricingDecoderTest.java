@@ -0,0 +1,129 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.PricePrecision;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingException;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InboundPricingDecoderTest {
+    private static final VendorId VENDOR = new VendorId("VendorX");
+    private static final LocalDateTime PRICE_DATE_TIME = LocalDateTime.of(2019, 1, 23, 10, 15, 30, 123000000);
+    private static final Pricing EXPECTED_PRICING = aPricing().forInstrument(new InstrumentId("I1")).forVendor(VENDOR)
+            .forTicker("AAA.A").withPrice(new BigDecimal("10.25")).withPriceDateTime(PRICE_DATE_TIME).build();
+
+    private InboundPricingDecoder decoder = new InboundPricingDecoder();
+
+    @Test
+    public void should_decode_pricing_stamped_with_vendor() {
+        Pricing pricing = decoder.decode(
+                "{\"instrumentId\":\"I1\",\"vendorId\":\"Other\",\"ticker\":\"AAA.A\",\"price\":10.25,\"priceDateTime\":\"2019-01-23T10:15:30.123\"}",
+                VENDOR);
+
+        assertThat(pricing, is(EXPECTED_PRICING));
+    }
+
+    @Test
+    public void should_decode_vendor_from_payload_when_not_stamped() {
+        Pricing pricing = decoder.decode(
+                "{\"instrumentId\":\"I1\",\"vendorId\":\"VendorX\",\"ticker\":\"AAA.A\",\"price\":10.25,\"priceDateTime\":\"2019-01-23T10:15:30.123\"}",
+                null);
+
+        assertThat(pricing, is(EXPECTED_PRICING));
+    }
+
+    @Test
+    public void should_decode_alternative_price_and_date_representations_and_skip_unknown_fields() {
+        Pricing pricing = decoder.decode(
+                "{\"extra\":{\"a\":[1,2]},\"instrumentId\":\"I1\",\"ticker\":\"AAA.A\",\"price\":\"10.25\",\"priceDateTime\":[2019,1,23,10,15,30,123000000]}",
+                VENDOR);
+
+        assertThat(pricing, is(EXPECTED_PRICING));
+    }
+
+    @Test
+    public void should_decode_payload_of_text_or_bytes() {
+        String json = "{\"instrumentId\":\"I1\",\"ticker\":\"AAA.A\",\"price\":10.25,\"priceDateTime\":\"2019-01-23T10:15:30.123\"}";
+
+        assertThat(decoder.decodePayload(json, VENDOR), is(EXPECTED_PRICING));
+        assertThat(decoder.decodePayload(json.getBytes(UTF_8), VENDOR), is(EXPECTED_PRICING));
+        assertThat(decoder.decodePayload(json.getBytes(UTF_16), VENDOR), is(EXPECTED_PRICING));
+    }
+
+    @Test
+    public void should_reject_payload_neither_text_nor_bytes() {
+        try {
+            decoder.decodePayload(42, VENDOR);
+            fail("Decoding should have failed");
+        } catch (InvalidPricingException e) {
+            assertThat(e.reasons(), is(singletonList("pricing must be Json text or bytes while Integer was provided")));
+        }
+    }
+
+    @Test
+    public void should_round_price_with_more_significant_digits_than_fit_fixed_point() {
+        InboundPricingDecoder rounding = new InboundPricingDecoder(new PricePrecision(2, PricePrecision.Policy.ROUND));
+
+        Pricing pricing = rounding.decode(
+                "{\"instrumentId\":\"I1\",\"ticker\":\"AAA.A\",\"price\":10.2500000000000000000001,\"priceDateTime\":\"2019-01-23T10:15:30.123\"}",
+                VENDOR);
+
+        assertThat(pricing, is(EXPECTED_PRICING));
+    }
+
+    @Test
+    public void should_reject_incomplete_pricing() {
+        List<String> reasons = decodingFailureReasons("{\"instrumentId\":\"I1\",\"price\":null}", null);
+
+        assertThat(reasons, is(asList("vendorId must be provided", "ticker must be provided",
+                "price must be provided", "priceDateTime must be provided")));
+    }
+
+    @Test
+    public void should_reject_values_of_wrong_type() {
+        List<String> reasons = decodingFailureReasons(
+                "{\"instrumentId\":1,\"ticker\":\"AAA.A\",\"price\":\"ten\",\"priceDateTime\":\"yesterday\"}", VENDOR);
+
+        assertThat(reasons, is(asList("instrumentId must be a string", "price must be a number while ten was provided",
+                "priceDateTime must be an ISO date time while yesterday was provided", "instrumentId must be provided",
+                "price must be provided", "priceDateTime must be provided")));
+    }
+
+    @Test
+    public void should_reject_malformed_json() {
+        List<String> reasons = decodingFailureReasons("{\"instrumentId\":\"I1\",", VENDOR);
+
+        assertThat(reasons, hasSize(1));
+        assertThat(reasons.get(0), startsWith("malformed Json"));
+    }
+
+    @Test
+    public void should_reject_non_object_payload() {
+        assertThat(decodingFailureReasons("[]", VENDOR), is(singletonList("pricing must be a Json object")));
+    }
+
+    private List<String> decodingFailureReasons(String json, VendorId vendorId) {
+        try {
+            decoder.decode(json, vendorId);
+            fail("Decoding should have failed");
+            return null;
+        } catch (InvalidPricingException e) {
+            assertThat(e.getMessage(), is("Pricing decoding failed"));
+            return e.reasons();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.mizuho.marketdata.pricingboard.external;
 
+import com.mizuho.marketdata.pricingboard.pricing.FixedPoint;
 import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.PricePrecision;
 import com.mizuho.marketdata.pricingboard.pricing.Pricing;
 import com.mizuho.marketdata.pricingboard.pricing.VendorId;
 import org.junit.Test;
@@ -43,6 +45,14 @@ public class InboundPricingTest {
         assertThat(INBOUND_PRICING, is(anotherInboundPricing));
     }
 
+    @Test
+    public void should_round_price_too_precise_to_fit_fixed_point_when_converting_to_pricing() {
+        InboundPricing inboundPricing = INBOUND_PRICING.copy().withPrice(new BigDecimal("10.00000000000000000000049")).build();
+
+        assertThat(inboundPricing.toPricing().priceScale(), is(FixedPoint.UNREPRESENTABLE));
+        assertThat(inboundPricing.toPricing(new PricePrecision(2, PricePrecision.Policy.ROUND)).price(), is(new BigDecimal("10.00")));
+    }
+
     @Test
     public void should_covert_to_pricing(){
         Pricing pricing = INBOUND_PRICING.toPricing();
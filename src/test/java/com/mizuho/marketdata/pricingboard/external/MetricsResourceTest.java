@@ -0,0 +1,61 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MetricsResourceTest {
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MetricsResource metricsResource = new MetricsResource(meterRegistry);
+
+    @Before
+    public void registerMeters() {
+        meterRegistry.counter("pricingboard.test.counter", "vendor", "V1").increment(3);
+        meterRegistry.counter("other.counter").increment();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_report_meters_matching_prefix() {
+        Response response = metricsResource.getMetrics("pricingboard.");
+
+        assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat((List<MeterSnapshot>) response.getEntity(), contains(
+                new MeterSnapshot("pricingboard.test.counter", of("vendor", "V1"), of("count", 3.0))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_report_published_percentiles_of_timers() {
+        Timer timer = Timer.builder("pricingboard.test.timer").publishPercentiles(0.5, 0.999).register(meterRegistry);
+        for (int i = 1; i <= 1000; i++) {
+            timer.record(i, TimeUnit.MILLISECONDS);
+        }
+
+        List<MeterSnapshot> meters = (List<MeterSnapshot>) metricsResource.getMetrics("pricingboard.test.timer").getEntity();
+
+        assertThat(meters.get(0).measurements().get("count"), is(1000.0));
+        assertThat(meters.get(0).measurements().get("p50"), closeTo(0.5, 0.01));
+        assertThat(meters.get(0).measurements().get("p99.9"), closeTo(1.0, 0.01));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_report_all_meters_when_prefix_is_missing() {
+        List<MeterSnapshot> meters = (List<MeterSnapshot>) metricsResource.getMetrics(null).getEntity();
+
+        assertThat(meters.size(), is(2));
+    }
+}
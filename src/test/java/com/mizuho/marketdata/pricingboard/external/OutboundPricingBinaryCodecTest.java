@@ -0,0 +1,66 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static com.mizuho.marketdata.pricingboard.external.OutboundPricing.Builder.anOutboundPricing;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class OutboundPricingBinaryCodecTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2019, 1, 24, 10, 15, 30, 123456789);
+    private static final OutboundPricing OUTBOUND_PRICING = anOutboundPricing()
+            .withInstrument("I1").withVendor("VendorX").withTicker("AAA.A").withPrice(new BigDecimal("101.2500")).withPriceDateTime(NOW).build();
+
+    private final OutboundPricingBinaryCodec codec = new OutboundPricingBinaryCodec();
+
+    @Test
+    public void should_decode_encoded_pricing() {
+        assertThat(codec.decode(codec.encode(OUTBOUND_PRICING)), is(OUTBOUND_PRICING));
+    }
+
+    @Test
+    public void should_keep_price_scale_and_negative_prices() {
+        OutboundPricing negative = OUTBOUND_PRICING.copy().withPrice(new BigDecimal("-0.000001")).build();
+        OutboundPricing decoded = codec.decode(codec.encode(negative));
+
+        assertThat(decoded.price().scale(), is(6));
+        assertThat(decoded, is(negative));
+    }
+
+    @Test
+    public void should_keep_non_ascii_identifiers() {
+        OutboundPricing pricing = OUTBOUND_PRICING.copy().withInstrument("\u50b5\u5238-1").withTicker("\u00c5\u00c4\u00d6").build();
+        assertThat(codec.decode(codec.encode(pricing)), is(pricing));
+    }
+
+    @Test
+    public void should_be_smaller_than_json() throws Exception {
+        byte[] json = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(OUTBOUND_PRICING);
+        assertThat(codec.encode(OUTBOUND_PRICING).length, lessThan(json.length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_pricing_without_price() {
+        codec.encode(OUTBOUND_PRICING.copy().withPrice(null).build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_truncated_pricing() {
+        byte[] encoded = codec.encode(OUTBOUND_PRICING);
+        codec.decode(Arrays.copyOf(encoded, encoded.length - 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_unknown_version() {
+        byte[] encoded = codec.encode(OUTBOUND_PRICING);
+        encoded[0] = 42;
+        codec.decode(encoded);
+    }
+}
@@ -70,4 +70,9 @@ public class OutboundPricingTest {
         OutboundPricing anotherOnboundPricing = OUTBOUND_PRICING.copy().withPriceDateTime(NOW.minusDays(10)).build();
         assertThat(OUTBOUND_PRICING, is(not(equalTo(anotherOnboundPricing))));
     }
-}
\ No newline at end of file
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_price_not_fitting_fixed_point_number() {
+        OUTBOUND_PRICING.copy().withPrice(new BigDecimal("123456789012345678901234567890.5"));
+    }
+}
@@ -0,0 +1,32 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.mizuho.marketdata.pricingboard.external.PricingLookup.Builder.aPricingLookup;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PricingLookupTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void should_read_pricing_lookup_from_json() throws IOException {
+        PricingLookup lookup = objectMapper.readValue("{\"instrumentIds\":[\"I1\",\"I2\"],\"vendorIds\":[\"V1\"]}", PricingLookup.class);
+
+        assertThat(lookup, is(aPricingLookup().forInstruments(newArrayList("I1", "I2")).forVendors(newArrayList("V1")).build()));
+    }
+
+    @Test
+    public void should_default_missing_vendors_to_none() throws IOException {
+        PricingLookup lookup = objectMapper.readValue("{\"instrumentIds\":[\"I1\"]}", PricingLookup.class);
+
+        assertThat(lookup.instrumentIds(), contains("I1"));
+        assertThat(lookup.vendorIds(), is(empty()));
+    }
+}
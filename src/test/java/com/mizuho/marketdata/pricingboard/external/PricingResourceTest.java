@@ -1,25 +1,64 @@
 package com.mizuho.marketdata.pricingboard.external;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.mizuho.marketdata.pricingboard.external.exception.ErrorResult;
+import com.mizuho.marketdata.pricingboard.pricing.CompositePricing;
+import com.mizuho.marketdata.pricingboard.pricing.HandleTrie;
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
 import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingBar;
+import com.mizuho.marketdata.pricingboard.pricing.PricingBarAggregator;
+import com.mizuho.marketdata.pricingboard.pricing.PricePrecision;
 import com.mizuho.marketdata.pricingboard.pricing.PricingEnricher;
 import com.mizuho.marketdata.pricingboard.pricing.PricingManagementService;
+import com.mizuho.marketdata.pricingboard.pricing.PricingView;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.collect.Sets.newLinkedHashSet;
 import static com.mizuho.marketdata.pricingboard.external.InboundPricing.Builder.anInboundPricing;
+import static com.mizuho.marketdata.pricingboard.external.PricingResource.APPLICATION_NDJSON;
+import static com.mizuho.marketdata.pricingboard.external.PricingResource.NEXT_CURSOR_HEADER;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.LocalDateTime.now;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
 import static javax.ws.rs.core.Response.Status.OK;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,12 +73,20 @@ public class PricingResourceTest {
     private PricingManagementService pricingManagementServiceService;
     @Mock
     private PricingEnricher pricingEnricher;
+    @Mock
+    private PricingBarAggregator pricingBarAggregator;
+    @Mock
+    private Request request;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     @InjectMocks
     private PricingResource pricingResource;
 
     @Before
     public void setupPricingFactory() {
         when(pricingEnricher.enrich(PRICING)).thenReturn(PRICING);
+        when(pricingEnricher.pricePrecision()).thenReturn(PricePrecision.LOSSLESS);
     }
 
     @Test
@@ -59,10 +106,228 @@ public class PricingResourceTest {
     }
 
     @Test
-    public void should_get_pricinginfo_for_vendorId() {
-        Response response = pricingResource.getPricingForVendorId("V1");
+    public void should_get_pricinginfo_for_vendorId() throws IOException {
+        when(pricingManagementServiceService.viewByVendor(new VendorId("V1")))
+                .thenReturn(new PricingView(7, HandleTrie.<Pricing>empty().with(0, PRICING)));
+
+        Response response = pricingResource.getPricingForVendorId("V1", null, null, request);
+        assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat(response.getHeaderString(PricingResource.VERSION_HEADER), is("7"));
+        assertThat(response.getMediaType(), is(MediaType.APPLICATION_JSON_TYPE));
+        assertThat(body(response), is(objectMapper.writeValueAsString(singletonList(OutboundPricing.fromPricing(PRICING)))));
+    }
+
+    @Test
+    public void should_stream_newline_delimited_pricings_when_requested() throws IOException {
+        when(request.selectVariant(anyList())).thenReturn(new Variant(MediaType.valueOf(APPLICATION_NDJSON), (String) null, null));
+        when(pricingManagementServiceService.viewByInstrument(new InstrumentId("1")))
+                .thenReturn(new PricingView(2, HandleTrie.<Pricing>empty().with(0, PRICING).with(1, PRICING)));
+
+        Response response = pricingResource.getPricingForInstrumentId("1", request);
+
+        String line = objectMapper.writeValueAsString(OutboundPricing.fromPricing(PRICING));
+        assertThat(response.getMediaType(), is(MediaType.valueOf(APPLICATION_NDJSON)));
+        assertThat(body(response), is(line + "\n" + line + "\n"));
+    }
+
+    @Test
+    public void should_page_vendor_pricings_with_cursor() throws IOException {
+        HandleTrie<Pricing> pricings = HandleTrie.empty();
+        for (int i = 0; i < 5; i++) {
+            Pricing pricing = PRICING.copy().forInstrument(new InstrumentId("page-" + i)).build();
+            pricings = pricings.with(pricing.instrumentId().handle(), pricing);
+        }
+        when(pricingManagementServiceService.viewByVendor(new VendorId("V1"))).thenReturn(new PricingView(5, pricings));
+
+        List<String> instruments = newArrayList();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Response response = pricingResource.getPricingForVendorId("V1", 2, cursor, request);
+            for (OutboundPricing pricing : objectMapper.readValue(body(response), OutboundPricing[].class)) {
+                instruments.add(pricing.instrumentId());
+            }
+            cursor = response.getHeaderString(NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages, is(3));
+        assertThat(instruments, contains("page-0", "page-1", "page-2", "page-3", "page-4"));
+    }
+
+    @Test
+    public void should_answer_not_modified_without_reading_view_when_tag_matches() {
+        when(pricingManagementServiceService.instrumentVersion(new InstrumentId("1"))).thenReturn(4L);
+        when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(Response.notModified());
+
+        Response response = pricingResource.getPricingForInstrumentId("1", request);
+
+        assertThat(response.getStatus(), is(NOT_MODIFIED.getStatusCode()));
+        assertThat(response.getHeaderString(PricingResource.VERSION_HEADER), is("4"));
+        verify(pricingManagementServiceService, never()).viewByInstrument(any(InstrumentId.class));
+    }
+
+    @Test
+    public void should_tag_representations_by_version_format_and_page() {
+        when(pricingManagementServiceService.viewByVendor(new VendorId("V1")))
+                .thenReturn(new PricingView(7, HandleTrie.<Pricing>empty().with(0, PRICING)));
+
+        EntityTag json = pricingResource.getPricingForVendorId("V1", null, null, request).getEntityTag();
+        EntityTag page = pricingResource.getPricingForVendorId("V1", 10, null, request).getEntityTag();
+        when(request.selectVariant(anyList())).thenReturn(new Variant(MediaType.valueOf(APPLICATION_NDJSON), (String) null, null));
+        EntityTag ndjson = pricingResource.getPricingForVendorId("V1", null, null, request).getEntityTag();
+
+        assertThat(json.getValue().contains("-7"), is(true));
+        assertThat(newHashSet(json, page, ndjson), hasSize(3));
+    }
+
+    @Test
+    public void should_look_up_distinct_instruments_given_repeated_or_comma_separated() throws IOException {
+        List<InstrumentId> instruments = newArrayList(new InstrumentId("1"), new InstrumentId("2"), new InstrumentId("3"));
+        when(pricingManagementServiceService.latestByInstruments(instruments, newLinkedHashSet(singletonList(new VendorId("V1")))))
+                .thenReturn(singletonList(PRICING));
+
+        Response response = pricingResource.getPricingForInstrumentIds(newArrayList("1,2", "3", "1"), singletonList("V1"), request);
+
+        assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat(body(response), is(objectMapper.writeValueAsString(singletonList(OutboundPricing.fromPricing(PRICING)))));
+    }
+
+    @Test
+    public void should_report_http_bad_request_for_lookup_without_instruments() {
+        assertThat(pricingResource.getPricingForInstrumentIds(emptyList(), emptyList(), request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.lookupPricingForInstrumentIds(null, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.lookupPricingForInstrumentIds(PricingLookup.Builder.aPricingLookup().build(), request).getStatus(),
+                is(BAD_REQUEST.getStatusCode()));
+    }
+
+    @Test
+    public void should_return_composite_pricing_of_instrument_or_not_found() {
+        CompositePricing composite = CompositePricing.empty(PRICING.instrumentId()).with(PRICING);
+        when(pricingManagementServiceService.compositeByInstrument(new InstrumentId("1"))).thenReturn(Optional.of(composite));
+        when(pricingManagementServiceService.compositeByInstrument(new InstrumentId("2"))).thenReturn(Optional.empty());
+
+        Response found = pricingResource.getCompositePricing("1");
+
+        assertThat(found.getStatus(), is(OK.getStatusCode()));
+        assertThat(found.getEntity(), is(OutboundCompositePricing.fromCompositePricing(composite)));
+        assertThat(pricingResource.getCompositePricing("2").getStatus(), is(NOT_FOUND.getStatusCode()));
+    }
+
+    @Test
+    public void should_return_pricings_by_ticker_with_default_limit() throws IOException {
+        when(pricingManagementServiceService.byTicker("AAA.A", PricingResource.DEFAULT_TICKER_LIMIT)).thenReturn(singletonList(PRICING));
+
+        Response response = pricingResource.getPricingForTicker("AAA.A", null, request);
+
         assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat(body(response), is(objectMapper.writeValueAsString(singletonList(OutboundPricing.fromPricing(PRICING)))));
+    }
+
+    @Test
+    public void should_return_pricings_by_ticker_prefix() throws IOException {
+        when(pricingManagementServiceService.byTickerPrefix("AA", 5)).thenReturn(singletonList(PRICING));
+
+        Response response = pricingResource.getPricingForTickerPrefix("AA", 5, request);
+
+        assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat(body(response), is(objectMapper.writeValueAsString(singletonList(OutboundPricing.fromPricing(PRICING)))));
+    }
+
+    @Test
+    public void should_report_http_bad_request_for_invalid_ticker_lookup() {
+        assertThat(pricingResource.getPricingForTickerPrefix(null, null, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingForTickerPrefix("", null, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingForTicker("AAA.A", 0, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingForTicker("AAA.A", PricingResource.MAX_PAGE_SIZE + 1, request).getStatus(),
+                is(BAD_REQUEST.getStatusCode()));
+    }
+
+    @Test
+    public void should_return_pricing_history_of_instrument_and_vendor() throws IOException {
+        LocalDateTime from = LocalDateTime.of(2019, 1, 2, 9, 30);
+        when(pricingManagementServiceService.historyEnabled()).thenReturn(true);
+        when(pricingManagementServiceService.history(new InstrumentId("1"), new VendorId("V1"), from, LocalDateTime.MAX, PricingResource.DEFAULT_HISTORY_LIMIT))
+                .thenReturn(singletonList(PRICING));
+
+        Response response = pricingResource.getPricingHistory("1", "V1", "2019-01-02T09:30", null, null, request);
+
+        assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat(body(response), is(objectMapper.writeValueAsString(singletonList(OutboundPricing.fromPricing(PRICING)))));
+    }
+
+    @Test
+    public void should_return_pricing_as_of_time_or_not_found() {
+        LocalDateTime at = LocalDateTime.of(2019, 1, 2, 9, 30);
+        when(pricingManagementServiceService.historyEnabled()).thenReturn(true);
+        when(pricingManagementServiceService.priceAsOf(new InstrumentId("1"), new VendorId("V1"), at)).thenReturn(Optional.of(PRICING));
+        when(pricingManagementServiceService.priceAsOf(new InstrumentId("1"), new VendorId("V1"), at.minusDays(1))).thenReturn(Optional.empty());
+
+        Response found = pricingResource.getPricingAsOf("1", "V1", "2019-01-02T09:30");
+        Response missing = pricingResource.getPricingAsOf("1", "V1", "2019-01-01T09:30");
+
+        assertThat(found.getStatus(), is(OK.getStatusCode()));
+        assertThat(found.getEntity(), is(OutboundPricing.fromPricing(PRICING)));
+        assertThat(missing.getStatus(), is(NOT_FOUND.getStatusCode()));
+    }
+
+    @Test
+    public void should_report_http_not_found_for_history_when_not_enabled() {
+        assertThat(pricingResource.getPricingHistory("1", "V1", null, null, null, request).getStatus(), is(NOT_FOUND.getStatusCode()));
+        assertThat(pricingResource.getPricingAsOf("1", "V1", "2019-01-02T09:30").getStatus(), is(NOT_FOUND.getStatusCode()));
+    }
+
+    @Test
+    public void should_report_http_bad_request_for_invalid_history_query() {
+        when(pricingManagementServiceService.historyEnabled()).thenReturn(true);
+
+        assertThat(pricingResource.getPricingHistory("1", "V1", "yesterday", null, null, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingHistory("1", "V1", null, null, 0, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingAsOf("1", "V1", null).getStatus(), is(BAD_REQUEST.getStatusCode()));
+    }
+
+    @Test
+    public void should_return_pricing_bars_of_default_interval() {
+        PricingBar bar = new PricingBar(new InstrumentId("1"), new VendorId("V1"), Duration.ofMinutes(1), LocalDateTime.of(2019, 1, 2, 9, 30),
+                TWENTY, TWENTY, BigDecimal.TEN, BigDecimal.TEN, 2);
+        when(pricingBarAggregator.isEnabled()).thenReturn(true);
+        when(pricingBarAggregator.intervals()).thenReturn(asList(Duration.ofMinutes(1), Duration.ofMinutes(5)));
+        when(pricingBarAggregator.depth()).thenReturn(60);
+        when(pricingBarAggregator.bars(new InstrumentId("1"), new VendorId("V1"), Duration.ofMinutes(1), 60)).thenReturn(singletonList(bar));
+
+        Response response = pricingResource.getPricingBars("1", "V1", null, null);
+
+        assertThat(response.getStatus(), is(OK.getStatusCode()));
+        assertThat(response.getEntity(), is(singletonList(OutboundPricingBar.fromPricingBar(bar))));
+    }
+
+    @Test
+    public void should_report_http_not_found_for_bars_when_not_enabled() {
+        assertThat(pricingResource.getPricingBars("1", "V1", "PT1M", null).getStatus(), is(NOT_FOUND.getStatusCode()));
+    }
+
+    @Test
+    public void should_report_http_bad_request_for_invalid_bars_query() {
+        when(pricingBarAggregator.isEnabled()).thenReturn(true);
+        when(pricingBarAggregator.intervals()).thenReturn(singletonList(Duration.ofMinutes(1)));
+        when(pricingBarAggregator.depth()).thenReturn(60);
+
+        assertThat(pricingResource.getPricingBars("1", "V1", "PT15M", null).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingBars("1", "V1", "minute", null).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingBars("1", "V1", "PT1M", 61).getStatus(), is(BAD_REQUEST.getStatusCode()));
+    }
+
+    @Test
+    public void should_report_http_bad_request_for_invalid_paging() {
+        assertThat(pricingResource.getPricingForVendorId("V1", 0, null, request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingForVendorId("V1", 10, "abc", request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+        assertThat(pricingResource.getPricingForVendorId("V1", null, "3", request).getStatus(), is(BAD_REQUEST.getStatusCode()));
+    }
 
+    private static String body(Response response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return new String(output.toByteArray(), UTF_8);
     }
 
 }
@@ -0,0 +1,214 @@
+package com.mizuho.marketdata.pricingboard.external;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingId;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PricingStreamHubTest {
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final InstrumentId I1 = new InstrumentId("S1");
+    private static final InstrumentId I2 = new InstrumentId("S2");
+    private static final InstrumentId I3 = new InstrumentId("S3");
+    private static final VendorId V1 = new VendorId("SV1");
+    private static final VendorId V2 = new VendorId("SV2");
+
+    @Mock
+    private Sse sse;
+
+    private final Queue<Runnable> drains = new ArrayDeque<>();
+
+    @Before
+    public void setup_sse() {
+        when(sse.newEventBuilder()).thenAnswer(i -> new OutboundEvent.Builder());
+    }
+
+    @Test
+    public void should_deliver_pricings_matching_each_subscription() {
+        PricingStreamHub hub = new PricingStreamHub(16, PricingStreamHub.Policy.DROP, drains::add);
+        SseEventSink all = openSink();
+        SseEventSink instrument = openSink();
+        SseEventSink vendor = openSink();
+        SseEventSink both = openSink();
+        hub.subscribe(null, null, all, sse);
+        hub.subscribe(I1, null, instrument, sse);
+        hub.subscribe(null, V2, vendor, sse);
+        hub.subscribe(I1, V2, both, sse);
+
+        hub.publish(pricing(I1, V1, "1"));
+        hub.publish(pricing(I1, V2, "2"));
+        hub.publish(pricing(I2, V2, "3"));
+        drainAll();
+
+        assertThat(sentIds(all, 3), contains("1", "2", "3"));
+        assertThat(sentIds(instrument, 2), contains("1", "2"));
+        assertThat(sentIds(vendor, 2), contains("2", "3"));
+        assertThat(sentIds(both, 1), contains("2"));
+        assertThat(hub.subscriberCount(), is(4));
+        assertThat(hub.sentCount(), is(8L));
+    }
+
+    @Test
+    public void should_conflate_pending_pricings_of_slow_subscriber() {
+        PricingStreamHub hub = new PricingStreamHub(2, PricingStreamHub.Policy.CONFLATE, drains::add);
+        SseEventSink sink = openSink();
+        hub.subscribe(null, null, sink, sse);
+
+        hub.publish(pricing(I1, V1, "1"));
+        hub.publish(pricing(I2, V1, "2"));
+        hub.publish(pricing(I1, V1, "3"));
+        hub.publish(pricing(I3, V1, "4"));
+        drainAll();
+
+        assertThat(sentIds(sink, 2), contains("3", "2"));
+        assertThat(hub.conflatedCount(), is(1L));
+        assertThat(hub.droppedCount(), is(1L));
+        assertThat(drains.isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_drop_pricings_beyond_buffer_of_slow_subscriber() {
+        PricingStreamHub hub = new PricingStreamHub(2, PricingStreamHub.Policy.DROP, drains::add);
+        SseEventSink sink = openSink();
+        hub.subscribe(I1, V1, sink, sse);
+
+        hub.publish(pricing(I1, V1, "1"));
+        hub.publish(pricing(I1, V1, "2"));
+        hub.publish(pricing(I1, V1, "3"));
+        drainAll();
+        hub.publish(pricing(I1, V1, "4"));
+        drainAll();
+
+        assertThat(sentIds(sink, 3), contains("1", "2", "4"));
+        assertThat(hub.droppedCount(), is(1L));
+    }
+
+    @Test
+    public void should_schedule_one_drain_per_subscriber_with_pending_pricings() {
+        PricingStreamHub hub = new PricingStreamHub(16, PricingStreamHub.Policy.DROP, drains::add);
+        hub.subscribe(null, null, openSink(), sse);
+        hub.subscribe(null, V1, openSink(), sse);
+
+        hub.publish(pricing(I1, V1, "1"));
+        hub.publish(pricing(I2, V1, "2"));
+
+        assertThat(drains.size(), is(2));
+        drainAll();
+        assertThat(hub.sentCount(), is(4L));
+    }
+
+    @Test
+    public void should_unsubscribe_closed_and_failing_subscribers() {
+        PricingStreamHub hub = new PricingStreamHub(16, PricingStreamHub.Policy.DROP, drains::add);
+        SseEventSink closed = openSink();
+        SseEventSink failing = openSink();
+        CompletableFuture<Object> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("connection reset"));
+        when(failing.send(any())).thenAnswer(i -> failure);
+        hub.subscribe(I1, null, closed, sse);
+        hub.subscribe(I1, null, failing, sse);
+        when(closed.isClosed()).thenReturn(true);
+
+        hub.publish(pricing(I1, V1, "1"));
+        drainAll();
+        hub.publish(pricing(I1, V1, "2"));
+
+        assertThat(hub.subscriberCount(), is(0));
+        verify(closed, never()).send(any());
+        verify(failing, times(1)).send(any());
+        verify(failing).close();
+        assertThat(drains.isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_close_stalled_subscriber_and_keep_serving_the_others() {
+        PricingStreamHub hub = new PricingStreamHub(16, PricingStreamHub.Policy.DROP, 1, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        SseEventSink stalled = mock(SseEventSink.class);
+        when(stalled.send(any())).thenAnswer(i -> {
+            release.await();
+            return CompletableFuture.completedFuture(null);
+        });
+        SseEventSink healthy = openSink();
+        try {
+            hub.subscribe(I1, null, stalled, sse);
+            hub.publish(pricing(I1, V1, "1"));
+            await().atMost(5, SECONDS).until(() -> !mockingDetails(stalled).getInvocations().isEmpty());
+            hub.subscribe(I2, null, healthy, sse);
+
+            hub.publish(pricing(I2, V1, "2"));
+            hub.publish(pricing(I2, V1, "3"));
+
+            await().atMost(5, SECONDS).until(() -> hub.sentCount() == 2);
+            assertThat(sentIds(healthy, 2), contains("2", "3"));
+            assertThat(hub.stalledCount(), is(1L));
+            assertThat(hub.subscriberCount(), is(1));
+            verify(stalled).close();
+        } finally {
+            release.countDown();
+            hub.destroy();
+        }
+    }
+
+    private void drainAll() {
+        Runnable drain;
+        while ((drain = drains.poll()) != null) {
+            drain.run();
+        }
+    }
+
+    private static SseEventSink openSink() {
+        SseEventSink sink = mock(SseEventSink.class);
+        when(sink.send(any())).thenAnswer(i -> CompletableFuture.completedFuture(null));
+        return sink;
+    }
+
+    private static List<String> sentIds(SseEventSink sink, int count) {
+        ArgumentCaptor<OutboundSseEvent> events = ArgumentCaptor.forClass(OutboundSseEvent.class);
+        verify(sink, times(count)).send(events.capture());
+        return events.getAllValues().stream()
+                .peek(e -> assertThat(e.getName(), is(PricingStreamHub.PRICING_EVENT)))
+                .map(e -> ((OutboundPricing) e.getData()).ticker())
+                .collect(toList());
+    }
+
+    private static Pricing pricing(InstrumentId instrumentId, VendorId vendorId, String ticker) {
+        return aPricing().withId(new PricingId("stream-" + ticker)).forInstrument(instrumentId).forVendor(vendorId)
+                .forTicker(ticker).withPrice(BigDecimal.TEN).withPriceDateTime(NOW).build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingDeduplicator;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class BatchingJmsInboundEndpointTest {
+    private static final String QUEUE = "Batching-Inbound";
+
+    private ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://batching?broker.persistent=false");
+    private JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+    private Connection brokerKeepAlive;
+    private BatchingJmsInboundEndpoint endpoint;
+
+    @Before
+    public void setupEndpoint() throws JMSException {
+        brokerKeepAlive = connectionFactory.createConnection();
+        endpoint = new BatchingJmsInboundEndpoint(connectionFactory, QUEUE, 3, 200);
+    }
+
+    @After
+    public void stopEndpoint() throws JMSException {
+        endpoint.stop();
+        brokerKeepAlive.close();
+    }
+
+    @Test
+    public void should_deliver_all_messages_in_order_when_consumed_in_batches() {
+        QueueChannel output = new QueueChannel();
+        endpoint.setOutputChannel(output);
+        endpoint.afterPropertiesSet();
+
+        for (int i = 0; i < 5; i++) {
+            jmsTemplate.convertAndSend(QUEUE, "pricing-" + i);
+        }
+        endpoint.start();
+
+        for (int i = 0; i < 5; i++) {
+            Message<?> message = output.receive(SECONDS.toMillis(5));
+            assertThat(message.getPayload(), is("pricing-" + i));
+        }
+    }
+
+    @Test
+    public void should_route_only_failing_message_to_error_channel_when_batch_fails() {
+        List<Object> processed = new CopyOnWriteArrayList<>();
+        DirectChannel output = new DirectChannel();
+        output.subscribe(m -> {
+            if ("poison".equals(m.getPayload())) {
+                throw new IllegalStateException("cannot process poison");
+            }
+            processed.add(m.getPayload());
+        });
+        QueueChannel errors = new QueueChannel();
+        endpoint.setOutputChannel(output);
+        endpoint.setErrorChannel(errors);
+        endpoint.afterPropertiesSet();
+
+        jmsTemplate.convertAndSend(QUEUE, "first");
+        jmsTemplate.convertAndSend(QUEUE, "poison");
+        jmsTemplate.convertAndSend(QUEUE, "last");
+        endpoint.start();
+
+        await().atMost(10, SECONDS).until(() -> processed.contains("last"));
+        ErrorMessage error = (ErrorMessage) errors.receive(SECONDS.toMillis(1));
+        assertThat(((MessagingException) error.getPayload()).getFailedMessage().getPayload(), is("poison"));
+        assertThat(errors.receive(0), is(nullValue()));
+        assertThat(processed, hasItems("first", "last"));
+    }
+
+    @Test
+    public void should_pass_pricings_of_rolled_back_batch_again_when_replayed_with_dedup() {
+        PricingDeduplicator deduplicator = new PricingDeduplicator(1000, 0.0001);
+        DeduplicatingPricingSelector selector = new DeduplicatingPricingSelector(deduplicator);
+        List<Object> processed = new CopyOnWriteArrayList<>();
+        DirectChannel output = new DirectChannel();
+        output.subscribe(m -> {
+            if (selector.accept(pricing((String) m.getPayload()))) {
+                if ("poison".equals(m.getPayload())) {
+                    throw new IllegalStateException("cannot process poison");
+                }
+                processed.add(m.getPayload());
+            }
+        });
+        QueueChannel errors = new QueueChannel();
+        endpoint.setOutputChannel(output);
+        endpoint.setErrorChannel(errors);
+        endpoint.afterPropertiesSet();
+
+        jmsTemplate.convertAndSend(QUEUE, "first");
+        jmsTemplate.convertAndSend(QUEUE, "poison");
+        jmsTemplate.convertAndSend(QUEUE, "last");
+        endpoint.start();
+
+        await().atMost(10, SECONDS).until(() -> processed.contains("last"));
+        assertThat(errors.receive(SECONDS.toMillis(1)), is(notNullValue()));
+        assertThat(deduplicator.droppedCount(), is(0L));
+
+        jmsTemplate.convertAndSend(QUEUE, "first");
+
+        await().atMost(2, SECONDS).until(() -> deduplicator.droppedCount() == 1);
+        assertThat(processed, hasItems("first", "last"));
+    }
+
+    @Test
+    public void should_route_single_failing_message_to_error_channel_without_reconnecting() {
+        List<Object> processed = new CopyOnWriteArrayList<>();
+        DirectChannel output = new DirectChannel();
+        output.subscribe(m -> {
+            if ("poison".equals(m.getPayload())) {
+                throw new IllegalStateException("cannot process poison");
+            }
+            processed.add(m.getPayload());
+        });
+        QueueChannel errors = new QueueChannel();
+        endpoint.setOutputChannel(output);
+        endpoint.setErrorChannel(errors);
+        endpoint.afterPropertiesSet();
+        endpoint.start();
+
+        jmsTemplate.convertAndSend(QUEUE, "poison");
+        ErrorMessage error = (ErrorMessage) errors.receive(SECONDS.toMillis(2));
+        jmsTemplate.convertAndSend(QUEUE, "next");
+
+        assertThat(((MessagingException) error.getPayload()).getFailedMessage().getPayload(), is("poison"));
+        await().atMost(2, SECONDS).until(() -> processed.contains("next"));
+        assertThat(errors.receive(0), is(nullValue()));
+    }
+
+    @Test
+    public void should_leave_messages_on_queue_once_stopped() {
+        QueueChannel output = new QueueChannel();
+        endpoint.setOutputChannel(output);
+        endpoint.afterPropertiesSet();
+        endpoint.start();
+        endpoint.stop();
+
+        jmsTemplate.convertAndSend(QUEUE, "after-stop");
+
+        assertThat(output.receive(500), is(nullValue()));
+        jmsTemplate.setReceiveTimeout(SECONDS.toMillis(1));
+        assertThat(jmsTemplate.receiveAndConvert(QUEUE), is("after-stop"));
+    }
+
+    private static Pricing pricing(String instrument) {
+        return aPricing().forInstrument(new InstrumentId(instrument)).forVendor(new VendorId("BATCHV"))
+                .forTicker("AAA.A").withPrice(1, 0).withPriceDateTime(LocalDateTime.of(2019, 1, 24, 10, 15)).build();
+    }
+}
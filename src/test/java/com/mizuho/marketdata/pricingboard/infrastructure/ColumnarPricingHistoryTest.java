@@ -0,0 +1,115 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ColumnarPricingHistoryTest {
+    private static final InstrumentId INSTRUMENT = new InstrumentId("H1");
+    private static final VendorId VENDOR = new VendorId("HV1");
+    private static final LocalDateTime START = LocalDateTime.of(2019, 1, 2, 9, 30, 0, 123456789);
+
+    private final ColumnarPricingHistory history = new ColumnarPricingHistory(4);
+
+    @Test
+    public void should_return_latest_tick_as_of_time_across_blocks() {
+        for (int i = 0; i < 10; i++) {
+            history.append(tick("AAA.A", 100 + i, 2, START.plusSeconds(i)));
+        }
+
+        assertThat(history.asOf(INSTRUMENT, VENDOR, START.plusSeconds(5).plusNanos(500)), is(Optional.of(tick("AAA.A", 105, 2, START.plusSeconds(5)))));
+        assertThat(history.asOf(INSTRUMENT, VENDOR, START.plusSeconds(4)), is(Optional.of(tick("AAA.A", 104, 2, START.plusSeconds(4)))));
+        assertThat(history.asOf(INSTRUMENT, VENDOR, START.plusDays(1)), is(Optional.of(tick("AAA.A", 109, 2, START.plusSeconds(9)))));
+        assertThat(history.asOf(INSTRUMENT, VENDOR, START.minusNanos(1)), is(Optional.empty()));
+        assertThat(history.asOf(INSTRUMENT, new VendorId("HV2"), START), is(Optional.empty()));
+    }
+
+    @Test
+    public void should_scan_range_in_time_order_up_to_limit() {
+        for (int i = 0; i < 10; i++) {
+            history.append(tick("AAA.A", 100 - i * i, 2, START.plus(i * 250, MILLIS)));
+        }
+
+        List<Pricing> range = history.range(INSTRUMENT, VENDOR, START.plus(500, MILLIS), START.plus(2000, MILLIS), 100);
+        assertThat(range.stream().map(Pricing::priceMantissa).collect(toList()), contains(96L, 91L, 84L, 75L, 64L, 51L));
+        assertThat(history.range(INSTRUMENT, VENDOR, START, LocalDateTime.MAX, 3).stream().map(Pricing::priceMantissa).collect(toList()),
+                contains(100L, 99L, 96L));
+        assertThat(history.range(INSTRUMENT, VENDOR, START.plusDays(1), LocalDateTime.MAX, 3), is(empty()));
+    }
+
+    @Test
+    public void should_keep_scale_ticker_and_extreme_prices_of_every_tick() {
+        List<Pricing> ticks = asList(
+                tick("AAA.A", Long.MAX_VALUE, 0, START),
+                tick("AAA.A", Long.MIN_VALUE, 3, START.plusNanos(1)),
+                tick("AAA.B", -5, -2, START.plusSeconds(1)),
+                tick("AAA.A", 0, 3, START.plusSeconds(1).plusNanos(1)),
+                tick(null, 7, 3, START.plusYears(200)));
+        ticks.forEach(history::append);
+
+        assertThat(history.range(INSTRUMENT, VENDOR, LocalDateTime.MIN, LocalDateTime.MAX, 100), is(ticks));
+    }
+
+    @Test
+    public void should_skip_ticks_not_later_than_last_tick_of_series() {
+        history.append(tick("AAA.A", 1, 0, START.plusSeconds(1)));
+        history.append(tick("AAA.A", 2, 0, START));
+        history.append(tick("AAA.A", 4, 0, START.plusSeconds(1)));
+        history.append(aPricing().forInstrument(INSTRUMENT).forVendor(VENDOR).forTicker("AAA.A").withPrice(3, 0).build());
+
+        assertThat(history.range(INSTRUMENT, VENDOR, LocalDateTime.MIN, LocalDateTime.MAX, 100), contains(tick("AAA.A", 1, 0, START.plusSeconds(1))));
+        assertThat(history.appendedCount(), is(1L));
+        assertThat(history.skippedCount(), is(3L));
+    }
+
+    @Test
+    public void should_take_few_bytes_per_evenly_spaced_tick() {
+        ColumnarPricingHistory large = new ColumnarPricingHistory();
+        int ticks = 100_000;
+        for (int i = 0; i < ticks; i++) {
+            large.append(tick("AAA.A", 10_000 + i % 7 - 3, 2, START.plus(i * 100L, MILLIS)));
+        }
+
+        assertThat(large.footprint() / ticks, lessThan(4L));
+        assertThat(large.asOf(INSTRUMENT, VENDOR, START.plus(12_345 * 100L, MILLIS)),
+                is(Optional.of(tick("AAA.A", 10_000 + 12_345 % 7 - 3, 2, START.plus(12_345 * 100L, MILLIS)))));
+    }
+
+    @Test
+    public void should_evict_blocks_older_than_cutoff() {
+        for (int i = 0; i < 10; i++) {
+            history.append(tick("AAA.A", i, 0, START.plusSeconds(i)));
+        }
+
+        history.evictBefore(START.plusSeconds(5));
+
+        assertThat(history.range(INSTRUMENT, VENDOR, LocalDateTime.MIN, LocalDateTime.MAX, 100).stream().map(Pricing::priceMantissa).collect(toList()),
+                contains(4L, 5L, 6L, 7L, 8L, 9L));
+        assertThat(history.evictedCount(), is(4L));
+
+        history.evictBefore(START.plusDays(1));
+
+        assertThat(history.range(INSTRUMENT, VENDOR, LocalDateTime.MIN, LocalDateTime.MAX, 100), is(empty()));
+        assertThat(history.footprint(), is(0L));
+    }
+
+    private static Pricing tick(String ticker, long mantissa, int scale, LocalDateTime priceDateTime) {
+        return aPricing().forInstrument(INSTRUMENT).forVendor(VENDOR).forTicker(ticker).withPrice(mantissa, scale)
+                .withPriceDateTime(priceDateTime).build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ConflatingChannelTest {
+    private ConflatingChannel channel = new ConflatingChannel("test", m -> m.getHeaders().get("key"));
+
+    @Test
+    public void should_release_only_latest_message_per_key() {
+        channel.send(message("K1", 1));
+        channel.send(message("K1", 2));
+        channel.send(message("K1", 3));
+
+        assertThat(channel.receive(0).getPayload(), is(3));
+        assertThat(channel.receive(0), is(nullValue()));
+    }
+
+    @Test
+    public void should_release_keys_in_order_they_became_pending() {
+        channel.send(message("K1", 1));
+        channel.send(message("K2", 2));
+        channel.send(message("K1", 3));
+
+        assertThat(drain(), contains(3, 2));
+    }
+
+    @Test
+    public void should_release_key_again_once_updated_after_release() {
+        channel.send(message("K1", 1));
+        assertThat(drain(), contains(1));
+
+        channel.send(message("K1", 2));
+        assertThat(drain(), contains(2));
+    }
+
+    @Test
+    public void should_report_conflation_metrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        channel.bindTo(registry);
+
+        for (int i = 0; i < 10; i++) {
+            channel.send(message("K" + (i % 2), i));
+        }
+        assertThat(registry.get("pricingboard.conflation.pending").gauge().value(), is(2.0));
+        drain();
+
+        assertThat(registry.get("pricingboard.conflation.received").functionCounter().count(), is(10.0));
+        assertThat(registry.get("pricingboard.conflation.published").functionCounter().count(), is(2.0));
+        assertThat(registry.get("pricingboard.conflation.ratio").gauge().value(), is(5.0));
+        assertThat(registry.get("pricingboard.conflation.pending").gauge().value(), is(0.0));
+    }
+
+    private List<Object> drain() {
+        List<Object> payloads = newArrayList();
+        for (Message<?> message = channel.receive(0); message != null; message = channel.receive(0)) {
+            payloads.add(message.getPayload());
+        }
+        return payloads;
+    }
+
+    private static Message<Integer> message(String key, int payload) {
+        return MessageBuilder.withPayload(payload).setHeader("key", key).build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.EvictablePricingRepository;
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingHistoryRepository;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.inOrder;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HistoryRecordingPricingRepositoryTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2019, 1, 31, 12, 0);
+    private static final Pricing PRICING = aPricing().forInstrument(new InstrumentId("HR1")).forVendor(new VendorId("HRV1"))
+            .forTicker("AAA.A").withPrice(1, 0).withPriceDateTime(NOW).build();
+
+    @Mock
+    private EvictablePricingRepository delegate;
+    @Mock
+    private PricingHistoryRepository history;
+
+    @Test
+    public void should_append_stored_pricing_to_history_after_delegate() {
+        repository().store(PRICING);
+
+        InOrder order = inOrder(delegate, history);
+        order.verify(delegate).store(PRICING);
+        order.verify(history).append(PRICING);
+    }
+
+    @Test
+    public void should_evict_history_older_than_retention_along_with_delegate() {
+        repository().evictEligible();
+
+        InOrder order = inOrder(delegate, history);
+        order.verify(delegate).evictEligible();
+        order.verify(history).evictBefore(NOW.minusDays(7));
+    }
+
+    @Test
+    public void should_record_redelivered_tick_once() {
+        InMemoryPricingRepository latest = new InMemoryPricingRepository();
+        ColumnarPricingHistory columnarHistory = new ColumnarPricingHistory();
+        HistoryRecordingPricingRepository repository =
+                new HistoryRecordingPricingRepository(latest, columnarHistory, Clock.systemUTC(), Duration.ofDays(7));
+
+        repository.store(PRICING);
+        repository.store(PRICING.copy().build());
+
+        assertThat(latest.staleCount(), is(1L));
+        assertThat(columnarHistory.appendedCount(), is(1L));
+        assertThat(columnarHistory.skippedCount(), is(1L));
+        assertThat(columnarHistory.range(PRICING.instrumentId(), PRICING.vendorId(), NOW.minusDays(1), NOW.plusDays(1), 10), hasSize(1));
+    }
+
+    @Test
+    public void should_record_every_tick_accepted_by_delegate_under_concurrent_writers() throws Exception {
+        int writers = 4;
+        int storesPerWriter = 20_000;
+        InMemoryPricingRepository latest = new InMemoryPricingRepository();
+        ColumnarPricingHistory columnarHistory = new ColumnarPricingHistory();
+        HistoryRecordingPricingRepository repository =
+                new HistoryRecordingPricingRepository(latest, columnarHistory, Clock.systemUTC(), Duration.ofDays(7));
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = newArrayList();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < storesPerWriter; i++) {
+                    repository.store(PRICING.copy().withPriceDateTime(NOW.plusNanos((long) i * writers + writer)).build());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(columnarHistory.appendedCount(), is(writers * storesPerWriter - latest.staleCount()));
+        assertThat(columnarHistory.skippedCount(), is(latest.staleCount()));
+    }
+
+    private HistoryRecordingPricingRepository repository() {
+        Clock clock = Clock.fixed(Instant.from(NOW.atOffset(ZoneOffset.UTC)), ZoneOffset.UTC);
+        return new HistoryRecordingPricingRepository(delegate, history, clock, Duration.ofDays(7));
+    }
+}
@@ -1,79 +1,386 @@
 package com.mizuho.marketdata.pricingboard.infrastructure;
 
-import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
-import com.mizuho.marketdata.pricingboard.pricing.Pricing;
-import com.mizuho.marketdata.pricingboard.pricing.PricingId;
-import com.mizuho.marketdata.pricingboard.pricing.VendorId;
-import org.junit.Before;
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.Collection;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
 import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
-import static java.math.BigDecimal.TEN;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
+public class InMemoryPricingRepositoryTest extends PricingRepositoryContractTest {
+    private static final LocalDateTime PRICE_DATE_TIME = LocalDateTime.of(2019, 1, 24, 10, 15, 30);
+    private static final Pricing PRICING = aPricing().withId(new PricingId("ttl-1"))
+            .forInstrument(new InstrumentId("TTL1")).forVendor(new VendorId("TTLV1")).forTicker("AAA.A")
+            .withPrice(BigDecimal.TEN).withPriceDateTime(PRICE_DATE_TIME).build();
 
-public class InMemoryPricingRepositoryTest {
+    @Override
+    protected EvictablePricingRepository createRepository() {
+        return new InMemoryPricingRepository();
+    }
+
+    @Test
+    public void should_evict_pricing_once_clock_passes_time_to_live() {
+        MutableClock clock = new MutableClock(PRICE_DATE_TIME.toInstant(ZoneOffset.UTC));
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(clock, Duration.ofHours(1));
+        repository.store(PRICING);
+
+        clock.advance(Duration.ofMinutes(30));
+        repository.evictEligible();
+        assertThat(repository.allByInstrument(new InstrumentId("TTL1")), contains(PRICING));
+
+        clock.advance(Duration.ofMinutes(32));
+        repository.evictEligible();
+        assertThat(repository.allByInstrument(new InstrumentId("TTL1")), empty());
+        assertThat(repository.allByVendor(new VendorId("TTLV1")), empty());
+    }
+
+    @Test
+    public void should_not_evict_pricing_superseded_by_later_one() {
+        MutableClock clock = new MutableClock(PRICE_DATE_TIME.toInstant(ZoneOffset.UTC));
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(clock, Duration.ofHours(1));
+        Pricing latest = PRICING.copy().withId(new PricingId("ttl-2")).withPriceDateTime(PRICE_DATE_TIME.plusHours(1)).build();
+        repository.store(PRICING);
+        repository.store(latest);
+
+        clock.advance(Duration.ofMinutes(90));
+        repository.evictEligible();
+
+        assertThat(repository.allByInstrument(new InstrumentId("TTL1")), contains(latest));
+    }
+
+    @Test
+    public void should_report_resident_and_evicted_pricings() {
+        MutableClock clock = new MutableClock(Instant.EPOCH);
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(clock, Duration.ofHours(1));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        repository.bindTo(registry);
+        repository.store(PRICING);
+        repository.store(PRICING.copy().forVendor(new VendorId("TTLV2")).withPriceDateTime(LocalDateTime.of(2100, 1, 1, 0, 0)).build());
+        clock.advance(Duration.between(Instant.EPOCH, PRICE_DATE_TIME.plusHours(2).toInstant(ZoneOffset.UTC)));
+
+        repository.evictEligible();
+
+        assertThat(registry.get("pricingboard.repository.evicted").tag("cause", "expired").functionCounter().count(), is(1.0));
+        assertThat(registry.get("pricingboard.repository.resident").gauge().value(), is(1.0));
+    }
+
+    @Test
+    public void should_tell_eviction_listeners_about_expired_and_size_evicted_pricings() {
+        MutableClock clock = new MutableClock(PRICE_DATE_TIME.toInstant(ZoneOffset.UTC));
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(clock, Duration.ofHours(1), 1, 0);
+        List<Pricing> evicted = new ArrayList<>();
+        repository.addEvictionListener(evicted::add);
+        Pricing later = PRICING.copy().forInstrument(new InstrumentId("TTL2")).withPriceDateTime(PRICE_DATE_TIME.plusHours(2)).build();
+        repository.store(PRICING);
+        repository.store(PRICING.copy().withPriceDateTime(PRICE_DATE_TIME.plusSeconds(1)).build());
+        repository.store(later);
+
+        clock.advance(Duration.ofHours(4));
+        repository.evictEligible();
+
+        assertThat(evicted, contains(PRICING.copy().withPriceDateTime(PRICE_DATE_TIME.plusSeconds(1)).build(), later));
+    }
+
+    @Test
+    public void should_drop_least_recently_stored_entries_from_all_indices_beyond_maximum_entries() {
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(Clock.systemUTC(), Duration.ofDays(30), 2, 0);
+        Pricing second = PRICING.copy().forInstrument(new InstrumentId("TTL2")).build();
+        Pricing third = PRICING.copy().forInstrument(new InstrumentId("TTL3")).build();
+        repository.store(PRICING);
+        repository.store(second);
+        repository.store(third);
+
+        assertThat(repository.allByInstrument(new InstrumentId("TTL1")), empty());
+        assertThat(repository.allByVendor(new VendorId("TTLV1")), containsInAnyOrder(second, third));
+        assertThat(repository.residentCount(), is(2L));
+        assertThat(repository.evictedForSizeCount(), is(1L));
+    }
+
+    @Test
+    public void should_keep_estimated_footprint_within_maximum_bytes() {
+        long maximumBytes = 10 * InMemoryPricingRepository.estimatedFootprint(PRICING);
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(Clock.systemUTC(), Duration.ofDays(30), 0, maximumBytes);
+        for (int i = 0; i < 100; i++) {
+            repository.store(PRICING.copy().forInstrument(new InstrumentId("FOOTPRINT" + i)).build());
+        }
+
+        assertThat(repository.footprint(), lessThanOrEqualTo(maximumBytes));
+        assertThat(repository.residentCount() + repository.evictedForSizeCount(), is(100L));
+        assertThat(repository.allByInstrument(new InstrumentId("FOOTPRINT99")), hasSize(1));
+    }
+
+    @Test
+    public void should_release_instrument_state_of_dropped_pricings_when_flooded_with_instruments() {
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(Clock.systemUTC(), Duration.ofDays(30), 100, 0);
+        for (int i = 0; i < 10_000; i++) {
+            repository.store(PRICING.copy().forInstrument(new InstrumentId("FLOOD" + i)).build());
+        }
+
+        assertThat(repository.residentCount(), lessThanOrEqualTo(100L));
+        assertThat(repository.retainedInstrumentCount(), is((int) repository.residentCount()));
+        assertThat(repository.retainedCompositeCount(), is((int) repository.residentCount()));
+        assertThat(repository.compositeByInstrument(new InstrumentId("FLOOD0")).isPresent(), is(false));
+        assertThat(repository.allByInstrument(new InstrumentId("FLOOD9999")), hasSize(1));
+    }
 
-    private static final LocalDateTime NOW = LocalDateTime.now();
-    private static final List<Pricing> PRICINGS_LIST = newArrayList(
-            aPricing().withId(new PricingId("1")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V1")).forTicker("AAA.A").withPrice(TEN).withPriceDateTime(NOW).build(),
-            aPricing().withId(new PricingId("2")).forInstrument(new InstrumentId("I2")).forVendor(new VendorId("V2")).forTicker("BBB.B").withPrice(TEN).withPriceDateTime(NOW).build(),
-            aPricing().withId(new PricingId("3")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V2")).forTicker("CCC.C").withPrice(TEN).withPriceDateTime(NOW).build(),
-            aPricing().withId(new PricingId("4")).forInstrument(new InstrumentId("I2")).forVendor(new VendorId("V1")).forTicker("DDD.D").withPrice(TEN).withPriceDateTime(NOW).build());
+    @Test
+    public void should_never_reuse_versions_of_released_instrument_view() {
+        MutableClock clock = new MutableClock(PRICE_DATE_TIME.toInstant(ZoneOffset.UTC));
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(clock, Duration.ofHours(1));
+        repository.store(PRICING);
+        long stored = repository.instrumentVersion(new InstrumentId("TTL1"));
 
+        clock.advance(Duration.ofHours(2));
+        repository.evictEligible();
+        assertThat(repository.retainedInstrumentCount(), is(0));
+        assertThat(repository.retainedCompositeCount(), is(0));
+        assertThat(repository.instrumentVersion(new InstrumentId("TTL1")), is(0L));
 
-    private static final List<Pricing> PRICINGS_LIST_OUTDATED = newArrayList(
-            aPricing().withId(new PricingId("5")).forInstrument(new InstrumentId("I3")).forVendor(new VendorId("V3")).forTicker("AAA.A").withPrice(TEN).withPriceDateTime(NOW).build(),
-            aPricing().withId(new PricingId("6")).forInstrument(new InstrumentId("I3")).forVendor(new VendorId("V4")).forTicker("BBB.B")
-                    .withPrice(TEN).withPriceDateTime(NOW.minusDays(35)).build(),
-            aPricing().withId(new PricingId("7")).forInstrument(new InstrumentId("I3")).forVendor(new VendorId("V5")).forTicker("DDD.D")
-                    .withPrice(TEN).withPriceDateTime(NOW.minusDays(31)).build());
+        repository.store(PRICING.copy().withPriceDateTime(PRICE_DATE_TIME.plusHours(2)).build());
+        assertThat(repository.instrumentVersion(new InstrumentId("TTL1")), is(greaterThan(stored)));
+    }
 
-    private InMemoryPricingRepository inMemoryPricingRepository = new InMemoryPricingRepository();
+    @Test
+    public void should_not_lose_pricings_stored_while_instruments_are_released_by_concurrent_evictions() throws Exception {
+        int writers = 8;
+        int instruments = 32;
+        int vendors = 4;
+        int storesPerWriter = 20_000;
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(Clock.systemUTC(), Duration.ofDays(30), 16, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = newArrayList();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(writer);
+                start.await();
+                for (int i = 0; i < storesPerWriter; i++) {
+                    repository.store(PRICING.copy().withId(new PricingId(writer + "-" + i))
+                            .forInstrument(new InstrumentId("RELEASE" + random.nextInt(instruments)))
+                            .forVendor(new VendorId("RELEASEV" + random.nextInt(vendors)))
+                            .withPriceDateTime(PRICE_DATE_TIME.plusNanos((long) i * writers + writer)).build());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
 
-    @Before
-    public void store_pricing_list(){
-            PRICINGS_LIST.stream().forEach(i -> inMemoryPricingRepository.store(i));
+        Set<Pricing> byInstrument = newHashSet();
+        int composited = 0;
+        for (int i = 0; i < instruments; i++) {
+            InstrumentId instrumentId = new InstrumentId("RELEASE" + i);
+            byInstrument.addAll(repository.allByInstrument(instrumentId));
+            composited += repository.compositeByInstrument(instrumentId).map(CompositePricing::vendorCount).orElse(0);
+        }
+        Set<Pricing> byVendor = newHashSet();
+        for (int v = 0; v < vendors; v++) {
+            byVendor.addAll(repository.allByVendor(new VendorId("RELEASEV" + v)));
+        }
+        assertThat(byVendor, is(byInstrument));
+        assertThat(byInstrument, hasSize((int) repository.residentCount()));
+        assertThat(composited, is(byInstrument.size()));
+        assertThat(repository.retainedInstrumentCount(), lessThanOrEqualTo(16));
+        assertThat(repository.retainedCompositeCount(), lessThanOrEqualTo(16));
     }
 
     @Test
-    public void should_return_vendor_pricings_by_instrument(){
+    public void should_count_lookup_hits_and_misses() {
+        InMemoryPricingRepository repository = new InMemoryPricingRepository();
+        repository.store(PRICING);
 
-        Collection<Pricing> vendorPricings = inMemoryPricingRepository.allByInstrument(new InstrumentId("I1"));
-        assertThat(vendorPricings, hasSize(2));
-        assertThat(vendorPricings.stream().collect(Collectors.toList()),
-                containsInAnyOrder(
-                        aPricing().withId(new PricingId("1")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V1")).forTicker("AAA.A").withPrice(TEN).withPriceDateTime(NOW).build(),
-                        aPricing().withId(new PricingId("3")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V2")).forTicker("CCC.C").withPrice(TEN).withPriceDateTime(NOW).build()));
+        repository.allByInstrument(new InstrumentId("TTL1"));
+        repository.allByVendor(new VendorId("TTLV1"));
+        repository.allByInstrument(new InstrumentId("unknown-instrument"));
+
+        assertThat(repository.hitCount(), is(2L));
+        assertThat(repository.missCount(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_both_entry_and_byte_bounds() {
+        new InMemoryPricingRepository(Clock.systemUTC(), Duration.ofDays(30), 10, 1024);
     }
 
     @Test
-    public void should_return_instrument_pricing_timeline_by_vendor() {
-        Collection<Pricing> instrumentPricings = inMemoryPricingRepository.allByVendor(new VendorId("V2"));
-        assertThat(instrumentPricings, hasSize(2));
-        assertThat(instrumentPricings.stream().collect(Collectors.toList()),
-                containsInAnyOrder(
-                        aPricing().withId(new PricingId("2")).forInstrument(new InstrumentId("I2")).forVendor(new VendorId("V2")).forTicker("BBB.B").withPrice(TEN).withPriceDateTime(NOW).build(),
-                        aPricing().withId(new PricingId("3")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V2")).forTicker("CCC.C").withPrice(TEN).withPriceDateTime(NOW).build()));
+    public void should_keep_indices_consistent_and_latest_under_concurrent_writers() throws Exception {
+        int writers = 8;
+        int instruments = 32;
+        int vendors = 4;
+        int storesPerWriter = 20_000;
+        InMemoryPricingRepository repository = new InMemoryPricingRepository();
+        Map<String, LocalDateTime> latestBySlot = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = newArrayList();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(writer);
+                start.await();
+                for (int i = 0; i < storesPerWriter; i++) {
+                    String instrument = "STRESS" + random.nextInt(instruments);
+                    String vendor = "STRESSV" + random.nextInt(vendors);
+                    LocalDateTime priceDateTime = PRICE_DATE_TIME.plusNanos((long) random.nextInt(1_000_000) * writers + writer);
+                    repository.store(PRICING.copy().withId(new PricingId(writer + "-" + i))
+                            .forInstrument(new InstrumentId(instrument)).forVendor(new VendorId(vendor))
+                            .withPriceDateTime(priceDateTime).build());
+                    latestBySlot.merge(instrument + "/" + vendor, priceDateTime, (a, b) -> a.isAfter(b) ? a : b);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
 
+        Set<Pricing> byInstrument = newHashSet();
+        for (int i = 0; i < instruments; i++) {
+            byInstrument.addAll(repository.allByInstrument(new InstrumentId("STRESS" + i)));
+        }
+        Set<Pricing> byVendor = newHashSet();
+        for (int v = 0; v < vendors; v++) {
+            byVendor.addAll(repository.allByVendor(new VendorId("STRESSV" + v)));
+        }
+        assertThat(byVendor, is(byInstrument));
+        assertThat(byInstrument, hasSize(latestBySlot.size()));
+        assertThat(repository.residentCount(), is((long) latestBySlot.size()));
+        for (Pricing pricing : byInstrument) {
+            assertThat(pricing.priceDateTime(), is(latestBySlot.get(pricing.instrumentId().value() + "/" + pricing.vendorId().value())));
+        }
     }
+
     @Test
-    public void should_evict_outdated_pricing_from_memory(){
+    public void should_keep_indices_and_counts_right_when_evictions_race_with_writers() throws Exception {
+        int writers = 4;
+        int instruments = 8;
+        int storesPerWriter = 20_000;
+        MutableClock clock = new MutableClock(PRICE_DATE_TIME.plusDays(1).toInstant(ZoneOffset.UTC));
+        InMemoryPricingRepository repository = new InMemoryPricingRepository(clock, Duration.ofHours(1));
+        AtomicLong notified = new AtomicLong();
+        repository.addEvictionListener(pricing -> notified.incrementAndGet());
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = newArrayList();
+        for (int w = 0; w < writers; w++) {
+            VendorId vendor = new VendorId("RACEV" + w);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < storesPerWriter; i++) {
+                    repository.store(PRICING.copy().withId(new PricingId(vendor.value() + "-" + i))
+                            .forInstrument(new InstrumentId("RACE" + i % instruments)).forVendor(vendor).forTicker("RACE.T" + i % 3)
+                            .withPriceDateTime(PRICE_DATE_TIME.plusNanos(i)).build());
+                }
+                return null;
+            }));
+        }
+        while (!futures.stream().allMatch(Future::isDone)) {
+            repository.evictEligible();
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        repository.evictEligible();
+
+        assertThat(repository.residentCount(), is(0L));
+        assertThat(repository.footprint(), is(0L));
+        assertThat(repository.retainedInstrumentCount(), is(0));
+        assertThat(repository.retainedCompositeCount(), is(0));
+        assertThat(repository.byTickerPrefix("RACE.T", 100), empty());
+        assertThat(notified.get(), is(repository.expiredCount()));
+    }
 
-        PRICINGS_LIST_OUTDATED.stream().forEach(i -> inMemoryPricingRepository.store(i));
-        assertThat(inMemoryPricingRepository.allByInstrument(new InstrumentId("I3")), hasSize(3));
-        inMemoryPricingRepository.evictEligible();
-        System.out.println(inMemoryPricingRepository.allByInstrument(new InstrumentId("I3")));
-        assertThat(inMemoryPricingRepository.allByInstrument(new InstrumentId("I3")), hasSize(1));
+    @Test
+    public void should_never_show_a_pricing_older_than_the_other_index_showed_before() throws Exception {
+        int writers = 4;
+        int instruments = 16;
+        int storesPerWriter = 50_000;
+        InMemoryPricingRepository repository = new InMemoryPricingRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = newArrayList();
+        for (int w = 0; w < writers; w++) {
+            VendorId vendor = new VendorId("AGREEV" + w);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < storesPerWriter; i++) {
+                    repository.store(PRICING.copy().withId(new PricingId(vendor.value() + "-" + i))
+                            .forInstrument(new InstrumentId("AGREE" + i % instruments)).forVendor(vendor)
+                            .withPriceDateTime(PRICE_DATE_TIME.plusNanos(i)).build());
+                }
+                return null;
+            }));
+        }
+        Random random = new Random(0);
+        int reads = 0;
+        while (!futures.stream().allMatch(Future::isDone) || reads == 0) {
+            InstrumentId instrument = new InstrumentId("AGREE" + random.nextInt(instruments));
+            VendorId vendor = new VendorId("AGREEV" + random.nextInt(writers));
+            if (reads++ % 2 == 0) {
+                LocalDateTime first = priceDateTime(repository.viewByInstrument(instrument).get(vendor.knownHandle()));
+                LocalDateTime then = priceDateTime(repository.viewByVendor(vendor).get(instrument.knownHandle()));
+                assertThat(then.isBefore(first), is(false));
+            } else {
+                LocalDateTime first = priceDateTime(repository.viewByVendor(vendor).get(instrument.knownHandle()));
+                LocalDateTime then = priceDateTime(repository.viewByInstrument(instrument).get(vendor.knownHandle()));
+                assertThat(then.isBefore(first), is(false));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
 
+    private static LocalDateTime priceDateTime(Pricing pricing) {
+        return pricing == null ? LocalDateTime.MIN : pricing.priceDateTime();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void should_hand_out_snapshots_unaffected_by_later_stores() {
+        InMemoryPricingRepository repository = new InMemoryPricingRepository();
+        repository.store(PRICING);
+        PricingView before = repository.viewByInstrument(new InstrumentId("TTL1"));
+
+        Pricing later = PRICING.copy().withId(new PricingId("ttl-3")).withPriceDateTime(PRICE_DATE_TIME.plusSeconds(1)).build();
+        repository.store(later);
+        PricingView after = repository.viewByInstrument(new InstrumentId("TTL1"));
+
+        assertThat(before.pricings(), contains(PRICING));
+        assertThat(after.pricings(), contains(later));
+        assertThat(after.version(), is(greaterThan(before.version())));
+        assertThat(repository.viewByInstrument(new InstrumentId("TTL1")).version(), is(after.version()));
+    }
+}
@@ -0,0 +1,189 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class JournalingPricingRepositoryTest {
+    private static final LocalDateTime PRICE_DATE_TIME = LocalDateTime.now().withNano(123456789);
+    private static final Pricing FIRST = aPricing().withId(new PricingId("journal-1"))
+            .forInstrument(new InstrumentId("J1")).forVendor(new VendorId("JV1")).forTicker("AAA.A")
+            .withPrice(new BigDecimal("101.25")).withPriceDateTime(PRICE_DATE_TIME).build();
+    private static final Pricing SECOND = aPricing().withId(new PricingId("journal-2"))
+            .forInstrument(new InstrumentId("J2")).forVendor(new VendorId("JV1")).forTicker("BBB.B")
+            .withPrice(BigDecimal.TEN).withPriceDateTime(PRICE_DATE_TIME).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<JournalingPricingRepository> repositories = newArrayList();
+
+    @After
+    public void destroy_repositories() {
+        repositories.forEach(JournalingPricingRepository::destroy);
+    }
+
+    @Test
+    public void should_recover_latest_pricings_after_restart() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        JournalingPricingRepository repository = openRepository(directory);
+        Pricing latest = FIRST.copy().withId(new PricingId("journal-3")).withPrice(BigDecimal.ONE)
+                .withPriceDateTime(PRICE_DATE_TIME.plusSeconds(1)).build();
+        repository.store(FIRST);
+        repository.store(SECOND);
+        repository.store(latest);
+        repository.destroy();
+
+        JournalingPricingRepository recovered = openRepository(directory);
+
+        assertThat(recovered.allByVendor(new VendorId("JV1")), containsInAnyOrder(latest, SECOND));
+        assertThat(recovered.allByInstrument(new InstrumentId("J1")), contains(latest));
+    }
+
+    @Test
+    public void should_recover_pricings_stored_as_batch_in_their_order() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        JournalingPricingRepository repository = openRepository(directory);
+        Pricing latest = FIRST.copy().withId(new PricingId("journal-4")).withPrice(BigDecimal.ONE)
+                .withPriceDateTime(PRICE_DATE_TIME.plusSeconds(1)).build();
+        repository.storeAll(newArrayList(FIRST, SECOND, latest));
+        repository.destroy();
+
+        JournalingPricingRepository recovered = openRepository(directory);
+
+        assertThat(recovered.allByVendor(new VendorId("JV1")), containsInAnyOrder(latest, SECOND));
+        assertThat(recovered.allByInstrument(new InstrumentId("J1")), contains(latest));
+    }
+
+    @Test
+    public void should_recover_from_snapshot_and_journal_written_since() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        JournalingPricingRepository repository = openRepository(directory);
+        repository.store(FIRST);
+        repository.snapshot();
+        repository.store(SECOND);
+        repository.destroy();
+
+        assertThat(segmentSequences(directory), everyItem(greaterThanOrEqualTo(snapshotSequence(directory))));
+
+        JournalingPricingRepository recovered = openRepository(directory);
+
+        assertThat(recovered.allByVendor(new VendorId("JV1")), containsInAnyOrder(FIRST, SECOND));
+    }
+
+    @Test
+    public void should_stop_replay_at_torn_record() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        JournalingPricingRepository repository = openRepository(directory);
+        repository.store(FIRST);
+        repository.store(SECOND);
+        repository.destroy();
+        tearSecondRecord(directory.resolve(String.format("journal-%020d.log", 0)));
+
+        JournalingPricingRepository recovered = openRepository(directory);
+
+        assertThat(recovered.allByVendor(new VendorId("JV1")), contains(FIRST));
+        assertThat(recovered.allByInstrument(new InstrumentId("J2")), empty());
+    }
+
+    @Test
+    public void should_prepare_next_segment_in_background() {
+        Path directory = folder.getRoot().toPath();
+        openRepository(directory);
+
+        await().atMost(5, SECONDS).until(() -> segmentSequences(directory), containsInAnyOrder(0L, 1L));
+    }
+
+    @Test
+    public void should_recover_pricings_stored_concurrently_across_segments() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        JournalingPricingRepository repository = openRepository(directory, 1024, FsyncPolicy.PERIODIC);
+        int threads = 4;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = newArrayList();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String id = "concurrent-" + thread + "-" + i;
+                    repository.store(SECOND.copy().withId(new PricingId(id)).forInstrument(new InstrumentId(id)).build());
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        repository.destroy();
+
+        JournalingPricingRepository recovered = openRepository(directory);
+
+        assertThat(recovered.allByVendor(new VendorId("JV1")), hasSize(threads * perThread));
+        assertThat(segmentSequences(directory).size(), greaterThan(10));
+    }
+
+    private JournalingPricingRepository openRepository(Path directory) {
+        return openRepository(directory, 1024 * 1024, FsyncPolicy.EVERY_WRITE);
+    }
+
+    private JournalingPricingRepository openRepository(Path directory, int segmentSize, FsyncPolicy fsyncPolicy) {
+        JournalingPricingRepository repository = new JournalingPricingRepository(new InMemoryPricingRepository(), directory,
+                segmentSize, fsyncPolicy, 10, 0);
+        repositories.add(repository);
+        return repository;
+    }
+
+    private static void tearSecondRecord(Path segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int firstLength = file.readInt();
+            file.seek(4 + firstLength);
+            file.writeInt(0);
+        }
+    }
+
+    private static long snapshotSequence(Path directory) throws IOException {
+        return sequences(directory, "snapshot-").get(0);
+    }
+
+    private static List<Long> segmentSequences(Path directory) throws IOException {
+        return sequences(directory, "journal-");
+    }
+
+    private static List<Long> sequences(Path directory, String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith(prefix))
+                    .map(n -> Long.parseLong(n.substring(prefix.length(), n.indexOf('.'))))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.*;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class OffHeapPricingRepositoryTest extends PricingRepositoryContractTest {
+    private static final Pricing PRICING = aPricing().withId(new PricingId("off-heap-1"))
+            .forInstrument(new InstrumentId("OH1")).forVendor(new VendorId("V1")).forTicker("AAA.A")
+            .withPrice(new BigDecimal("101.2500")).withPriceDateTime(LocalDateTime.of(2019, 1, 24, 10, 15, 30, 123456789)).build();
+
+    @Override
+    protected EvictablePricingRepository createRepository() {
+        return new OffHeapPricingRepository();
+    }
+
+    @Test
+    public void should_materialise_identical_pricing_from_slot() {
+        OffHeapPricingRepository repository = new OffHeapPricingRepository();
+        repository.store(PRICING);
+
+        assertThat(repository.allByInstrument(new InstrumentId("OH1")), contains(PRICING));
+    }
+
+    @Test
+    public void should_overwrite_slot_with_latest_pricing() {
+        OffHeapPricingRepository repository = new OffHeapPricingRepository();
+        Pricing latest = PRICING.copy().withId(new PricingId("off-heap-2")).forTicker("\u00c5\u00c4\u00d6").withPrice(BigDecimal.ONE)
+                .withPriceDateTime(PRICING.priceDateTime().plusNanos(1)).build();
+        repository.store(PRICING);
+        repository.store(latest);
+
+        assertThat(repository.allByVendor(new VendorId("V1")), contains(latest));
+    }
+
+    @Test
+    public void should_return_nothing_for_unknown_ids() {
+        OffHeapPricingRepository repository = new OffHeapPricingRepository();
+        repository.store(PRICING);
+
+        assertThat(repository.allByInstrument(new InstrumentId("unknown-instrument")), empty());
+        assertThat(repository.allByVendor(new VendorId("unknown-vendor")), empty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_ticker_exceeding_slot_capacity() {
+        new OffHeapPricingRepository(64, 40, 4).store(PRICING);
+    }
+
+    @Test
+    public void should_leave_slot_and_ticker_index_untouched_when_refusing_pricing() {
+        OffHeapPricingRepository repository = new OffHeapPricingRepository(64, 40, 8);
+        Pricing unrelated = PRICING.copy().forInstrument(new InstrumentId("OH2")).forTicker("LONG.TICKER.NAME").build();
+        repository.store(PRICING);
+
+        storeRefused(repository, PRICING.copy().withId(new PricingId("off-heap-3")).forTicker("LONG.TICKER.NAME")
+                .withPriceDateTime(PRICING.priceDateTime().plusSeconds(1)).build());
+        storeRefused(repository, unrelated);
+        storeRefused(repository, PRICING.copy().withId(new PricingId("an-id-well-beyond-the-capacity-of-forty-bytes"))
+                .withPriceDateTime(PRICING.priceDateTime().plusSeconds(1)).build());
+
+        assertThat(repository.allByInstrument(new InstrumentId("OH1")), contains(PRICING));
+        assertThat(repository.byTicker("AAA.A", 10), contains(PRICING));
+        assertThat(repository.byTickerPrefix("LONG", 10), empty());
+        assertThat(repository.allByInstrument(new InstrumentId("OH2")), empty());
+        assertThat(repository.residentCount(), is(1L));
+    }
+
+    @Test
+    public void should_evict_pricing_once_clock_passes_time_to_live() {
+        MutableClock clock = new MutableClock(PRICING.priceDateTime().toInstant(ZoneOffset.UTC));
+        OffHeapPricingRepository repository = new OffHeapPricingRepository(64, 40, 24, clock, Duration.ofHours(1));
+        List<Pricing> evicted = new ArrayList<>();
+        repository.addEvictionListener(evicted::add);
+        repository.store(PRICING);
+
+        clock.advance(Duration.ofMinutes(59));
+        repository.evictEligible();
+        assertThat(repository.allByInstrument(new InstrumentId("OH1")), contains(PRICING));
+        assertThat(repository.residentCount(), is(1L));
+
+        clock.advance(Duration.ofMinutes(2));
+        repository.evictEligible();
+        assertThat(repository.allByInstrument(new InstrumentId("OH1")), empty());
+        assertThat(repository.residentCount(), is(0L));
+        assertThat(repository.evictedCount(), is(1L));
+        assertThat(evicted, contains(PRICING));
+    }
+
+    private static void storeRefused(OffHeapPricingRepository repository, Pricing pricing) {
+        try {
+            repository.store(pricing);
+            fail("expected " + pricing + " to be refused");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("exceeds the slot capacity"));
+        }
+    }
+}
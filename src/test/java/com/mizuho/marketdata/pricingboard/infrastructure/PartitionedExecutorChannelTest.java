@@ -0,0 +1,166 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class PartitionedExecutorChannelTest {
+    private PartitionedExecutorChannel channel = new PartitionedExecutorChannel("test", 4, 16, m -> m.getHeaders().get("key"));
+
+    @Before
+    public void startChannel() {
+        channel.start();
+    }
+
+    @After
+    public void stopChannel() {
+        channel.destroy();
+    }
+
+    @Test
+    public void should_preserve_order_of_messages_sharing_a_key() {
+        Map<Object, List<Object>> received = new ConcurrentHashMap<>();
+        channel.subscribe(m -> received.computeIfAbsent(m.getHeaders().get("key"), k -> new CopyOnWriteArrayList<>()).add(m.getPayload()));
+
+        for (int i = 0; i < 100; i++) {
+            channel.send(MessageBuilder.withPayload(i).setHeader("key", "K" + (i % 7)).build());
+        }
+
+        await().atMost(5, SECONDS).until(() -> received.values().stream().mapToInt(List::size).sum() == 100);
+        received.forEach((key, payloads) -> assertThat(payloads, is(sortedCopyOf(payloads))));
+    }
+
+    @Test
+    public void should_route_messages_sharing_a_key_to_the_same_partition() {
+        Message<String> first = MessageBuilder.withPayload("1").setHeader("key", "I1").build();
+        Message<String> second = MessageBuilder.withPayload("2").setHeader("key", "I1").build();
+
+        assertThat(channel.partitionOf(first), is(channel.partitionOf(second)));
+    }
+
+    @Test
+    public void should_publish_processing_failures_to_error_channel() {
+        QueueChannel errors = new QueueChannel();
+        channel.setErrorChannel(errors);
+        channel.subscribe(m -> {
+            throw new IllegalStateException("failure");
+        });
+
+        channel.send(MessageBuilder.withPayload("payload").setHeader("key", "I1").build());
+
+        ErrorMessage error = (ErrorMessage) errors.receive(SECONDS.toMillis(5));
+        assertThat(((MessagingException) error.getPayload()).getFailedMessage().getPayload(), is("payload"));
+    }
+
+    @Test
+    public void should_expose_lag_gauge_per_partition() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        channel.bindTo(registry);
+
+        assertThat(registry.find("pricingboard.ingest.partition.lag").gauges(), hasSize(channel.partitionCount()));
+        assertThat(registry.get("pricingboard.ingest.partition.lag").tag("partition", "0").gauge().value(), is(0.0));
+    }
+
+    @Test
+    public void should_process_queued_messages_before_stopping() {
+        List<Object> received = new CopyOnWriteArrayList<>();
+        channel.subscribe(m -> {
+            sleep(5);
+            received.add(m.getPayload());
+        });
+        for (int i = 0; i < 16; i++) {
+            channel.send(MessageBuilder.withPayload(i).setHeader("key", "I1").build());
+        }
+
+        channel.stop();
+
+        assertThat(received, hasSize(16));
+        assertThat(channel.isRunning(), is(false));
+    }
+
+    @Test(expected = MessageDeliveryException.class)
+    public void should_reject_sends_once_stopped() {
+        channel.subscribe(m -> {
+        });
+        channel.stop();
+
+        channel.send(MessageBuilder.withPayload("payload").setHeader("key", "I1").build());
+    }
+
+    @Test
+    public void should_release_sender_blocked_on_full_queue_when_stopping() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PartitionedExecutorChannel single = new PartitionedExecutorChannel("single", 1, 1, m -> "key");
+        single.setDrainTimeout(Duration.ofMillis(200));
+        single.subscribe(m -> awaitQuietly(release));
+        single.start();
+        single.send(MessageBuilder.withPayload(1).build());
+        single.send(MessageBuilder.withPayload(2).build());
+        List<Exception> rejections = new CopyOnWriteArrayList<>();
+        Thread sender = new Thread(() -> {
+            try {
+                single.send(MessageBuilder.withPayload(3).build());
+            } catch (MessageDeliveryException e) {
+                rejections.add(e);
+            }
+        });
+
+        sender.start();
+        single.stop();
+        sender.join(SECONDS.toMillis(5));
+        release.countDown();
+
+        assertThat(sender.isAlive(), is(false));
+        assertThat(rejections, hasSize(1));
+        assertThat(single.isRunning(), is(false));
+    }
+
+    @Test
+    public void should_not_start_partitions_before_start() {
+        PartitionedExecutorChannel idle = new PartitionedExecutorChannel("idle", 2, 16, m -> "key");
+
+        assertThat(idle.isRunning(), is(false));
+        assertThat(Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().startsWith("idle-")), is(false));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Object> sortedCopyOf(List<Object> payloads) {
+        List<Object> sorted = new CopyOnWriteArrayList<>(payloads);
+        sorted.sort((a, b) -> Integer.compare((Integer) a, (Integer) b));
+        return sorted;
+    }
+}
@@ -0,0 +1,87 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingId;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the average time {@link PricingJournal#append} adds to a store, with one thread and with as many threads as
+ * the ingest partitions would use, across segment switches and with periodic flushing. Run manually, e.g. from the IDE,
+ * it is not part of the test suite.
+ */
+public class PricingJournalBenchmark {
+    private static final int APPENDS_PER_THREAD = 1_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int[] THREADS = {1, 4};
+
+    public static void main(String[] args) throws Exception {
+        Pricing[] pricings = new Pricing[1024];
+        for (int i = 0; i < pricings.length; i++) {
+            pricings[i] = aPricing().withId(new PricingId("benchmark-" + i)).forInstrument(new InstrumentId("INSTRUMENT-" + i))
+                    .forVendor(new VendorId("VENDOR")).forTicker("TICKER" + i).withPrice(new BigDecimal("101.25"))
+                    .withPriceDateTime(LocalDateTime.now()).build();
+        }
+        for (int threads : THREADS) {
+            run(pricings, threads);
+        }
+    }
+
+    private static void run(Pricing[] pricings, int threads) throws Exception {
+        Path directory = Files.createTempDirectory("journal-benchmark");
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        PricingJournal journal = new PricingJournal(directory, SEGMENT_SIZE, FsyncPolicy.PERIODIC, scheduler);
+        journal.open(0);
+        scheduler.scheduleWithFixedDelay(journal::force, 1, 1, SECONDS);
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                append(executor, journal, pricings, threads);
+            }
+            long start = System.nanoTime();
+            append(executor, journal, pricings, threads);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(format("%d threads %8.3f us per append", threads, (double) elapsed / APPENDS_PER_THREAD / 1e3));
+        } finally {
+            executor.shutdown();
+            scheduler.shutdownNow();
+            journal.close();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(f -> f.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void append(ExecutorService executor, PricingJournal journal, Pricing[] pricings, int threads)
+            throws Exception {
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < APPENDS_PER_THREAD; i++) {
+                    journal.append(pricings[i & (pricings.length - 1)]);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.CompositePricing;
+import com.mizuho.marketdata.pricingboard.pricing.EvictablePricingRepository;
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingId;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.math.BigDecimal.TEN;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+
+public abstract class PricingRepositoryContractTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final List<Pricing> PRICINGS_LIST = newArrayList(
+            aPricing().withId(new PricingId("1")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V1")).forTicker("AAA.A").withPrice(TEN).withPriceDateTime(NOW).build(),
+            aPricing().withId(new PricingId("2")).forInstrument(new InstrumentId("I2")).forVendor(new VendorId("V2")).forTicker("BBB.B").withPrice(TEN).withPriceDateTime(NOW).build(),
+            aPricing().withId(new PricingId("3")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V2")).forTicker("CCC.C").withPrice(TEN).withPriceDateTime(NOW).build(),
+            aPricing().withId(new PricingId("4")).forInstrument(new InstrumentId("I2")).forVendor(new VendorId("V1")).forTicker("DDD.D").withPrice(TEN).withPriceDateTime(NOW).build());
+
+
+    private static final List<Pricing> PRICINGS_LIST_OUTDATED = newArrayList(
+            aPricing().withId(new PricingId("5")).forInstrument(new InstrumentId("I3")).forVendor(new VendorId("V3")).forTicker("AAA.A").withPrice(TEN).withPriceDateTime(NOW).build(),
+            aPricing().withId(new PricingId("6")).forInstrument(new InstrumentId("I3")).forVendor(new VendorId("V4")).forTicker("BBB.B")
+                    .withPrice(TEN).withPriceDateTime(NOW.minusDays(35)).build(),
+            aPricing().withId(new PricingId("7")).forInstrument(new InstrumentId("I3")).forVendor(new VendorId("V5")).forTicker("DDD.D")
+                    .withPrice(TEN).withPriceDateTime(NOW.minusDays(31)).build());
+
+    private EvictablePricingRepository pricingRepository = createRepository();
+
+    protected abstract EvictablePricingRepository createRepository();
+
+    @Before
+    public void store_pricing_list(){
+            PRICINGS_LIST.stream().forEach(i -> pricingRepository.store(i));
+    }
+
+    @Test
+    public void should_return_vendor_pricings_by_instrument(){
+
+        Collection<Pricing> vendorPricings = pricingRepository.allByInstrument(new InstrumentId("I1"));
+        assertThat(vendorPricings, hasSize(2));
+        assertThat(vendorPricings.stream().collect(Collectors.toList()),
+                containsInAnyOrder(
+                        aPricing().withId(new PricingId("1")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V1")).forTicker("AAA.A").withPrice(TEN).withPriceDateTime(NOW).build(),
+                        aPricing().withId(new PricingId("3")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V2")).forTicker("CCC.C").withPrice(TEN).withPriceDateTime(NOW).build()));
+    }
+
+    @Test
+    public void should_return_instrument_pricing_timeline_by_vendor() {
+        Collection<Pricing> instrumentPricings = pricingRepository.allByVendor(new VendorId("V2"));
+        assertThat(instrumentPricings, hasSize(2));
+        assertThat(instrumentPricings.stream().collect(Collectors.toList()),
+                containsInAnyOrder(
+                        aPricing().withId(new PricingId("2")).forInstrument(new InstrumentId("I2")).forVendor(new VendorId("V2")).forTicker("BBB.B").withPrice(TEN).withPriceDateTime(NOW).build(),
+                        aPricing().withId(new PricingId("3")).forInstrument(new InstrumentId("I1")).forVendor(new VendorId("V2")).forTicker("CCC.C").withPrice(TEN).withPriceDateTime(NOW).build()));
+
+    }
+    @Test
+    public void should_evict_outdated_pricing_from_memory(){
+
+        PRICINGS_LIST_OUTDATED.stream().forEach(i -> pricingRepository.store(i));
+        assertThat(pricingRepository.allByInstrument(new InstrumentId("I3")), hasSize(3));
+        pricingRepository.evictEligible();
+        System.out.println(pricingRepository.allByInstrument(new InstrumentId("I3")));
+        assertThat(pricingRepository.allByInstrument(new InstrumentId("I3")), hasSize(1));
+
+    }
+
+    @Test
+    public void should_keep_later_pricing_when_older_one_arrives_late() {
+        Pricing later = aPricing().withId(new PricingId("8")).forInstrument(new InstrumentId("I4")).forVendor(new VendorId("V1")).forTicker("EEE.E")
+                .withPrice(TEN).withPriceDateTime(NOW).build();
+        Pricing earlier = later.copy().withId(new PricingId("9")).withPriceDateTime(NOW.minusSeconds(1)).build();
+        Pricing sameTime = later.copy().withId(new PricingId("10")).build();
+        pricingRepository.store(later);
+        pricingRepository.store(earlier);
+        pricingRepository.store(sameTime);
+
+        assertThat(pricingRepository.allByInstrument(new InstrumentId("I4")), contains(later));
+    }
+
+    @Test
+    public void should_advance_versions_of_view_only_when_its_pricings_change() {
+        InstrumentId instrument = new InstrumentId("I5");
+        VendorId vendor = new VendorId("V1");
+        long instrumentVersion = pricingRepository.instrumentVersion(instrument);
+        long vendorVersion = pricingRepository.vendorVersion(vendor);
+        long otherVendorVersion = pricingRepository.vendorVersion(new VendorId("V2"));
+        Pricing pricing = aPricing().withId(new PricingId("11")).forInstrument(instrument).forVendor(vendor).forTicker("FFF.F")
+                .withPrice(TEN).withPriceDateTime(NOW).build();
+
+        pricingRepository.store(pricing);
+
+        assertThat(pricingRepository.instrumentVersion(instrument) > instrumentVersion, is(true));
+        assertThat(pricingRepository.vendorVersion(vendor) > vendorVersion, is(true));
+        assertThat(pricingRepository.vendorVersion(new VendorId("V2")), is(otherVendorVersion));
+        assertThat(pricingRepository.instrumentVersion(instrument), is(pricingRepository.viewByInstrument(instrument).version()));
+        assertThat(pricingRepository.vendorVersion(vendor), is(pricingRepository.viewByVendor(vendor).version()));
+    }
+
+    @Test
+    public void should_find_pricings_by_exact_ticker() {
+        Pricing sameTicker = aPricing().withId(new PricingId("12")).forInstrument(new InstrumentId("I6")).forVendor(new VendorId("V1")).forTicker("AAA.A")
+                .withPrice(TEN).withPriceDateTime(NOW).build();
+        pricingRepository.store(sameTicker);
+
+        assertThat(pricingRepository.byTicker("AAA.A", 10), containsInAnyOrder(PRICINGS_LIST.get(0), sameTicker));
+        assertThat(pricingRepository.byTicker("AAA.A", 1), hasSize(1));
+        assertThat(pricingRepository.byTicker("AAA", 10), is(empty()));
+    }
+
+    @Test
+    public void should_find_pricings_by_ticker_prefix_in_ticker_order() {
+        assertThat(pricingRepository.byTickerPrefix("C", 10), contains(PRICINGS_LIST.get(2)));
+        assertThat(pricingRepository.byTickerPrefix("", 10), contains(PRICINGS_LIST.get(0), PRICINGS_LIST.get(1), PRICINGS_LIST.get(2), PRICINGS_LIST.get(3)));
+        assertThat(pricingRepository.byTickerPrefix("", 2), contains(PRICINGS_LIST.get(0), PRICINGS_LIST.get(1)));
+        assertThat(pricingRepository.byTickerPrefix("E", 10), is(empty()));
+    }
+
+    @Test
+    public void should_move_pricing_to_its_new_ticker_when_repriced() {
+        Pricing pricing = aPricing().withId(new PricingId("13")).forInstrument(new InstrumentId("I7")).forVendor(new VendorId("V1")).forTicker("GGG.G")
+                .withPrice(TEN).withPriceDateTime(NOW).build();
+        Pricing repriced = pricing.copy().withId(new PricingId("14")).forTicker("HHH.H").withPriceDateTime(NOW.plusSeconds(1)).build();
+        pricingRepository.store(pricing);
+        pricingRepository.store(repriced);
+
+        assertThat(pricingRepository.byTicker("GGG.G", 10), is(empty()));
+        assertThat(pricingRepository.byTicker("HHH.H", 10), contains(repriced));
+    }
+
+    @Test
+    public void should_drop_evicted_pricings_from_ticker_index() {
+        PRICINGS_LIST_OUTDATED.forEach(pricingRepository::store);
+        pricingRepository.evictEligible();
+
+        assertThat(pricingRepository.byTicker("BBB.B", 10), contains(PRICINGS_LIST.get(1)));
+        assertThat(pricingRepository.byTicker("DDD.D", 10), contains(PRICINGS_LIST.get(3)));
+        assertThat(pricingRepository.byTicker("AAA.A", 10), containsInAnyOrder(PRICINGS_LIST.get(0), PRICINGS_LIST_OUTDATED.get(0)));
+    }
+
+    @Test
+    public void should_maintain_composite_of_latest_prices_across_vendors() {
+        InstrumentId instrument = new InstrumentId("I8");
+        Pricing first = aPricing().withId(new PricingId("15")).forInstrument(instrument).forVendor(new VendorId("V1")).forTicker("III.I")
+                .withPrice(TEN).withPriceDateTime(NOW).build();
+        pricingRepository.store(first);
+        pricingRepository.store(first.copy().withId(new PricingId("16")).forVendor(new VendorId("V2")).withPrice(new BigDecimal("12.5")).build());
+        pricingRepository.store(first.copy().withId(new PricingId("17")).forVendor(new VendorId("V3")).withPrice(new BigDecimal("11")).build());
+        pricingRepository.store(first.copy().withId(new PricingId("18")).withPrice(new BigDecimal("13")).withPriceDateTime(NOW.plusSeconds(1)).build());
+        pricingRepository.store(first.copy().withId(new PricingId("19")).forVendor(new VendorId("V2")).withPrice(new BigDecimal("1"))
+                .withPriceDateTime(NOW.minusSeconds(1)).build());
+
+        CompositePricing composite = pricingRepository.compositeByInstrument(instrument).get();
+
+        assertThat(composite.vendorCount(), is(3));
+        assertThat(composite.min(), is(new BigDecimal("11")));
+        assertThat(composite.max(), is(new BigDecimal("13")));
+        assertThat(composite.median(), is(new BigDecimal("12.5")));
+        assertThat(composite.lastVendorId(), is(new VendorId("V1")));
+        assertThat(pricingRepository.compositeByInstrument(new InstrumentId("I9")), is(Optional.empty()));
+    }
+
+    @Test
+    public void should_drop_evicted_pricings_from_composite() {
+        PRICINGS_LIST_OUTDATED.forEach(pricingRepository::store);
+        pricingRepository.evictEligible();
+
+        CompositePricing composite = pricingRepository.compositeByInstrument(new InstrumentId("I3")).get();
+        assertThat(composite.vendorCount(), is(1));
+        assertThat(composite.lastVendorId(), is(new VendorId("V3")));
+    }
+
+}
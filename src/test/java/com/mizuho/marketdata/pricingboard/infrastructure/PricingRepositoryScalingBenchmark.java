@@ -0,0 +1,105 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import com.mizuho.marketdata.pricingboard.pricing.InstrumentId;
+import com.mizuho.marketdata.pricingboard.pricing.Pricing;
+import com.mizuho.marketdata.pricingboard.pricing.PricingId;
+import com.mizuho.marketdata.pricingboard.pricing.VendorId;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.lang.String.format;
+
+/**
+ * Measures how {@link InMemoryPricingRepository#store} throughput grows with the number of writer threads, all ticking
+ * the same few vendors, while a reader keeps reading the instrument and the vendor view of random slots and counts the
+ * reads where the view read second held an older pricing than the one read first (expected to stay 0). Run manually,
+ * e.g. from the IDE, it is not part of the test suite.
+ */
+public class PricingRepositoryScalingBenchmark {
+    private static final int INSTRUMENTS = 10_000;
+    private static final int VENDORS = 2;
+    private static final int STORES_PER_THREAD = 500_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        InstrumentId[] instruments = new InstrumentId[INSTRUMENTS];
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            instruments[i] = new InstrumentId("benchmark-" + i);
+        }
+        VendorId[] vendors = new VendorId[VENDORS];
+        for (int v = 0; v < VENDORS; v++) {
+            vendors[v] = new VendorId("benchmark-vendor-" + v);
+        }
+        for (int threads : THREADS) {
+            run(instruments, vendors, threads);
+        }
+    }
+
+    private static void run(InstrumentId[] instruments, VendorId[] vendors, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                store(executor, new InMemoryPricingRepository(), instruments, vendors, threads);
+            }
+            InMemoryPricingRepository repository = new InMemoryPricingRepository();
+            AtomicBoolean storing = new AtomicBoolean(true);
+            Future<long[]> reads = executor.submit(() -> read(repository, instruments, vendors, storing));
+            long start = System.nanoTime();
+            store(executor, repository, instruments, vendors, threads);
+            long elapsed = System.nanoTime() - start;
+            storing.set(false);
+            long[] result = reads.get();
+            System.out.println(format("%d threads %10.0f stores per second, %d reads, %d disagreeing", threads,
+                    threads * STORES_PER_THREAD / (elapsed / 1e9), result[0], result[1]));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void store(ExecutorService executor, InMemoryPricingRepository repository, InstrumentId[] instruments,
+                              VendorId[] vendors, int threads) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < STORES_PER_THREAD; i++) {
+                    int slot = (i * threads + thread) % (INSTRUMENTS * VENDORS);
+                    repository.store(aPricing().withId(new PricingId("benchmark-" + thread + "-" + i))
+                            .forInstrument(instruments[slot % INSTRUMENTS]).forVendor(vendors[slot / INSTRUMENTS])
+                            .forTicker("TICKER").withPrice(new BigDecimal("101.25"))
+                            .withPriceDateTime(now.plusNanos((long) i * threads + thread)).build());
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+    }
+
+    private static long[] read(InMemoryPricingRepository repository, InstrumentId[] instruments, VendorId[] vendors,
+                               AtomicBoolean storing) {
+        long reads = 0;
+        long disagreeing = 0;
+        while (storing.get()) {
+            InstrumentId instrument = instruments[(int) (reads * 7919 % INSTRUMENTS)];
+            VendorId vendor = vendors[(int) (reads % VENDORS)];
+            Pricing first = repository.viewByInstrument(instrument).get(vendor.knownHandle());
+            Pricing then = repository.viewByVendor(vendor).get(instrument.knownHandle());
+            if (first != null && (then == null || then.priceDateTime().isBefore(first.priceDateTime()))) {
+                disagreeing++;
+            }
+            reads++;
+        }
+        return new long[]{reads, disagreeing};
+    }
+}
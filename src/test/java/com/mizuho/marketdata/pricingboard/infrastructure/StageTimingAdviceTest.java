@@ -0,0 +1,74 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.transformer.MessageTransformingHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+
+import java.util.function.Function;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class StageTimingAdviceTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueueChannel output = new QueueChannel();
+
+    @Test
+    public void should_time_messages_handled_by_stage() {
+        MessageTransformingHandler handler = handler("upper", payload -> {
+            sleep(5);
+            return payload.toUpperCase();
+        });
+
+        handler.handleMessage(new GenericMessage<>("a"));
+        handler.handleMessage(new GenericMessage<>("b"));
+
+        Timer timer = registry.get(StageTimingAdvice.LATENCY).tag("stage", "upper").timer();
+        assertThat(output.receive(0).getPayload(), is("A"));
+        assertThat(timer.count(), is(2L));
+        assertThat(timer.totalTime(MILLISECONDS), greaterThanOrEqualTo(10.0));
+        assertThat(timer.takeSnapshot().percentileValues().length, is(3));
+    }
+
+    @Test
+    public void should_time_messages_failing_in_stage() {
+        MessageTransformingHandler handler = handler("failing", payload -> {
+            throw new IllegalStateException("failed");
+        });
+
+        try {
+            handler.handleMessage(new GenericMessage<>("a"));
+            fail("handling should have failed");
+        } catch (MessagingException e) {
+            assertThat(registry.get(StageTimingAdvice.LATENCY).tag("stage", "failing").timer().count(), is(1L));
+        }
+    }
+
+    private MessageTransformingHandler handler(String stage, Function<String, String> transformer) {
+        MessageTransformingHandler handler =
+                new MessageTransformingHandler(message -> new GenericMessage<>(transformer.apply((String) message.getPayload())));
+        handler.setOutputChannel(output);
+        handler.setAdviceChain(singletonList(new StageTimingAdvice(stage, registry)));
+        handler.setBeanFactory(mock(BeanFactory.class));
+        handler.afterPropertiesSet();
+        return handler;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
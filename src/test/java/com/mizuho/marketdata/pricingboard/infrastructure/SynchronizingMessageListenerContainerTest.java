@@ -0,0 +1,75 @@
+package com.mizuho.marketdata.pricingboard.infrastructure;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_ROLLED_BACK;
+
+public class SynchronizingMessageListenerContainerTest {
+    private static final String QUEUE = "Synchronizing-Inbound";
+
+    private ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://synchronizing?broker.persistent=false");
+    private JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+    private Connection brokerKeepAlive;
+    private SynchronizingMessageListenerContainer container = new SynchronizingMessageListenerContainer();
+
+    @Before
+    public void setupContainer() throws JMSException {
+        brokerKeepAlive = connectionFactory.createConnection();
+        container.setConnectionFactory(connectionFactory);
+        container.setDestinationName(QUEUE);
+        container.setSessionTransacted(true);
+    }
+
+    @After
+    public void stopContainer() throws JMSException {
+        container.shutdown();
+        brokerKeepAlive.close();
+    }
+
+    @Test
+    public void should_tell_synchronizations_whether_message_was_rolled_back_or_committed() {
+        List<String> outcomes = new CopyOnWriteArrayList<>();
+        AtomicInteger deliveries = new AtomicInteger();
+        container.setMessageListener((MessageListener) message -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    outcomes.add("after-commit");
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    outcomes.add(status == STATUS_COMMITTED ? "committed" : status == STATUS_ROLLED_BACK ? "rolled-back" : "unknown");
+                }
+            });
+            if (deliveries.incrementAndGet() == 1) {
+                throw new IllegalStateException("first delivery fails");
+            }
+        });
+        container.afterPropertiesSet();
+        container.start();
+
+        jmsTemplate.convertAndSend(QUEUE, "pricing");
+
+        await().atMost(10, SECONDS).until(() -> outcomes.size() == 3);
+        assertThat(outcomes, contains("rolled-back", "after-commit", "committed"));
+    }
+}
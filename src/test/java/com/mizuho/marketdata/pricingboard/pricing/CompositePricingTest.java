@@ -0,0 +1,100 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CompositePricingTest {
+    private static final InstrumentId INSTRUMENT = new InstrumentId("C1");
+    private static final LocalDateTime NOW = LocalDateTime.of(2019, 1, 2, 9, 30);
+
+    private final CompositePricing empty = CompositePricing.empty(INSTRUMENT);
+
+    @Test
+    public void should_have_no_prices_when_empty() {
+        assertThat(empty.isEmpty(), is(true));
+        assertThat(empty.min(), is(nullValue()));
+        assertThat(empty.median(), is(nullValue()));
+        assertThat(empty.lastVendorId(), is(nullValue()));
+    }
+
+    @Test
+    public void should_keep_prices_of_different_scales_in_order() {
+        CompositePricing composite = empty
+                .with(pricing("CV1", "10.25", NOW))
+                .with(pricing("CV2", "9", NOW.plusSeconds(1)))
+                .with(pricing("CV3", "10.3", NOW.minusSeconds(1)));
+
+        assertThat(composite.vendorCount(), is(3));
+        assertThat(composite.min(), is(new BigDecimal("9")));
+        assertThat(composite.max(), is(new BigDecimal("10.3")));
+        assertThat(composite.median(), is(new BigDecimal("10.25")));
+        assertThat(composite.spread(), is(new BigDecimal("1.3")));
+        assertThat(composite.lastVendorId(), is(new VendorId("CV2")));
+        assertThat(composite.lastPriceDateTime(), is(NOW.plusSeconds(1)));
+    }
+
+    @Test
+    public void should_average_middle_prices_of_even_number_of_vendors() {
+        CompositePricing composite = empty
+                .with(pricing("CV1", "10", NOW))
+                .with(pricing("CV2", "11", NOW))
+                .with(pricing("CV3", "15", NOW))
+                .with(pricing("CV4", "1", NOW));
+
+        assertThat(composite.median(), is(new BigDecimal("10.5")));
+        assertThat(composite.lastVendorId(), is(new VendorId("CV4")));
+    }
+
+    @Test
+    public void should_move_repriced_vendor_to_its_new_position() {
+        CompositePricing composite = empty
+                .with(pricing("CV1", "1", NOW))
+                .with(pricing("CV2", "2", NOW))
+                .with(pricing("CV3", "3", NOW))
+                .with(pricing("CV1", "4", NOW.plusSeconds(1)));
+
+        assertThat(composite.vendorCount(), is(3));
+        assertThat(composite.min(), is(new BigDecimal("2")));
+        assertThat(composite.median(), is(new BigDecimal("3")));
+        assertThat(composite.max(), is(new BigDecimal("4")));
+        assertThat(composite.lastVendorId(), is(new VendorId("CV1")));
+    }
+
+    @Test
+    public void should_fall_back_to_next_latest_vendor_when_last_one_is_removed() {
+        CompositePricing composite = empty
+                .with(pricing("CV1", "1", NOW))
+                .with(pricing("CV2", "2", NOW.plusSeconds(2)))
+                .with(pricing("CV3", "3", NOW.plusSeconds(1)));
+
+        CompositePricing without = composite.without(new VendorId("CV2"));
+
+        assertThat(without.vendorCount(), is(2));
+        assertThat(without.median(), is(new BigDecimal("2")));
+        assertThat(without.lastVendorId(), is(new VendorId("CV3")));
+        assertThat(composite.without(new VendorId("CV9")), is(composite));
+        assertThat(without.without(new VendorId("CV1")).without(new VendorId("CV3")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_remove_price_of_pricing_only_while_vendor_is_not_repriced() {
+        Pricing first = pricing("CV1", "1.50", NOW);
+        CompositePricing composite = empty.with(first).with(pricing("CV2", "2", NOW));
+
+        assertThat(composite.without(pricing("CV1", "1.5", NOW)).vendorCount(), is(1));
+        assertThat(composite.without(pricing("CV1", "1.5", NOW.plusSeconds(1))), is(composite));
+        assertThat(composite.with(pricing("CV1", "1.75", NOW.plusSeconds(1))).without(first).vendorCount(), is(2));
+    }
+
+    private static Pricing pricing(String vendor, String price, LocalDateTime priceDateTime) {
+        return aPricing().forInstrument(INSTRUMENT).forVendor(new VendorId(vendor)).forTicker("CCC.C")
+                .withPrice(new BigDecimal(price)).withPriceDateTime(priceDateTime).build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class HandleMapTest {
+    private HandleMap<String> map = new HandleMap<>();
+
+    @Test
+    public void should_return_previous_value_on_put() {
+        assertThat(map.put(3, "a"), is(nullValue()));
+        assertThat(map.put(3, "b"), is("a"));
+        assertThat(map.get(3), is("b"));
+    }
+
+    @Test
+    public void should_return_null_for_unused_and_negative_handles() {
+        map.put(1, "a");
+
+        assertThat(map.get(2), is(nullValue()));
+        assertThat(map.get(100_000), is(nullValue()));
+        assertThat(map.get(-1), is(nullValue()));
+    }
+
+    @Test
+    public void should_remove_only_expected_instance() {
+        String value = new String("a");
+        map.put(1, value);
+
+        assertThat(map.remove(1, new String("a")), is(false));
+        assertThat(map.remove(1, value), is(true));
+        assertThat(map.get(1), is(nullValue()));
+    }
+
+    @Test
+    public void should_keep_every_handle_apart_across_chunk_boundaries() {
+        IntStream.range(0, 1100).forEach(h -> map.put(h, "v" + h));
+
+        IntStream.range(0, 1100).forEach(h -> assertThat(map.get(h), is("v" + h)));
+        assertThat(map.values().get(0), is("v0"));
+        assertThat(map.values().get(1099), is("v1099"));
+        assertThat(map.capacity(), is(1280));
+    }
+
+    @Test
+    public void should_allocate_only_small_chunks_for_few_low_handles() {
+        map.put(0, "a");
+        map.put(2, "b");
+        assertThat(map.capacity(), is(4));
+
+        map.put(9, "c");
+        assertThat(map.capacity(), is(12));
+    }
+
+    @Test
+    public void should_keep_single_value_when_computed_concurrently() {
+        IntStream.range(0, 1000).parallel().forEach(i -> map.computeIfAbsent(i % 10, h -> "v" + h + "-" + i));
+
+        assertThat(map.values(), hasSize(10));
+        IntStream.range(0, 10).forEach(h -> assertThat(map.get(h), startsWith("v" + h + "-")));
+    }
+
+    @Test
+    public void should_not_lose_writes_while_growing() {
+        IntStream.range(0, 100_000).parallel().forEach(i -> map.put(i, "v" + i));
+
+        assertThat(map.values(), hasSize(100_000));
+        assertThat(map.get(99_999), is("v99999"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class HandleTrieTest {
+
+    @Test
+    public void should_leave_previous_version_untouched_on_update() {
+        HandleTrie<String> first = HandleTrie.<String>empty().with(3, "a");
+        HandleTrie<String> second = first.with(3, "b").with(5, "c");
+
+        assertThat(first.get(3), is("a"));
+        assertThat(first.values(), contains("a"));
+        assertThat(second.values(), contains("b", "c"));
+        assertThat(second.size(), is(2));
+    }
+
+    @Test
+    public void should_grow_for_large_handles() {
+        HandleTrie<String> trie = HandleTrie.<String>empty().with(1, "small").with(Integer.MAX_VALUE, "large").with(40_000, "medium");
+
+        assertThat(trie.get(1), is("small"));
+        assertThat(trie.get(40_000), is("medium"));
+        assertThat(trie.get(Integer.MAX_VALUE), is("large"));
+        assertThat(trie.get(2), is(nullValue()));
+        assertThat(trie.get(-1), is(nullValue()));
+        assertThat(trie.values(), contains("small", "medium", "large"));
+    }
+
+    @Test
+    public void should_page_values_after_handle_in_handle_order() {
+        HandleTrie<Integer> trie = HandleTrie.empty();
+        for (int handle : new int[]{0, 3, 31, 32, 1_000, 40_000, Integer.MAX_VALUE}) {
+            trie = trie.with(handle, handle);
+        }
+
+        assertThat(trie.valuesAfter(-1, 3), contains(0, 3, 31));
+        assertThat(trie.valuesAfter(31, 3), contains(32, 1_000, 40_000));
+        assertThat(trie.valuesAfter(32, 10), contains(1_000, 40_000, Integer.MAX_VALUE));
+        assertThat(trie.valuesAfter(40_000, 10), contains(Integer.MAX_VALUE));
+        assertThat(trie.valuesAfter(Integer.MAX_VALUE, 10), is(empty()));
+        assertThat(trie.valuesAfter(-1, 0), is(empty()));
+        assertThat(HandleTrie.<Integer>empty().valuesAfter(-1, 5), is(empty()));
+    }
+
+    @Test
+    public void should_remove_handle_and_keep_others() {
+        HandleTrie<String> trie = HandleTrie.<String>empty().with(1, "a").with(2, "b");
+
+        HandleTrie<String> removed = trie.without(1);
+
+        assertThat(removed.values(), contains("b"));
+        assertThat(removed.size(), is(1));
+        assertThat(trie.values(), contains("a", "b"));
+        assertThat(removed.without(7), is(sameInstance(removed)));
+        assertThat(removed.without(2).isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_build_trie_equal_to_one_built_by_updates() {
+        HandleTrie.Builder<Integer> builder = HandleTrie.builder();
+        HandleTrie<Integer> updated = HandleTrie.empty();
+        for (int handle : IntStream.range(0, 5_000).map(i -> i * 7).toArray()) {
+            builder.put(handle, handle);
+            updated = updated.with(handle, handle);
+        }
+
+        HandleTrie<Integer> built = builder.build();
+
+        assertThat(built.values(), is(updated.values()));
+        assertThat(built.size(), is(5_000));
+        assertThat(built.get(7 * 4_999), is(7 * 4_999));
+    }
+
+    @Test
+    public void should_version_view_only_on_actual_change() {
+        Pricing pricing = Pricing.Builder.aPricing().forTicker("AAA.A").build();
+        PricingView view = PricingView.empty().with(4, pricing);
+
+        assertThat(view.version(), is(1L));
+        assertThat(view.without(4, Pricing.Builder.aPricing().forTicker("AAA.A").build()), is(sameInstance(view)));
+        assertThat(view.without(4, pricing).version(), is(2L));
+        assertThat(view.without(4, pricing).isEmpty(), is(true));
+    }
+}
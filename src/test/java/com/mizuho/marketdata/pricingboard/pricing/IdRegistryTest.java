@@ -0,0 +1,55 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class IdRegistryTest {
+    private IdRegistry<InstrumentId> registry = new IdRegistry<>((value, handle) -> new InstrumentId(value));
+
+    @Test
+    public void should_return_canonical_instance_for_equal_values() {
+        InstrumentId first = registry.intern("I1");
+
+        assertThat(registry.intern(new String("I1")), is(sameInstance(first)));
+        assertThat(registry.size(), is(1));
+    }
+
+    @Test
+    public void should_find_only_interned_values() {
+        InstrumentId interned = registry.intern("I1");
+
+        assertThat(registry.find("I1"), is(sameInstance(interned)));
+        assertThat(registry.find("I2"), is(nullValue()));
+        assertThat(registry.size(), is(1));
+    }
+
+    @Test
+    public void should_assign_dense_handles_when_interning_concurrently() {
+        Set<Integer> handles = ConcurrentHashMap.newKeySet();
+        IdRegistry<String> registry = new IdRegistry<>((value, handle) -> {
+            handles.add(handle);
+            return value;
+        });
+
+        IntStream.range(0, 10_000).parallel().forEach(i -> registry.intern("I" + (i % 1000)));
+
+        assertThat(registry.size(), is(1000));
+        assertThat(handles, hasSize(1000));
+        assertThat(handles, everyItem(both(greaterThanOrEqualTo(0)).and(lessThan(1000))));
+    }
+
+    @Test
+    public void should_resolve_interned_instance_by_handle() {
+        List<InstrumentId> ids = IntStream.range(0, 300).mapToObj(i -> InstrumentId.of("registry-test-" + i)).collect(toList());
+
+        ids.forEach(id -> assertThat(InstrumentId.registry().byHandle(id.handle()), is(sameInstance(id))));
+    }
+}
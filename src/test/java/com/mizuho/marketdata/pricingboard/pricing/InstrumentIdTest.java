@@ -7,6 +7,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 
@@ -64,5 +65,25 @@ public class InstrumentIdTest {
         assertThat(instrumentId.validate(), is(singletonList("instrumentId must not be blank")));
     }
 
+    @Test
+    public void should_intern_equal_instrument_ids_into_same_instance() {
+        assertThat(InstrumentId.of("1"), is(sameInstance(InstrumentId.of("1"))));
+        assertThat(InstrumentId.of("1"), is(instrumentId));
+    }
 
+    @Test
+    public void should_share_handle_between_interned_and_constructed_instrument_ids() {
+        InstrumentId interned = InstrumentId.of("handle-1");
+
+        assertThat(new InstrumentId("handle-1").knownHandle(), is(interned.handle()));
+        assertThat(new InstrumentId("handle-1").handle(), is(interned.handle()));
+    }
+
+    @Test
+    public void should_not_intern_when_resolving_known_handle() {
+        int registered = InstrumentId.registry().size();
+
+        assertThat(new InstrumentId("never-interned").knownHandle(), is(-1));
+        assertThat(InstrumentId.registry().size(), is(registered));
+    }
 }
@@ -0,0 +1,77 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import com.mizuho.marketdata.pricingboard.pricing.exception.InvalidPricingException;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static com.mizuho.marketdata.pricingboard.pricing.PricePrecision.Policy.REJECT;
+import static com.mizuho.marketdata.pricingboard.pricing.PricePrecision.Policy.ROUND;
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PricePrecisionTest {
+
+    @Test
+    public void should_leave_pricing_within_precision_untouched() {
+        Pricing pricing = aPricing().withPrice(new BigDecimal("10.25")).build();
+
+        assertThat(new PricePrecision(2, REJECT).apply(pricing), is(sameInstance(pricing)));
+    }
+
+    @Test
+    public void should_drop_trailing_zeros_when_exceeding_precision() {
+        Pricing pricing = aPricing().withPrice(new BigDecimal("10.2500")).build();
+
+        assertThat(new PricePrecision(2, REJECT).apply(pricing).price(), is(new BigDecimal("10.25")));
+    }
+
+    @Test
+    public void should_round_half_even_when_exceeding_precision() {
+        PricePrecision precision = new PricePrecision(2, ROUND);
+
+        assertThat(precision.apply(aPricing().withPrice(new BigDecimal("10.125")).build()).price(), is(new BigDecimal("10.12")));
+        assertThat(precision.apply(aPricing().withPrice(new BigDecimal("10.135")).build()).price(), is(new BigDecimal("10.14")));
+    }
+
+    @Test
+    public void should_reject_pricing_exceeding_precision() {
+        try {
+            new PricePrecision(2, REJECT).apply(aPricing().withPrice(new BigDecimal("10.125")).build());
+            fail("expected precision check to fail");
+        } catch (InvalidPricingException e) {
+            assertThat(e.reasons(), is(singletonList("price must not have more than 2 decimal places while 10.125 was provided")));
+        }
+    }
+
+    @Test
+    public void should_round_price_too_precise_to_fit_fixed_point() {
+        BigDecimal price = new BigDecimal("10.12345678901234567890123");
+
+        assertThat(aPricing().withPrice(price).build().priceScale(), is(FixedPoint.UNREPRESENTABLE));
+        assertThat(new PricePrecision(6, ROUND).apply(price), is(new BigDecimal("10.123457")));
+        assertThat(aPricing().withPrice(new PricePrecision(6, ROUND).apply(price)).build().price(), is(new BigDecimal("10.123457")));
+    }
+
+    @Test
+    public void should_reject_price_too_precise_to_fit_fixed_point() {
+        try {
+            new PricePrecision(6, REJECT).apply(new BigDecimal("10.12345678901234567890123"));
+            fail("expected precision check to fail");
+        } catch (InvalidPricingException e) {
+            assertThat(e.reasons(), is(singletonList(
+                    "price must not have more than 6 decimal places while 10.12345678901234567890123 was provided")));
+        }
+    }
+
+    @Test
+    public void should_leave_pricing_without_price_for_validation() {
+        Pricing pricing = aPricing().build();
+
+        assertThat(new PricePrecision(0, REJECT).apply(pricing), is(sameInstance(pricing)));
+    }
+}
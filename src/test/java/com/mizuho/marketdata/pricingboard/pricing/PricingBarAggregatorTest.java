@@ -0,0 +1,140 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PricingBarAggregatorTest {
+    private static final InstrumentId INSTRUMENT = new InstrumentId("B1");
+    private static final VendorId VENDOR = new VendorId("BV1");
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+    private static final Duration FIVE_MINUTES = Duration.ofMinutes(5);
+    private static final LocalDateTime START = LocalDateTime.of(2019, 1, 2, 9, 30);
+
+    private final PricingBarAggregator aggregator = new PricingBarAggregator(asList(MINUTE, FIVE_MINUTES), 3);
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void should_roll_ticks_into_bars_of_every_interval() {
+        tick("10.5", START.plusSeconds(1));
+        tick("12", START.plusSeconds(20));
+        tick("9.75", START.plusSeconds(40));
+        tick("11", START.plusSeconds(59));
+        tick("13", START.plusSeconds(61));
+
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 10), contains(
+                bar(MINUTE, START, "10.5", "12", "9.75", "11", 4),
+                bar(MINUTE, START.plusMinutes(1), "13", "13", "13", "13", 1)));
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, FIVE_MINUTES, 10), contains(
+                bar(FIVE_MINUTES, START, "10.5", "13", "9.75", "13", 5)));
+    }
+
+    @Test
+    public void should_place_late_tick_by_its_price_date_time() {
+        tick("10", START.plusSeconds(30));
+        tick("11", START.plusSeconds(90));
+        tick("8", START.plusSeconds(10));
+        tick("12", START.plusSeconds(50));
+
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 10), contains(
+                bar(MINUTE, START, "8", "12", "8", "12", 3),
+                bar(MINUTE, START.plusMinutes(1), "11", "11", "11", "11", 1)));
+    }
+
+    @Test
+    public void should_keep_only_depth_bars_and_drop_ticks_older_than_them() {
+        for (int minute = 0; minute < 5; minute++) {
+            tick(String.valueOf(minute), START.plusMinutes(minute));
+        }
+        tick("100", START.plusMinutes(1));
+
+        List<PricingBar> bars = aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 10);
+        assertThat(bars.stream().map(PricingBar::start).collect(toList()),
+                contains(START.plusMinutes(2), START.plusMinutes(3), START.plusMinutes(4)));
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 1).stream().map(PricingBar::start).collect(toList()),
+                contains(START.plusMinutes(4)));
+        assertThat(aggregator.lateCount(), is(1L));
+    }
+
+    @Test
+    public void should_skip_intervals_without_ticks() {
+        tick("1", START);
+        tick("2", START.plusMinutes(2));
+
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 10).stream().map(PricingBar::start).collect(toList()),
+                contains(START, START.plusMinutes(2)));
+        assertThat(aggregator.bars(INSTRUMENT, new VendorId("BV2"), MINUTE, 10), is(empty()));
+        assertThat(aggregator.seriesCount(), is(1));
+    }
+
+    @Test
+    public void should_drop_series_of_evicted_pricing() {
+        tick("1", START);
+        tick("2", START.plusSeconds(30));
+
+        aggregator.evicted(pricing("2", START.plusSeconds(30)));
+        tick("3", START.plusMinutes(1));
+
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 10), contains(
+                bar(MINUTE, START.plusMinutes(1), "3", "3", "3", "3", 1)));
+        assertThat(aggregator.seriesCount(), is(1));
+    }
+
+    @Test
+    public void should_keep_series_ticked_after_evicted_pricing() {
+        tick("1", START);
+        tick("2", START.plusSeconds(30));
+
+        aggregator.evicted(pricing("1", START));
+
+        assertThat(aggregator.bars(INSTRUMENT, VENDOR, MINUTE, 10), contains(
+                bar(MINUTE, START, "1", "2", "1", "2", 2)));
+        assertThat(aggregator.seriesCount(), is(1));
+    }
+
+    @Test
+    public void should_ignore_ticks_when_no_interval_is_configured() {
+        PricingBarAggregator disabled = new PricingBarAggregator(emptyList(), 3);
+        disabled.update(pricing("1", START));
+
+        assertThat(disabled.isEnabled(), is(false));
+        assertThat(disabled.seriesCount(), is(0));
+    }
+
+    @Test
+    public void should_refuse_interval_that_is_not_configured() {
+        exception.expect(IllegalArgumentException.class);
+
+        aggregator.bars(INSTRUMENT, VENDOR, Duration.ofMinutes(15), 10);
+    }
+
+    private void tick(String price, LocalDateTime priceDateTime) {
+        aggregator.update(pricing(price, priceDateTime));
+    }
+
+    private static Pricing pricing(String price, LocalDateTime priceDateTime) {
+        return aPricing().withId(new PricingId("bar")).forInstrument(INSTRUMENT).forVendor(VENDOR).forTicker("AAA.A")
+                .withPrice(new BigDecimal(price)).withPriceDateTime(priceDateTime).build();
+    }
+
+    private static PricingBar bar(Duration interval, LocalDateTime start, String open, String high, String low, String close, int ticks) {
+        return new PricingBar(INSTRUMENT, VENDOR, interval, start, new BigDecimal(open), new BigDecimal(high), new BigDecimal(low),
+                new BigDecimal(close), ticks);
+    }
+}
@@ -0,0 +1,91 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class PricingDeduplicatorTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2019, 1, 2, 9, 30);
+
+    @Test
+    public void should_drop_repeat_of_recently_seen_pricing() {
+        PricingDeduplicator deduplicator = new PricingDeduplicator(100, 0.001);
+        Pricing pricing = pricing("D1", "DV1", 1050, 2, NOW);
+
+        assertThat(deduplicator.firstOccurrence(pricing), is(true));
+        assertThat(deduplicator.firstOccurrence(pricing.copy().withId(new PricingId("other")).build()), is(false));
+        assertThat(deduplicator.firstOccurrence(pricing("D1", "DV1", 1050, 2, NOW.plusNanos(1))), is(true));
+        assertThat(deduplicator.firstOccurrence(pricing("D1", "DV1", 1051, 2, NOW)), is(true));
+        assertThat(deduplicator.firstOccurrence(pricing("D1", "DV2", 1050, 2, NOW)), is(true));
+        assertThat(deduplicator.firstOccurrence(pricing("D2", "DV1", 1050, 2, NOW)), is(true));
+        assertThat(deduplicator.passedCount(), is(5L));
+        assertThat(deduplicator.droppedCount(), is(1L));
+    }
+
+    @Test
+    public void should_only_drop_pricing_once_remembered() {
+        PricingDeduplicator deduplicator = new PricingDeduplicator(100, 0.001);
+        Pricing pricing = pricing("D4", "DV1", 1050, 2, NOW);
+        long key = PricingDeduplicator.key(pricing);
+
+        assertThat(deduplicator.unseen(key), is(true));
+        assertThat(deduplicator.unseen(key), is(true));
+
+        deduplicator.remember(key);
+
+        assertThat(deduplicator.unseen(key), is(false));
+        assertThat(deduplicator.firstOccurrence(pricing), is(false));
+        assertThat(deduplicator.counted(true), is(true));
+        assertThat(deduplicator.passedCount(), is(1L));
+        assertThat(deduplicator.droppedCount(), is(1L));
+    }
+
+    @Test
+    public void should_remember_pricing_until_two_generations_have_filled() {
+        PricingDeduplicator deduplicator = new PricingDeduplicator(2, 0.001);
+        Pricing pricing = pricing("D3", "DV1", 1, 0, NOW);
+        deduplicator.firstOccurrence(pricing);
+        deduplicator.firstOccurrence(pricing("D3", "DV1", 2, 0, NOW));
+        deduplicator.firstOccurrence(pricing("D3", "DV1", 3, 0, NOW));
+
+        assertThat(deduplicator.firstOccurrence(pricing), is(false));
+
+        deduplicator.firstOccurrence(pricing("D3", "DV1", 4, 0, NOW));
+
+        assertThat(deduplicator.firstOccurrence(pricing), is(true));
+    }
+
+    @Test
+    public void should_keep_false_positives_near_configured_rate_when_full() {
+        int capacity = 10_000;
+        PricingDeduplicator deduplicator = new PricingDeduplicator(capacity, 0.01);
+        for (int i = 0; i < capacity - 1; i++) {
+            deduplicator.firstOccurrence(pricing("D4", "DV1", i, 0, NOW));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (!deduplicator.firstOccurrence(pricing("D5", "DV1", i, 0, NOW))) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives, lessThan(capacity * 3 / 100));
+        assertThat(deduplicator.falsePositiveRate() < 0.03, is(true));
+        assertThat(new PricingDeduplicator(capacity, 0.01).falsePositiveRate(), is(0.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_refuse_false_positive_rate_out_of_range() {
+        new PricingDeduplicator(100, 1);
+    }
+
+    private static Pricing pricing(String instrument, String vendor, long mantissa, int scale, LocalDateTime priceDateTime) {
+        return aPricing().forInstrument(new InstrumentId(instrument)).forVendor(new VendorId(vendor)).forTicker("DDD.D")
+                .withPrice(mantissa, scale).withPriceDateTime(priceDateTime).build();
+    }
+}
@@ -3,7 +3,6 @@ package com.mizuho.marketdata.pricingboard.pricing;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -23,12 +22,12 @@ public class PricingEnricherTest {
     @Mock
     private PricingIdGenerator pricingIdGenerator;
 
-    @InjectMocks
     private PricingEnricher pricingEnricher;
 
     @Before
     public void setupIdGenerator() {
         when(pricingIdGenerator.generateId()).thenReturn(new PricingId("id"));
+        pricingEnricher = new PricingEnricher(pricingIdGenerator, new PricePrecision(2, PricePrecision.Policy.ROUND));
     }
 
     @Test
@@ -37,4 +36,11 @@ public class PricingEnricherTest {
 
         assertThat(pricingEnricher.enrich(pricing), is(aPricing().withId(new PricingId("id")).build()));
     }
+
+    @Test
+    public void should_apply_price_precision() {
+        Pricing pricing = aPricing().withPrice(new BigDecimal("10.125")).build();
+
+        assertThat(pricingEnricher.enrich(pricing).price(), is(new BigDecimal("10.12")));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.String.format;
+
+/**
+ * Compares the throughput of {@link UUIDPricingIdGenerator} and {@link TimeOrderedPricingIdGenerator} with one thread and
+ * with as many threads as the ingest partitions would use. Every id is hashed, as storing a pricing does, but its text
+ * is not rendered, which only the off-heap repository, the journal and the stream need. Run manually, e.g. from the
+ * IDE, it is not part of the test suite.
+ */
+public class PricingIdGeneratorBenchmark {
+    private static final int IDS_PER_THREAD = 2_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int[] THREADS = {1, 4};
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : THREADS) {
+            run("uuid", new UUIDPricingIdGenerator(), threads);
+            run("time-ordered", new TimeOrderedPricingIdGenerator(0), threads);
+        }
+    }
+
+    private static void run(String name, PricingIdGenerator generator, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                generate(executor, generator, threads);
+            }
+            long start = System.nanoTime();
+            long checksum = generate(executor, generator, threads);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(format("%-15s %d threads %10.1f million ids/s (checksum %d)",
+                    name, threads, (double) IDS_PER_THREAD * threads / elapsed * 1e3, checksum));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long generate(ExecutorService executor, PricingIdGenerator generator, int threads) throws Exception {
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                long checksum = 0;
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    checksum += generator.generateId().hashCode();
+                }
+                return checksum;
+            }));
+        }
+        long checksum = 0;
+        for (Future<Long> result : results) {
+            checksum += result.get();
+        }
+        return checksum;
+    }
+}
@@ -3,6 +3,8 @@ package com.mizuho.marketdata.pricingboard.pricing;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.UUID;
+
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
@@ -62,4 +64,25 @@ public class PricingIdTest {
         assertThat(pricingId.validate(), is(singletonList("pricingId must not be blank")));
     }
 
+    @Test
+    public void should_render_compact_pricing_id_in_uuid_layout() {
+        UUID uuid = UUID.randomUUID();
+        PricingId compact = PricingId.of(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+
+        assertThat(compact.value(), is(uuid.toString()));
+        assertThat(compact.isEmpty(), is(false));
+        assertThat(compact.validate(), is(emptyList()));
+    }
+
+    @Test
+    public void should_equal_compact_pricing_id_read_back_from_its_text() {
+        PricingId compact = PricingId.of(0x0123456789abcdefL, -1L);
+        PricingId readBack = new PricingId(compact.value());
+
+        assertThat(readBack, is(compact));
+        assertThat(readBack.hashCode(), is(compact.hashCode()));
+        assertThat(new PricingId(compact.value().toUpperCase()), is(not(compact)));
+        assertThat(PricingId.of(0x0123456789abcdefL, 0), is(not(compact)));
+    }
+
 }
@@ -0,0 +1,87 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.mizuho.marketdata.pricingboard.infrastructure.InMemoryPricingRepository;
+import com.mizuho.marketdata.pricingboard.infrastructure.OffHeapPricingRepository;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
+import static java.lang.String.format;
+
+/**
+ * Compares resolving a few thousand instruments with {@link PricingManagementService#latestByInstruments} against one
+ * {@link PricingManagementService#viewByInstrument} call per instrument, the path risk jobs took before. Only the service
+ * is measured; the per-request HTTP overhead of the single-call path comes on top of it. Run manually, e.g. from the IDE,
+ * it is not part of the test suite.
+ */
+public class PricingLookupBenchmark {
+    private static final int INSTRUMENTS = 200_000;
+    private static final int VENDORS = 4;
+    private static final int LOOKUP_SIZE = 5_000;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 1_000;
+
+    public static void main(String[] args) {
+        ((Logger) LoggerFactory.getLogger(PricingManagementService.class)).setLevel(Level.WARN);
+
+        List<InstrumentId> lookup = new ArrayList<>();
+        for (int i = 0; i < INSTRUMENTS; i += INSTRUMENTS / LOOKUP_SIZE) {
+            lookup.add(new InstrumentId("benchmark-" + i));
+        }
+        Collections.shuffle(lookup);
+
+        InMemoryPricingRepository inMemory = new InMemoryPricingRepository();
+        OffHeapPricingRepository offHeap = new OffHeapPricingRepository(VENDORS, 40, 24, Clock.systemDefaultZone(), Duration.ofDays(30));
+        fill(inMemory);
+        fill(offHeap);
+
+        compare("in-memory", new PricingManagementService(inMemory), lookup);
+        compare("off-heap", new PricingManagementService(offHeap), lookup);
+    }
+
+    private static void compare(String repository, PricingManagementService service, List<InstrumentId> lookup) {
+        run(repository + " single calls", () -> {
+            List<Pricing> found = new ArrayList<>();
+            for (InstrumentId instrumentId : lookup) {
+                found.addAll(service.viewByInstrument(instrumentId).pricings());
+            }
+            return found.size();
+        });
+        run(repository + " batch lookup", () -> service.latestByInstruments(lookup, Collections.emptyList()).size());
+    }
+
+    private static void fill(PricingRepository repository) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            for (int v = 0; v < VENDORS; v++) {
+                repository.store(aPricing().withId(new PricingId("benchmark-" + i + "-" + v))
+                        .forInstrument(new InstrumentId("benchmark-" + i)).forVendor(new VendorId("benchmark-vendor-" + v))
+                        .forTicker("AAA.A").withPrice(BigDecimal.TEN).withPriceDateTime(now).build());
+            }
+        }
+    }
+
+    private static void run(String name, IntSupplier lookup) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += lookup.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += lookup.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(format("%-30s %10.1f us/lookup of %d instruments (checksum %d)",
+                name, elapsed / 1e3 / MEASURED_ITERATIONS, LOOKUP_SIZE, checksum));
+    }
+}
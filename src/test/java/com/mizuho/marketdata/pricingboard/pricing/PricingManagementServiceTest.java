@@ -14,13 +14,19 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.mizuho.marketdata.pricingboard.pricing.Pricing.Builder.aPricing;
 import static java.math.BigDecimal.TEN;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +70,17 @@ public class PricingManagementServiceTest {
     }
 
 
+    @Test
+    public void should_store_valid_pricings_of_batch_at_once_and_report_errors_of_invalid_ones() {
+        Pricing invalidPricing = PRICING_TIMELINE.get(0).copy().withPrice(null).build();
+
+        List<List<String>> errors = pricingManagementService.registerPricings(
+                newArrayList(PRICING_TIMELINE.get(0), invalidPricing, PRICING_TIMELINE.get(1)));
+
+        assertThat(errors, is(Arrays.asList(emptyList(), singletonList("price must be provided"), emptyList())));
+        verify(pricingRepository).storeAll(PRICING_TIMELINE);
+    }
+
     @Test
     public void should_return_vendor_pricing_timeline_for_instrument() {
         InstrumentId instrumentId = new InstrumentId("I1");
@@ -82,6 +99,16 @@ public class PricingManagementServiceTest {
         assertThat(pricingManagementService.allByVendor(vendorId), is(PRICING_TIMELINE));
     }
 
+    @Test
+    public void should_return_versioned_view_for_instrument() {
+        InstrumentId instrumentId = new InstrumentId("I1");
+        PricingView view = PricingView.empty().with(0, PRICING_TIMELINE.get(0));
+
+        when(pricingRepository.viewByInstrument(instrumentId)).thenReturn(view);
+
+        assertThat(pricingManagementService.viewByInstrument(instrumentId), is(view));
+    }
+
     private static FeatureMatcher<InvalidPricingException, List<String>> reasons(Matcher<List<String>> matcher) {
         return new FeatureMatcher<InvalidPricingException, List<String>>(matcher, " exception reasons", "reasons") {
             @Override
@@ -90,4 +117,69 @@ public class PricingManagementServiceTest {
             }
         };
     }
-}
\ No newline at end of file
+    @Test
+    public void should_look_up_many_instruments_keeping_their_order_and_filtering_vendors() {
+        InstrumentId i1 = new InstrumentId("I1");
+        InstrumentId i2 = new InstrumentId("I2");
+        InstrumentId i3 = new InstrumentId("I3");
+        Pricing i1v2 = PRICING_TIMELINE.get(0).copy().withId(new PricingId("3")).forVendor(new VendorId("V2")).build();
+        when(pricingRepository.viewByInstrument(i1)).thenReturn(view(PRICING_TIMELINE.get(0), i1v2));
+        when(pricingRepository.viewByInstrument(i2)).thenReturn(view(PRICING_TIMELINE.get(1)));
+        when(pricingRepository.viewByInstrument(i3)).thenReturn(PricingView.empty());
+
+        assertThat(pricingManagementService.latestByInstruments(newArrayList(i2, i3, i1), emptyList()),
+                contains(PRICING_TIMELINE.get(1), PRICING_TIMELINE.get(0), i1v2));
+        assertThat(pricingManagementService.latestByInstruments(newArrayList(i2, i3, i1), singletonList(new VendorId("V2"))),
+                contains(PRICING_TIMELINE.get(1), i1v2));
+        assertThat(pricingManagementService.latestByInstruments(newArrayList(i1), singletonList(new VendorId("unknown-vendor"))),
+                is(empty()));
+    }
+
+    @Test
+    public void should_return_pricings_by_ticker_from_repository() {
+        when(pricingRepository.byTicker("AAA.A", 10)).thenReturn(singletonList(PRICING_TIMELINE.get(0)));
+        when(pricingRepository.byTickerPrefix("B", 10)).thenReturn(singletonList(PRICING_TIMELINE.get(1)));
+
+        assertThat(pricingManagementService.byTicker("AAA.A", 10), contains(PRICING_TIMELINE.get(0)));
+        assertThat(pricingManagementService.byTickerPrefix("B", 10), contains(PRICING_TIMELINE.get(1)));
+    }
+
+    @Test
+    public void should_return_composite_by_instrument_from_repository() {
+        Pricing pricing = PRICING_TIMELINE.get(0);
+        CompositePricing composite = CompositePricing.empty(pricing.instrumentId()).with(pricing);
+        when(pricingRepository.compositeByInstrument(pricing.instrumentId())).thenReturn(Optional.of(composite));
+
+        assertThat(pricingManagementService.compositeByInstrument(pricing.instrumentId()), is(Optional.of(composite)));
+    }
+
+    @Test
+    public void should_query_history_when_enabled() {
+        PricingHistoryRepository history = mock(PricingHistoryRepository.class);
+        PricingManagementService withHistory = new PricingManagementService(pricingRepository, history);
+        Pricing pricing = PRICING_TIMELINE.get(0);
+        when(history.asOf(pricing.instrumentId(), pricing.vendorId(), NOW)).thenReturn(Optional.of(pricing));
+        when(history.range(pricing.instrumentId(), pricing.vendorId(), NOW.minusDays(1), NOW, 10)).thenReturn(singletonList(pricing));
+
+        assertThat(withHistory.historyEnabled(), is(true));
+        assertThat(withHistory.priceAsOf(pricing.instrumentId(), pricing.vendorId(), NOW), is(Optional.of(pricing)));
+        assertThat(withHistory.history(pricing.instrumentId(), pricing.vendorId(), NOW.minusDays(1), NOW, 10), contains(pricing));
+    }
+
+    @Test
+    public void should_refuse_history_queries_when_history_is_not_enabled() {
+        exception.expect(IllegalStateException.class);
+
+        assertThat(pricingManagementService.historyEnabled(), is(false));
+        pricingManagementService.priceAsOf(new InstrumentId("I1"), new VendorId("V1"), NOW);
+    }
+
+    private static PricingView view(Pricing... pricings) {
+        HandleTrie<Pricing> trie = HandleTrie.empty();
+        for (Pricing pricing : pricings) {
+            trie = trie.with(pricing.vendorId().handle(), pricing);
+        }
+        return new PricingView(pricings.length, trie);
+    }
+
+}
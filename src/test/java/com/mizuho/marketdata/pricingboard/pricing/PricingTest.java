@@ -171,6 +171,38 @@ public class PricingTest {
         assertThat(invalidPricing.validate(), is(singletonList(format("price must be a positive number while %s was provided", new BigDecimal(-10)))));
     }
 
+    @Test
+    public void should_report_validation_error_when_price_does_not_fit_fixed_point_number() {
+        Pricing invalidPricing = PRICING.copy().withPrice(new BigDecimal("1234567890.1234567890123")).build();
+
+        assertThat(invalidPricing.validate(), is(singletonList("price must fit into a 64 bit fixed-point number")));
+    }
+
+    @Test
+    public void should_hold_price_as_mantissa_and_scale() {
+        Pricing pricing = PRICING.copy().withPrice(new BigDecimal("101.250")).build();
+
+        assertThat(pricing.priceMantissa(), is(101250L));
+        assertThat(pricing.priceScale(), is(3));
+        assertThat(pricing, is(PRICING.copy().withPrice(101250L, 3).build()));
+        assertThat(pricing.hashCode(), is(PRICING.copy().withPrice(101250L, 3).build().hashCode()));
+    }
+
+    @Test
+    public void should_strip_trailing_zeros_of_large_prices_to_fit_fixed_point_number() {
+        BigDecimal large = new BigDecimal("1000000000000000000000").setScale(2);
+        Pricing pricing = PRICING.copy().withPrice(large).build();
+
+        assertThat(pricing.validate(), is(emptyList()));
+        assertThat(pricing.price().compareTo(large), is(0));
+    }
+
+    @Test
+    public void should_advise_inequality_when_prices_differ_by_scale_only() {
+        Pricing anotherPricing = PRICING.copy().withPrice(new BigDecimal("10.0")).build();
+        assertThat(PRICING, is(not(equalTo(anotherPricing))));
+    }
+
     @Test
     public void should_report_validation_error_when_price_date_id_not_provided() {
         Pricing invalidPricing = PRICING.copy().withPriceDateTime(null).build();
@@ -0,0 +1,61 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TickerIndexTest {
+
+    @Test
+    public void should_pack_instrument_and_vendor_into_slot() {
+        long slot = TickerIndex.slot(Integer.MAX_VALUE, 7);
+
+        assertThat(TickerIndex.instrument(slot), is(Integer.MAX_VALUE));
+        assertThat(TickerIndex.vendor(slot), is(7));
+        assertThat(TickerIndex.slot(1, 0) > TickerIndex.slot(0, Integer.MAX_VALUE), is(true));
+    }
+
+    @Test
+    public void should_find_slots_by_exact_ticker_in_slot_order() {
+        TickerIndex index = new TickerIndex();
+        index.update(null, "AAA.A", TickerIndex.slot(2, 0));
+        index.update(null, "AAA.A", TickerIndex.slot(1, 1));
+        index.update(null, "AAA.AB", TickerIndex.slot(3, 0));
+
+        assertThat(index.exact("AAA.A", 10), is(new long[]{TickerIndex.slot(1, 1), TickerIndex.slot(2, 0)}));
+        assertThat(index.exact("AAA.A", 1), is(new long[]{TickerIndex.slot(1, 1)}));
+        assertThat(index.exact("AAA", 10), is(new long[0]));
+    }
+
+    @Test
+    public void should_find_slots_by_prefix_in_ticker_order_up_to_limit() {
+        TickerIndex index = new TickerIndex();
+        index.update(null, "BBB.B", TickerIndex.slot(1, 0));
+        index.update(null, "AAA.B", TickerIndex.slot(2, 0));
+        index.update(null, "AAA.A", TickerIndex.slot(3, 0));
+        index.update(null, "AAB.A", TickerIndex.slot(4, 0));
+
+        assertThat(index.prefix("AAA", 10), is(new long[]{TickerIndex.slot(3, 0), TickerIndex.slot(2, 0)}));
+        assertThat(index.prefix("AA", 2), is(new long[]{TickerIndex.slot(3, 0), TickerIndex.slot(2, 0)}));
+        assertThat(index.prefix("", 10).length, is(4));
+        assertThat(index.prefix("C", 10), is(new long[0]));
+    }
+
+    @Test
+    public void should_move_slot_between_tickers_and_drop_empty_tickers() {
+        TickerIndex index = new TickerIndex();
+        long slot = TickerIndex.slot(1, 1);
+        index.update(null, "AAA.A", slot);
+        index.update("AAA.A", "AAA.A", slot);
+        index.update("AAA.A", "BBB.B", slot);
+
+        assertThat(index.exact("AAA.A", 10), is(new long[0]));
+        assertThat(index.exact("BBB.B", 10), is(new long[]{slot}));
+        assertThat(index.tickerCount(), is(1));
+
+        index.remove("BBB.B", slot);
+
+        assertThat(index.tickerCount(), is(0));
+    }
+}
@@ -0,0 +1,106 @@
+package com.mizuho.marketdata.pricingboard.pricing;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TimeOrderedPricingIdGeneratorTest {
+    private static final Instant NOW = Instant.parse("2019-01-02T09:30:00Z");
+
+    @Test
+    public void should_lay_out_time_node_and_sequence_of_id() {
+        TimeOrderedPricingIdGenerator generator = new TimeOrderedPricingIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC), 0xABC);
+
+        PricingId first = generator.generateId();
+        PricingId second = generator.generateId();
+
+        assertThat(first.value(), is(PricingId.of(NOW.toEpochMilli() << 16 | 0xABC, 0).value()));
+        assertThat(first.value().endsWith("0abc-0000-000000000000"), is(true));
+        assertThat(second, is(PricingId.of(NOW.toEpochMilli() << 16 | 0xABC, 1)));
+        assertThat(first.value().compareTo(second.value()), lessThan(0));
+    }
+
+    @Test
+    public void should_order_ids_by_time() {
+        PricingId earlier = new TimeOrderedPricingIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC), 7).generateId();
+        PricingId later = new TimeOrderedPricingIdGenerator(Clock.fixed(NOW.plusMillis(1), ZoneOffset.UTC), 0).generateId();
+
+        assertThat(earlier.value().compareTo(later.value()), lessThan(0));
+    }
+
+    @Test
+    public void should_generate_unique_ids_across_threads_within_same_millisecond() throws Exception {
+        TimeOrderedPricingIdGenerator generator = new TimeOrderedPricingIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC), 1);
+        Set<PricingId> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> generators = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            generators.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.generateId());
+                }
+            }));
+        }
+        for (Future<?> future : generators) {
+            future.get(10, SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(ids.size(), is(40_000));
+    }
+
+    @Test
+    public void should_carry_on_sequence_of_slot_freed_by_dead_thread() throws Exception {
+        TimeOrderedPricingIdGenerator generator = new TimeOrderedPricingIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC), 1, 2);
+        Set<PricingId> ids = ConcurrentHashMap.newKeySet();
+        ids.add(generator.generateId());
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    ids.add(generator.generateId());
+                }
+            });
+            thread.start();
+            thread.join(SECONDS.toMillis(10));
+        }
+
+        assertThat(ids.size(), is(801));
+    }
+
+    @Test
+    public void should_refuse_more_threads_than_slots_at_the_same_time() throws Exception {
+        TimeOrderedPricingIdGenerator generator = new TimeOrderedPricingIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC), 1, 1);
+        generator.generateId();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(generator::generateId).get(10, SECONDS);
+            fail("expected the only slot to be taken");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_refuse_node_out_of_range() {
+        new TimeOrderedPricingIdGenerator(0x10000);
+    }
+}